@@ -9,6 +9,7 @@ java {
 
 dependencies {
     implementation("org.apache.ant:ant:1.10.12")
+    testImplementation("junit:junit:4.13.2")
 }
 
 tasks {
@@ -18,7 +18,9 @@
 
 package jdiff;
 
+import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
 import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Javadoc;
@@ -27,15 +29,31 @@ import org.apache.tools.ant.taskdefs.Javadoc.DocletParam;
 import org.apache.tools.ant.types.DirSet;
 import org.apache.tools.ant.types.EnumeratedAttribute;
 import org.apache.tools.ant.types.Path;
+import org.apache.tools.ant.util.JavaEnvUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.CodeSource;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -74,17 +92,73 @@ public class JDiffAntTask {
      */
     private boolean verbose;
 
+    /**
+     * Run the two Javadoc reports and the two XML generations at the same
+     * time if set with "yes", "on" or "true". Each run is still a separate
+     * Javadoc process, and its output is also written to its own file in
+     * the "logs" subdirectory of the report. Default is false.
+     */
+    private boolean parallel;
+
+    /**
+     * If set, the Javadoc reports and XML files for each project are kept
+     * in this directory, under a fingerprint of the project's source files,
+     * the options used, the JDiff version and the JDK. When the fingerprint
+     * matches on a later run, the output is copied from here instead of
+     * running Javadoc again. The assets of this task, such as the JDiff jars, are
+     * also extracted here, or into "jdiff_cache" in the temporary
+     * directory if this is not set. Default is no cache of the output.
+     */
+    private File cachedir;
+
+    /**
+     * Compare the XML files by running Javadoc with the JDiff doclet over
+     * an empty source file if set, as older versions of this task did.
+     * By default, JDiff is called directly, without starting Javadoc.
+     */
+    private boolean javadoccomparison;
+
     /**
      * Add the -docchanges argument, to track changes in Javadoc documentation
      * as well as changes in classes etc.
      */
     private boolean docchanges;
 
+    /**
+     * Add the -ignoredocreformat argument, to not report documentation
+     * changes which are only reformatting.
+     */
+    private boolean ignoredocreformat;
+
     /**
      * Add the -incompatible argument, to only report incompatible changes.
      */
     private boolean incompatible;
 
+    /**
+     * Add the -lazydocs argument, to read documentation from the XML
+     * files only when it is needed.
+     */
+    private boolean lazydocs;
+
+    /**
+     * Add the -progress argument with this number of seconds between the
+     * progress lines of the comparison, if it is not negative.
+     */
+    private int progressinterval = -1;
+
+    /**
+     * Add the -maxwarnings argument with this number of warnings of each
+     * kind to log, unless it is null.
+     */
+    private Integer maxwarnings;
+
+    /**
+     * Add the -heapbudget argument with this number of MB, unless it is
+     * null.
+     */
+    private Integer heapbudget;
+
     /**
      * Add statistics to the report if set. Default can only be false.
      */
@@ -245,9 +319,25 @@ public class JDiffAntTask {
                         .collect(Collectors.joining(File.pathSeparator))
         );
 
-        // Call Javadoc twice to generate Javadoc for each project
-        generateJavadoc(oldProject, AdditionalParamInfo::isOldJavadoc);
-        generateJavadoc(newProject, AdditionalParamInfo::isNewJavadoc);
+        // The four Javadoc runs before the comparison are independent
+        ExecutorService executor = null;
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        if (parallel) {
+            executor = Executors.newFixedThreadPool(4);
+            ExecutorService runner = executor;
+            runs.add(CompletableFuture.runAsync(() ->
+                    generateJavadoc(oldProject, AdditionalParamInfo::isOldJavadoc), runner));
+            runs.add(CompletableFuture.runAsync(() ->
+                    generateJavadoc(newProject, AdditionalParamInfo::isNewJavadoc), runner));
+            runs.add(futureJDiffClasspath.thenAcceptAsync(classpath ->
+                    generateXML(oldProject, classpath, AdditionalParamInfo::isOldJavadocXML), runner));
+            runs.add(futureJDiffClasspath.thenAcceptAsync(classpath ->
+                    generateXML(newProject, classpath, AdditionalParamInfo::isNewJavadocXML), runner));
+        } else {
+            // Call Javadoc twice to generate Javadoc for each project
+            generateJavadoc(oldProject, AdditionalParamInfo::isOldJavadoc);
+            generateJavadoc(newProject, AdditionalParamInfo::isNewJavadoc);
+        }
 
         // Get the result of the async process
         File assets;
@@ -256,41 +346,272 @@ public class JDiffAntTask {
             assets = futureAssets.get();
             jDiffClasspath = futureJDiffClasspath.get();
         } catch (ExecutionException|InterruptedException e) {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
             throw new BuildException(e);
         }
 
         try {
-            // Call Javadoc three times for JDiff.
-            generateXML(oldProject, jDiffClasspath, AdditionalParamInfo::isOldJavadocXML);
-            generateXML(newProject, jDiffClasspath, AdditionalParamInfo::isNewJavadocXML);
+            if (parallel) {
+                // Wait for all the runs before comparing
+                awaitAll(runs);
+            } else {
+                // Call Javadoc three times for JDiff.
+                generateXML(oldProject, jDiffClasspath, AdditionalParamInfo::isOldJavadocXML);
+                generateXML(newProject, jDiffClasspath, AdditionalParamInfo::isNewJavadocXML);
+            }
             compareXML(oldProject.getName(), newProject.getName(), assets, jDiffClasspath, AdditionalParamInfo::isComparison);
 
             // Repeat some useful information
             logReportLocation();
         } finally {
-            // Delete the temporary folder recursively
-            try (Stream<java.nio.file.Path> walk = Files.walk(assets.toPath())) {
-                //noinspection ResultOfMethodCallIgnored
-                walk.sorted(Comparator.reverseOrder())
-                        .map(java.nio.file.Path::toFile)
-                        .forEach(File::delete);
-            } catch (IOException e) {
-                project.log(" Failed to delete the temporary folder " + assets, e, Project.MSG_WARN);
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Wait for all the given runs to finish, and rethrow the first failure.
+     */
+    private void awaitAll(List<CompletableFuture<Void>> runs) throws BuildException {
+        try {
+            CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BuildException) {
+                throw (BuildException) e.getCause();
+            }
+            throw new BuildException(e.getCause());
+        }
+    }
+
+    /**
+     * Execute a Javadoc task. When running in parallel, the output of the
+     * task is also written to its own log file, since the output of the
+     * runs is interleaved in the Ant log.
+     *
+     * @param javadoc The Javadoc task to execute
+     * @param logName The name of the log file, without the extension
+     */
+    private void perform(Javadoc javadoc, String logName) {
+        if (!parallel) {
+            javadoc.perform();
+            return;
+        }
+        File logDir = new File(destdir, "logs");
+        if (!logDir.mkdir() && !logDir.isDirectory()) {
+            project.log("Warning: unable to create " + logDir, Project.MSG_WARN);
+            javadoc.perform();
+            return;
+        }
+        File logFile = new File(logDir, logName + ".log");
+        try (RunLog runLog = new RunLog(javadoc, logFile)) {
+            project.addBuildListener(runLog);
+            try {
+                javadoc.perform();
+            } finally {
+                project.removeBuildListener(runLog);
+            }
+        } catch (IOException e) {
+            project.log("Warning: unable to write " + logFile, e, Project.MSG_WARN);
+        }
+    }
+
+    /**
+     * Run a step which generates output for a project, or copy the output
+     * from the cache if the step has already been run with the same
+     * source files and options.
+     *
+     * @param kind The name of the step, used in the cache entry name
+     * @param proj The project
+     * @param options The options which affect the output of the step
+     * @param classpath The classpath of the doclet, or null if there is none
+     * @param output The file or directory which the step generates
+     * @param step The step itself
+     */
+    private void runCached(String kind, ProjectInfo proj, String options, String classpath,
+                           java.nio.file.Path output, Runnable step) {
+        if (cachedir == null) {
+            step.run();
+            return;
+        }
+        java.nio.file.Path entry;
+        try {
+            entry = cachedir.toPath().resolve(kind + "-" + fingerprint(proj, options, classpath));
+            if (Files.isDirectory(entry)) {
+                project.log("Using cached " + kind + " for " + proj.getName() + " from " + entry, Project.MSG_INFO);
+                copyTree(entry.resolve(output.getFileName().toString()), output);
+                return;
+            }
+        } catch (IOException e) {
+            project.log("Warning: unable to read the cache in " + cachedir, e, Project.MSG_WARN);
+            step.run();
+            return;
+        }
+
+        step.run();
+
+        java.nio.file.Path temp = null;
+        try {
+            Files.createDirectories(cachedir.toPath());
+            temp = Files.createTempDirectory(cachedir.toPath(), kind + "-");
+            copyTree(output, temp.resolve(output.getFileName().toString()));
+            publish(temp, entry);
+        } catch (IOException e) {
+            project.log("Warning: unable to add " + output + " to the cache in " + cachedir, e, Project.MSG_WARN);
+        } finally {
+            if (temp != null && Files.exists(temp)) {
+                deleteTree(temp);
             }
         }
     }
 
+    /**
+     * Move a complete cache entry into place in one step, so that a
+     * concurrent or interrupted build never sees a partial entry. If
+     * another build published the same entry first, the temporary
+     * directory is left for the caller to delete.
+     *
+     * @param temp The temporary directory with the entry
+     * @param entry The name of the entry in the cache
+     */
+    private static void publish(java.nio.file.Path temp, java.nio.file.Path entry) throws IOException {
+        try {
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Depending on the platform, losing the race to another build
+            // can show up as several different exceptions
+            if (!Files.isDirectory(entry)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Return the options which affect the output of a Javadoc run.
+     */
+    private String javadocOptions(Predicate<AdditionalParamInfo> additionalParamFilter) {
+        List<Object> options = new ArrayList<>(Arrays.asList(
+                getSource(), getAccess().getValue(), getAuthor(), getGroup(), isBreakIterator(), isLinkSource(),
+                getEncoding(), getDocEncoding(), getCharset(), linkOffline,
+                htmlText(javadocTitle), htmlText(javadocBottom), htmlText(javadocHeader), htmlText(javadocFooter)));
+        Optional.ofNullable(additionalParameters).ifPresent(list -> list.stream()
+                .filter(additionalParamFilter)
+                .forEach(additionalParamInfo -> options.add(additionalParamInfo.getValue())));
+        return options.toString();
+    }
+
+    private static String htmlText(Javadoc.Html html) {
+        return html == null ? null : html.getText();
+    }
+
+    /**
+     * Return a fingerprint of the source files of a project, the given
+     * options, the contents of the files on the given classpath and the JDK
+     * which runs Javadoc, so that a new version of JDiff or of the JDK gives
+     * a new fingerprint.
+     */
+    private String fingerprint(ProjectInfo proj, String options, String classpath) throws IOException {
+        MessageDigest digest = newDigest();
+        digest.update((proj.getName() + options).getBytes(StandardCharsets.UTF_8));
+        // Javadoc runs from the JDK which runs Ant, unless Ant forks it
+        digest.update((System.getProperty("java.version") + System.getProperty("java.home")
+                + JavaEnvUtils.getJdkExecutable("javadoc")).getBytes(StandardCharsets.UTF_8));
+        if (classpath != null) {
+            for (String entry : classpath.split(File.pathSeparator)) {
+                File file = new File(entry);
+                if (file.isFile()) {
+                    digestFile(digest, file.toPath());
+                }
+            }
+        }
+        for (DirSet dirSet : proj.getDirsets()) {
+            DirectoryScanner dirScanner = dirSet.getDirectoryScanner(project);
+            digest.update(String.join(",", dirScanner.getIncludedDirectories()).getBytes(StandardCharsets.UTF_8));
+            java.nio.file.Path root = dirSet.getDir(project).toPath();
+            List<java.nio.file.Path> files;
+            try (Stream<java.nio.file.Path> walk = Files.walk(root)) {
+                files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (java.nio.file.Path file : files) {
+                digest.update(root.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digestFile(digest, file);
+            }
+        }
+        return toHex(digest);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new BuildException(e);
+        }
+    }
+
+    private static String toHex(MessageDigest digest) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static void digestFile(MessageDigest digest, java.nio.file.Path file) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            //noinspection StatementWithEmptyBody
+            while (in.read(buffer) != -1) {
+            }
+        }
+    }
+
+    /**
+     * Copy a file, or a directory and everything in it.
+     */
+    private static void copyTree(java.nio.file.Path src, java.nio.file.Path dest) throws IOException {
+        try (Stream<java.nio.file.Path> walk = Files.walk(src)) {
+            for (java.nio.file.Path path : (Iterable<java.nio.file.Path>) walk::iterator) {
+                java.nio.file.Path target = dest.resolve(src.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete a directory and everything in it.
+     */
+    private void deleteTree(java.nio.file.Path dir) {
+        try (Stream<java.nio.file.Path> walk = Files.walk(dir)) {
+            //noinspection ResultOfMethodCallIgnored
+            walk.sorted(Comparator.reverseOrder())
+                    .map(java.nio.file.Path::toFile)
+                    .forEach(File::delete);
+        } catch (IOException e) {
+            project.log(" Failed to delete the temporary folder " + dir, e, Project.MSG_WARN);
+        }
+    }
+
     private void logReportLocation() {
         project.log(" Report location: " + destdir + File.separator + "changes.html", Project.MSG_INFO);
     }
 
     /**
-     * Extracts the assets into a temporary folder.
-     * @return The temporary folder.
+     * Extracts the assets into a cache folder, unless they have already
+     * been extracted there by an earlier run. The folder is named after
+     * a fingerprint of the jar of this task, so each version of the task
+     * has its own, and once it is complete it is never changed, so builds
+     * running at the same time can share it.
+     * @return The folder with the assets.
      */
     private File extractAssets() throws IOException, URISyntaxException {
         String dir = "/META-INF/assets";
-        java.nio.file.Path tempFolder = Files.createTempDirectory("jdiff_jars_");
         URI uri = Objects.requireNonNull(JDiffAntTask.class.getResource(dir)).toURI();
         java.nio.file.Path path;
         FileSystem fileSystem = null;
@@ -301,22 +622,62 @@ public class JDiffAntTask {
             } else {
                 path = Paths.get(uri);
             }
-            try(Stream<java.nio.file.Path> walk = Files.walk(path, 2)) {
-                walk.forEach(subPath -> {
-                    java.nio.file.Path target = tempFolder.resolve(path.relativize(subPath).toString());
-                    try {
-                        Files.copy(subPath, target, StandardCopyOption.REPLACE_EXISTING);
-                    } catch (IOException e) {
-                        throw new BuildException("Could not copy file " + subPath + " to " +target, e);
-                    }
-                });
+            java.nio.file.Path base = (cachedir != null ? cachedir
+                    : new File(System.getProperty("java.io.tmpdir"), "jdiff_cache")).toPath();
+            java.nio.file.Path entry = base.resolve("assets-" + assetsFingerprint(path));
+            if (Files.isDirectory(entry)) {
+                return entry.toFile();
+            }
+
+            Files.createDirectories(base);
+            java.nio.file.Path tempFolder = Files.createTempDirectory(base, "assets-");
+            try {
+                try (Stream<java.nio.file.Path> walk = Files.walk(path, 2)) {
+                    walk.forEach(subPath -> {
+                        java.nio.file.Path target = tempFolder.resolve(path.relativize(subPath).toString());
+                        try {
+                            Files.copy(subPath, target, StandardCopyOption.REPLACE_EXISTING);
+                        } catch (IOException e) {
+                            throw new BuildException("Could not copy file " + subPath + " to " + target, e);
+                        }
+                    });
+                }
+                publish(tempFolder, entry);
+            } finally {
+                if (Files.exists(tempFolder)) {
+                    deleteTree(tempFolder);
+                }
             }
+            return entry.toFile();
         } finally {
             if (fileSystem != null) {
                 fileSystem.close();
             }
         }
-        return tempFolder.toFile();
+    }
+
+    /**
+     * Return a fingerprint of the assets. This is the fingerprint of the
+     * jar of this task when there is one, which is cheaper than reading
+     * each asset out of it.
+     */
+    private static String assetsFingerprint(java.nio.file.Path assets) throws IOException, URISyntaxException {
+        MessageDigest digest = newDigest();
+        CodeSource codeSource = JDiffAntTask.class.getProtectionDomain().getCodeSource();
+        java.nio.file.Path jar = codeSource == null ? null : Paths.get(codeSource.getLocation().toURI());
+        if (jar != null && Files.isRegularFile(jar)) {
+            digestFile(digest, jar);
+        } else {
+            List<java.nio.file.Path> files;
+            try (Stream<java.nio.file.Path> walk = Files.walk(assets, 2)) {
+                files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (java.nio.file.Path file : files) {
+                digest.update(assets.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digestFile(digest, file);
+            }
+        }
+        return toHex(digest);
     }
 
     private void addAdditionalParams(Javadoc javadoc, Predicate<AdditionalParamInfo> additionalParamFilter) {
@@ -365,13 +726,15 @@ public class JDiffAntTask {
         dp3.setName("-apidir");
         dp3.setValue(getDestdir().toString());
 
-        // Execute the Javadoc command to generate the XML file.
-        javadoc.perform();
+        // Execute the Javadoc command to generate the XML file, unless
+        // it is already in the cache
+        runCached("xml", proj, javadocOptions(additionalParamFilter), jDiffClasspath,
+                getDestdir().toPath().resolve(apiName + ".xml"),
+                () -> perform(javadoc, "xml_" + apiName));
     }
 
     /**
-     * Convenient method to create a Javadoc task, configure it and run it
-     * to compare the XML representations of two instances of a project's
+     * Compare the XML representations of two instances of a project's
      * source files, and generate an HTML report summarizing the differences.
      * @param oldapiname The name of the older version of the project
      * @param newapiname The name of the newer version of the project
@@ -380,55 +743,29 @@ public class JDiffAntTask {
      */
     private void compareXML(String oldapiname, String newapiname, File assets, String jDiffClasspath,
                             Predicate<AdditionalParamInfo> additionalParamFilter) {
-        Javadoc javadoc = initJavadoc("Comparing versions");
-        Optional.ofNullable(getDocEncoding()).ifPresent(javadoc::setDocencoding);
-        addAdditionalParams(javadoc, additionalParamFilter);
-        javadoc.setDestdir(getDestdir());
-
-        // Tell Javadoc which files we want to scan - a dummy file in this case
-        javadoc.setSourcefiles(assets + File.separator + "Null.java");
-
-        // Create the DocletInfo first so we have a way to use it to add params
-        DocletInfo dInfo = javadoc.createDoclet();
-        javadoc.setDoclet("jdiff.JDiff");
-        javadoc.setDocletPath(new Path(project, jDiffClasspath));
-
-        // Now set up some parameters for the JDiff doclet.
-        DocletParam dp1 = dInfo.createParam();
-        dp1.setName("-oldapi");
-        dp1.setValue(oldapiname);
-        DocletParam dp2 = dInfo.createParam();
-        dp2.setName("-newapi");
-        dp2.setValue(newapiname);
+        // Set up the parameters for JDiff, as pairs of the name and value,
+        // with a null value for parameters which have no arguments.
+        List<String[]> params = new ArrayList<>();
+        params.add(new String[]{"-oldapi", oldapiname});
+        params.add(new String[]{"-newapi", newapiname});
         // Get the generated XML files from the same directory as the report
-        DocletParam dp3 = dInfo.createParam();
-        dp3.setName("-oldapidir");
-        dp3.setValue(getDestdir().toString());
-        DocletParam dp4 = dInfo.createParam();
-        dp4.setName("-newapidir");
-        dp4.setValue(getDestdir().toString());
+        params.add(new String[]{"-oldapidir", getDestdir().toString()});
+        params.add(new String[]{"-newapidir", getDestdir().toString()});
 
         // Assume that Javadoc reports already exist in ../"apiname"
-        DocletParam dp5 = dInfo.createParam();
-        dp5.setName("-javadocold");
-        dp5.setValue(".." + File.separator + oldapiname + File.separator);
-        DocletParam dp6 = dInfo.createParam();
-        dp6.setName("-javadocnew");
-        dp6.setValue(".." + File.separator + newapiname + File.separator);
+        params.add(new String[]{"-javadocold", ".." + File.separator + oldapiname + File.separator});
+        params.add(new String[]{"-javadocnew", ".." + File.separator + newapiname + File.separator});
 
         if (!compareMethodInheritance) {
-            DocletParam docletParam = dInfo.createParam();
-            docletParam.setName("-dontcomparemethodinheritance");
+            params.add(new String[]{"-dontcomparemethodinheritance", null});
         }
 
         if (!compareFieldInheritance) {
-            DocletParam docletParam = dInfo.createParam();
-            docletParam.setName("-dontcomparefieldinheritance");
+            params.add(new String[]{"-dontcomparefieldinheritance", null});
         }
 
         if (getStats()) {
-            // There are no arguments to this argument
-            dInfo.createParam().setName("-stats");
+            params.add(new String[]{"-stats", null});
 
             File reportSubDir = new File(getDestdir() + File.separator + "changes");
             if (!reportSubDir.mkdir() && !reportSubDir.exists()) {
@@ -445,13 +782,162 @@ public class JDiffAntTask {
         }
 
         if (getDocchanges()) {
-            // There are no arguments to this argument
-            dInfo.createParam().setName("-docchanges");
+            params.add(new String[]{"-docchanges", null});
+        }
+
+        if (getIgnoredocreformat()) {
+            params.add(new String[]{"-ignoredocreformat", null});
+        }
+
+        if (getLazydocs()) {
+            params.add(new String[]{"-lazydocs", null});
         }
 
         if (getIncompatible()) {
-            // There are no arguments to this argument
-            dInfo.createParam().setName("-incompatible");
+            params.add(new String[]{"-incompatible", null});
+        }
+
+        if (getProgressinterval() >= 0) {
+            params.add(new String[]{"-progress", String.valueOf(getProgressinterval())});
+        }
+
+        if (getMaxwarnings() != null) {
+            params.add(new String[]{"-maxwarnings", String.valueOf(getMaxwarnings())});
+        }
+
+        if (getHeapbudget() != null) {
+            params.add(new String[]{"-heapbudget", String.valueOf(getHeapbudget())});
+        }
+
+        if (javadoccomparison) {
+            compareWithJavadoc(assets, jDiffClasspath, additionalParamFilter, params);
+        } else {
+            compareInProcess(jDiffClasspath, additionalParamFilter, params);
+        }
+    }
+
+    /**
+     * Compare the XML files by calling JDiff directly in this JVM, without
+     * starting Javadoc.
+     */
+    private void compareInProcess(String jDiffClasspath,
+                                  Predicate<AdditionalParamInfo> additionalParamFilter, List<String[]> params) {
+        List<String> args = new ArrayList<>();
+        Map<String, String> properties = new LinkedHashMap<>();
+        args.add("-d");
+        args.add(getDestdir().getAbsolutePath());
+        Optional.ofNullable(getDocEncoding()).ifPresent(docEncoding -> {
+            args.add("-docencoding");
+            args.add(docEncoding);
+        });
+        for (String[] param : params) {
+            args.add(param[0]);
+            if (param[1] != null) {
+                args.add(param[1]);
+            }
+        }
+        Optional.ofNullable(additionalParameters).ifPresent(list -> list.forEach(additionalParamInfo -> {
+            if (additionalParamFilter.test(additionalParamInfo)) {
+                String value = Objects.requireNonNull(
+                        additionalParamInfo.getValue(),
+                        "The additional param value cannot be null"
+                );
+                if (value.startsWith("-J-D")) {
+                    // A system property for the Javadoc JVM
+                    int equals = value.indexOf('=');
+                    properties.put(value.substring(4, equals == -1 ? value.length() : equals),
+                            equals == -1 ? "" : value.substring(equals + 1));
+                } else if (value.startsWith("-J")) {
+                    project.log("Warning: " + value + " is ignored when the comparison is not run by Javadoc",
+                            Project.MSG_WARN);
+                } else {
+                    args.add(value);
+                }
+            }
+        }));
+
+        project.log("Comparing versions", Project.MSG_INFO);
+        compareInProcess(jDiffClasspath, args, properties);
+    }
+
+    /**
+     * Load JDiff from the given classpath in a class loader of its own, so
+     * that nothing is left over from an earlier comparison in the same
+     * build, and call <code>CompareAPIs.compare</code> with the given
+     * arguments. The system properties are set for the length of the call
+     * only.
+     *
+     * @param jDiffClasspath The JDiff classpath
+     * @param args The arguments, as for <code>jdiff.CompareAPIs</code>
+     * @param properties The system properties to set while JDiff runs
+     * @throws BuildException if JDiff cannot be loaded, or the report was
+     *                        not generated
+     */
+    static void compareInProcess(String jDiffClasspath, List<String> args, Map<String, String> properties)
+            throws BuildException {
+        List<URL> urls = new ArrayList<>();
+        for (String entry : jDiffClasspath.split(File.pathSeparator)) {
+            try {
+                urls.add(new File(entry).toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new BuildException("Error: invalid JDiff classpath entry " + entry, e);
+            }
+        }
+        Map<String, String> previous = new HashMap<>();
+        properties.forEach((key, value) -> previous.put(key, System.setProperty(key, value)));
+        Thread thread = Thread.currentThread();
+        ClassLoader contextLoader = thread.getContextClassLoader();
+        // Only the JDK is shared with JDiff, not the classes which run Ant
+        try (URLClassLoader loader = new URLClassLoader(urls.toArray(new URL[0]),
+                ClassLoader.getSystemClassLoader().getParent())) {
+            // The XML parser is looked up through the context class loader
+            thread.setContextClassLoader(loader);
+            Method compare = loader.loadClass("jdiff.CompareAPIs").getMethod("compare", String[].class);
+            if (!(Boolean) compare.invoke(null, (Object) args.toArray(new String[0]))) {
+                throw new BuildException("Error: JDiff could not compare the two versions, see the messages above");
+            }
+        } catch (InvocationTargetException e) {
+            throw new BuildException("Error: JDiff failed to compare the two versions", e.getCause());
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new BuildException("Error: unable to run JDiff from " + jDiffClasspath, e);
+        } finally {
+            thread.setContextClassLoader(contextLoader);
+            previous.forEach((key, value) -> {
+                if (value == null) {
+                    System.clearProperty(key);
+                } else {
+                    System.setProperty(key, value);
+                }
+            });
+        }
+    }
+
+    /**
+     * Convenient method to create a Javadoc task, configure it and run it
+     * over an empty source file, so that the JDiff doclet compares the
+     * two XML files.
+     */
+    private void compareWithJavadoc(File assets, String jDiffClasspath,
+                                    Predicate<AdditionalParamInfo> additionalParamFilter, List<String[]> params) {
+        Javadoc javadoc = initJavadoc("Comparing versions");
+        Optional.ofNullable(getDocEncoding()).ifPresent(javadoc::setDocencoding);
+        addAdditionalParams(javadoc, additionalParamFilter);
+        javadoc.setDestdir(getDestdir());
+
+        // Tell Javadoc which files we want to scan - a dummy file in this case
+        javadoc.setSourcefiles(assets + File.separator + "Null.java");
+
+        // Create the DocletInfo first so we have a way to use it to add params
+        DocletInfo dInfo = javadoc.createDoclet();
+        javadoc.setDoclet("jdiff.JDiff");
+        javadoc.setDocletPath(new Path(project, jDiffClasspath));
+
+        for (String[] param : params) {
+            DocletParam docletParam = dInfo.createParam();
+            docletParam.setName(param[0]);
+            if (param[1] != null) {
+                docletParam.setValue(param[1]);
+            }
         }
 
         // Execute the Javadoc command to compare the two XML files
@@ -482,8 +968,10 @@ public class JDiffAntTask {
 
         javadoc.setPackagenames(getPackageList(proj));
 
-        // Execute the Javadoc command to generate a regular Javadoc report
-        javadoc.perform();
+        // Execute the Javadoc command to generate a regular Javadoc report,
+        // unless it is already in the cache
+        runCached("javadoc", proj, javadocOptions(additionalParamFilter), null, new File(destdir, apiName).toPath(),
+                () -> perform(javadoc, "javadoc_" + apiName));
     }
 
     /**
@@ -602,6 +1090,30 @@ public class JDiffAntTask {
         this.verbose = value;
     }
 
+    public boolean getParallel() {
+        return this.parallel;
+    }
+
+    public void setParallel(boolean value) {
+        this.parallel = value;
+    }
+
+    public File getCachedir() {
+        return this.cachedir;
+    }
+
+    public void setCachedir(File value) {
+        this.cachedir = value;
+    }
+
+    public boolean getJavadoccomparison() {
+        return this.javadoccomparison;
+    }
+
+    public void setJavadoccomparison(boolean value) {
+        this.javadoccomparison = value;
+    }
+
     public boolean getDocchanges() {
         return this.docchanges;
     }
@@ -610,6 +1122,46 @@ public class JDiffAntTask {
         this.docchanges = value;
     }
 
+    public boolean getIgnoredocreformat() {
+        return this.ignoredocreformat;
+    }
+
+    public void setIgnoredocreformat(boolean value) {
+        this.ignoredocreformat = value;
+    }
+
+    public boolean getLazydocs() {
+        return this.lazydocs;
+    }
+
+    public void setLazydocs(boolean value) {
+        this.lazydocs = value;
+    }
+
+    public int getProgressinterval() {
+        return this.progressinterval;
+    }
+
+    public void setProgressinterval(int value) {
+        this.progressinterval = value;
+    }
+
+    public Integer getMaxwarnings() {
+        return this.maxwarnings;
+    }
+
+    public void setMaxwarnings(Integer value) {
+        this.maxwarnings = value;
+    }
+
+    public Integer getHeapbudget() {
+        return this.heapbudget;
+    }
+
+    public void setHeapbudget(Integer value) {
+        this.heapbudget = value;
+    }
+
     public boolean getIncompatible() {
         return this.incompatible;
     }
@@ -922,4 +1474,55 @@ public class JDiffAntTask {
         }
 
     }
+
+    /**
+     * Writes the messages logged by one task to a file.
+     */
+    private static class RunLog implements BuildListener, AutoCloseable {
+
+        private final Javadoc task;
+
+        private final PrintWriter out;
+
+        RunLog(Javadoc task, File logFile) throws IOException {
+            this.task = task;
+            this.out = new PrintWriter(Files.newBufferedWriter(logFile.toPath()));
+        }
+
+        @Override
+        public synchronized void messageLogged(BuildEvent event) {
+            if (event.getTask() == task) {
+                out.println(event.getMessage());
+            }
+        }
+
+        @Override
+        public void buildStarted(BuildEvent event) {
+        }
+
+        @Override
+        public void buildFinished(BuildEvent event) {
+        }
+
+        @Override
+        public void targetStarted(BuildEvent event) {
+        }
+
+        @Override
+        public void targetFinished(BuildEvent event) {
+        }
+
+        @Override
+        public void taskStarted(BuildEvent event) {
+        }
+
+        @Override
+        public void taskFinished(BuildEvent event) {
+        }
+
+        @Override
+        public synchronized void close() {
+            out.close();
+        }
+    }
 }
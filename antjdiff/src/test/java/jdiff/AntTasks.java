@@ -0,0 +1,158 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.DirSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sets up the JDiff task over two small versions of a project, whose
+ * source files the tests write, and compares the reports which it
+ * generates.
+ */
+final class AntTasks {
+
+    private AntTasks() {
+    }
+
+    /**
+     * Return a new Ant project, as a build file would have.
+     */
+    static Project newProject() {
+        Project project = new Project();
+        project.init();
+        return project;
+    }
+
+    /**
+     * Return a task which compares the old and new versions of the
+     * project in the given source directories, with one package named p.
+     */
+    static JDiffAntTask newTask(Project project, File destdir, File oldSrc, File newSrc) {
+        JDiffAntTask task = new JDiffAntTask();
+        task.setProject(project);
+        task.setDestdir(destdir);
+        task.setFailsOnError(true);
+        task.addConfiguredOld(projectInfo(project, "old", oldSrc));
+        task.addConfiguredNew(projectInfo(project, "new", newSrc));
+        return task;
+    }
+
+    private static JDiffAntTask.ProjectInfo projectInfo(Project project, String name, File src) {
+        JDiffAntTask.ProjectInfo info = new JDiffAntTask.ProjectInfo();
+        info.setName(name);
+        DirSet dirSet = new DirSet();
+        dirSet.setProject(project);
+        dirSet.setDir(src);
+        dirSet.setIncludes("p");
+        info.addDirset(dirSet);
+        return info;
+    }
+
+    /**
+     * Write the source file of a class in package p.
+     */
+    static void writeClass(File src, String className, String body) throws IOException {
+        File dir = new File(src, "p");
+        assertTrue(dir.isDirectory() || dir.mkdirs());
+        String source = "package p;\n\n/**\n * The class " + className + ".\n */\npublic class "
+                + className + " {\n" + body + "}\n";
+        Files.write(new File(dir, className + ".java").toPath(), source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Assert that two JDiff reports are the same, apart from the time at
+     * which they were generated. The Javadoc of each version is not
+     * compared, since it has the time on every page.
+     */
+    static void assertSameReport(File expected, File actual) throws IOException {
+        assertSameFile(new File(expected, "changes.html"), new File(actual, "changes.html"));
+        assertSameTree(new File(expected, "changes"), new File(actual, "changes"));
+    }
+
+    private static void assertSameTree(File expected, File actual) throws IOException {
+        String[] names = expected.list();
+        assertTrue("missing directory " + expected, names != null);
+        Arrays.sort(names);
+        String[] actualNames = actual.list();
+        assertTrue("missing directory " + actual, actualNames != null);
+        Arrays.sort(actualNames);
+        assertEquals("files in " + actual, Arrays.asList(names), Arrays.asList(actualNames));
+        for (String name : names) {
+            File expectedFile = new File(expected, name);
+            if (expectedFile.isDirectory()) {
+                assertSameTree(expectedFile, new File(actual, name));
+            } else {
+                assertSameFile(expectedFile, new File(actual, name));
+            }
+        }
+    }
+
+    private static void assertSameFile(File expected, File actual) throws IOException {
+        assertEquals("contents of " + actual, contents(expected), contents(actual));
+    }
+
+    private static List<String> contents(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.ISO_8859_1)) {
+            if (!line.startsWith("<!-- on "))
+                lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Return the contents of a file of the report.
+     */
+    static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Create an empty temporary directory.
+     */
+    static File newDirectory() throws IOException {
+        return Files.createTempDirectory("jdiff-ant-test").toFile();
+    }
+
+    /**
+     * Delete a file or a directory and everything in it.
+     */
+    static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
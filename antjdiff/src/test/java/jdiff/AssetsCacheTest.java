@@ -0,0 +1,92 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.apache.tools.ant.Project;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests extracting the assets of the Ant task into its cache once, for all
+ * the runs of the same version of the task.
+ */
+public class AssetsCacheTest {
+
+    private File dir_;
+
+    private File oldSrc_;
+
+    private File newSrc_;
+
+    private File cacheDir_;
+
+    private Project project_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = AntTasks.newDirectory();
+        oldSrc_ = new File(dir_, "oldsrc");
+        newSrc_ = new File(dir_, "newsrc");
+        cacheDir_ = new File(dir_, "cache");
+        AntTasks.writeClass(oldSrc_, "Removed", "");
+        AntTasks.writeClass(newSrc_, "Added", "");
+        project_ = AntTasks.newProject();
+    }
+
+    @After
+    public void tearDown() {
+        AntTasks.delete(dir_);
+    }
+
+    private File[] assetDirectories() {
+        return Objects.requireNonNull(cacheDir_.listFiles((dir, name) -> name.startsWith("assets-")));
+    }
+
+    @Test
+    public void assetsAreExtractedOnce() throws IOException {
+        JDiffAntTask first = AntTasks.newTask(project_, new File(dir_, "first"), oldSrc_, newSrc_);
+        first.setCachedir(cacheDir_);
+        first.execute();
+        File[] assets = assetDirectories();
+        assertEquals(1, assets.length);
+        assertTrue(new File(assets[0], "Null.java").isFile());
+        assertTrue(Objects.requireNonNull(new File(assets[0], "libs").list()).length > 0);
+        // The task does not use the logo, so a second run only has it back
+        // if it extracts the assets again
+        File logo = new File(assets[0], "jdiff_logo.gif");
+        assertTrue(logo.delete());
+
+        JDiffAntTask second = AntTasks.newTask(project_, new File(dir_, "second"), oldSrc_, newSrc_);
+        second.setCachedir(cacheDir_);
+        second.execute();
+        assertEquals(1, assetDirectories().length);
+        assertFalse(logo.exists());
+        AntTasks.assertSameReport(new File(dir_, "first"), new File(dir_, "second"));
+    }
+}
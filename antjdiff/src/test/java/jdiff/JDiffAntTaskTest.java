@@ -0,0 +1,158 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.apache.tools.ant.BuildException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests comparing two XML files with JDiff loaded in a class loader of its
+ * own, as the task does unless javadoccomparison is set.
+ */
+public class JDiffAntTaskTest {
+
+    private static final String PROPERTY = "jdiff.test.property";
+
+    private File dir_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = Files.createTempDirectory("jdiff-ant-test").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (java.util.stream.Stream<java.nio.file.Path> files = Files.walk(dir_.toPath())) {
+            files.sorted(Collections.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * Return the classpath of JDiff, from the libraries which are packed
+     * with the task.
+     */
+    private static String jDiffClasspath() throws URISyntaxException {
+        File libs = new File(JDiffAntTask.class.getResource("/META-INF/assets/libs").toURI());
+        return Arrays.stream(Objects.requireNonNull(libs.listFiles()))
+                .map(File::getAbsolutePath)
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private File writeAPI(String name, String className) throws IOException {
+        File xml = new File(dir_, name + ".xml");
+        String api = "<?xml version=\"1.0\" standalone=\"no\"?>\n"
+                + "<api name=\"" + name + "\" jdversion=\"2.0.0-PN\">\n"
+                + "<package name=\"p\">\n"
+                + "  <class name=\"" + className + "\" extends=\"java.lang.Object\" abstract=\"false\"\n"
+                + "    static=\"false\" final=\"false\" visibility=\"public\" deprecated=\"not deprecated\">\n"
+                + "  </class>\n"
+                + "</package>\n"
+                + "</api>\n";
+        Files.write(xml.toPath(), api.getBytes(StandardCharsets.UTF_8));
+        return xml;
+    }
+
+    private List<String> compareArgs(String... options) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "-d", dir_.getPath(),
+                "-oldapi", "old", "-oldapidir", dir_.getPath(),
+                "-newapi", "new", "-newapidir", dir_.getPath()));
+        args.addAll(Arrays.asList(options));
+        return args;
+    }
+
+    @Test
+    public void comparesTheXMLFiles() throws Exception {
+        writeAPI("old", "Removed");
+        writeAPI("new", "Added");
+        JDiffAntTask.compareInProcess(jDiffClasspath(), compareArgs(), Collections.emptyMap());
+        assertTrue(new File(dir_, "changes.html").isFile());
+        assertTrue(new File(dir_, "changes/pkg_p.html").isFile());
+    }
+
+    @Test
+    public void failsTheBuildWhenNoReportIsGenerated() throws Exception {
+        // The XML files are missing
+        try {
+            JDiffAntTask.compareInProcess(jDiffClasspath(), compareArgs(), Collections.emptyMap());
+            fail("the comparison should have failed");
+        } catch (BuildException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("could not compare"));
+        }
+        assertFalse(new File(dir_, "changes.html").exists());
+    }
+
+    @Test
+    public void failsTheBuildWhenAnOptionHasNoValue() throws Exception {
+        writeAPI("old", "Removed");
+        writeAPI("new", "Added");
+        try {
+            JDiffAntTask.compareInProcess(jDiffClasspath(), compareArgs("-doctitle"), Collections.emptyMap());
+            fail("the comparison should have failed");
+        } catch (BuildException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("could not compare"));
+        }
+    }
+
+    @Test
+    public void failsTheBuildWhenJDiffCannotBeLoaded() {
+        try {
+            JDiffAntTask.compareInProcess(dir_.getPath(), compareArgs(), Collections.emptyMap());
+            fail("the comparison should have failed");
+        } catch (BuildException e) {
+            assertTrue(e.getCause() instanceof ClassNotFoundException);
+        }
+    }
+
+    @Test
+    public void restoresTheJVMAfterAFailure() throws Exception {
+        ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        Map<String, String> properties = Collections.singletonMap(PROPERTY, "set");
+        try {
+            JDiffAntTask.compareInProcess(jDiffClasspath(), compareArgs(), properties);
+            fail("the comparison should have failed");
+        } catch (BuildException e) {
+            // The XML files are missing
+        }
+        assertNull(System.getProperty(PROPERTY));
+        assertSame(contextLoader, Thread.currentThread().getContextClassLoader());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.DefaultLogger;
+import org.apache.tools.ant.Project;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests reusing the Javadoc and XML output of earlier runs of the Ant
+ * task from its cache.
+ */
+public class JavadocCacheTest {
+
+    private static final String KEPT = "    /** Kept. */\n    public void kept() {\n    }\n";
+
+    private File dir_;
+
+    private File oldSrc_;
+
+    private File newSrc_;
+
+    private File cacheDir_;
+
+    private Project project_;
+
+    /**
+     * The messages about the output which was taken from the cache.
+     */
+    private final List<String> cached_ = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = AntTasks.newDirectory();
+        oldSrc_ = new File(dir_, "oldsrc");
+        newSrc_ = new File(dir_, "newsrc");
+        cacheDir_ = new File(dir_, "cache");
+        AntTasks.writeClass(oldSrc_, "Kept", KEPT);
+        AntTasks.writeClass(newSrc_, "Kept", KEPT + "\n    /** Added. */\n    public void added() {\n    }\n");
+        project_ = AntTasks.newProject();
+        project_.addBuildListener(new DefaultLogger() {
+            @Override
+            public void messageLogged(BuildEvent event) {
+                if (event.getMessage().startsWith("Using cached "))
+                    cached_.add(event.getMessage().substring(0, event.getMessage().indexOf(" from ")));
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        AntTasks.delete(dir_);
+    }
+
+    private JDiffAntTask newTask(String name) {
+        JDiffAntTask task = AntTasks.newTask(project_, new File(dir_, name), oldSrc_, newSrc_);
+        task.setCachedir(cacheDir_);
+        return task;
+    }
+
+    private List<String> sortedCached() {
+        return cached_.stream().sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    public void sameSourcesAreTakenFromTheCache() throws IOException {
+        newTask("first").execute();
+        assertEquals(Collections.emptyList(), cached_);
+        newTask("second").execute();
+        assertEquals(Arrays.asList("Using cached javadoc for new", "Using cached javadoc for old",
+                "Using cached xml for new", "Using cached xml for old"), sortedCached());
+        AntTasks.assertSameReport(new File(dir_, "first"), new File(dir_, "second"));
+        assertTrue(new File(dir_, "second/new/p/Kept.html").isFile());
+    }
+
+    @Test
+    public void changedSourceIsNotTakenFromTheCache() throws IOException {
+        newTask("first").execute();
+        AntTasks.writeClass(newSrc_, "Added", "");
+        newTask("second").execute();
+        assertEquals(Arrays.asList("Using cached javadoc for old", "Using cached xml for old"), sortedCached());
+        assertTrue(new File(dir_, "second/new/p/Added.html").isFile());
+        assertTrue(AntTasks.read(new File(dir_, "second/changes/pkg_p.html")).contains("Added"));
+    }
+
+    @Test
+    public void changedOptionIsNotTakenFromTheCache() throws IOException {
+        newTask("first").execute();
+        JDiffAntTask task = newTask("second");
+        task.setAuthor(false);
+        task.execute();
+        assertEquals(Collections.emptyList(), cached_);
+        AntTasks.assertSameReport(new File(dir_, "first"), new File(dir_, "second"));
+    }
+}
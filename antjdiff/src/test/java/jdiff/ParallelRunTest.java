@@ -0,0 +1,98 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests running the Javadoc and XML generation for the old and new
+ * projects at the same time.
+ */
+public class ParallelRunTest {
+
+    private File dir_;
+
+    private File oldSrc_;
+
+    private File newSrc_;
+
+    private Project project_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = AntTasks.newDirectory();
+        oldSrc_ = new File(dir_, "oldsrc");
+        newSrc_ = new File(dir_, "newsrc");
+        AntTasks.writeClass(oldSrc_, "Kept", "    /** Kept. */\n    public void kept() {\n    }\n");
+        AntTasks.writeClass(oldSrc_, "Removed", "");
+        AntTasks.writeClass(newSrc_, "Kept", "    /** Kept. */\n    public void kept() {\n    }\n\n"
+                + "    /** Added. */\n    public int added(int a) {\n        return a;\n    }\n");
+        AntTasks.writeClass(newSrc_, "Added", "");
+        project_ = AntTasks.newProject();
+    }
+
+    @After
+    public void tearDown() {
+        AntTasks.delete(dir_);
+    }
+
+    @Test
+    public void parallelRunsGiveTheSameReport() throws IOException {
+        File serialDir = new File(dir_, "serial");
+        AntTasks.newTask(project_, serialDir, oldSrc_, newSrc_).execute();
+        File parallelDir = new File(dir_, "parallel");
+        JDiffAntTask parallel = AntTasks.newTask(project_, parallelDir, oldSrc_, newSrc_);
+        parallel.setParallel(true);
+        parallel.execute();
+
+        assertTrue(new File(serialDir, "changes/pkg_p.html").isFile());
+        AntTasks.assertSameReport(serialDir, parallelDir);
+        // Each run which was interleaved with the others has its own log
+        for (String log : new String[] {"javadoc_old", "javadoc_new", "xml_old", "xml_new"}) {
+            assertTrue(log, new File(parallelDir, "logs/" + log + ".log").length() > 0);
+        }
+        assertFalse(new File(serialDir, "logs").exists());
+    }
+
+    @Test
+    public void failedRunFailsTheBuild() throws IOException {
+        AntTasks.writeClass(newSrc_, "Broken", "    public void broken( {\n    }\n");
+        JDiffAntTask task = AntTasks.newTask(project_, new File(dir_, "parallel"), oldSrc_, newSrc_);
+        task.setParallel(true);
+        try {
+            task.execute();
+            fail("the build should have failed");
+        } catch (BuildException e) {
+            // One of the runs over the new project failed
+        }
+        assertFalse(new File(dir_, "parallel/changes.html").exists());
+    }
+}
@@ -0,0 +1,59 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.6.5"
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    implementation(rootProject)
+}
+
+jmh {
+    jmhVersion.set("1.32")
+    // Run some of the suites only with, for example, -PjmhIncludes=CompareBenchmark
+    if (project.hasProperty("jmhIncludes")) {
+        includes.add(project.property("jmhIncludes").toString())
+    }
+    resultFormat.set("JSON")
+    jvmArgs.add("-Xmx4g")
+}
+
+tasks {
+    create<JavaExec>("heapBenchmark") {
+        group = "benchmark"
+        description = "Measures the heap retained by a synthetic API with 50,000 classes."
+        classpath = sourceSets["main"].runtimeClasspath
+        mainClass.set("jdiff.HeapBenchmark")
+        maxHeapSize = "4g"
+        args("50000")
+    }
+
+    create<JavaExec>("syntheticAPIs") {
+        group = "benchmark"
+        description = "Writes a synthetic API with 50,000 classes, and a mutated new version of it, into build/synthetic."
+        classpath = sourceSets["main"].runtimeClasspath
+        mainClass.set("jdiff.SyntheticAPI")
+        args(buildDir.resolve("synthetic").absolutePath)
+    }
+
+    create<JavaExec>("perfRegression") {
+        group = "verification"
+        description = "Runs JDiff end to end on small, medium and large synthetic APIs and fails if a figure regressed beyond its tolerance of perf-baseline.json."
+        classpath = sourceSets["main"].runtimeClasspath
+        mainClass.set("jdiff.RegressionSuite")
+        maxHeapSize = "2g"
+        args(file("perf-baseline.json").absolutePath, "-dir", buildDir.resolve("regression").absolutePath)
+        // Change the number of runs of each fixture with, for example, -PperfRuns=9
+        if (project.hasProperty("perfRuns")) {
+            args("-runs", project.property("perfRuns").toString())
+        }
+        // Record the figures of this machine as the new baseline with -PupdateBaseline
+        if (project.hasProperty("updateBaseline")) {
+            args("-update")
+        }
+    }
+}
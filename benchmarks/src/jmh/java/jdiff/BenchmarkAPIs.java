@@ -0,0 +1,122 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+
+/**
+ * The APIs which the JMH benchmarks work on: an old synthetic API and a
+ * mutated new variant of it, written to a temporary directory and read in
+ * using one context, as JDiff would read them for a comparison.
+ */
+final class BenchmarkAPIs {
+
+    /**
+     * The number of methods in each class of the synthetic APIs.
+     */
+    static final int MEMBERS = 10;
+
+    /**
+     * The directory which the XML files are written to.
+     */
+    final File dir_;
+
+    final File oldXML_;
+
+    final File newXML_;
+
+    /**
+     * The context which the APIs were read in with, which is also the
+     * current context of the thread which created this.
+     */
+    final JDiffContext ctx_;
+
+    API oldAPI_;
+
+    API newAPI_;
+
+    /**
+     * The context which was current before {@link #ctx_}.
+     */
+    private final JDiffContext previous_;
+
+    /**
+     * The standard output before it was silenced.
+     */
+    private final PrintStream out_;
+
+    /**
+     * Write the XML files for the APIs, in a new context with the default
+     * options, and stop JDiff's progress messages from being printed.
+     *
+     * @param classes the number of classes in each API
+     */
+    BenchmarkAPIs(int classes) throws IOException {
+        dir_ = Files.createTempDirectory("jdiff_jmh_").toFile();
+        SyntheticAPI oldAPI = new SyntheticAPI("old", classes, MEMBERS, 1L);
+        oldXML_ = oldAPI.write(dir_);
+        newXML_ = oldAPI.mutated("new", 0.02, 0.01, 0.02, 0.05, 2L).write(dir_);
+        ctx_ = new JDiffContext();
+        previous_ = JDiffContext.enter(ctx_);
+        out_ = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    /**
+     * Read both APIs in, sharing one table of names.
+     */
+    void read() {
+        ctx_.symbols = new SymbolTable();
+        oldAPI_ = XMLToAPI.readFile(ctx_, oldXML_.getPath(), false, "old");
+        newAPI_ = XMLToAPI.readFile(ctx_, newXML_.getPath(), true, "new");
+    }
+
+    /**
+     * Restore the standard output and the context, and delete the
+     * temporary files.
+     */
+    void close() {
+        System.setOut(out_);
+        JDiffContext.exit(previous_);
+        delete(dir_);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete())
+            System.out.println("Warning: could not delete " + file);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the differences between the old and new text of doc
+ * blocks with {@link Diff#saveDocDiffs}, which uses
+ * {@link DiffMyers#diff_2}. There is one changed doc block for each class
+ * of the API; about one word in ten differs between the old and the new
+ * text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DocDiffBenchmark {
+
+    /**
+     * Words used in the doc blocks.
+     */
+    private static final String[] WORDS = {
+            "the", "a", "value", "returns", "of", "this", "<code>null</code>", "if", "is",
+            "method", "class", "to", "and", "<b>not</b>", "given", "list", "which", "element",
+    };
+
+    /**
+     * The number of classes in the API, and so of changed doc blocks.
+     */
+    @Param({"1000", "10000"})
+    public int classes;
+
+    private String[] oldDocs_;
+
+    private String[] newDocs_;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1L);
+        oldDocs_ = new String[classes];
+        newDocs_ = new String[classes];
+        for (int i = 0; i < classes; i++) {
+            StringBuilder oldDoc = new StringBuilder();
+            StringBuilder newDoc = new StringBuilder();
+            for (int w = 0; w < 40; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                oldDoc.append(word).append(w % 10 == 9 ? ". " : " ");
+                int change = random.nextInt(30);
+                if (change == 0) {
+                    continue; // Removed
+                } else if (change == 1) {
+                    newDoc.append(WORDS[random.nextInt(WORDS.length)]).append(' '); // Added
+                } else if (change == 2) {
+                    word = WORDS[random.nextInt(WORDS.length)]; // Replaced
+                }
+                newDoc.append(word).append(w % 10 == 9 ? ". " : " ");
+            }
+            // Only doc blocks which differ are compared
+            if (newDoc.toString().equals(oldDoc.toString()))
+                newDoc.append("changed.");
+            oldDocs_[i] = oldDoc.toString();
+            newDocs_[i] = newDoc.toString();
+        }
+    }
+
+    @Benchmark
+    public void generateDiffs(Blackhole bh) {
+        JDiffContext ctx = new JDiffContext();
+        Diff diff = ctx.diff;
+        diff.noDocDiffs = false;
+        for (int i = 0; i < classes; i++) {
+            diff.saveDocDiffs(ctx, "org.example", "Class" + i, oldDocs_[i], newDocs_[i], "Class" + i, "Class Class" + i);
+        }
+        bh.consume(diff);
+    }
+}
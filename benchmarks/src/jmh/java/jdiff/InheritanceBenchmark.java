@@ -0,0 +1,88 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding the inherited methods and fields to each class of an API
+ * with {@link XMLToAPI#addInheritedElements()}. The inherited members
+ * are removed again before each invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InheritanceBenchmark {
+
+    /**
+     * The number of classes in the API.
+     */
+    @Param({"1000", "10000"})
+    public int classes;
+
+    private BenchmarkAPIs apis_;
+
+    @Setup
+    public void setUp() throws IOException {
+        apis_ = new BenchmarkAPIs(classes);
+        // The inherited members can only be removed from untrimmed lists
+        apis_.ctx_.trimLists = false;
+        apis_.read();
+    }
+
+    @Setup(Level.Invocation)
+    public void removeInherited() {
+        for (PackageAPI pkg : apis_.oldAPI_.packages_) {
+            for (ClassAPI cls : pkg.classes_) {
+                cls.methods_.removeIf(m -> m.inheritedFrom_ != null);
+                cls.fields_.removeIf(f -> f.inheritedFrom_ != null);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        apis_.close();
+    }
+
+    @Benchmark
+    public void addInheritedElements(Blackhole bh) {
+        new XMLToAPI(apis_.ctx_, apis_.oldAPI_).addInheritedElements();
+        bh.consume(apis_.oldAPI_);
+    }
+}
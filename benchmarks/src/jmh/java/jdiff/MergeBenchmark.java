@@ -0,0 +1,113 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning removed and added members into changed members with
+ * {@link MergeChanges#mergeRemoveAdd}. Before each invocation, every class
+ * of the old API is recorded as changed, with all its members removed and
+ * all the members of the same class in the new API added, which is the
+ * most work the merge can be given.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MergeBenchmark {
+
+    /**
+     * The number of classes in each API.
+     */
+    @Param({"1000", "10000"})
+    public int classes;
+
+    private BenchmarkAPIs apis_;
+
+    private APIDiff apiDiff_;
+
+    @Setup
+    public void setUp() throws IOException {
+        apis_ = new BenchmarkAPIs(classes);
+        apis_.read();
+    }
+
+    @Setup(Level.Invocation)
+    public void removeAndAdd() {
+        apiDiff_ = new APIDiff();
+        List<PackageAPI> newPackages = apis_.newAPI_.packages_;
+        for (int p = 0; p < newPackages.size(); p++) {
+            PackageAPI oldPkg = apis_.oldAPI_.packages_.get(p);
+            PackageAPI newPkg = newPackages.get(p);
+            PackageDiff pkgDiff = new PackageDiff(oldPkg.name_);
+            for (int c = 0; c < oldPkg.classes_.size(); c++) {
+                ClassAPI oldClass = oldPkg.classes_.get(c);
+                ClassAPI newClass = newPkg.classes_.get(c);
+                ClassDiff classDiff = new ClassDiff(oldClass.name_);
+                classDiff.removedCtors_ = sorted(oldClass.ctors_);
+                classDiff.addedCtors_ = sorted(newClass.ctors_);
+                classDiff.removedMethods_ = sorted(oldClass.methods_);
+                classDiff.addedMethods_ = sorted(newClass.methods_);
+                classDiff.removedFields_ = sorted(oldClass.fields_);
+                classDiff.addedFields_ = sorted(newClass.fields_);
+                pkgDiff.classesChanged.add(classDiff);
+            }
+            apiDiff_.packagesChanged.add(pkgDiff);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        apis_.close();
+    }
+
+    @Benchmark
+    public void mergeRemoveAdd(Blackhole bh) {
+        MergeChanges.mergeRemoveAdd(apiDiff_, apis_.ctx_);
+        bh.consume(apiDiff_);
+    }
+
+    private static <T extends Comparable<? super T>> List<T> sorted(List<T> list) {
+        List<T> copy = new ArrayList<>(list);
+        Collections.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing the HTML report, with statistics, into a temporary
+ * directory with {@link HTMLReportGenerator#generate}. Each invocation
+ * writes over the files of the one before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenderBenchmark {
+
+    /**
+     * The number of classes in each API.
+     */
+    @Param({"1000", "10000"})
+    public int classes;
+
+    private BenchmarkAPIs apis_;
+
+    private APIComparator comp_;
+
+    @Setup
+    public void setUp() throws IOException {
+        apis_ = new BenchmarkAPIs(classes);
+        apis_.read();
+        File report = new File(apis_.dir_, "report");
+        if (!report.mkdir())
+            throw new IOException("Could not create " + report);
+        apis_.ctx_.outputDir = report.getPath();
+        apis_.ctx_.doStats = true;
+        comp_ = new APIComparator(apis_.ctx_);
+        comp_.compareAPIs(apis_.oldAPI_, apis_.newAPI_);
+    }
+
+    @TearDown
+    public void tearDown() {
+        apis_.close();
+    }
+
+    @Benchmark
+    public void generate(Blackhole bh) {
+        HTMLReportGenerator reporter = new HTMLReportGenerator(apis_.ctx_);
+        reporter.generate(comp_, null);
+        bh.consume(reporter);
+    }
+}
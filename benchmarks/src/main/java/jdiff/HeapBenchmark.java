@@ -0,0 +1,134 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the heap retained by an API which has been read in from XML,
+ * with and without trimming the lists in its classes and methods, and
+ * with documentation read from the XML file on demand.
+ * <p>
+ * Usage: <code>HeapBenchmark [classes [members]]</code>. The defaults are
+ * 50,000 classes with 10 methods each. Each measurement is made in a new
+ * JVM, started with the same options as this one, so that nothing left
+ * over from one measurement is counted in the next.
+ */
+public class HeapBenchmark {
+
+    /**
+     * Keeps the API which is being measured reachable.
+     */
+    private static API retained;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 4) {
+            // Running in a child JVM
+            System.out.println(measure(new File(args[0]), Boolean.parseBoolean(args[2]), Boolean.parseBoolean(args[3])));
+            return;
+        }
+        int classes = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int members = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        File dir = Files.createTempDirectory("jdiff_heap_").toFile();
+        File xml = new SyntheticAPI("synthetic", classes, members, 1L).write(dir);
+        System.out.println("JDiff: wrote " + classes + " classes (" + xml.length() / (1024 * 1024) + " MB) to " + xml);
+        try {
+            long untrimmed = measureInChild(xml, false, false);
+            long trimmed = measureInChild(xml, true, false);
+            long lazy = measureInChild(xml, true, true);
+            System.out.println("JDiff: retained heap with untrimmed lists: " + untrimmed / 1024 + " KB");
+            System.out.println("JDiff: retained heap with trimmed lists:   " + trimmed / 1024 + " KB");
+            System.out.println("JDiff: retained heap with lazy docs:       " + lazy / 1024 + " KB");
+            System.out.println("JDiff: trimming saved " + (untrimmed - trimmed) * 100 / untrimmed + "%");
+            System.out.println("JDiff: lazy docs saved a further " + (trimmed - lazy) * 100 / trimmed + "%");
+        } finally {
+            if (!xml.delete() || !dir.delete())
+                System.out.println("Warning: could not delete " + dir);
+        }
+    }
+
+    /**
+     * Start a new JVM which reads the API in, and return the number of
+     * bytes of heap it reported.
+     */
+    private static long measureInChild(File xml, boolean trimLists, boolean lazyDocs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(HeapBenchmark.class.getName());
+        command.add(xml.getPath());
+        command.add("child");
+        command.add(String.valueOf(trimLists));
+        command.add(String.valueOf(lazyDocs));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String last = null;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (last != null)
+                    System.out.println(last);
+                last = line;
+            }
+        }
+        if (process.waitFor() != 0 || last == null) {
+            System.out.println("Error: the measurement failed: " + last);
+            System.exit(1);
+        }
+        return Long.parseLong(last.trim());
+    }
+
+    /**
+     * Read the API in and return the number of bytes of heap it retains.
+     */
+    private static long measure(File xml, boolean trimLists, boolean lazyDocs) {
+        JDiffContext ctx = JDiffContext.current();
+        ctx.trimLists = trimLists;
+        ctx.lazyDocs = lazyDocs;
+        long before = usedHeap();
+        System.out.print("JDiff: reading the API in from file '" + xml + "'...");
+        retained = XMLToAPI.readFile(ctx, xml.getPath(), false, xml.getName());
+        return usedHeap() - before;
+    }
+
+    /**
+     * Return the heap in use once the garbage collector has settled.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used)
+                break;
+            used = now;
+        }
+        return used;
+    }
+}
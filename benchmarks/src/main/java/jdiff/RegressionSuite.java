@@ -0,0 +1,358 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the whole of JDiff, from reading the XML files in through comparing
+ * the APIs to writing the HTML report, on small, medium and large
+ * synthetic APIs, and checks the figures against a baseline.
+ * <p>
+ * Usage: <code>RegressionSuite baseline.json [-dir directory] [-runs n]
+ * [-update]</code>. Each fixture is compared several times, each time in
+ * a new JVM started with the same options as this one, so that the JIT
+ * compiler and the garbage collector start from nothing as they do in a
+ * real run, after a first run which brings the files into the cache of
+ * the operating system. The medians over the runs of the wall time of the whole run
+ * and of each top-level phase in <code>jdiff_metrics.json</code>, of the
+ * peak resident set size of the JVM, which is only known on Linux, and of
+ * the bytes written to the report directory are then compared with the
+ * baseline.
+ * <p>
+ * A figure has regressed if it is more than its tolerance above the
+ * baseline. The tolerances are fractions of the baseline, kept in the
+ * baseline file itself, and wall times also have a fixed allowance for
+ * phases which are too short to measure reliably. The JVM exits with a
+ * non-zero code if any figure has regressed. With <code>-update</code>
+ * the medians are written to the baseline file instead, keeping its
+ * tolerances.
+ */
+public class RegressionSuite {
+
+    /**
+     * The names of the fixtures.
+     */
+    private static final String[] FIXTURES = {"small", "medium", "large"};
+
+    /**
+     * The number of classes in each fixture.
+     */
+    private static final int[] CLASSES = {500, 2000, 8000};
+
+    /**
+     * The tolerances used when the baseline file does not have them.
+     */
+    private static final String[][] DEFAULT_TOLERANCES = {
+            {"tolerance.wall", "0.25"},
+            {"slack.wallMillis", "50"},
+            {"tolerance.peakRSS", "0.20"},
+            {"tolerance.outputBytes", "0.05"},
+    };
+
+    /**
+     * Matches each name and number of the flat JSON object in a baseline
+     * file.
+     */
+    private static final Pattern ENTRY = Pattern.compile("\"([^\"]+)\"\\s*:\\s*(-?[0-9.eE+-]+)");
+
+    /**
+     * Matches the name and wall time of a phase in a metrics file.
+     */
+    private static final Pattern PHASE = Pattern.compile("\"name\": \"([^\"]+)\".*\"wallNanos\": (\\d+)");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 4 && args[0].compareTo("child") == 0) {
+            // Running in a child JVM
+            if (!CompareAPIs.compare(new File(args[1]), new File(args[2]), new File(args[3]), "-stats", "-docchanges"))
+                System.exit(1);
+            System.out.println(peakRSS());
+            return;
+        }
+        if (args.length == 0 || args[0].startsWith("-")) {
+            System.out.println("usage: java jdiff.RegressionSuite <baseline JSON file> [-dir directory] [-runs n] [-update]");
+            System.exit(1);
+        }
+        File baselineFile = new File(args[0]);
+        File dir = null;
+        int runs = 5;
+        boolean update = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].compareTo("-dir") == 0 && i + 1 < args.length) {
+                dir = new File(args[++i]);
+            } else if (args[i].compareTo("-runs") == 0 && i + 1 < args.length) {
+                runs = Integer.parseInt(args[++i]);
+            } else if (args[i].compareTo("-update") == 0) {
+                update = true;
+            } else {
+                System.out.println("Error: unknown option '" + args[i] + "'");
+                System.exit(1);
+            }
+        }
+        if (dir == null)
+            dir = Files.createTempDirectory("jdiff_regression_").toFile();
+
+        Map<String, Double> baseline = baselineFile.exists() ? readBaseline(baselineFile) : new LinkedHashMap<>();
+        for (String[] tolerance : DEFAULT_TOLERANCES) {
+            if (!baseline.containsKey(tolerance[0]))
+                baseline.put(tolerance[0], Double.parseDouble(tolerance[1]));
+        }
+        Map<String, Long> medians = new LinkedHashMap<>();
+        for (int f = 0; f < FIXTURES.length; f++) {
+            measure(FIXTURES[f], CLASSES[f], new File(dir, FIXTURES[f]), runs, medians);
+        }
+
+        if (update) {
+            for (Map.Entry<String, Long> median : medians.entrySet()) {
+                baseline.put(median.getKey(), (double) median.getValue());
+            }
+            writeBaseline(baselineFile, baseline);
+            System.out.println("JDiff: wrote the new baseline to '" + baselineFile + "'");
+            return;
+        }
+        int regressions = 0;
+        for (Map.Entry<String, Long> median : medians.entrySet()) {
+            if (regressed(median.getKey(), median.getValue(), baseline))
+                regressions++;
+        }
+        if (regressions != 0) {
+            System.out.println("Error: " + regressions + " figures regressed beyond their tolerance of the baseline in '" + baselineFile + "'");
+            System.exit(1);
+        }
+        System.out.println("JDiff: no figures regressed beyond their tolerance of the baseline");
+    }
+
+    /**
+     * Write the APIs of a fixture, compare them the given number of times,
+     * and add the medians of the figures to the map, named after the
+     * fixture.
+     */
+    private static void measure(String fixture, int classes, File dir, int runs, Map<String, Long> medians)
+            throws IOException, InterruptedException {
+        File xmlDir = new File(dir, "xml");
+        if (!xmlDir.isDirectory() && !xmlDir.mkdirs()) {
+            System.out.println("Error: could not create the directory '" + xmlDir + "'");
+            System.exit(1);
+        }
+        SyntheticAPI oldAPI = new SyntheticAPI("old", classes, 10, 1L);
+        File oldXML = oldAPI.write(xmlDir);
+        File newXML = oldAPI.mutated("new", 0.02, 0.01, 0.02, 0.05, 2L).write(xmlDir);
+        System.out.println("JDiff: comparing the " + fixture + " fixture of " + classes + " classes " + runs + " times...");
+
+        // A first run, whose figures are not used, brings the files into
+        // the cache of the operating system
+        File reportDir = new File(dir, "report");
+        delete(reportDir);
+        compareInChild(oldXML, newXML, reportDir);
+        Map<String, long[]> figures = new LinkedHashMap<>();
+        for (int run = 0; run < runs; run++) {
+            delete(reportDir);
+            long start = System.nanoTime();
+            long peakRSS = compareInChild(oldXML, newXML, reportDir);
+            long wall = System.nanoTime() - start;
+            add(figures, fixture + ".total.wallMillis", run, runs, wall / 1000000);
+            for (Map.Entry<String, Long> phase : readPhases(new File(reportDir, RunMetrics.metricsFileName)).entrySet()) {
+                add(figures, fixture + "." + phase.getKey() + ".wallMillis", run, runs, phase.getValue() / 1000000);
+            }
+            add(figures, fixture + ".peakRSSKB", run, runs, peakRSS);
+            add(figures, fixture + ".outputBytes", run, runs, size(reportDir));
+        }
+        for (Map.Entry<String, long[]> figure : figures.entrySet()) {
+            long[] values = figure.getValue();
+            Arrays.sort(values);
+            medians.put(figure.getKey(), values[values.length / 2]);
+        }
+    }
+
+    /**
+     * Start a new JVM which compares the APIs, and return the peak resident
+     * set size in KB which it reported, or -1 if it is not known.
+     */
+    private static long compareInChild(File oldXML, File newXML, File reportDir) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(RegressionSuite.class.getName());
+        command.add("child");
+        command.add(oldXML.getPath());
+        command.add(newXML.getPath());
+        command.add(reportDir.getPath());
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> output = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                output.add(line);
+            }
+        }
+        if (process.waitFor() != 0 || output.isEmpty()) {
+            for (String line : output) {
+                System.out.println(line);
+            }
+            System.out.println("Error: the comparison failed");
+            System.exit(1);
+        }
+        return Long.parseLong(output.get(output.size() - 1).trim());
+    }
+
+    /**
+     * Return whether a median is above its baseline by more than its
+     * tolerance, and print it out with the baseline.
+     */
+    private static boolean regressed(String name, long median, Map<String, Double> baseline) {
+        Double base = baseline.get(name);
+        if (base == null) {
+            System.out.println("Warning: there is no baseline for " + name + " (" + median + ")");
+            return false;
+        }
+        double limit;
+        if (name.endsWith(".wallMillis")) {
+            limit = base * (1 + baseline.get("tolerance.wall")) + baseline.get("slack.wallMillis");
+        } else if (name.endsWith(".peakRSSKB")) {
+            if (median == -1 || base == -1)
+                return false;
+            limit = base * (1 + baseline.get("tolerance.peakRSS"));
+        } else {
+            limit = base * (1 + baseline.get("tolerance.outputBytes"));
+        }
+        boolean regressed = median > limit;
+        System.out.println("JDiff: " + name + " " + median + " (baseline " + base.longValue() + ", limit "
+                + (long) limit + ")" + (regressed ? " REGRESSED" : ""));
+        return regressed;
+    }
+
+    /**
+     * Set a figure of one run.
+     */
+    private static void add(Map<String, long[]> figures, String name, int run, int runs, long value) {
+        long[] values = figures.get(name);
+        if (values == null) {
+            values = new long[runs];
+            figures.put(name, values);
+        }
+        values[run] = value;
+    }
+
+    /**
+     * Return the wall time of each top-level phase in a metrics file.
+     */
+    private static Map<String, Long> readPhases(File file) throws IOException {
+        Map<String, Long> phases = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            Matcher m = PHASE.matcher(line);
+            if (m.find() && m.group(1).indexOf('/') == -1)
+                phases.put(m.group(1), Long.parseLong(m.group(2)));
+        }
+        return phases;
+    }
+
+    /**
+     * Read the names and numbers in a baseline file.
+     */
+    private static Map<String, Double> readBaseline(File file) throws IOException {
+        Map<String, Double> baseline = new LinkedHashMap<>();
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Matcher m = ENTRY.matcher(text);
+        while (m.find()) {
+            baseline.put(m.group(1), Double.parseDouble(m.group(2)));
+        }
+        return baseline;
+    }
+
+    /**
+     * Write the names and numbers of a baseline out as a flat JSON object.
+     */
+    private static void writeBaseline(File file, Map<String, Double> baseline) throws IOException {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.println("{");
+            int i = 0;
+            for (Map.Entry<String, Double> entry : baseline.entrySet()) {
+                double value = entry.getValue();
+                String number = value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+                out.print("  \"" + entry.getKey() + "\": " + number);
+                out.println(++i < baseline.size() ? "," : "");
+            }
+            out.println("}");
+        }
+    }
+
+    /**
+     * Return the peak resident set size of this JVM in KB, or -1 if it is
+     * not known.
+     */
+    private static long peakRSS() throws IOException {
+        File status = new File("/proc/self/status");
+        if (!status.exists())
+            return -1;
+        for (String line : Files.readAllLines(status.toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith("VmHWM:"))
+                return Long.parseLong(line.substring(6).replace("kB", "").trim());
+        }
+        return -1;
+    }
+
+    /**
+     * Return the number of bytes in the files under a directory.
+     */
+    private static long size(File file) {
+        if (!file.isDirectory())
+            return file.length();
+        long size = 0;
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                size += size(f);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Delete a directory and everything under it.
+     */
+    private static void delete(File file) throws IOException {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        if (file.exists() && !file.delete())
+            throw new IOException("could not delete " + file);
+    }
+}
@@ -0,0 +1,541 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Writes the XML for a synthetic API, in the same format as
+ * {@link RootDocToXML}, so that large APIs can be read in and compared
+ * without having to run Javadoc over real source code.
+ * <p>
+ * The classes are in groups of ten: the first of each group is an
+ * interface, and most of the others extend the class before them and
+ * implement the interface, so that members are inherited. There are
+ * overloaded constructors and methods, generic types and doc blocks with
+ * HTML and tags in them.
+ * <p>
+ * A {@link #mutated} variant of an API has the same classes and members,
+ * except that some of them are removed, added or changed, and some doc
+ * blocks are edited, at the given rates. It is the new API for comparing
+ * with the original one.
+ * <p>
+ * The same seeds and sizes always produce the same XML. Each class is
+ * generated from its own random numbers, so the choices made for one
+ * class never depend on what happened to the classes before it.
+ * <p>
+ * Usage: <code>SyntheticAPI directory [-packages n] [-classes n]
+ * [-members n] [-seed n] [-add rate] [-remove rate] [-change rate]
+ * [-docs rate]</code> writes <code>old.xml</code> and a mutated
+ * <code>new.xml</code> into the directory. The defaults are 50,000
+ * classes with 10 methods each, in packages of 100 classes.
+ */
+public class SyntheticAPI {
+
+    /**
+     * Types used for return values, parameters and fields.
+     */
+    private static final String[] TYPES = {
+            "int", "long", "boolean", "double", "java.lang.String",
+            "java.lang.Object", "java.util.List<java.lang.String>",
+            "java.util.Map<java.lang.String, java.lang.Integer>", "byte[]",
+            "java.util.Optional<java.lang.Long>",
+    };
+
+    /**
+     * Words which edited doc blocks use instead of the original ones.
+     */
+    private static final String[] WORDS = {
+            "value", "element", "<code>null</code>", "list", "first", "given", "current", "<i>new</i>",
+    };
+
+    /**
+     * The name of the API, also used as the name of the XML file.
+     */
+    private final String name_;
+
+    /**
+     * The number of packages which the classes are spread over.
+     */
+    private final int packages_;
+
+    /**
+     * The number of classes to generate.
+     */
+    private final int classes_;
+
+    /**
+     * The number of methods, and half the number of fields, in each class.
+     */
+    private final int members_;
+
+    /**
+     * The seed which the random numbers for each class are made from.
+     */
+    private final long seed_;
+
+    /**
+     * Set if this is a mutated variant of another API.
+     */
+    private boolean mutated_;
+
+    /**
+     * The seed which the random numbers for the mutations are made from.
+     */
+    private long mutationSeed_;
+
+    /**
+     * The fraction of classes and members which are added.
+     */
+    private double addRate_;
+
+    /**
+     * The fraction of classes and members which are removed.
+     */
+    private double removeRate_;
+
+    /**
+     * The fraction of classes and members which are changed.
+     */
+    private double changeRate_;
+
+    /**
+     * The fraction of doc blocks which are edited.
+     */
+    private double docRate_;
+
+    private PrintWriter out_;
+
+    /**
+     * Constructor, with 100 classes in each package.
+     *
+     * @param name    The name of the API.
+     * @param classes The number of classes to generate.
+     * @param members The number of methods in each class.
+     * @param seed    The seed for the random number generator.
+     */
+    SyntheticAPI(String name, int classes, int members, long seed) {
+        this(name, Math.max(1, classes / 100), classes, members, seed);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param name     The name of the API.
+     * @param packages The number of packages.
+     * @param classes  The number of classes to generate.
+     * @param members  The number of methods in each class.
+     * @param seed     The seed for the random number generator.
+     */
+    SyntheticAPI(String name, int packages, int classes, int members, long seed) {
+        name_ = name;
+        packages_ = packages;
+        classes_ = classes;
+        members_ = members;
+        seed_ = seed;
+    }
+
+    /**
+     * Return a variant of this API in which about the given fractions of
+     * the classes and members are added, removed and changed, and of the
+     * doc blocks are edited.
+     *
+     * @param name   The name of the variant.
+     * @param add    The fraction of classes and members which are added.
+     * @param remove The fraction of classes and members which are removed.
+     * @param change The fraction of classes and members which are changed.
+     * @param docs   The fraction of doc blocks which are edited.
+     * @param seed   The seed for the random numbers which choose the
+     *               mutations.
+     */
+    SyntheticAPI mutated(String name, double add, double remove, double change, double docs, long seed) {
+        SyntheticAPI api = new SyntheticAPI(name, packages_, classes_, members_, seed_);
+        api.mutated_ = true;
+        api.mutationSeed_ = seed;
+        api.addRate_ = add;
+        api.removeRate_ = remove;
+        api.changeRate_ = change;
+        api.docRate_ = docs;
+        return api;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args[0].startsWith("-")) {
+            System.out.println("usage: java jdiff.SyntheticAPI <directory> [-packages n] [-classes n] [-members n] [-seed n] [-add rate] [-remove rate] [-change rate] [-docs rate]");
+            System.exit(1);
+        }
+        File dir = new File(args[0]);
+        int packages = -1;
+        int classes = 50000;
+        int members = 10;
+        long seed = 1L;
+        double add = 0.02;
+        double remove = 0.01;
+        double change = 0.02;
+        double docs = 0.05;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-packages":
+                    packages = Integer.parseInt(value);
+                    break;
+                case "-classes":
+                    classes = Integer.parseInt(value);
+                    break;
+                case "-members":
+                    members = Integer.parseInt(value);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "-add":
+                    add = Double.parseDouble(value);
+                    break;
+                case "-remove":
+                    remove = Double.parseDouble(value);
+                    break;
+                case "-change":
+                    change = Double.parseDouble(value);
+                    break;
+                case "-docs":
+                    docs = Double.parseDouble(value);
+                    break;
+                default:
+                    System.out.println("Error: unknown option '" + args[i] + "'");
+                    System.exit(1);
+            }
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            System.out.println("Error: could not create the directory '" + dir + "'");
+            System.exit(1);
+        }
+        if (packages < 1)
+            packages = Math.max(1, classes / 100);
+        SyntheticAPI oldAPI = new SyntheticAPI("old", packages, classes, members, seed);
+        File oldXML = oldAPI.write(dir);
+        System.out.println("JDiff: wrote " + classes + " classes (" + oldXML.length() / (1024 * 1024) + " MB) to " + oldXML);
+        File newXML = oldAPI.mutated("new", add, remove, change, docs, seed + 1).write(dir);
+        System.out.println("JDiff: wrote the mutated API (" + newXML.length() / (1024 * 1024) + " MB) to " + newXML);
+    }
+
+    /**
+     * Write the XML for the API into the given directory.
+     *
+     * @return The file which was written, named after the API.
+     */
+    File write(File dir) throws IOException {
+        File file = new File(dir, name_ + ".xml");
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out_ = out;
+            out.println("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+            out.println("<api name=\"" + name_ + "\" jdversion=\"" + JDiff.version + "\">");
+            for (int p = 0; p < packages_; p++) {
+                writePackage(p);
+            }
+            out.println("</api>");
+        }
+        out_ = null;
+        return file;
+    }
+
+    private void writePackage(int p) {
+        String pkgName = "org.example.pkg" + p;
+        out_.println("<package name=\"" + pkgName + "\">");
+        int first = (int) ((long) classes_ * p / packages_);
+        int last = (int) ((long) classes_ * (p + 1) / packages_);
+        for (int c = first; c < last; c++) {
+            writeClass(pkgName, first, c);
+        }
+        if (mutated_) {
+            Random mutation = random(mutationSeed_, -1 - p);
+            for (int c = first; c < last; c++) {
+                if (mutation.nextDouble() < addRate_)
+                    writeAddedClass(pkgName, c);
+            }
+        }
+        writeDoc("Classes for the part number " + p + " of the example, which <b>should not</b> be used directly.", 2);
+        out_.println("</package>");
+    }
+
+    private void writeClass(String pkgName, int first, int c) {
+        Random random = random(seed_, c);
+        Random mutation = mutated_ ? random(mutationSeed_, c) : null;
+        boolean removed = mutation != null && mutation.nextDouble() < removeRate_;
+        boolean changed = mutation != null && mutation.nextDouble() < changeRate_;
+        int position = c % 10;
+        if (position == 0 || c == first) {
+            writeInterface(pkgName, c, random, mutation, removed, changed);
+            return;
+        }
+        String parent;
+        if (position == 1 || position == 6 || c - 1 < first) {
+            // The top of a hierarchy
+            parent = random.nextInt(3) == 0 ? "org.example.support.Base<java.lang.String>" : "java.lang.Object";
+        } else {
+            parent = pkgName + ".Class" + (c - 1);
+        }
+        String className = "Class" + c;
+        boolean isFinal = random.nextInt(10) == 0;
+        int iface = c - position < first ? first : c - position;
+        boolean implementsInterface = random.nextInt(3) != 0;
+        if (removed)
+            return;
+        if (changed) {
+            // Change the superclass of some classes and whether others are final
+            if (mutation.nextBoolean())
+                parent = "java.lang.Object";
+            else
+                isFinal = !isFinal;
+        }
+        out_.println("  <!-- start class " + pkgName + "." + className + " -->");
+        out_.println("  <class name=\"" + className + "\" extends=\"" + xml(parent) + "\"");
+        out_.println("    abstract=\"false\"");
+        writeModifiers(4, random.nextInt(20) == 0, isFinal, mutation);
+        if (implementsInterface)
+            out_.println("    <implements name=\"" + pkgName + ".Interface" + iface + "\"/>");
+        if (c % 3 == 0)
+            out_.println("    <implements name=\"java.io.Serializable\"/>");
+        if (c % 7 == 0)
+            out_.println("    <implements name=\"" + xml("java.lang.Comparable<" + pkgName + "." + className + ">") + "\"/>");
+        // Overloaded constructors
+        int ctors = 1 + random.nextInt(2);
+        for (int k = 0; k < ctors; k++) {
+            String params = k == 0 ? null : randomType(random);
+            String doc = k == 0 ? "Creates a new " + className + " with the default settings."
+                    : "Creates a new " + className + " from the given value.\n @param value the value to start with";
+            if (mutate(mutation, removeRate_))
+                continue;
+            if (mutate(mutation, changeRate_))
+                params = params == null ? "java.lang.CharSequence" : params + ", boolean";
+            out_.println("    <constructor name=\"" + className + "\"" + (params == null ? "" : " type=\"" + xml(params) + "\""));
+            writeModifiers(6, false, false, mutation);
+            writeDoc(doc, 6, mutation);
+            out_.println("    </constructor>");
+        }
+        for (int m = 0; m < members_; m++) {
+            writeMethod(c, m, false, random, mutation);
+        }
+        for (int f = 0; f < members_ / 2; f++) {
+            writeField(c, f, false, random, mutation);
+        }
+        if (mutation != null) {
+            for (int m = 0; m < members_; m++) {
+                if (mutation.nextDouble() < addRate_)
+                    writeAddedMethod(c, m, false, mutation);
+            }
+        }
+        writeDoc("The class number " + c + ", which does nothing useful.\n"
+                + " It is one of the <i>many</i> classes which implement {@link " + pkgName + ".Interface" + iface + "}.\n"
+                + " @see java.lang.Object", 4, mutation);
+        out_.println("  </class>");
+        out_.println("  <!-- end class " + pkgName + "." + className + " -->");
+    }
+
+    private void writeInterface(String pkgName, int c, Random random, Random mutation, boolean removed, boolean changed) {
+        String ifaceName = "Interface" + c;
+        boolean deprecated = random.nextInt(20) == 0;
+        if (removed)
+            return;
+        if (changed)
+            deprecated = !deprecated;
+        out_.println("  <!-- start interface " + pkgName + "." + ifaceName + " -->");
+        out_.println("  <interface name=\"" + ifaceName + "\"    abstract=\"true\"");
+        writeModifiers(4, deprecated, false, null);
+        for (int m = 0; m < members_ / 2; m++) {
+            writeMethod(c, m, true, random, mutation);
+        }
+        writeField(c, 0, true, random, mutation);
+        writeDoc("The interface which the classes after number " + c + " implement.", 4, mutation);
+        out_.println("  </interface>");
+        out_.println("  <!-- end interface " + pkgName + "." + ifaceName + " -->");
+    }
+
+    private void writeMethod(int c, int m, boolean isAbstract, Random random, Random mutation) {
+        // Pairs of methods share a name, with different numbers of parameters
+        String methodName = "method" + m / 2;
+        String returnType = random.nextInt(5) == 0 ? null : randomType(random);
+        int params = (m % 2) * 2 + random.nextInt(2);
+        String[] paramTypes = new String[params];
+        for (int p = 0; p < params; p++) {
+            paramTypes[p] = randomType(random);
+        }
+        boolean throwsException = random.nextInt(10) == 0;
+        boolean isStatic = !isAbstract && random.nextInt(8) == 0;
+        boolean deprecated = random.nextInt(50) == 0;
+        String doc = (returnType == null ? "Performs" : "Returns the result of")
+                + " the operation number " + m + " of class " + c + ".\n"
+                + " And then returns, as <b>all</b> methods should.";
+        if (params > 0)
+            doc += "\n @param arg0 the first argument, which must not be <code>null</code>";
+        if (returnType != null)
+            doc += "\n @return the result";
+        if (mutate(mutation, removeRate_))
+            return;
+        if (mutate(mutation, changeRate_)) {
+            switch (mutation.nextInt(3)) {
+                case 0:
+                    returnType = returnType == null ? "int" : null;
+                    break;
+                case 1:
+                    throwsException = !throwsException;
+                    break;
+                default:
+                    deprecated = !deprecated;
+            }
+        }
+        out_.println("    <method name=\"" + methodName + "\"" + (returnType == null ? "" : " return=\"" + xml(returnType) + "\""));
+        out_.println("      abstract=\"" + isAbstract + "\" native=\"false\" synchronized=\"false\"");
+        writeModifiers(6, deprecated, false, isStatic);
+        for (int p = 0; p < params; p++) {
+            out_.println("      <param name=\"arg" + p + "\" type=\"" + xml(paramTypes[p]) + "\"/>");
+        }
+        if (throwsException)
+            out_.println("      <exception name=\"IOException\" type=\"java.io.IOException\"/>");
+        writeDoc(doc, 6, mutation);
+        out_.println("    </method>");
+    }
+
+    private void writeField(int c, int f, boolean isConstant, Random random, Random mutation) {
+        String type = isConstant ? "java.lang.String" : randomType(random);
+        boolean isStatic = isConstant || random.nextInt(8) == 0;
+        String doc = "The field number " + f + " of class " + c + ".";
+        if (mutate(mutation, removeRate_))
+            return;
+        if (mutate(mutation, changeRate_))
+            type = type.equals("long") ? "int" : "long";
+        out_.println("    <field name=\"" + (isConstant ? "NAME" : "field" + f) + "\" type=\"" + xml(type) + "\"");
+        out_.println("      transient=\"false\" volatile=\"false\"");
+        indent(6);
+        out_.println("static=\"" + isStatic + "\" final=\"" + isConstant + "\" visibility=\"public\"");
+        indent(6);
+        out_.println("deprecated=\"not deprecated\">");
+        writeDoc(doc, 6, mutation);
+        out_.println("    </field>");
+    }
+
+    /**
+     * Write a method which is only in the mutated variant.
+     */
+    private void writeAddedMethod(int c, int m, boolean isAbstract, Random mutation) {
+        out_.println("    <method name=\"added" + m + "\" return=\"" + xml(randomType(mutation)) + "\"");
+        out_.println("      abstract=\"" + isAbstract + "\" native=\"false\" synchronized=\"false\"");
+        writeModifiers(6, false, false, false);
+        out_.println("      <param name=\"arg0\" type=\"" + xml(randomType(mutation)) + "\"/>");
+        writeDoc("A method which was added to class " + c + ".\n @param arg0 the argument\n @return the result", 6);
+        out_.println("    </method>");
+    }
+
+    /**
+     * Write a class which is only in the mutated variant.
+     */
+    private void writeAddedClass(String pkgName, int c) {
+        String className = "AddedClass" + c;
+        Random mutation = random(mutationSeed_, classes_ + c);
+        out_.println("  <!-- start class " + pkgName + "." + className + " -->");
+        out_.println("  <class name=\"" + className + "\" extends=\"java.lang.Object\"");
+        out_.println("    abstract=\"false\"");
+        writeModifiers(4, false, false, false);
+        out_.println("    <constructor name=\"" + className + "\"");
+        writeModifiers(6, false, false, false);
+        writeDoc("Creates a new " + className + ".", 6);
+        out_.println("    </constructor>");
+        for (int m = 0; m < members_; m++) {
+            writeAddedMethod(c, m, false, mutation);
+        }
+        writeDoc("A class which was added next to class number " + c + ".", 4);
+        out_.println("  </class>");
+        out_.println("  <!-- end class " + pkgName + "." + className + " -->");
+    }
+
+    /**
+     * Write the modifiers of a class or constructor, which may be made
+     * deprecated, or no longer deprecated, by a mutation.
+     */
+    private void writeModifiers(int indent, boolean deprecated, boolean isFinal, Random mutation) {
+        if (mutate(mutation, changeRate_ / 4))
+            deprecated = !deprecated;
+        writeModifiers(indent, deprecated, isFinal, false);
+    }
+
+    private void writeModifiers(int indent, boolean deprecated, boolean isFinal, boolean isStatic) {
+        indent(indent);
+        out_.println("static=\"" + isStatic + "\" final=\"" + isFinal + "\" visibility=\"public\"");
+        indent(indent);
+        out_.println("deprecated=\"" + (deprecated ? "deprecated, no replacement" : "not deprecated") + "\">");
+    }
+
+    /**
+     * Write a doc block, which may be edited by a mutation.
+     */
+    private void writeDoc(String text, int indent, Random mutation) {
+        if (mutate(mutation, docRate_)) {
+            String[] words = text.split(" ");
+            words[mutation.nextInt(words.length)] = WORDS[mutation.nextInt(WORDS.length)];
+            text = String.join(" ", words) + " This changed in the new version.";
+        }
+        writeDoc(text, indent);
+    }
+
+    private void writeDoc(String text, int indent) {
+        indent(indent);
+        out_.println("<doc>");
+        indent(indent);
+        out_.println("<![CDATA[" + text + "]]>");
+        indent(indent);
+        out_.println("</doc>");
+    }
+
+    private void indent(int indent) {
+        for (int i = 0; i < indent; i++)
+            out_.print(' ');
+    }
+
+    /**
+     * Return true if a mutation happens, which it does at the given rate.
+     * No random number is used if this is not a mutated variant.
+     */
+    private static boolean mutate(Random mutation, double rate) {
+        return mutation != null && mutation.nextDouble() < rate;
+    }
+
+    private static String randomType(Random random) {
+        return TYPES[random.nextInt(TYPES.length)];
+    }
+
+    /**
+     * Return the random numbers for one class.
+     */
+    private static Random random(long seed, int c) {
+        return new Random(seed * 0x9E3779B97F4A7C15L + c);
+    }
+
+    /**
+     * Escape a type for an XML attribute.
+     */
+    private static String xml(String type) {
+        return type.replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
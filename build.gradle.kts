@@ -25,6 +25,14 @@ java {
     targetCompatibility = JavaVersion.VERSION_1_8
 }
 
+// The Flight Recorder events need the jdk.jfr API, which Java 8 only has
+// from update 262 on and which --release 8 does not have at all. They are
+// compiled apart by a JDK 11, still for Java 8, and JDiffEvents only loads
+// them when the JVM has the API.
+val jfr by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+}
+
 allprojects {
     group = "org.powernukkit"
     version = "2.0.0-PN-SNAPSHOT"
@@ -36,4 +44,20 @@ allprojects {
 dependencies {
     implementation("xerces:xercesImpl:2.12.1")
     compileOnly(files("${System.getProperty("java.home")}/../lib/tools.jar"))
+    testImplementation("junit:junit:4.13.2")
+    testImplementation(files("${System.getProperty("java.home")}/../lib/tools.jar"))
+}
+
+tasks {
+    named<JavaCompile>(jfr.compileJavaTaskName) {
+        javaCompiler.set(javaToolchains.compilerFor {
+            languageVersion.set(JavaLanguageVersion.of(11))
+        })
+    }
+    jar {
+        from(jfr.output)
+    }
+    test {
+        classpath += jfr.output
+    }
 }
@@ -1,2 +1,3 @@
 include(":antjdiff")
 include(":examples")
+include(":benchmarks")
@@ -0,0 +1,188 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The JDK Flight Recorder events of {@link JDiffEvents}. This class is
+ * compiled apart from the rest of JDiff, since it needs the
+ * <code>jdk.jfr</code> API, and is only loaded when the JVM has that API.
+ */
+final class FlightRecorderEvents implements JDiffEvents.Recorder {
+
+    @Name("jdiff.Stage")
+    @Label("JDiff Stage")
+    @Description("A phase of a JDiff run, as named in jdiff_metrics.json")
+    @Category("JDiff")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class StageEvent extends Event {
+
+        @Label("Stage")
+        String stage;
+
+        @Label("Elements")
+        @Description("The number of elements the phase processed")
+        long elements;
+    }
+
+    @Name("jdiff.ClassComparison")
+    @Label("JDiff Class Comparison")
+    @Description("The comparison of the old and new versions of a class")
+    @Category("JDiff")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static final class ClassComparisonEvent extends Event {
+
+        @Label("Class")
+        String className;
+
+        @Label("Old Members")
+        int oldMembers;
+
+        @Label("New Members")
+        int newMembers;
+
+        @Label("Difference")
+        @Description("The fraction of the class which changed, from 0 to 1")
+        double difference;
+    }
+
+    @Name("jdiff.DocDiff")
+    @Label("JDiff Documentation Diff")
+    @Description("The word diff of the old and new documentation of an element")
+    @Category("JDiff")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static final class DocDiffEvent extends Event {
+
+        @Label("Element")
+        String element;
+
+        @Label("Old Length")
+        @Description("The number of characters in the old documentation")
+        int oldLength;
+
+        @Label("New Length")
+        @Description("The number of characters in the new documentation")
+        int newLength;
+
+        @Label("Old Words")
+        int oldWords;
+
+        @Label("New Words")
+        int newWords;
+    }
+
+    @Name("jdiff.PageRender")
+    @Label("JDiff Page Render")
+    @Description("The writing of the report page of a changed package or class")
+    @Category("JDiff")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static final class PageRenderEvent extends Event {
+
+        @Label("Page")
+        String page;
+
+        @Label("Changes")
+        @Description("The number of changed elements on the page")
+        int changes;
+    }
+
+    @Override
+    public Object beginStage() {
+        return begin(new StageEvent());
+    }
+
+    @Override
+    public Object beginClassComparison() {
+        return begin(new ClassComparisonEvent());
+    }
+
+    @Override
+    public Object beginDocDiff() {
+        return begin(new DocDiffEvent());
+    }
+
+    @Override
+    public Object beginPageRender() {
+        return begin(new PageRenderEvent());
+    }
+
+    private static Object begin(Event event) {
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public boolean end(Object e) {
+        Event event = (Event) e;
+        event.end();
+        return event.shouldCommit();
+    }
+
+    @Override
+    public void commitStage(Object e, String stage, long elements) {
+        StageEvent event = (StageEvent) e;
+        event.stage = stage;
+        event.elements = elements;
+        event.commit();
+    }
+
+    @Override
+    public void commitClassComparison(Object e, String className, int oldMembers, int newMembers,
+                                      double difference) {
+        ClassComparisonEvent event = (ClassComparisonEvent) e;
+        event.className = className;
+        event.oldMembers = oldMembers;
+        event.newMembers = newMembers;
+        event.difference = difference;
+        event.commit();
+    }
+
+    @Override
+    public void commitDocDiff(Object e, String element, int oldLength, int newLength,
+                              int oldWords, int newWords) {
+        DocDiffEvent event = (DocDiffEvent) e;
+        event.element = element;
+        event.oldLength = oldLength;
+        event.newLength = newLength;
+        event.oldWords = oldWords;
+        event.newWords = newWords;
+        event.commit();
+    }
+
+    @Override
+    public void commitPageRender(Object e, String page, int changes) {
+        PageRenderEvent event = (PageRenderEvent) e;
+        event.page = page;
+        event.changes = changes;
+        event.commit();
+    }
+}
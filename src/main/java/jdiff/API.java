@@ -117,7 +117,7 @@ public class API {
             }
         }
         // Dump modifiers specific to a class
-        if (c.isAbstract_)
+        if (c.modifiers_.isAbstract())
             System.out.print("abstract ");
         // Dump modifiers common to all
         dumpModifiers(c.modifiers_, indent);
@@ -134,9 +134,9 @@ public class API {
             dumpField(fieldAPI, indent + indentInc);
         }
         // Display documentation
-        if (c.doc_ != null) {
+        if (c.getDoc() != null) {
             System.out.print("Class doc block:");
-            System.out.println("\"" + c.doc_ + "\"");
+            System.out.println("\"" + c.getDoc() + "\"");
         } else
             System.out.println();
     }
@@ -149,12 +149,12 @@ public class API {
      */
     public static void dumpModifiers(Modifiers m, int indent) {
         for (int i = 0; i < indent; i++) System.out.print(" ");
-        if (m.isStatic)
+        if (m.isStatic())
             System.out.print("static ");
-        if (m.isFinal)
+        if (m.isFinal())
             System.out.print("final ");
-        if (m.visibility != null)
-            System.out.print("visibility = " + m.visibility + " ");
+        if (m.getVisibility() != null)
+            System.out.print("visibility = " + m.getVisibility() + " ");
         // Flush the line
         System.out.println();
     }
@@ -173,9 +173,9 @@ public class API {
         // Dump modifiers common to all
         dumpModifiers(c.modifiers_, indent);
         // Display documentation
-        if (c.doc_ != null) {
+        if (c.getDoc() != null) {
             System.out.print("Ctor doc block:");
-            System.out.println("\"" + c.doc_ + "\"");
+            System.out.println("\"" + c.getDoc() + "\"");
         }
     }
 
@@ -197,11 +197,11 @@ public class API {
         else
             System.out.println();
         // Dump modifiers specific to a method
-        if (m.isAbstract_)
+        if (m.modifiers_.isAbstract())
             System.out.print("abstract ");
-        if (m.isNative_)
+        if (m.modifiers_.isNative())
             System.out.print("native ");
-        if (m.isSynchronized_)
+        if (m.modifiers_.isSynchronized())
             System.out.print("synchronized ");
         // Display exceptions
         System.out.print("exceptions: " + m.exceptions_ + " ");
@@ -212,9 +212,9 @@ public class API {
             dumpParam(paramAPI, indent + indentInc);
         }
         // Display documentation
-        if (m.doc_ != null) {
+        if (m.getDoc() != null) {
             System.out.print("Method doc block:");
-            System.out.println("\"" + m.doc_ + "\"");
+            System.out.println("\"" + m.getDoc() + "\"");
         }
     }
 
@@ -232,16 +232,16 @@ public class API {
         System.out.println("Field Name: " + f.name_ + ", type: " + f.type_);
         if (f.inheritedFrom_ != null)
             System.out.println(", inherited from: " + f.inheritedFrom_);
-        if (f.isTransient_)
+        if (f.modifiers_.isTransient())
             System.out.print("transient ");
-        if (f.isVolatile_)
+        if (f.modifiers_.isVolatile())
             System.out.print("volatile ");
         // Dump modifiers common to all
         dumpModifiers(f.modifiers_, indent);
         // Display documentation
-        if (f.doc_ != null)
+        if (f.getDoc() != null)
             System.out.print("Field doc block:");
-        System.out.println("\"" + f.doc_ + "\"");
+        System.out.println("\"" + f.getDoc() + "\"");
     }
 
     /**
@@ -441,9 +441,9 @@ public class API {
             dumpClass(classAPI, indent + indentInc);
         }
         // Display documentation
-        if (pkg.doc_ != null) {
+        if (pkg.getDoc() != null) {
             System.out.print("Package doc block:");
-            System.out.println("\"" + pkg.doc_ + "\"");
+            System.out.println("\"" + pkg.getDoc() + "\"");
         }
     }
 }
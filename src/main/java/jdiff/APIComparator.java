@@ -18,6 +18,7 @@
 
 package jdiff;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -31,14 +32,21 @@ import java.util.List;
 public class APIComparator {
 
     /**
-     * For easy local access to the old API object.
+     * For easy local access to the old API object, while the APIs are
+     * being compared.
      */
-    private static API oldAPI_; //FIXME Why is this static?
+    private API oldAPI_;
 
     /**
-     * For easy local access to the new API object.
+     * For easy local access to the new API object, while the APIs are
+     * being compared.
      */
-    private static API newAPI_; //FIXME Why is this static?
+    private API newAPI_;
+
+    /**
+     * The context of the run which the APIs are compared for.
+     */
+    private final JDiffContext ctx_;
 
     /**
      * Set to enable increased logging verbosity for debugging.
@@ -59,26 +67,35 @@ public class APIComparator {
     public PackageDiff pkgDiff;
 
     /**
-     * Default constructor.
+     * Constructor.
+     *
+     * @param ctx the context of the run which the APIs are compared for
      */
-    public APIComparator() {
+    public APIComparator(JDiffContext ctx) {
+        ctx_ = ctx;
         apiDiff = new APIDiff();
     }
 
     /**
-     * Decide if two blocks of documentation changed.
+     * Decide if two blocks of documentation changed, using only their
+     * fingerprints, which are computed when the API is read in.
+     * If {@link JDiffContext#ignoreDocReformat} is set, then blocks
+     * which were only reformatted are not counted as changed.
      *
-     * @return true if both are non-null and differ,
-     * or if one is null and the other is not.
+     * @param ctx the context of the run
+     * @return true if the fingerprints show that the blocks differ,
+     * or that one is null and the other is not.
+     * @see DocFingerprint
      */
-    public static boolean docChanged(String oldDoc, String newDoc) {
-        if (!HTMLReportGenerator.reportDocChanges)
+    public static boolean docChanged(JDiffContext ctx, long oldFingerprint, long oldNormFingerprint,
+                                     long newFingerprint, long newNormFingerprint) {
+        if (!ctx.reportDocChanges)
             return false; // Don't even count doc changes as changes
-        if (oldDoc == null && newDoc != null)
-            return true;
-        if (oldDoc != null && newDoc == null)
-            return true;
-        return oldDoc != null && oldDoc.compareTo(newDoc) != 0;
+        if (oldFingerprint == newFingerprint)
+            return false;
+        if (ctx.ignoreDocReformat)
+            return oldNormFingerprint != newNormFingerprint;
+        return true;
     }
 
     /**
@@ -106,7 +123,7 @@ public class APIComparator {
     /**
      * Generate a link to the Javadoc page for the given method.
      */
-    public static String linkToClass(MethodAPI m, boolean useNew) {
+    public String linkToClass(MethodAPI m, boolean useNew) {
         String sig = m.getSignature();
         if (sig.compareTo("void") == 0)
             sig = "";
@@ -116,7 +133,7 @@ public class APIComparator {
     /**
      * Generate a link to the Javadoc page for the given field.
      */
-    public static String linkToClass(FieldAPI m, boolean useNew) {
+    public String linkToClass(FieldAPI m, boolean useNew) {
         return linkToClass(m.inheritedFrom_, m.name_, null, useNew);
     }
 
@@ -126,24 +143,25 @@ public class APIComparator {
      * be a class changes page, or a section in a removed or added classes
      * table. Since there was no easy way to tell which type the link
      * should be, it is now just a link to the relevant Javadoc page.
+     * Only used while the APIs are being compared.
      */
-    public static String linkToClass(String className, String memberName,
-                                     String memberType, boolean useNew) {
-        if (!useNew && HTMLReportGenerator.oldDocPrefix == null) {
+    public String linkToClass(String className, String memberName,
+                              String memberType, boolean useNew) {
+        if (!useNew && ctx_.oldDocPrefix == null) {
             return "<tt>" + className + "</tt>"; // No link possible
         }
         API api = oldAPI_;
-        String prefix = HTMLReportGenerator.oldDocPrefix;
+        String prefix = ctx_.oldDocPrefix;
         if (useNew) {
             api = newAPI_;
-            prefix = HTMLReportGenerator.newDocPrefix;
+            prefix = ctx_.newDocPrefix;
         }
         ClassAPI cls = api.classes_.get(className);
         if (cls == null) {
             if (useNew)
-                System.out.println("Warning: class " + className + " not found in the new API when creating Javadoc link");
+                ctx_.diagnostics.warn("missing link target", "Warning: class " + className + " not found in the new API when creating Javadoc link");
             else
-                System.out.println("Warning: class " + className + " not found in the old API when creating Javadoc link");
+                ctx_.diagnostics.warn("missing link target", "Warning: class " + className + " not found in the old API when creating Javadoc link");
             return "<tt>" + className + "</tt>";
         }
         int clsIdx = className.indexOf(cls.name_);
@@ -170,67 +188,69 @@ public class APIComparator {
 
         double differs = 0.0;
 
-        APIDiff.oldAPIName_ = oldAPI.name_;
-        APIDiff.newAPIName_ = newAPI.name_;
+        apiDiff.oldAPIName_ = oldAPI.name_;
+        apiDiff.newAPIName_ = newAPI.name_;
 
-        Collections.sort(oldAPI.packages_);
-        Collections.sort(newAPI.packages_);
+        List<PackageAPI> oldPackages = sorted(oldAPI.packages_);
+        List<PackageAPI> newPackages = sorted(newAPI.packages_);
 
+        ctx_.progress.beginComparison(oldPackages.size(), oldAPI.classes_.size());
         // Find packages which were removed in the new API
-        Iterator<PackageAPI> iter = oldAPI.packages_.iterator();
+        Iterator<PackageAPI> iter = oldPackages.iterator();
         while (iter.hasNext()) {
             PackageAPI oldPkg = (iter.next());
-            // This search is looking for an *exact* match. This is true in
-            // all the *API classes.
-            int idx = Collections.binarySearch(newAPI.packages_, oldPkg);
+            // This search is only by name. There will never be more than
+            // one instance of a package with the same name in an API.
+            int idx = Collections.binarySearch(newPackages, oldPkg);
             if (idx < 0) {
-                // If there an instance of a package with the same name
-                // in both the old and new API, then treat it as changed,
-                // rather than removed and added. There will never be more than
-                // one instance of a package with the same name in an API.
-                int existsNew = newAPI.packages_.indexOf(oldPkg);
-                if (existsNew != -1) {
-                    // Package by the same name exists in both APIs
-                    // but there has been some or other change.
-                    differs += 2.0 * comparePackages(oldPkg, newAPI.packages_.get(existsNew));
-                } else {
-                    if (trace)
-                        System.out.println("Package " + oldPkg.name_ + " was removed");
-                    apiDiff.packagesRemoved.add(oldPkg);
-                    differs += 1.0;
-                }
+                if (trace)
+                    System.out.println("Package " + oldPkg.name_ + " was removed");
+                apiDiff.packagesRemoved.add(new DiffEntry(oldPkg));
+                differs += 1.0;
             } else {
-                // The package exists unchanged in name or doc, but may
-                // differ in classes and their members, so it still needs to
+                // The package exists in both APIs, but may differ in its
+                // doc, its classes and their members, so it still needs to
                 // be compared.
-                differs += 2.0 * comparePackages(oldPkg, newAPI.packages_.get(idx));
+                differs += 2.0 * comparePackages(oldPkg, newPackages.get(idx));
             }
+            ctx_.progress.packageCompared(oldPkg.classes_.size());
         } // while (iter.hasNext())
 
         // Find packages which were added or changed in the new API
-        iter = newAPI.packages_.iterator();
+        iter = newPackages.iterator();
         while (iter.hasNext()) {
             PackageAPI newPkg = (iter.next());
-            int idx = Collections.binarySearch(oldAPI.packages_, newPkg);
+            int idx = Collections.binarySearch(oldPackages, newPkg);
             if (idx < 0) {
-                // See comments above
-                if (oldAPI.packages_.contains(newPkg)) {
-                    // Don't mark a package as added or compare it
-                    // if it was already marked as changed
-                } else {
-                    if (trace)
-                        System.out.println("Package " + newPkg.name_ + " was added");
-                    apiDiff.packagesAdded.add(newPkg);
-                    differs += 1.0;
-                }
+                if (trace)
+                    System.out.println("Package " + newPkg.name_ + " was added");
+                apiDiff.packagesAdded.add(new DiffEntry(newPkg));
+                differs += 1.0;
             } else {
                 // It will already have been compared above.
             }
         } // while (iter.hasNext())
+        ctx_.progress.end();
 
         // Now that the numbers of members removed and added are known
         // we can deduce more information about changes.
-        MergeChanges.mergeRemoveAdd(apiDiff);
+        ctx_.metrics.start("merge");
+        MergeChanges.mergeRemoveAdd(apiDiff, ctx_);
+        for (PackageDiff pkgDiff : apiDiff.packagesChanged) {
+            ctx_.metrics.count(pkgDiff.classesChanged.size());
+        }
+        ctx_.metrics.end();
+
+        // Nothing in the differences refers to the APIs after this, and
+        // links to classes have already been resolved, so the APIs can be
+        // collected before the report is written
+        for (PackageDiff pkgDiff : apiDiff.packagesChanged) {
+            for (ClassDiff classDiff : pkgDiff.classesChanged) {
+                classDiff.detach();
+            }
+        }
+        oldAPI_ = null;
+        newAPI_ = null;
 
 // The percent change statistic reported for all elements in each API is
 // defined recursively as follows:
@@ -245,7 +265,7 @@ public class APIComparator {
 // XML was written out.
 // Note that this doesn't count changes in the modifiers of classes and
 // packages. Other changes in members are counted.
-        long denom = oldAPI.packages_.size() + newAPI.packages_.size();
+        long denom = oldPackages.size() + newPackages.size();
         // This should never be zero because an API always has packages?
         if (denom == 0L) {
             System.out.println("Error: no packages found in the APIs.");
@@ -266,7 +286,7 @@ public class APIComparator {
         else
             System.out.println(" Approximately " + approxPercentage + "% difference between the APIs");
 
-        Diff.closeDiffFile();
+        ctx_.diff.closeDiffFile();
     }
 
     /**
@@ -280,55 +300,38 @@ public class APIComparator {
         pkgDiff = new PackageDiff(oldPkg.name_);
         double differs = 0.0;
 
-        Collections.sort(oldPkg.classes_);
-        Collections.sort(newPkg.classes_);
+        List<ClassAPI> oldClasses = sorted(oldPkg.classes_);
+        List<ClassAPI> newClasses = sorted(newPkg.classes_);
 
         // Find classes which were removed in the new package
-        Iterator<ClassAPI> iter = oldPkg.classes_.iterator();
+        Iterator<ClassAPI> iter = oldClasses.iterator();
         while (iter.hasNext()) {
             ClassAPI oldClass = (iter.next());
-            // This search is looking for an *exact* match. This is true in
-            // all the *API classes.
-            int idx = Collections.binarySearch(newPkg.classes_, oldClass);
+            // This search is only by name. There will never be more than
+            // one instance of a class with the same name in a package.
+            int idx = Collections.binarySearch(newClasses, oldClass);
             if (idx < 0) {
-                // If there an instance of a class with the same name
-                // in both the old and new package, then treat it as changed,
-                // rather than removed and added. There will never be more than
-                // one instance of a class with the same name in a package.
-                int existsNew = newPkg.classes_.indexOf(oldClass);
-                if (existsNew != -1) {
-                    // Class by the same name exists in both packages
-                    // but there has been some or other change.
-                    differs += 2.0 * compareClasses(oldClass, newPkg.classes_.get(existsNew), pkgDiff);
-                } else {
-                    if (trace)
-                        System.out.println("  Class " + oldClass.name_ + " was removed");
-                    pkgDiff.classesRemoved.add(oldClass);
-                    differs += 1.0;
-                }
+                if (trace)
+                    System.out.println("  Class " + oldClass.name_ + " was removed");
+                pkgDiff.classesRemoved.add(new DiffEntry(oldClass));
+                differs += 1.0;
             } else {
-                // The class exists unchanged in name or modifiers, but may
-                // differ in members, so it still needs to be compared.
-                differs += 2.0 * compareClasses(oldClass, newPkg.classes_.get(idx), pkgDiff);
+                // The class exists in both packages, but may differ in its
+                // modifiers, doc and members, so it still needs to be compared.
+                differs += 2.0 * compareClasses(oldClass, newClasses.get(idx), pkgDiff);
             }
         } // while (iter.hasNext())
 
         // Find classes which were added or changed in the new package
-        iter = newPkg.classes_.iterator();
+        iter = newClasses.iterator();
         while (iter.hasNext()) {
             ClassAPI newClass = (iter.next());
-            int idx = Collections.binarySearch(oldPkg.classes_, newClass);
+            int idx = Collections.binarySearch(oldClasses, newClass);
             if (idx < 0) {
-                // See comments above
-                if (oldPkg.classes_.contains(newClass)) {
-                    // Don't mark a class as added or compare it
-                    // if it was already marked as changed
-                } else {
-                    if (trace)
-                        System.out.println("  Class " + newClass.name_ + " was added");
-                    pkgDiff.classesAdded.add(newClass);
-                    differs += 1.0;
-                }
+                if (trace)
+                    System.out.println("  Class " + newClass.name_ + " was added");
+                pkgDiff.classesAdded.add(new DiffEntry(newClass));
+                differs += 1.0;
             } else {
                 // It will already have been compared above.
             }
@@ -336,11 +339,12 @@ public class APIComparator {
 
         // Check if the only change was in documentation. Bug 472521.
         boolean differsFlag = false;
-        if (docChanged(oldPkg.doc_, newPkg.doc_)) {
+        if (docChanged(ctx_, oldPkg.docFingerprint_, oldPkg.docNormFingerprint_,
+                newPkg.docFingerprint_, newPkg.docNormFingerprint_)) {
             String link = "<a href=\"pkg_" + oldPkg.name_ + HTMLReportGenerator.reportFileExt + "\" class=\"hiddenlink\">";
             String id = oldPkg.name_ + "!package";
             String title = link + "Package <b>" + oldPkg.name_ + "</b></a>";
-            pkgDiff.documentationChange_ = Diff.saveDocDiffs(pkgDiff.name_, null, oldPkg.doc_, newPkg.doc_, id, title);
+            pkgDiff.documentationChange_ = ctx_.diff.saveDocDiffs(ctx_, pkgDiff.name_, null, oldPkg.getDoc(), newPkg.getDoc(), id, title);
             differsFlag = true;
         }
 
@@ -348,10 +352,10 @@ public class APIComparator {
         if (differs != 0.0 || differsFlag)
             apiDiff.packagesChanged.add(pkgDiff);
 
-        long denom = oldPkg.classes_.size() + newPkg.classes_.size();
+        long denom = oldClasses.size() + newClasses.size();
         // This should never be zero because a package always has classes?
         if (denom == 0L) {
-            System.out.println("Warning: no classes found in the package " + oldPkg.name_);
+            ctx_.diagnostics.warn("empty package", "Warning: no classes found in the package " + oldPkg.name_);
             return 0.0;
         }
         if (trace)
@@ -366,6 +370,17 @@ public class APIComparator {
      * Need to compare constructors, methods and fields.
      */
     public double compareClasses(ClassAPI oldClass, ClassAPI newClass, PackageDiff pkgDiff) {
+        Object event = JDiffEvents.beginClassComparison();
+        double differs = diffClasses(oldClass, newClass, pkgDiff);
+        JDiffEvents.endClassComparison(event, pkgDiff.name_, oldClass, newClass, differs);
+        return differs;
+    }
+
+    /**
+     * Record the differences between two classes, returning how much they
+     * differ.
+     */
+    private double diffClasses(ClassAPI oldClass, ClassAPI newClass, PackageDiff pkgDiff) {
         if (trace)
             System.out.println("  Comparing old class " + oldClass.name_ +
                     " and new class " + newClass.name_);
@@ -389,9 +404,9 @@ public class APIComparator {
             differsFlag = true;
         }
         // Abstract or not
-        if (oldClass.isAbstract_ != newClass.isAbstract_) {
+        if (oldClass.modifiers_.isAbstract() != newClass.modifiers_.isAbstract()) {
             String changeText = "";
-            if (oldClass.isAbstract_)
+            if (oldClass.modifiers_.isAbstract())
                 changeText += "Changed from abstract to non-abstract.";
             else
                 changeText += "Changed from non-abstract to abstract.";
@@ -399,21 +414,22 @@ public class APIComparator {
             differsFlag = true;
         }
         // Track changes in documentation
-        if (docChanged(oldClass.doc_, newClass.doc_)) {
+        if (docChanged(ctx_, oldClass.docFingerprint_, oldClass.docNormFingerprint_,
+                newClass.docFingerprint_, newClass.docNormFingerprint_)) {
             String fqName = pkgDiff.name_ + "." + classDiff.name_;
             String link = "<a href=\"" + fqName + HTMLReportGenerator.reportFileExt + "\" class=\"hiddenlink\">";
             String id = pkgDiff.name_ + "." + classDiff.name_ + "!class";
             String title = link + "Class <b>" + classDiff.name_ + "</b></a>";
-            classDiff.documentationChange_ = Diff.saveDocDiffs(pkgDiff.name_,
-                    classDiff.name_, oldClass.doc_, newClass.doc_, id, title);
+            classDiff.documentationChange_ = ctx_.diff.saveDocDiffs(ctx_, pkgDiff.name_,
+                    classDiff.name_, oldClass.getDoc(), newClass.getDoc(), id, title);
             differsFlag = true;
         }
         // All other modifiers
-        String modifiersChange = oldClass.modifiers_.diff(newClass.modifiers_);
+        String modifiersChange = oldClass.modifiers_.diff(newClass.modifiers_, ctx_.incompatibleChangesOnly);
         if (modifiersChange != null) {
             differsFlag = true;
             if (modifiersChange.contains("Change from deprecated to undeprecated")) {
-                System.out.println("JDiff: warning: change from deprecated to undeprecated for class " + pkgDiff.name_ + "." + newClass.name_);
+                ctx_.diagnostics.warn("undeprecated", "JDiff: warning: change from deprecated to undeprecated for class " + pkgDiff.name_ + "." + newClass.name_);
 
             }
         }
@@ -441,11 +457,11 @@ public class APIComparator {
 
         // Get the numbers of affected elements from the classDiff object
         double differs =
-                classDiff.ctorsRemoved.size() + classDiff.ctorsAdded.size() +
+                classDiff.removedCtors_.size() + classDiff.addedCtors_.size() +
                         classDiff.ctorsChanged.size() +
-                        classDiff.methodsRemoved.size() + classDiff.methodsAdded.size() +
+                        classDiff.removedMethods_.size() + classDiff.addedMethods_.size() +
                         classDiff.methodsChanged.size() +
-                        classDiff.fieldsRemoved.size() + classDiff.fieldsAdded.size() +
+                        classDiff.removedFields_.size() + classDiff.addedFields_.size() +
                         classDiff.fieldsChanged.size();
         long denom = oldClass.ctors_.size() +
                 numLocalMethods(oldClass.methods_) +
@@ -472,12 +488,13 @@ public class APIComparator {
             System.out.println("  Class " + classDiff.name_ + " had a difference of " + differs + "/" + denom);
         classDiff.pdiff = 100.0 * differs / denom;
         return differs / denom;
-    } // compareClasses()
+    } // diffClasses()
 
     /**
      * Compare all the constructors in two classes.
      * <p>
-     * The compareTo method in the ConstructorAPI class acts only upon the type.
+     * The compareTo method in the ConstructorAPI class acts upon the type,
+     * exceptions and modifiers, and {@link #ctorChanged} upon the rest.
      */
     public boolean compareAllCtors(ClassAPI oldClass, ClassAPI newClass,
                                    ClassDiff classDiff) {
@@ -487,28 +504,31 @@ public class APIComparator {
         boolean differs = false;
         boolean singleCtor = false; // Set if there is only one ctor
 
-        Collections.sort(oldClass.ctors_);
-        Collections.sort(newClass.ctors_);
+        List<ConstructorAPI> oldCtors = sorted(oldClass.ctors_);
+        List<ConstructorAPI> newCtors = sorted(newClass.ctors_);
 
         // Find ctors which were removed in the new class
-        Iterator<ConstructorAPI> iter = oldClass.ctors_.iterator();
+        Iterator<ConstructorAPI> iter = oldCtors.iterator();
         while (iter.hasNext()) {
             ConstructorAPI oldCtor = (iter.next());
-            int idx = Collections.binarySearch(newClass.ctors_, oldCtor);
+            int idx = Collections.binarySearch(newCtors, oldCtor);
+            if (idx >= 0 && ctorChanged(oldCtor, newCtors.get(idx)))
+                idx = -1;
             if (idx < 0) {
-                int oldSize = oldClass.ctors_.size();
-                int newSize = newClass.ctors_.size();
+                int oldSize = oldCtors.size();
+                int newSize = newCtors.size();
                 if (oldSize == 1 && oldSize == newSize) {
                     // If there is one constructor in the oldClass and one
                     // constructor in the new class, then mark it as changed
                     MemberDiff memberDiff = new MemberDiff(oldClass.name_);
                     memberDiff.oldType_ = oldCtor.type_;
                     memberDiff.oldExceptions_ = oldCtor.exceptions_;
-                    ConstructorAPI newCtor = newClass.ctors_.get(0);
+                    ConstructorAPI newCtor = newCtors.get(0);
                     memberDiff.newType_ = newCtor.type_;
                     memberDiff.newExceptions_ = newCtor.exceptions_;
                     // Track changes in documentation
-                    if (docChanged(oldCtor.doc_, newCtor.doc_)) {
+                    if (docChanged(ctx_, oldCtor.docFingerprint_, oldCtor.docNormFingerprint_,
+                            newCtor.docFingerprint_, newCtor.docNormFingerprint_)) {
                         String type = memberDiff.newType_;
                         if (type.compareTo("void") == 0)
                             type = "";
@@ -518,12 +538,12 @@ public class APIComparator {
                         String id = pkgDiff.name_ + "." + classDiff.name_ + ".ctor(" + HTMLReportGenerator.simpleName(type) + ")";
                         String title = link1 + "Class <b>" + classDiff.name_ +
                                 "</b></a>, " + link2 + "constructor <b>" + classDiff.name_ + "(" + HTMLReportGenerator.simpleName(type) + ")</b></a>";
-                        memberDiff.documentationChange_ = Diff.saveDocDiffs(
-                                pkgDiff.name_, classDiff.name_, oldCtor.doc_, newCtor.doc_, id, title);
+                        memberDiff.documentationChange_ = ctx_.diff.saveDocDiffs(ctx_,
+                                pkgDiff.name_, classDiff.name_, oldCtor.getDoc(), newCtor.getDoc(), id, title);
                     }
-                    String modifiersChange = oldCtor.modifiers_.diff(newCtor.modifiers_);
+                    String modifiersChange = oldCtor.modifiers_.diff(newCtor.modifiers_, ctx_.incompatibleChangesOnly);
                     if (modifiersChange != null && modifiersChange.contains("Change from deprecated to undeprecated")) {
-                        System.out.println("JDiff: warning: change from deprecated to undeprecated for a constructor in class" + newClass.name_);
+                        ctx_.diagnostics.warn("undeprecated", "JDiff: warning: change from deprecated to undeprecated for a constructor in class" + newClass.name_);
                     }
                     memberDiff.addModifiersChange(modifiersChange);
                     if (trace)
@@ -533,22 +553,24 @@ public class APIComparator {
                 } else {
                     if (trace)
                         System.out.println("    Constructor " + oldClass.name_ + " was removed");
-                    classDiff.ctorsRemoved.add(oldCtor);
+                    classDiff.removedCtors_.add(oldCtor);
                 }
                 differs = true;
             }
         } // while (iter.hasNext())
 
         // Find ctors which were added in the new class
-        iter = newClass.ctors_.iterator();
+        iter = newCtors.iterator();
         while (iter.hasNext()) {
             ConstructorAPI newCtor = (iter.next());
-            int idx = Collections.binarySearch(oldClass.ctors_, newCtor);
+            int idx = Collections.binarySearch(oldCtors, newCtor);
+            if (idx >= 0 && ctorChanged(oldCtors.get(idx), newCtor))
+                idx = -1;
             if (idx < 0) {
                 if (!singleCtor) {
                     if (trace)
                         System.out.println("    Constructor " + oldClass.name_ + " was added");
-                    classDiff.ctorsAdded.add(newCtor);
+                    classDiff.addedCtors_.add(newCtor);
                     differs = true;
                 }
             }
@@ -578,29 +600,16 @@ public class APIComparator {
                     newClass.methods_.size());
         boolean differs = false;
 
-        Collections.sort(oldClass.methods_);
-        Collections.sort(newClass.methods_);
+        List<MethodAPI> oldMethods = sorted(oldClass.methods_);
+        List<MethodAPI> newMethods = sorted(newClass.methods_);
 
         // Find methods which were removed in the new class
-        Iterator<MethodAPI> iter = oldClass.methods_.iterator();
+        Iterator<MethodAPI> iter = oldMethods.iterator();
         while (iter.hasNext()) {
             MethodAPI oldMethod = (iter.next());
-            int idx = -1;
-            MethodAPI[] methodArr = new MethodAPI[newClass.methods_.size()];
-            methodArr = newClass.methods_.toArray(methodArr);
-            for (int methodIdx = 0; methodIdx < methodArr.length; methodIdx++) {
-                MethodAPI newMethod = methodArr[methodIdx];
-                if (oldMethod.compareTo(newMethod) == 0) {
-                    idx = methodIdx;
-                    break;
-                }
-            }
-// NOTE: there was a problem with the binarySearch for
-// java.lang.Byte.toString(byte b) returning -16 when the compareTo method
-// returned 0 on entry 13. Changed to use arrays instead, so maybe it was
-// an issue with methods having another List of params used indirectly by
-// compareTo(), unlike constructors and fields?
-//            int idx = Collections.binarySearch(newClass.methods_, oldMethod);
+            int idx = Collections.binarySearch(newMethods, oldMethod);
+            if (idx >= 0 && methodChanged(oldMethod, newMethods.get(idx)))
+                idx = -1;
             if (idx < 0) {
                 // If there is only one instance of a method with this name
                 // in both the old and new class, then treat it as changed,
@@ -608,14 +617,14 @@ public class APIComparator {
                 // Find how many instances of this method name there are in
                 // the old and new class. The equals comparator is just on
                 // the method name.
-                int startOld = oldClass.methods_.indexOf(oldMethod);
-                int endOld = oldClass.methods_.lastIndexOf(oldMethod);
-                int startNew = newClass.methods_.indexOf(oldMethod);
-                int endNew = newClass.methods_.lastIndexOf(oldMethod);
+                int startOld = oldMethods.indexOf(oldMethod);
+                int endOld = oldMethods.lastIndexOf(oldMethod);
+                int startNew = newMethods.indexOf(oldMethod);
+                int endNew = newMethods.lastIndexOf(oldMethod);
 
                 if (startOld != -1 && startOld == endOld &&
                         startNew != -1 && startNew == endNew) {
-                    MethodAPI newMethod = newClass.methods_.get(startNew);
+                    MethodAPI newMethod = newMethods.get(startNew);
                     // Only one method with that name exists in both packages,
                     // so it is valid to compare the two methods. We know it
                     // has changed, because the binarySearch did not find it.
@@ -632,37 +641,28 @@ public class APIComparator {
                         System.out.println("    Method " + oldMethod.name_ +
                                 "(" + oldMethod.getSignature() +
                                 ") was removed");
-                    classDiff.methodsRemoved.add(oldMethod);
+                    classDiff.removedMethods_.add(oldMethod);
                     differs = true;
                 }
             }
         } // while (iter.hasNext())
 
         // Find methods which were added in the new class
-        iter = newClass.methods_.iterator();
+        iter = newMethods.iterator();
         while (iter.hasNext()) {
             MethodAPI newMethod = (iter.next());
             // Only concerned with locally defined methods
             if (newMethod.inheritedFrom_ != null)
                 continue;
-            int idx = -1;
-            MethodAPI[] methodArr = new MethodAPI[oldClass.methods_.size()];
-            methodArr = oldClass.methods_.toArray(methodArr);
-            for (int methodIdx = 0; methodIdx < methodArr.length; methodIdx++) {
-                MethodAPI oldMethod = methodArr[methodIdx];
-                if (newMethod.compareTo(oldMethod) == 0) {
-                    idx = methodIdx;
-                    break;
-                }
-            }
-// See note above about searching an array instead of binarySearch
-//            int idx = Collections.binarySearch(oldClass.methods_, newMethod);
+            int idx = Collections.binarySearch(oldMethods, newMethod);
+            if (idx >= 0 && methodChanged(oldMethods.get(idx), newMethod))
+                idx = -1;
             if (idx < 0) {
                 // See comments above
-                int startOld = oldClass.methods_.indexOf(newMethod);
-                int endOld = oldClass.methods_.lastIndexOf(newMethod);
-                int startNew = newClass.methods_.indexOf(newMethod);
-                int endNew = newClass.methods_.lastIndexOf(newMethod);
+                int startOld = oldMethods.indexOf(newMethod);
+                int endOld = oldMethods.lastIndexOf(newMethod);
+                int startNew = newMethods.indexOf(newMethod);
+                int endNew = newMethods.lastIndexOf(newMethod);
 
                 if (startOld != -1 && startOld == endOld &&
                         startNew != -1 && startNew == endNew) {
@@ -672,7 +672,7 @@ public class APIComparator {
                     if (trace)
                         System.out.println("    Method " + newMethod.name_ +
                                 "(" + newMethod.getSignature() + ") was added");
-                    classDiff.methodsAdded.add(newMethod);
+                    classDiff.addedMethods_.add(newMethod);
                     differs = true;
                 }
             }
@@ -690,7 +690,8 @@ public class APIComparator {
         // Check changes in return type
         methodDiff.oldType_ = oldMethod.returnType_;
         methodDiff.newType_ = newMethod.returnType_;
-        if (oldMethod.returnType_.compareTo(newMethod.returnType_) != 0) {
+        if (!SymbolTable.same(oldMethod.returnTypeId_, oldMethod.returnType_,
+                newMethod.returnTypeId_, newMethod.returnType_)) {
             differs = true;
         }
         // Check changes in signature
@@ -698,11 +699,11 @@ public class APIComparator {
         String newSig = newMethod.getSignature();
         methodDiff.oldSignature_ = oldSig;
         methodDiff.newSignature_ = newSig;
-        if (oldSig.compareTo(newSig) != 0) {
+        if (!oldMethod.equalSignatures(newMethod)) {
             differs = true;
         }
         // Changes in inheritance
-        int inh = JDiff.compareMethodInheritance? changedInheritance(oldMethod.inheritedFrom_, newMethod.inheritedFrom_) : 0;
+        int inh = ctx_.compareMethodInheritance? changedInheritance(oldMethod.inheritedFrom_, newMethod.inheritedFrom_) : 0;
         if (inh != 0)
             differs = true;
         if (inh == 1) {
@@ -716,9 +717,9 @@ public class APIComparator {
             methodDiff.inheritedFrom_ = newMethod.inheritedFrom_;
         }
         // Abstract or not
-        if (oldMethod.isAbstract_ != newMethod.isAbstract_) {
+        if (oldMethod.modifiers_.isAbstract() != newMethod.modifiers_.isAbstract()) {
             String changeText = "";
-            if (oldMethod.isAbstract_)
+            if (oldMethod.modifiers_.isAbstract())
                 changeText += "Changed from abstract to non-abstract.";
             else
                 changeText += "Changed from non-abstract to abstract.";
@@ -726,10 +727,10 @@ public class APIComparator {
             differs = true;
         }
         // Native or not
-        if (Diff.showAllChanges &&
-                oldMethod.isNative_ != newMethod.isNative_) {
+        if (ctx_.showAllChanges &&
+                oldMethod.modifiers_.isNative() != newMethod.modifiers_.isNative()) {
             String changeText = "";
-            if (oldMethod.isNative_)
+            if (oldMethod.modifiers_.isNative())
                 changeText += "Changed from native to non-native.";
             else
                 changeText += "Changed from non-native to native.";
@@ -737,10 +738,10 @@ public class APIComparator {
             differs = true;
         }
         // Synchronized or not
-        if (Diff.showAllChanges &&
-                oldMethod.isSynchronized_ != newMethod.isSynchronized_) {
+        if (ctx_.showAllChanges &&
+                oldMethod.modifiers_.isSynchronized() != newMethod.modifiers_.isSynchronized()) {
             String changeText = "";
-            if (oldMethod.isSynchronized_)
+            if (oldMethod.modifiers_.isSynchronized())
                 changeText += "Changed from synchronized to non-synchronized.";
             else
                 changeText += "Changed from non-synchronized to synchronized.";
@@ -751,12 +752,14 @@ public class APIComparator {
         // Check changes in exceptions thrown
         methodDiff.oldExceptions_ = oldMethod.exceptions_;
         methodDiff.newExceptions_ = newMethod.exceptions_;
-        if (oldMethod.exceptions_.compareTo(newMethod.exceptions_) != 0) {
+        if (!SymbolTable.same(oldMethod.exceptionsId_, oldMethod.exceptions_,
+                newMethod.exceptionsId_, newMethod.exceptions_)) {
             differs = true;
         }
 
         // Track changes in documentation
-        if (docChanged(oldMethod.doc_, newMethod.doc_)) {
+        if (docChanged(ctx_, oldMethod.docFingerprint_, oldMethod.docNormFingerprint_,
+                newMethod.docFingerprint_, newMethod.docNormFingerprint_)) {
             String sig = methodDiff.newSignature_;
             if (sig.compareTo("void") == 0)
                 sig = "";
@@ -766,16 +769,16 @@ public class APIComparator {
             String id = pkgDiff.name_ + "." + classDiff.name_ + ".dmethod." + newMethod.name_ + "(" + HTMLReportGenerator.simpleName(sig) + ")";
             String title = link1 + "Class <b>" + classDiff.name_ + "</b></a>, " +
                     link2 + HTMLReportGenerator.simpleName(methodDiff.newType_) + " <b>" + newMethod.name_ + "(" + HTMLReportGenerator.simpleName(sig) + ")</b></a>";
-            methodDiff.documentationChange_ = Diff.saveDocDiffs(pkgDiff.name_, classDiff.name_, oldMethod.doc_, newMethod.doc_, id, title);
+            methodDiff.documentationChange_ = ctx_.diff.saveDocDiffs(ctx_, pkgDiff.name_, classDiff.name_, oldMethod.getDoc(), newMethod.getDoc(), id, title);
             differs = true;
         }
 
         // All other modifiers
-        String modifiersChange = oldMethod.modifiers_.diff(newMethod.modifiers_);
+        String modifiersChange = oldMethod.modifiers_.diff(newMethod.modifiers_, ctx_.incompatibleChangesOnly);
         if (modifiersChange != null) {
             differs = true;
             if (modifiersChange.contains("Change from deprecated to undeprecated")) {
-                System.out.println("JDiff: warning: change from deprecated to undeprecated for method " + classDiff.name_ + "." + newMethod.name_);
+                ctx_.diagnostics.warn("undeprecated", "JDiff: warning: change from deprecated to undeprecated for method " + classDiff.name_ + "." + newMethod.name_);
 
             }
         }
@@ -809,22 +812,24 @@ public class APIComparator {
                     + newClass.fields_.size());
         boolean differs = false;
 
-        Collections.sort(oldClass.fields_);
-        Collections.sort(newClass.fields_);
+        List<FieldAPI> oldFields = sorted(oldClass.fields_);
+        List<FieldAPI> newFields = sorted(newClass.fields_);
 
         // Find fields which were removed in the new class
-        Iterator<FieldAPI> iter = oldClass.fields_.iterator();
+        Iterator<FieldAPI> iter = oldFields.iterator();
         while (iter.hasNext()) {
             FieldAPI oldField = (iter.next());
-            int idx = Collections.binarySearch(newClass.fields_, oldField);
+            int idx = Collections.binarySearch(newFields, oldField);
+            if (idx >= 0 && fieldChanged(oldField, newFields.get(idx)))
+                idx = -1;
             if (idx < 0) {
                 // If there an instance of a field with the same name
                 // in both the old and new class, then treat it as changed,
                 // rather than removed and added. There will never be more than
                 // one instance of a field with the same name in a class.
-                int existsNew = newClass.fields_.indexOf(oldField);
+                int existsNew = newFields.indexOf(oldField);
                 if (existsNew != -1) {
-                    FieldAPI newField = newClass.fields_.get(existsNew);
+                    FieldAPI newField = newFields.get(existsNew);
                     if (oldField.inheritedFrom_ == null ||
                             newField.inheritedFrom_ == null) {
                         // We also know that one of the fields is locally defined.
@@ -832,7 +837,7 @@ public class APIComparator {
                         memberDiff.oldType_ = oldField.type_;
                         memberDiff.newType_ = newField.type_;
                         // Changes in inheritance
-                        int inh = JDiff.compareFieldInheritance? changedInheritance(oldField.inheritedFrom_, newField.inheritedFrom_) : 0;
+                        int inh = ctx_.compareFieldInheritance? changedInheritance(oldField.inheritedFrom_, newField.inheritedFrom_) : 0;
                         if (inh != 0)
                             differs = true;
                         if (inh == 1) {
@@ -845,9 +850,9 @@ public class APIComparator {
                             memberDiff.inheritedFrom_ = newField.inheritedFrom_;
                         }
                         // Transient or not
-                        if (oldField.isTransient_ != newField.isTransient_) {
+                        if (oldField.modifiers_.isTransient() != newField.modifiers_.isTransient()) {
                             String changeText = "";
-                            if (oldField.isTransient_)
+                            if (oldField.modifiers_.isTransient())
                                 changeText += "Changed from transient to non-transient.";
                             else
                                 changeText += "Changed from non-transient to transient.";
@@ -855,9 +860,9 @@ public class APIComparator {
                             differs = true;
                         }
                         // Volatile or not
-                        if (oldField.isVolatile_ != newField.isVolatile_) {
+                        if (oldField.modifiers_.isVolatile() != newField.modifiers_.isVolatile()) {
                             String changeText = "";
-                            if (oldField.isVolatile_)
+                            if (oldField.modifiers_.isVolatile())
                                 changeText += "Changed from volatile to non-volatile.";
                             else
                                 changeText += "Changed from non-volatile to volatile.";
@@ -874,22 +879,23 @@ public class APIComparator {
                             differs = true;
                         }
                         // Track changes in documentation
-                        if (docChanged(oldField.doc_, newField.doc_)) {
+                        if (docChanged(ctx_, oldField.docFingerprint_, oldField.docNormFingerprint_,
+                                newField.docFingerprint_, newField.docNormFingerprint_)) {
                             String fqName = pkgDiff.name_ + "." + classDiff.name_;
                             String link1 = "<a href=\"" + fqName + HTMLReportGenerator.reportFileExt + "\" class=\"hiddenlink\">";
                             String link2 = "<a href=\"" + fqName + HTMLReportGenerator.reportFileExt + "#" + fqName + "." + newField.name_ + "\" class=\"hiddenlink\">";
                             String id = pkgDiff.name_ + "." + classDiff.name_ + ".field." + newField.name_;
                             String title = link1 + "Class <b>" + classDiff.name_ + "</b></a>, " +
                                     link2 + HTMLReportGenerator.simpleName(memberDiff.newType_) + " <b>" + newField.name_ + "</b></a>";
-                            memberDiff.documentationChange_ = Diff.saveDocDiffs(pkgDiff.name_, classDiff.name_, oldField.doc_, newField.doc_, id, title);
+                            memberDiff.documentationChange_ = ctx_.diff.saveDocDiffs(ctx_, pkgDiff.name_, classDiff.name_, oldField.getDoc(), newField.getDoc(), id, title);
                             differs = true;
                         }
 
                         // Other differences
-                        String modifiersChange = oldField.modifiers_.diff(newField.modifiers_);
+                        String modifiersChange = oldField.modifiers_.diff(newField.modifiers_, ctx_.incompatibleChangesOnly);
                         memberDiff.addModifiersChange(modifiersChange);
                         if (modifiersChange != null && modifiersChange.contains("Change from deprecated to undeprecated")) {
-                            System.out.println("JDiff: warning: change from deprecated to undeprecated for class " + newClass.name_ + ", field " + newField.name_);
+                            ctx_.diagnostics.warn("undeprecated", "JDiff: warning: change from deprecated to undeprecated for class " + newClass.name_ + ", field " + newField.name_);
                         }
                         if (trace)
                             System.out.println("    Field " + newField.name_ + " was changed");
@@ -899,28 +905,28 @@ public class APIComparator {
                 } else if (oldField.inheritedFrom_ == null) {
                     if (trace)
                         System.out.println("    Field " + oldField.name_ + " was removed");
-                    classDiff.fieldsRemoved.add(oldField);
+                    classDiff.removedFields_.add(oldField);
                     differs = true;
                 }
             }
         } // while (iter.hasNext())
 
         // Find fields which were added in the new class
-        iter = newClass.fields_.iterator();
+        iter = newFields.iterator();
         while (iter.hasNext()) {
             FieldAPI newField = (iter.next());
             // Only concerned with locally defined fields
             if (newField.inheritedFrom_ != null)
                 continue;
-            int idx = Collections.binarySearch(oldClass.fields_, newField);
+            int idx = Collections.binarySearch(oldFields, newField);
             if (idx < 0) {
                 // See comments above
-                if (oldClass.fields_.contains(newField)) {
+                if (oldFields.contains(newField)) {
                     // Don't mark a field as added if it was marked as changed
                 } else {
                     if (trace)
                         System.out.println("    Field " + newField.name_ + " was added");
-                    classDiff.fieldsAdded.add(newField);
+                    classDiff.addedFields_.add(newField);
                     differs = true;
                 }
             }
@@ -929,6 +935,64 @@ public class APIComparator {
         return differs;
     } // compareFields()
 
+    /**
+     * Decide if two constructors which compare as equal differ in what
+     * the compareTo method does not compare.
+     */
+    private boolean ctorChanged(ConstructorAPI oldCtor, ConstructorAPI newCtor) {
+        return docChanged(ctx_, oldCtor.docFingerprint_, oldCtor.docNormFingerprint_,
+                newCtor.docFingerprint_, newCtor.docNormFingerprint_);
+    }
+
+    /**
+     * Decide if two methods which compare as equal differ in what the
+     * compareTo method does not compare.
+     */
+    private boolean methodChanged(MethodAPI oldMethod, MethodAPI newMethod) {
+        if (ctx_.compareMethodInheritance && changedInheritance(oldMethod.inheritedFrom_, newMethod.inheritedFrom_) != 0)
+            return true;
+        int changes = oldMethod.modifiers_.changes(newMethod.modifiers_);
+        if ((changes & Modifiers.ABSTRACT) != 0)
+            return true;
+        if (ctx_.showAllChanges &&
+                (changes & (Modifiers.NATIVE | Modifiers.SYNCHRONIZED)) != 0)
+            return true;
+        return docChanged(ctx_, oldMethod.docFingerprint_, oldMethod.docNormFingerprint_,
+                newMethod.docFingerprint_, newMethod.docNormFingerprint_);
+    }
+
+    /**
+     * Decide if two fields which compare as equal differ in what the
+     * compareTo method does not compare. A value which is only known
+     * for one of them is not counted as a change.
+     */
+    private boolean fieldChanged(FieldAPI oldField, FieldAPI newField) {
+        if (ctx_.compareFieldInheritance && changedInheritance(oldField.inheritedFrom_, newField.inheritedFrom_) != 0)
+            return true;
+        if ((oldField.modifiers_.changes(newField.modifiers_) & (Modifiers.TRANSIENT | Modifiers.VOLATILE)) != 0)
+            return true;
+        if (oldField.value_ != null && newField.value_ != null &&
+                oldField.value_.compareTo(newField.value_) != 0)
+            return true;
+        if (oldField.modifiers_.compareTo(newField.modifiers_) != 0)
+            return true;
+        return docChanged(ctx_, oldField.docFingerprint_, oldField.docNormFingerprint_,
+                newField.docFingerprint_, newField.docNormFingerprint_);
+    }
+
+    /**
+     * Return the elements of a list in their natural order, leaving the
+     * list itself as it is, so that an API can be compared more than once,
+     * or by more than one thread at a time.
+     */
+    private static <T extends Comparable<? super T>> List<T> sorted(List<T> list) {
+        if (list.size() < 2)
+            return list;
+        List<T> copy = new ArrayList<>(list);
+        Collections.sort(copy);
+        return copy;
+    }
+
     /**
      * Return the number of methods which are locally defined.
      */
@@ -33,26 +33,26 @@ public class APIDiff {
     /**
      * Name of the old API.
      */
-    public static String oldAPIName_; //FIXME Why is this static?
+    public String oldAPIName_;
 
     /**
      * Name of the old API.
      */
-    public static String newAPIName_; //FIXME Why is this static?
+    public String newAPIName_;
 
-    // PackageAPI[]
+    // DiffEntry[]
 
     /**
      * Packages added in the new API.
      */
-    public List<PackageAPI> packagesAdded = new ArrayList<>();
+    public List<DiffEntry> packagesAdded = new ArrayList<>();
 
-    // PackageAPI[]
+    // DiffEntry[]
 
     /**
      * Packages removed in the new API.
      */
-    public List<PackageAPI> packagesRemoved = new ArrayList<>();
+    public List<DiffEntry> packagesRemoved = new ArrayList<>();
 
     // PackageDiff[]
 
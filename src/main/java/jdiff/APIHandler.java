@@ -43,14 +43,19 @@ class APIHandler extends DefaultHandler {
     private static final boolean trace = false;
 
     /**
-     * If set, then check that each comment is a sentence.
+     * The API object which is populated from the XML file.
      */
-    public static boolean checkIsSentence;
+    public API api_;
 
     /**
-     * The API object which is populated from the XML file.
+     * Adds the program elements to the API object.
      */
-    public API api_;
+    private final XMLToAPI xml_;
+
+    /**
+     * The context of the run which the API is read for.
+     */
+    private final JDiffContext ctx_;
 
     /**
      * Contains the name of the current package element type
@@ -75,6 +80,17 @@ class APIHandler extends DefaultHandler {
      */
     private String currentText;
 
+    /**
+     * The XML file being parsed, if doc blocks are to be read from it on
+     * demand, otherwise null.
+     */
+    private DocSource docSource_;
+
+    /**
+     * The location in {@link #docSource_} of the doc block being parsed.
+     */
+    private long docLocation;
+
     /**
      * The current text from deprecation, null if empty.
      */
@@ -89,9 +105,12 @@ class APIHandler extends DefaultHandler {
     /**
      * Default constructor.
      */
-    public APIHandler(API api, boolean createGlobalComments) {
+    public APIHandler(JDiffContext ctx, XMLToAPI xml, API api, boolean createGlobalComments, DocSource docSource) {
+        xml_ = xml;
+        ctx_ = ctx;
         api_ = api;
         createGlobalComments_ = createGlobalComments;
+        docSource_ = docSource;
         tagStack = new LinkedList<>();
     }
 
@@ -121,66 +140,63 @@ class APIHandler extends DefaultHandler {
         if (localName.compareTo("api") == 0) {
             String apiName = attributes.getValue("name");
             String version = attributes.getValue("jdversion"); // Not used yet
-            XMLToAPI.nameAPI(apiName);
+            xml_.nameAPI(apiName);
         } else if (localName.compareTo("package") == 0) {
             currentElement = localName;
             String pkgName = attributes.getValue("name");
-            XMLToAPI.addPackage(pkgName);
+            xml_.addPackage(pkgName);
         } else if (localName.compareTo("class") == 0) {
             currentElement = localName;
             String className = attributes.getValue("name");
             String parentName = attributes.getValue("extends");
-            boolean isAbstract = attributes.getValue("abstract").compareTo("true") == 0;
-            XMLToAPI.addClass(className, parentName, isAbstract, getModifiers(attributes));
+            xml_.addClass(className, parentName, getModifiers(attributes));
         } else if (localName.compareTo("interface") == 0) {
             currentElement = localName;
             String className = attributes.getValue("name");
             String parentName = attributes.getValue("extends");
-            boolean isAbstract = attributes.getValue("abstract").compareTo("true") == 0;
-            XMLToAPI.addInterface(className, parentName, isAbstract, getModifiers(attributes));
+            xml_.addInterface(className, parentName, getModifiers(attributes));
         } else if (localName.compareTo("implements") == 0) {
             String interfaceName = attributes.getValue("name");
-            XMLToAPI.addImplements(interfaceName);
+            xml_.addImplements(interfaceName);
         } else if (localName.compareTo("constructor") == 0) {
             currentElement = localName;
             String ctorType = attributes.getValue("type");
-            XMLToAPI.addCtor(ctorType, getModifiers(attributes));
+            xml_.addCtor(ctorType, getModifiers(attributes));
         } else if (localName.compareTo("method") == 0) {
             currentElement = localName;
             String methodName = attributes.getValue("name");
             String returnType = attributes.getValue("return");
-            boolean isAbstract = attributes.getValue("abstract").compareTo("true") == 0;
-            boolean isNative = attributes.getValue("native").compareTo("true") == 0;
-            boolean isSynchronized = attributes.getValue("synchronized").compareTo("true") == 0;
-            XMLToAPI.addMethod(methodName, returnType, isAbstract, isNative,
-                    isSynchronized, getModifiers(attributes));
+            xml_.addMethod(methodName, returnType, getModifiers(attributes));
         } else if (localName.compareTo("field") == 0) {
             currentElement = localName;
             String fieldName = attributes.getValue("name");
             String fieldType = attributes.getValue("type");
-            boolean isTransient = attributes.getValue("transient").compareTo("true") == 0;
-            boolean isVolatile = attributes.getValue("volatile").compareTo("true") == 0;
             String value = attributes.getValue("value");
-            XMLToAPI.addField(fieldName, fieldType, isTransient, isVolatile,
-                    value, getModifiers(attributes));
+            xml_.addField(fieldName, fieldType, value, getModifiers(attributes));
         } else if (localName.compareTo("param") == 0) {
             String paramName = attributes.getValue("name");
             String paramType = attributes.getValue("type");
-            XMLToAPI.addParam(paramName, paramType);
+            xml_.addParam(paramName, paramType);
         } else if (localName.compareTo("exception") == 0) {
             String paramName = attributes.getValue("name");
             String paramType = attributes.getValue("type");
-            XMLToAPI.addException(paramName, paramType, currentElement);
+            xml_.addException(paramName, paramType, currentElement);
         } else if (localName.compareTo("doc") == 0) {
             inDoc = true;
             currentText = null;
+            if (docSource_ != null) {
+                docLocation = docSource_.nextDoc();
+                if (docLocation == DocSource.NO_DOC) {
+                    System.out.println("Warning: could not find the doc blocks in the XML file, so they will be kept in memory");
+                    docSource_ = null;
+                }
+            }
         } else {
             if (inDoc) {
                 // Start of an element, probably an HTML element
                 addStartTagToText(localName, attributes);
             } else {
-                System.out.println("Error: unknown element type: " + localName);
-                System.exit(-1);
+                throw new JDiffException("unknown element type: " + localName);
             }
         }
     }
@@ -203,9 +219,11 @@ class APIHandler extends DefaultHandler {
             addEndTagToText(localName);
         } else if (currentElement.compareTo("constructor") == 0 &&
                 localName.compareTo("constructor") == 0) {
+            xml_.endCtor();
             currentElement = "class";
         } else if (currentElement.compareTo("method") == 0 &&
                 localName.compareTo("method") == 0) {
+            xml_.endMethod();
             currentElement = "class";
         } else if (currentElement.compareTo("field") == 0 &&
                 localName.compareTo("field") == 0) {
@@ -245,29 +263,51 @@ class APIHandler extends DefaultHandler {
         currentText = currentText.trim();
         // Convert any @link tags to HTML links.
         if (convertAtLinks) {
-            currentText = Comments.convertAtLinks(currentText, currentElement,
+            currentText = Comments.convertAtLinks(ctx_, currentText, currentElement,
                     api_.currPkg_, api_.currClass_);
         }
         // Check that it is a sentence
-        if (checkIsSentence && !currentText.endsWith(".") &&
+        if (ctx_.checkIsSentence && !currentText.endsWith(".") &&
                 currentText.compareTo(Comments.placeHolderText) != 0) {
-            System.out.println("Warning: text of comment does not end in a period: " + currentText);
+            ctx_.diagnostics.warn("comment not a sentence", "Warning: text of comment does not end in a period: " + currentText);
         }
         // The construction of the commentID assumes that the
         // documentation is the final element to be parsed. The format matches
         // the format used in the report generator to look up comments in the
         // the existingComments object.
         String commentID = null;
+        // Fingerprint the comment once, so that comparisons need not look at its text
+        long fingerprint = DocFingerprint.of(currentText);
+        long normFingerprint = DocFingerprint.normalised(currentText);
+        // Leave the text in the file if it can be read from there on demand
+        String doc = currentText;
+        DocSource source = null;
+        if (docSource_ != null && docSource_.matches(docLocation, currentText)) {
+            doc = null;
+            source = docSource_;
+        }
         // Add this comment to the current API element.
         if (currentElement.compareTo("package") == 0) {
-            api_.currPkg_.doc_ = currentText;
+            api_.currPkg_.doc_ = doc;
+            api_.currPkg_.docSource_ = source;
+            api_.currPkg_.docLocation_ = docLocation;
+            api_.currPkg_.docFingerprint_ = fingerprint;
+            api_.currPkg_.docNormFingerprint_ = normFingerprint;
             commentID = api_.currPkg_.name_;
         } else if (currentElement.compareTo("class") == 0 ||
                 currentElement.compareTo("interface") == 0) {
-            api_.currClass_.doc_ = currentText;
+            api_.currClass_.doc_ = doc;
+            api_.currClass_.docSource_ = source;
+            api_.currClass_.docLocation_ = docLocation;
+            api_.currClass_.docFingerprint_ = fingerprint;
+            api_.currClass_.docNormFingerprint_ = normFingerprint;
             commentID = api_.currPkg_.name_ + "." + api_.currClass_.name_;
         } else if (currentElement.compareTo("constructor") == 0) {
-            api_.currCtor_.doc_ = currentText;
+            api_.currCtor_.doc_ = doc;
+            api_.currCtor_.docSource_ = source;
+            api_.currCtor_.docLocation_ = docLocation;
+            api_.currCtor_.docFingerprint_ = fingerprint;
+            api_.currCtor_.docNormFingerprint_ = normFingerprint;
             commentID = api_.currPkg_.name_ + "." + api_.currClass_.name_ +
                     ".ctor_changed(";
             if (api_.currCtor_.type_.compareTo("void") == 0)
@@ -275,29 +315,38 @@ class APIHandler extends DefaultHandler {
             else
                 commentID = commentID + api_.currCtor_.type_ + ")";
         } else if (currentElement.compareTo("method") == 0) {
-            api_.currMethod_.doc_ = currentText;
+            api_.currMethod_.doc_ = doc;
+            api_.currMethod_.docSource_ = source;
+            api_.currMethod_.docLocation_ = docLocation;
+            api_.currMethod_.docFingerprint_ = fingerprint;
+            api_.currMethod_.docNormFingerprint_ = normFingerprint;
             commentID = api_.currPkg_.name_ + "." + api_.currClass_.name_ +
                     "." + api_.currMethod_.name_ + "_changed(" +
                     api_.currMethod_.getSignature() + ")";
         } else if (currentElement.compareTo("field") == 0) {
-            api_.currField_.doc_ = currentText;
+            api_.currField_.doc_ = doc;
+            api_.currField_.docSource_ = source;
+            api_.currField_.docLocation_ = docLocation;
+            api_.currField_.docFingerprint_ = fingerprint;
+            api_.currField_.docNormFingerprint_ = normFingerprint;
             commentID = api_.currPkg_.name_ + "." + api_.currClass_.name_ +
                     "." + api_.currField_.name_;
         }
         // Add to the list of possible comments for use when an
         // element has changed (not removed or added).
         if (createGlobalComments_ && commentID != null) {
-            String ct = currentText;
+            CharSequence ct = currentText;
+            if (source != null)
+                ct = source.lazyText(docLocation);
             // Use any deprecation text as the possible comment, ignoring
             // any other comment text.
             if (currentDepText != null) {
                 ct = currentDepText;
                 currentDepText = null; // Never reuse it. Bug 469794
             }
-            String ctOld = (Comments.allPossibleComments.put(commentID, ct));
+            CharSequence ctOld = ctx_.allPossibleComments.put(commentID, ct);
             if (ctOld != null) {
-                System.out.println("Error: duplicate comment id: " + commentID);
-                System.exit(5);
+                throw new JDiffException("duplicate comment id: " + commentID);
             }
         }
     }
@@ -343,26 +392,46 @@ class APIHandler extends DefaultHandler {
     }
 
     /**
-     * Extra modifiers which are common to all program elements.
+     * Extra modifiers which are common to all program elements, and those
+     * which only some kinds of program element have, such as abstract.
+     * The attributes for the latter are absent on the other elements.
      */
     public Modifiers getModifiers(Attributes attributes) {
-        Modifiers modifiers = new Modifiers();
-        modifiers.isStatic = attributes.getValue("static").compareTo("true") == 0;
-        modifiers.isFinal = attributes.getValue("final").compareTo("true") == 0;
-        modifiers.isDeprecated = false;
+        int bits = 0;
+        if (isSet(attributes, "static"))
+            bits |= Modifiers.STATIC;
+        if (isSet(attributes, "final"))
+            bits |= Modifiers.FINAL;
+        if (isSet(attributes, "abstract"))
+            bits |= Modifiers.ABSTRACT;
+        if (isSet(attributes, "native"))
+            bits |= Modifiers.NATIVE;
+        if (isSet(attributes, "synchronized"))
+            bits |= Modifiers.SYNCHRONIZED;
+        if (isSet(attributes, "transient"))
+            bits |= Modifiers.TRANSIENT;
+        if (isSet(attributes, "volatile"))
+            bits |= Modifiers.VOLATILE;
         String cdt = attributes.getValue("deprecated");
         if (cdt.compareTo("not deprecated") == 0) {
-            //modifiers.isDeprecated = false;
             currentDepText = null;
         } else if (cdt.compareTo("deprecated, no comment") == 0) {
-            modifiers.isDeprecated = true;
+            bits |= Modifiers.DEPRECATED;
             currentDepText = null;
         } else {
-            modifiers.isDeprecated = true;
+            bits |= Modifiers.DEPRECATED;
             currentDepText = API.showHTMLTags(cdt);
         }
-        modifiers.visibility = attributes.getValue("visibility");
-        return modifiers;
+        Modifiers.Visibility visibility = Modifiers.Visibility.parse(attributes.getValue("visibility"));
+        bits |= Modifiers.visibilityBits(visibility);
+        return Modifiers.of(bits);
+    }
+
+    /**
+     * Return true if the given attribute is present and is "true".
+     */
+    private static boolean isSet(Attributes attributes, String name) {
+        return "true".equals(attributes.getValue(name));
     }
 
     public void warning(SAXParseException e) {
@@ -370,16 +439,12 @@ class APIHandler extends DefaultHandler {
         e.printStackTrace();
     }
 
-    public void error(SAXParseException e) {
-        System.out.println("Error (" + e.getLineNumber() + "): parsing XML API file:" + e);
-        e.printStackTrace();
-        System.exit(1);
+    public void error(SAXParseException e) throws SAXParseException {
+        throw e;
     }
 
-    public void fatalError(SAXParseException e) {
-        System.out.println("Fatal Error (" + e.getLineNumber() + "): parsing XML API file:" + e);
-        e.printStackTrace();
-        System.exit(1);
+    public void fatalError(SAXParseException e) throws SAXParseException {
+        throw e;
     }
 
 }
@@ -25,8 +25,9 @@ import java.util.List;
  * Class to represent a class, analogous to ClassDoc in the
  * Javadoc doclet API.
  * <p>
- * The method used for Collection comparison (compareTo) must make its
- * comparison based upon everything that is known about this class.
+ * The method used for Collection comparison (compareTo) orders classes by
+ * name, since a package never has two classes with the same name. Whether
+ * a class changed is decided by {@link APIComparator}.
  *
  * @author Matthew Doar, mdoar@pobox.com
  */
@@ -37,13 +38,18 @@ class ClassAPI implements Comparable<ClassAPI> {
      */
     public String name_;
 
+    /**
+     * The id of the name in the {@link SymbolTable} for this run.
+     */
+    public int nameId_ = SymbolTable.NO_ID;
+
     /**
      * Set if this class is an interface.
      */
     public boolean isInterface_;
 
     /**
-     * Modifiers for this class.
+     * Modifiers for this class, including whether it is abstract.
      */
     public Modifiers modifiers_;
 
@@ -73,24 +79,41 @@ class ClassAPI implements Comparable<ClassAPI> {
     public List<FieldAPI> fields_;
 
     /**
-     * The doc block, default is null.
+     * The doc block, default is null. This is also null if the doc block
+     * is to be read on demand, so use {@link #getDoc()} to read it.
      */
     public String doc_;
 
     /**
-     * Set if this class is abstract.
+     * The XML file to read the doc block from on demand, null if the doc
+     * block is kept in memory or there is none.
+     */
+    public DocSource docSource_;
+
+    /**
+     * The location of the doc block in {@link #docSource_}.
+     */
+    public long docLocation_;
+
+    /**
+     * The exact fingerprint of the doc block, see {@link DocFingerprint}.
+     */
+    public long docFingerprint_;
+
+    /**
+     * The fingerprint of the doc block ignoring reformatting, see
+     * {@link DocFingerprint}.
      */
-    boolean isAbstract_;
+    public long docNormFingerprint_;
 
     /**
      * Constructor.
      */
     public ClassAPI(String name, String parent, boolean isInterface,
-                    boolean isAbstract, Modifiers modifiers) {
+                    Modifiers modifiers) {
         name_ = name;
         extends_ = parent;
         isInterface_ = isInterface;
-        isAbstract_ = isAbstract;
         modifiers_ = modifiers;
 
         implements_ = new ArrayList<>(); // String[]
@@ -100,22 +123,18 @@ class ClassAPI implements Comparable<ClassAPI> {
     }
 
     /**
-     * Compare two ClassAPI objects by all the known information.
+     * Return the doc block, reading it from the XML file if it was not
+     * kept in memory. Null if there is no doc block.
+     */
+    public String getDoc() {
+        return DocSource.text(doc_, docSource_, docLocation_);
+    }
+
+    /**
+     * Compare two ClassAPI objects by name.
      */
     public int compareTo(ClassAPI o) {
-        int comp = name_.compareTo(o.name_);
-        if (comp != 0)
-            return comp;
-        if (isInterface_ != o.isInterface_)
-            return -1;
-        if (isAbstract_ != o.isAbstract_)
-            return -1;
-        comp = modifiers_.compareTo(o.modifiers_);
-        if (comp != 0)
-            return comp;
-        if (APIComparator.docChanged(doc_, o.doc_))
-            return -1;
-        return 0;
+        return SymbolTable.compare(nameId_, name_, o.nameId_, o.name_);
     }
 
     /**
@@ -123,7 +142,12 @@ class ClassAPI implements Comparable<ClassAPI> {
      * used by indexOf().
      */
     public boolean equals(Object o) {
-        return this == o || o instanceof ClassAPI && name_.compareTo(((ClassAPI) o).name_) == 0;
+        if (this == o)
+            return true;
+        if (!(o instanceof ClassAPI))
+            return false;
+        ClassAPI c = (ClassAPI) o;
+        return SymbolTable.same(nameId_, name_, c.nameId_, c.name_);
     }
 
 }
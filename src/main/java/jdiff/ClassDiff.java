@@ -28,7 +28,7 @@ import java.util.List;
  * @author Matthew Doar, mdoar@pobox.com
  */
 class ClassDiff {
-    public static ClassDiff[] EMPTY_ARRAY = new ClassDiff[0];
+    public static final ClassDiff[] EMPTY_ARRAY = new ClassDiff[0];
 
     /**
      * Name of the class.
@@ -60,12 +60,12 @@ class ClassDiff {
     /**
      * Constructors added in the new API.
      */
-    public List<ConstructorAPI> ctorsAdded;
+    public List<DiffEntry> ctorsAdded;
 
     /**
      * Constructors removed in the new API.
      */
-    public List<ConstructorAPI> ctorsRemoved;
+    public List<DiffEntry> ctorsRemoved;
 
     /**
      * Constructors changed in the new API.
@@ -75,12 +75,12 @@ class ClassDiff {
     /**
      * Methods added in the new API.
      */
-    public List<MethodAPI> methodsAdded;
+    public List<DiffEntry> methodsAdded;
 
     /**
      * Methods removed in the new API.
      */
-    public List<MethodAPI> methodsRemoved;
+    public List<DiffEntry> methodsRemoved;
 
     /**
      * Methods changed in the new API.
@@ -90,18 +90,51 @@ class ClassDiff {
     /**
      * Fields added in the new API.
      */
-    public List<FieldAPI> fieldsAdded;
+    public List<DiffEntry> fieldsAdded;
 
     /**
      * Fields removed in the new API.
      */
-    public List<FieldAPI> fieldsRemoved;
+    public List<DiffEntry> fieldsRemoved;
 
     /**
      * Fields changed in the new API.
      */
     public List<MemberDiff> fieldsChanged;
 
+    /**
+     * Constructors added in the new API, while the APIs are being compared.
+     * Some of them are merged with removed constructors into changes by
+     * {@link MergeChanges}, and the rest are moved to ctorsAdded by
+     * {@link #detach}.
+     */
+    List<ConstructorAPI> addedCtors_;
+
+    /**
+     * Constructors removed in the new API, while the APIs are being compared.
+     */
+    List<ConstructorAPI> removedCtors_;
+
+    /**
+     * Methods added in the new API, while the APIs are being compared.
+     */
+    List<MethodAPI> addedMethods_;
+
+    /**
+     * Methods removed in the new API, while the APIs are being compared.
+     */
+    List<MethodAPI> removedMethods_;
+
+    /**
+     * Fields added in the new API, while the APIs are being compared.
+     */
+    List<FieldAPI> addedFields_;
+
+    /**
+     * Fields removed in the new API, while the APIs are being compared.
+     */
+    List<FieldAPI> removedFields_;
+
     /* The percentage difference for this class. */
     public double pdiff = 0.0;
 
@@ -112,17 +145,48 @@ class ClassDiff {
         name_ = name;
         isInterface_ = false;
 
-        ctorsAdded = new ArrayList<>(); // ConstructorAPI[]
-        ctorsRemoved = new ArrayList<>(); // ConstructorAPI[]
         ctorsChanged = new ArrayList<>(); // MemberDiff[]
-
-        methodsAdded = new ArrayList<>(); // MethodAPI[]
-        methodsRemoved = new ArrayList<>(); // MethodAPI[]
         methodsChanged = new ArrayList<>(); // MemberDiff[]
-
-        fieldsAdded = new ArrayList<>(); // FieldAPI[]
-        fieldsRemoved = new ArrayList<>(); // FieldAPI[]
         fieldsChanged = new ArrayList<>(); // MemberDiff[]
+
+        addedCtors_ = new ArrayList<>(); // ConstructorAPI[]
+        removedCtors_ = new ArrayList<>(); // ConstructorAPI[]
+        addedMethods_ = new ArrayList<>(); // MethodAPI[]
+        removedMethods_ = new ArrayList<>(); // MethodAPI[]
+        addedFields_ = new ArrayList<>(); // FieldAPI[]
+        removedFields_ = new ArrayList<>(); // FieldAPI[]
+    }
+
+    /**
+     * Replace the members which were removed and added, which are elements
+     * of the APIs, with entries holding only what the report shows of them,
+     * once the APIs have been compared and the changes merged.
+     */
+    void detach() {
+        ctorsAdded = new ArrayList<>(addedCtors_.size());
+        for (ConstructorAPI ctor : addedCtors_)
+            ctorsAdded.add(new DiffEntry(ctor));
+        ctorsRemoved = new ArrayList<>(removedCtors_.size());
+        for (ConstructorAPI ctor : removedCtors_)
+            ctorsRemoved.add(new DiffEntry(ctor));
+        methodsAdded = new ArrayList<>(addedMethods_.size());
+        for (MethodAPI method : addedMethods_)
+            methodsAdded.add(new DiffEntry(method));
+        methodsRemoved = new ArrayList<>(removedMethods_.size());
+        for (MethodAPI method : removedMethods_)
+            methodsRemoved.add(new DiffEntry(method));
+        fieldsAdded = new ArrayList<>(addedFields_.size());
+        for (FieldAPI field : addedFields_)
+            fieldsAdded.add(new DiffEntry(field));
+        fieldsRemoved = new ArrayList<>(removedFields_.size());
+        for (FieldAPI field : removedFields_)
+            fieldsRemoved.add(new DiffEntry(field));
+        addedCtors_ = null;
+        removedCtors_ = null;
+        addedMethods_ = null;
+        removedMethods_ = null;
+        addedFields_ = null;
+        removedFields_ = null;
     }
 
     /**
@@ -131,8 +195,11 @@ class ClassDiff {
      * If there is no difference, null is returned.
      */
     public static String diff(ClassAPI oldClass, ClassAPI newClass) {
-        Collections.sort(oldClass.implements_);
-        Collections.sort(newClass.implements_);
+        // Sort copies, since the classes may be shared with other comparisons
+        List<String> oldInterfaces = new ArrayList<>(oldClass.implements_);
+        List<String> newInterfaces = new ArrayList<>(newClass.implements_);
+        Collections.sort(oldInterfaces);
+        Collections.sort(newInterfaces);
         String res = "";
         boolean hasContent = false;
         if (oldClass.extends_ != null && newClass.extends_ != null &&
@@ -143,8 +210,8 @@ class ClassDiff {
         // Check for implemented interfaces which were removed
         StringBuilder removedInterfaces = new StringBuilder();
         int numRemoved = 0;
-        for (String oldInterface : oldClass.implements_) {
-            int idx = Collections.binarySearch(newClass.implements_, oldInterface);
+        for (String oldInterface : oldInterfaces) {
+            int idx = Collections.binarySearch(newInterfaces, oldInterface);
             if (idx < 0) {
                 if (numRemoved != 0)
                     removedInterfaces.append(", ");
@@ -154,8 +221,8 @@ class ClassDiff {
         }
         StringBuilder addedInterfaces = new StringBuilder();
         int numAdded = 0;
-        for (String newInterface : newClass.implements_) {
-            int idx = Collections.binarySearch(oldClass.implements_, newInterface);
+        for (String newInterface : newInterfaces) {
+            int idx = Collections.binarySearch(oldInterfaces, newInterface);
             if (idx < 0) {
                 if (numAdded != 0)
                     addedInterfaces.append(", ");
@@ -29,7 +29,8 @@ import java.util.*;
 /**
  * Creates a Comments from an XML file. The Comments object is the internal
  * representation of the comments for the changes.
- * All methods in this class for populating a Comments object are static.
+ * The methods in this class for reading a Comments object from a file are
+ * static.
  *
  * @author Matthew Doar, mdoar@pobox.com
  */
@@ -42,19 +43,10 @@ public class Comments {
     public static final String placeHolderText = "InsertCommentsHere";
 
     /**
-     * All the possible comments known about, accessible by the commentID.
+     * The file where the XML representing this Comments object is stored,
+     * while it is being written.
      */
-    public static Hashtable<String, String> allPossibleComments = new Hashtable<>();
-
-    /**
-     * The old Comments object which is populated from the file read in.
-     */
-    private static Comments oldComments_;
-
-    /**
-     * The file where the XML representing the new Comments object is stored.
-     */
-    private static PrintWriter outputFile = null;
+    private PrintWriter outputFile = null;
 
     /**
      * The list of comments elements associated with this objects
@@ -71,11 +63,11 @@ public class Comments {
      * the old API and new API is stored and create a Comments object for
      * it. The Comments object may be null if no file exists.
      */
-    public static Comments readFile(String filename) {
+    public static Comments readFile(JDiffContext ctx, String filename) {
         // If validation is desired, write out the appropriate comments.xsd
         // file in the same directory as the comments XML file.
-        if (XMLToAPI.validateXML) {
-            writeXSD(filename);
+        if (ctx.validateXML) {
+            writeXSD(ctx, filename);
         }
 
         // If the file does not exist, return null
@@ -84,9 +76,9 @@ public class Comments {
             return null;
 
         // The instance of the Comments object which is populated from the file.
-        oldComments_ = new Comments();
+        Comments oldComments = new Comments();
         try {
-            DefaultHandler handler = new CommentsHandler(oldComments_);
+            DefaultHandler handler = new CommentsHandler(ctx, oldComments);
             XMLReader parser = null;
             try {
                 String parserName = System.getProperty("org.xml.sax.driver");
@@ -98,12 +90,10 @@ public class Comments {
                     parser = org.xml.sax.helpers.XMLReaderFactory.createXMLReader();
                 }
             } catch (SAXException saxe) {
-                System.out.println("SAXException: " + saxe);
-                saxe.printStackTrace();
-                System.exit(1);
+                throw new JDiffException("could not create an XML parser: " + saxe, saxe);
             }
 
-            if (XMLToAPI.validateXML) {
+            if (ctx.validateXML) {
                 parser.setFeature("http://xml.org/sax/features/namespaces", true);
                 parser.setFeature("http://xml.org/sax/features/validation", true);
                 parser.setFeature("http://apache.org/xml/features/validation/schema", true);
@@ -114,25 +104,17 @@ public class Comments {
                 parser.parse(new InputSource(new BufferedInputStream(fis)));
             }
         } catch (org.xml.sax.SAXNotRecognizedException snre) {
-            System.out.println("SAX Parser does not recognize feature: " + snre);
-            snre.printStackTrace();
-            System.exit(1);
+            throw new JDiffException("SAX Parser does not recognize feature: " + snre, snre);
         } catch (org.xml.sax.SAXNotSupportedException snse) {
-            System.out.println("SAX Parser feature is not supported: " + snse);
-            snse.printStackTrace();
-            System.exit(1);
+            throw new JDiffException("SAX Parser feature is not supported: " + snse, snse);
         } catch (org.xml.sax.SAXException saxe) {
-            System.out.println("SAX Exception parsing file '" + filename + "' : " + saxe);
-            saxe.printStackTrace();
-            System.exit(1);
+            throw new JDiffException("could not parse file '" + filename + "': " + saxe, saxe);
         } catch (java.io.IOException ioe) {
-            System.out.println("IOException parsing file '" + filename + "' : " + ioe);
-            ioe.printStackTrace();
-            System.exit(1);
+            throw new JDiffException("could not read file '" + filename + "': " + ioe, ioe);
         }
 
-        Collections.sort(oldComments_.commentsList_);
-        return oldComments_;
+        Collections.sort(oldComments.commentsList_);
+        return oldComments;
     } //readFile()
 
 //
@@ -142,7 +124,7 @@ public class Comments {
     /**
      * Write the XML Schema file used for validation.
      */
-    public static void writeXSD(String filename) {
+    public static void writeXSD(JDiffContext ctx, String filename) {
         String xsdFileName = filename;
         int idx = xsdFileName.lastIndexOf('\\');
         int idx2 = xsdFileName.lastIndexOf('/');
@@ -161,7 +143,7 @@ public class Comments {
              PrintWriter xsdFile = new PrintWriter(fos)
         ) {
             // The contents of the comments.xsd file
-            JDiff.addXmlTag(xsdFile);
+            JDiff.addXmlTag(ctx, xsdFile);
             xsdFile.println("<xsd:schema xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\">");
             xsdFile.println();
             xsdFile.println("<xsd:annotation>");
@@ -193,9 +175,7 @@ public class Comments {
             xsdFile.println();
             xsdFile.println("</xsd:schema>");
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + xsdFileName);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + xsdFileName + ": " + e.getMessage(), e);
         }
     }
 
@@ -226,7 +206,7 @@ public class Comments {
     /**
      * Convert @link tags to HTML links.
      */
-    public static String convertAtLinks(String text, String currentElement,
+    public static String convertAtLinks(JDiffContext ctx, String text, String currentElement,
                                         PackageAPI pkg, ClassAPI cls) {
         if (text == null)
             return null;
@@ -347,7 +327,7 @@ public class Comments {
                 case END_OF_LINK:
                     if (identifier != null) {
                         result.append("<A HREF=\"");
-                        result.append(HTMLReportGenerator.newDocPrefix);
+                        result.append(ctx.newDocPrefix);
                         result.append(ref);
                         result.append(identifier.toString().replace('.', '/'));
                         result.append(".html");
@@ -380,23 +360,22 @@ public class Comments {
     /**
      * Write the XML representation of comments to a file.
      *
+     * @param ctx            The context of the run.
      * @param outputFileName The name of the comments file.
      * @param newComments    The new comments on the changed APIs.
      * @return true if no problems encountered
      */
-    public static boolean writeFile(String outputFileName,
+    public static boolean writeFile(JDiffContext ctx, String outputFileName,
                                     Comments newComments) {
         try (FileOutputStream fos = new FileOutputStream(outputFileName);
              PrintWriter writer = new PrintWriter(fos)
         ) {
-            outputFile = writer;
-            newComments.emitXMLHeader(outputFileName);
+            newComments.outputFile = writer;
+            newComments.emitXMLHeader(ctx, outputFileName);
             newComments.emitComments();
             newComments.emitXMLFooter();
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + outputFileName);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + outputFileName + ": " + e.getMessage(), e);
         }
         return true;
     }
@@ -404,7 +383,7 @@ public class Comments {
     /**
      * Emit messages about which comments are now unused and which are new.
      */
-    public static void noteDifferences(Comments oldComments, Comments newComments) {
+    public static void noteDifferences(JDiffContext ctx, Comments oldComments, Comments newComments) {
         if (oldComments == null) {
             System.out.println("Note: all the comments have been newly generated");
             return;
@@ -415,7 +394,7 @@ public class Comments {
         for (SingleComment oldComment : oldComments.commentsList_) {
             int idx = Collections.binarySearch(newComments.commentsList_, oldComment);
             if (idx < 0) {
-                System.out.println("Warning: comment \"" + oldComment.id_ + "\" is no longer used.");
+                ctx.diagnostics.warn("unused comment", "Warning: comment \"" + oldComment.id_ + "\" is no longer used.");
                 oldComment.isUsed_ = false;
                 newComments.commentsList_.add(oldComment);
             }
@@ -494,17 +473,17 @@ public class Comments {
     /**
      * Emit the XML header.
      */
-    public void emitXMLHeader(String filename) {
-        JDiff.addXmlTag(outputFile);
+    public void emitXMLHeader(JDiffContext ctx, String filename) {
+        JDiff.addXmlTag(ctx, outputFile);
         outputFile.println("<comments");
-        outputFile.println("  xmlns:xsi='" + RootDocToXML.baseURI + "/2001/XMLSchema-instance'");
+        outputFile.println("  xmlns:xsi='" + ctx.baseURI + "/2001/XMLSchema-instance'");
         outputFile.println("  xsi:noNamespaceSchemaLocation='comments.xsd'");
         // Extract the identifier from the filename by removing the suffix
         int idx = filename.lastIndexOf('.');
         String apiIdentifier = filename.substring(0, idx);
         // Also remove the output directory and directory separator if present
-        if (HTMLReportGenerator.outputDir != null)
-            apiIdentifier = apiIdentifier.substring(HTMLReportGenerator.outputDir.length() + 1);
+        if (ctx.outputDir != null)
+            apiIdentifier = apiIdentifier.substring(ctx.outputDir.length() + 1);
         // Also remove "user_comments_for_"
         apiIdentifier = apiIdentifier.substring(18);
         outputFile.println("  name=\"" + apiIdentifier + "\"");
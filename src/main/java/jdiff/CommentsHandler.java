@@ -70,10 +70,16 @@ class CommentsHandler extends DefaultHandler {
      */
     private String currentText;
 
+    /**
+     * The context of the run which the comments are read for.
+     */
+    private final JDiffContext ctx_;
+
     /**
      * Default constructor.
      */
-    public CommentsHandler(Comments comments) {
+    public CommentsHandler(JDiffContext ctx, Comments comments) {
+        ctx_ = ctx;
         comments_ = comments;
     }
 
@@ -94,14 +100,13 @@ class CommentsHandler extends DefaultHandler {
             String commentsName = attributes.getValue("name");
             //String version = attributes.getValue("jdversion"); // Not used yet
             if (commentsName == null) {
-                System.out.println("Error: no identifier found in the comments XML file.");
-                System.exit(3);
+                throw new JDiffException("no identifier found in the comments XML file.");
             }
             // Check the given names against the names of the APIs
-            int idx1 = JDiff.oldFileName.lastIndexOf('.');
-            int idx2 = JDiff.newFileName.lastIndexOf('.');
-            String filename2 = JDiff.oldFileName.substring(0, idx1) +
-                    "_to_" + JDiff.newFileName.substring(0, idx2);
+            int idx1 = ctx_.oldFileName.lastIndexOf('.');
+            int idx2 = ctx_.newFileName.lastIndexOf('.');
+            String filename2 = ctx_.oldFileName.substring(0, idx1) +
+                    "_to_" + ctx_.newFileName.substring(0, idx2);
             if (filename2.compareTo(commentsName) != 0) {
                 System.out.println("Warning: API identifier in the comments XML file (" + filename2 + ") differs from the name of the file.");
             }
@@ -121,8 +126,7 @@ class CommentsHandler extends DefaultHandler {
                 // Start of an element, probably an HTML element
                 addStartTagToText(localName, attributes);
             } else {
-                System.out.println("Error: unknown element type: " + localName);
-                System.exit(-1);
+                throw new JDiffException("unknown element type: " + localName);
             }
         }
     }
@@ -165,7 +169,7 @@ class CommentsHandler extends DefaultHandler {
                 !currentText.endsWith("?") &&
                 !currentText.endsWith("!") &&
                 currentText.compareTo(Comments.placeHolderText) != 0) {
-            System.out.println("Warning: text of comment does not end in a period: " + currentText);
+            ctx_.diagnostics.warn("comment not a sentence", "Warning: text of comment does not end in a period: " + currentText);
         }
         // Add this comment to all the SingleComments waiting for it
         for (SingleComment currComment : currSingleComment_) {
@@ -221,16 +225,12 @@ class CommentsHandler extends DefaultHandler {
         e.printStackTrace();
     }
 
-    public void error(SAXParseException e) {
-        System.out.println("Error (" + e.getLineNumber() + "): parsing XML comments file:" + e);
-        e.printStackTrace();
-        System.exit(1);
+    public void error(SAXParseException e) throws SAXParseException {
+        throw e;
     }
 
-    public void fatalError(SAXParseException e) {
-        System.out.println("Fatal Error (" + e.getLineNumber() + "): parsing XML comments file:" + e);
-        e.printStackTrace();
-        System.exit(1);
+    public void fatalError(SAXParseException e) throws SAXParseException {
+        throw e;
     }
 
 }
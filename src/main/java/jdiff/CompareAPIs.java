@@ -0,0 +1,184 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares two APIs which have already been written out as XML, and
+ * generates the HTML report, without running Javadoc.
+ * <p>
+ * Comparing two XML files does not use anything which Javadoc provides,
+ * so this is the same as running Javadoc with the JDiff doclet and the
+ * -oldapi and -newapi options over an empty source file, but without
+ * starting Javadoc. No Javadoc classes are loaded, so the JDK tools.jar
+ * does not have to be on the classpath.
+ */
+public final class CompareAPIs {
+
+    private CompareAPIs() {
+    }
+
+    /**
+     * Compare two APIs from the command line, either as
+     * <code>old.xml new.xml [-d directory] [options]</code>, or using
+     * the same options as the JDiff doclet, which must then include
+     * -oldapi and -newapi. The JVM exits with a non-zero code if the
+     * comparison fails.
+     *
+     * @param args the command line arguments
+     */
+    @CalledExternally
+    public static void main(String[] args) {
+        if (!run(args, new JDiff())) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compare two APIs given in either of the forms which {@link #main}
+     * accepts.
+     *
+     * @param args the command line arguments
+     * @param jdiff the JDiff which reads the APIs and generates the report
+     * @return true if the report was generated
+     */
+    static boolean run(String[] args, JDiff jdiff) {
+        if (args.length > 0 && !args[0].startsWith("-")) {
+            return compareFiles(args, jdiff);
+        }
+        return compare(args, jdiff);
+    }
+
+    /**
+     * Compare two XML files given as <code>old.xml new.xml [-d directory]
+     * [options]</code>. The report goes into the current directory if no
+     * directory is given.
+     */
+    private static boolean compareFiles(String[] args, JDiff jdiff) {
+        if (args.length < 2) {
+            System.out.println("Error: two XML files are needed, one for the old API and one for the new API");
+            return false;
+        }
+        File outputDir = new File(".");
+        List<String> options = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].compareTo("-d") == 0 && i + 1 < args.length) {
+                outputDir = new File(args[++i]);
+            } else {
+                options.add(args[i]);
+            }
+        }
+        return compare(new File(args[0]), new File(args[1]), outputDir, options.toArray(new String[0]), jdiff);
+    }
+
+    /**
+     * Compare the APIs in two XML files and write the HTML report into the
+     * given directory.
+     *
+     * @param oldXML the XML file for the old API, with a ".xml" suffix
+     * @param newXML the XML file for the new API, with a ".xml" suffix
+     * @param outputDir the directory for the report
+     * @param options any other options, as for the JDiff doclet
+     * @return true if the report was generated
+     */
+    public static boolean compare(File oldXML, File newXML, File outputDir, String... options) {
+        return compare(oldXML, newXML, outputDir, options, new JDiff());
+    }
+
+    static boolean compare(File oldXML, File newXML, File outputDir, String[] options, JDiff jdiff) {
+        for (File xml : new File[] {oldXML, newXML}) {
+            if (!xml.getName().endsWith(".xml") || xml.getName().indexOf(' ') != -1) {
+                System.out.println("Error: the name of the file '" + xml + "' must end with .xml and have no spaces");
+                return false;
+            }
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            System.out.println("Error: unable to create the directory '" + outputDir + "'");
+            return false;
+        }
+        List<String> args = new ArrayList<>();
+        args.add("-oldapi");
+        args.add(apiName(oldXML));
+        args.add("-oldapidir");
+        args.add(directoryOf(oldXML));
+        args.add("-newapi");
+        args.add(apiName(newXML));
+        args.add("-newapidir");
+        args.add(directoryOf(newXML));
+        args.add("-d");
+        args.add(outputDir.getPath());
+        args.addAll(Arrays.asList(options));
+        return compare(args.toArray(new String[0]), jdiff);
+    }
+
+    /**
+     * Compare two APIs, using the same options as the JDiff doclet.
+     * Options which only apply to Javadoc itself are ignored.
+     *
+     * @param args the options, which must include -oldapi and -newapi
+     * @return true if the report was generated
+     */
+    public static boolean compare(String[] args) {
+        return compare(args, new JDiff());
+    }
+
+    private static boolean compare(String[] args, JDiff jdiff) {
+        List<String[]> options = new ArrayList<>();
+        for (int i = 0; i < args.length; ) {
+            int length = Options.optionLength(args[i]);
+            if (length == 0) {
+                System.out.println("Warning: ignoring the option '" + args[i] + "'");
+                i++;
+                continue;
+            }
+            if (i + length > args.length) {
+                System.out.println("Error: no value specified after the " + args[i] + " option");
+                return false;
+            }
+            options.add(Arrays.copyOfRange(args, i, i + length));
+            i += length;
+        }
+        if (!Options.parseOptions(options.toArray(new String[0][]), msg -> System.out.println("Error: " + msg))) {
+            return false;
+        }
+        if (!JDiffContext.current().compareAPIs) {
+            System.out.println("Error: use the -oldapi and -newapi options to compare two APIs");
+            return false;
+        }
+        return jdiff.startGeneration();
+    }
+
+    /**
+     * Return the API name which JDiff uses for an XML file, which is the
+     * name of the file without the ".xml" suffix.
+     */
+    static String apiName(File xml) {
+        String name = xml.getName();
+        return name.substring(0, name.length() - ".xml".length());
+    }
+
+    private static String directoryOf(File xml) {
+        File dir = xml.getAbsoluteFile().getParentFile();
+        return dir == null ? "." : dir.getPath();
+    }
+}
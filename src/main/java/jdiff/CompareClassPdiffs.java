@@ -19,6 +19,7 @@
 package jdiff;
 
 import java.util.Comparator;
+import java.util.Map;
 
 /**
  * Class to compare two ClassDiff objects.
@@ -26,6 +27,16 @@ import java.util.Comparator;
  * @author Matthew Doar, mdoar@pobox.com
  */
 class CompareClassPdiffs implements Comparator<ClassDiff> {
+
+    /**
+     * The names to compare the class diffs by, including their packages.
+     */
+    private final Map<ClassDiff, String> names_;
+
+    CompareClassPdiffs(Map<ClassDiff, String> names) {
+        names_ = names;
+    }
+
     /**
      * Compare two class diffs by their percentage difference,
      * and then by name.
@@ -35,6 +46,6 @@ class CompareClassPdiffs implements Comparator<ClassDiff> {
             return 1;
         if (obj1.pdiff > obj2.pdiff)
             return -1;
-        return obj1.name_.compareTo(obj2.name_);
+        return names_.get(obj1).compareTo(names_.get(obj2));
     }
 }
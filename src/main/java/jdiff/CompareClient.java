@@ -0,0 +1,143 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Asks a {@link CompareDaemon} to compare two APIs, prints the output of
+ * the comparison, and exits with its status.
+ * <p>
+ * Usage: <code>java jdiff.CompareClient [-port &lt;port&gt;] [-tokenfile
+ * &lt;file&gt;] old.xml new.xml [-d &lt;directory&gt;] [options]</code>, with
+ * the same arguments as {@link CompareAPIs}, or <code>java
+ * jdiff.CompareClient [-port &lt;port&gt;] [-tokenfile &lt;file&gt;]
+ * -stop</code> to stop the daemon. The names of the files and of the
+ * report and API directories are made absolute, since the daemon runs in
+ * a different directory.
+ * <p>
+ * Each request starts with the token which the daemon wrote to its token
+ * file, which only the user who started the daemon can read, so that
+ * other users of the machine cannot send it requests.
+ * <p>
+ * This class only uses the Java platform, so that it starts quickly.
+ */
+public final class CompareClient {
+
+    private CompareClient() {
+    }
+
+    /**
+     * Return the file which the daemon listening on the given port writes
+     * its token to by default.
+     */
+    static File tokenFile(int port) {
+        return new File(System.getProperty("user.home"), ".jdiff_daemon_" + port + ".token");
+    }
+
+    @CalledExternally
+    public static void main(String[] args) throws IOException {
+        int port = CompareDaemon.DEFAULT_PORT;
+        File tokenFile = null;
+        int first = 0;
+        for (; first + 1 < args.length; first += 2) {
+            if (args[first].compareTo("-port") == 0) {
+                port = Integer.parseInt(args[first + 1]);
+            } else if (args[first].compareTo("-tokenfile") == 0) {
+                tokenFile = new File(args[first + 1]);
+            } else {
+                break;
+            }
+        }
+        if (tokenFile == null)
+            tokenFile = tokenFile(port);
+        // The two XML files come first, unless the doclet's options are used
+        boolean files = first < args.length && !args[first].startsWith("-");
+        List<String> request = new ArrayList<>();
+        for (int i = first; i < args.length; i++) {
+            String arg = args[i];
+            if (files && i < first + 2) {
+                // One of the two XML files
+                arg = new File(arg).getAbsolutePath();
+            } else if ((arg.compareTo("-d") == 0 || arg.compareTo("-oldapidir") == 0
+                    || arg.compareTo("-newapidir") == 0) && i + 1 < args.length) {
+                request.add(arg);
+                arg = new File(args[++i]).getAbsolutePath();
+            }
+            request.add(arg);
+        }
+
+        String token;
+        try {
+            token = new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            System.out.println("Error: no JDiff compare daemon has written its token to file '" + tokenFile + "'");
+            System.exit(2);
+            return;
+        }
+
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        } catch (ConnectException e) {
+            System.out.println("Error: no JDiff compare daemon is listening on port " + port);
+            System.exit(2);
+            return;
+        }
+        int status;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(token);
+            out.writeInt(request.size());
+            for (String arg : request) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte[] buffer = new byte[8192];
+            while (in.readByte() == CompareDaemon.OUTPUT) {
+                int len = in.readInt();
+                if (len > buffer.length) {
+                    buffer = new byte[len];
+                }
+                in.readFully(buffer, 0, len);
+                System.out.write(buffer, 0, len);
+            }
+            status = in.readInt();
+        } finally {
+            socket.close();
+        }
+        System.out.flush();
+        System.exit(status);
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A long-running process which compares APIs for {@link CompareClient},
+ * so that each comparison does not pay for starting a JVM, loading and
+ * compiling JDiff, and reading in APIs which it has already read.
+ * <p>
+ * Usage: <code>java jdiff.CompareDaemon [-port &lt;port&gt;] [-cachesize &lt;MB&gt;]
+ * [-tokenfile &lt;file&gt;]</code>.
+ * <p>
+ * The daemon only listens on the loopback interface, and only handles
+ * requests which start with a random token. The token is written to a
+ * file which only the user who started the daemon can read, by default
+ * <code>.jdiff_daemon_&lt;port&gt;.token</code> in the home directory, and
+ * the file is deleted when the daemon stops. Requests are handled
+ * one at a time, since the output of each request is sent by redirecting
+ * the standard output of the JVM, and each request starts from the
+ * default options. A request which fails, for example because one of its
+ * XML files is not valid, only ends that request.
+ * <p>
+ * The APIs which have been read in are kept in a least recently used
+ * cache, keyed by a fingerprint of their XML files, so a file which has
+ * changed is read in again. All the APIs are read with one table of names
+ * and types, so that any two of them can be compared. Once a request has
+ * dropped APIs from the cache, the table is rebuilt from the APIs which
+ * are left, so that it does not keep the names of every API ever read.
+ * Their documentation
+ * is always kept in memory, since the -lazydocs option would read it from
+ * a file which may have changed since.
+ */
+public final class CompareDaemon {
+
+    /**
+     * The port which the daemon listens on by default.
+     */
+    static final int DEFAULT_PORT = 4460;
+
+    /**
+     * The request which stops the daemon.
+     */
+    static final String STOP = "-stop";
+
+    /**
+     * Marks a frame of output from a request.
+     */
+    static final int OUTPUT = 'O';
+
+    /**
+     * Marks the frame with the exit status of a request, which is the
+     * last frame sent for it.
+     */
+    static final int STATUS = 'S';
+
+    /**
+     * The names and types of all the cached APIs.
+     */
+    private SymbolTable symbols_ = new SymbolTable();
+
+    /**
+     * Set when APIs have been dropped from the cache since the table of
+     * names and types was last rebuilt.
+     */
+    private boolean evicted_;
+
+    /**
+     * The cached APIs, with the least recently used first.
+     */
+    private final Map<String, CachedAPI> cache_ = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The most memory which the cached APIs may use, in bytes.
+     */
+    private final long cacheSize_;
+
+    /**
+     * The memory which the cached APIs are estimated to use, in bytes.
+     */
+    private long cacheUsed_;
+
+    CompareDaemon(long cacheSize) {
+        cacheSize_ = cacheSize;
+    }
+
+    @CalledExternally
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        long cacheSize = Runtime.getRuntime().maxMemory() / 2;
+        File tokenFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].compareTo("-port") == 0 && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].compareTo("-cachesize") == 0 && i + 1 < args.length) {
+                cacheSize = Long.parseLong(args[++i]) * 1024 * 1024;
+            } else if (args[i].compareTo("-tokenfile") == 0 && i + 1 < args.length) {
+                tokenFile = new File(args[++i]);
+            } else {
+                System.out.println("usage: java jdiff.CompareDaemon [-port <port>] [-cachesize <MB>] [-tokenfile <file>]");
+                System.exit(1);
+            }
+        }
+        if (tokenFile == null)
+            tokenFile = CompareClient.tokenFile(port);
+        new CompareDaemon(cacheSize).serve(port, tokenFile);
+    }
+
+    /**
+     * Handle requests until a client asks the daemon to stop.
+     */
+    void serve(int port, File tokenFile) throws IOException {
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            byte[] token = newToken();
+            writeToken(tokenFile.toPath(), token);
+            JDiffMonitor.register();
+            try {
+                System.out.println("JDiff: compare daemon listening on port " + server.getLocalPort()
+                        + ", with its token in file '" + tokenFile + "'");
+                boolean running = true;
+                while (running) {
+                    try (Socket socket = server.accept()) {
+                        running = handle(socket, token);
+                    } catch (IOException e) {
+                        stdout.println("Warning: a request failed: " + e);
+                    } finally {
+                        System.setOut(stdout);
+                        System.setErr(stderr);
+                    }
+                }
+            } finally {
+                JDiffMonitor.unregister();
+                Files.deleteIfExists(tokenFile.toPath());
+            }
+        }
+        System.out.println("JDiff: compare daemon stopped");
+    }
+
+    /**
+     * Return a new random token, as hexadecimal digits.
+     */
+    private static byte[] newToken() {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : random) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the token to a new file which only the current user can read
+     * and write.
+     */
+    private static void writeToken(Path file, byte[] token) throws IOException {
+        Files.deleteIfExists(file);
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system, where the home directory is already
+            // private to the user
+            Files.createFile(file);
+        }
+        Files.write(file, token);
+    }
+
+    /**
+     * Handle one request, and send its output and exit status back.
+     *
+     * @return false if the daemon should stop
+     */
+    private boolean handle(Socket socket, byte[] token) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!MessageDigest.isEqual(token, in.readUTF().getBytes(StandardCharsets.UTF_8))) {
+            sendError(out, "Error: the request does not have the token of the compare daemon");
+            return true;
+        }
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        if (args.length == 1 && args[0].compareTo(STOP) == 0) {
+            sendStatus(out, 0);
+            return false;
+        }
+        if (Arrays.asList(args).contains("-serve")) {
+            sendError(out, "Error: the compare daemon cannot serve reports, use jdiff.CompareAPIs instead");
+            return true;
+        }
+
+        PrintStream output = new PrintStream(new FrameOutputStream(out), true, "UTF-8");
+        System.setOut(output);
+        System.setErr(output);
+        int status;
+        JDiffContext previous = JDiffContext.enter(new JDiffContext());
+        try {
+            status = CompareAPIs.run(args, new CachingJDiff()) ? 0 : 1;
+        } catch (RuntimeException | OutOfMemoryError e) {
+            e.printStackTrace();
+            status = 1;
+        } finally {
+            JDiffContext.exit(previous);
+        }
+        // The APIs of the request may have been the ones dropped, so the
+        // table is only rebuilt once nothing uses the old ids
+        if (evicted_)
+            rebuildSymbols();
+        output.flush();
+        sendStatus(out, status);
+        return true;
+    }
+
+    /**
+     * Send an error message as the only output of a request, and a
+     * status of 1.
+     */
+    private static void sendError(DataOutputStream out, String message) throws IOException {
+        byte[] error = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        out.writeByte(OUTPUT);
+        out.writeInt(error.length);
+        out.write(error);
+        sendStatus(out, 1);
+    }
+
+    private static void sendStatus(DataOutputStream out, int status) throws IOException {
+        out.writeByte(STATUS);
+        out.writeInt(status);
+        out.flush();
+    }
+
+    /**
+     * Add an API to the cache, and remove the least recently used ones
+     * until the cache is within its size again.
+     */
+    private void add(String key, CachedAPI api) {
+        cache_.put(key, api);
+        cacheUsed_ += api.size_;
+        Iterator<CachedAPI> eldest = cache_.values().iterator();
+        while (cacheUsed_ > cacheSize_ && eldest.hasNext()) {
+            CachedAPI evicted = eldest.next();
+            if (evicted == api)
+                break;
+            cacheUsed_ -= evicted.size_;
+            eldest.remove();
+            evicted_ = true;
+            JDiffMonitor.apiCacheEviction();
+        }
+    }
+
+    /**
+     * Replace the table of names and types with one which only has the
+     * names in the cached APIs, giving them new ids.
+     */
+    private void rebuildSymbols() {
+        SymbolTable symbols = new SymbolTable();
+        for (CachedAPI cached : cache_.values()) {
+            renumber(cached.api_, symbols);
+        }
+        symbols_ = symbols;
+        evicted_ = false;
+    }
+
+    /**
+     * Set the ids of the names and types in an API to their ids in the
+     * given table.
+     */
+    private static void renumber(API api, SymbolTable symbols) {
+        for (PackageAPI pkg : api.packages_) {
+            for (ClassAPI cls : pkg.classes_) {
+                cls.nameId_ = symbols.id(cls.name_);
+                for (ConstructorAPI ctor : cls.ctors_) {
+                    ctor.typeId_ = symbols.id(ctor.type_);
+                    ctor.exceptionsId_ = symbols.id(ctor.exceptions_);
+                }
+                for (MethodAPI method : cls.methods_) {
+                    method.nameId_ = symbols.id(method.name_);
+                    method.returnTypeId_ = symbols.id(method.returnType_);
+                    method.exceptionsId_ = symbols.id(method.exceptions_);
+                    method.signatureId_ = symbols.id(method.signature_);
+                    for (ParamAPI param : method.params_) {
+                        param.typeId_ = symbols.id(param.type_);
+                    }
+                }
+                for (FieldAPI field : cls.fields_) {
+                    field.nameId_ = symbols.id(field.name_);
+                    field.typeId_ = symbols.id(field.type_);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a fingerprint of the contents of a file.
+     */
+    private static String fingerprint(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        byte[] buffer = new byte[65536];
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            //noinspection StatementWithEmptyBody
+            while (in.read(buffer) != -1) {
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * An API which has been read in, with what reading it added to the
+     * possible comments for the report.
+     */
+    private static final class CachedAPI {
+
+        private final API api_;
+
+        private final Hashtable<String, CharSequence> comments_;
+
+        /**
+         * The estimated memory used by the API, in bytes. An API read in
+         * from XML uses about 1.25 times the size of the file.
+         */
+        private final long size_;
+
+        CachedAPI(API api, Hashtable<String, CharSequence> comments, long fileSize) {
+            api_ = api;
+            comments_ = comments;
+            size_ = fileSize + fileSize / 4;
+        }
+    }
+
+    /**
+     * Reads APIs from the cache when their files have been read before.
+     */
+    private final class CachingJDiff extends JDiff {
+
+        @Override
+        protected SymbolTable symbolTable() {
+            return symbols_;
+        }
+
+        @Override
+        protected API readAPI(JDiffContext ctx, String fileName, boolean createGlobalComments, String apiName) {
+            File file = new File(fileName);
+            String key;
+            try {
+                key = fingerprint(file) + " " + apiName;
+            } catch (IOException e) {
+                return super.readAPI(ctx, fileName, createGlobalComments, apiName);
+            }
+            CachedAPI cached = cache_.get(key);
+            if (cached == null) {
+                JDiffMonitor.apiCacheMiss();
+                // Always collect the possible comments, since the API may
+                // be the new API in a later comparison
+                Hashtable<String, CharSequence> comments = ctx.allPossibleComments;
+                boolean lazyDocs = ctx.lazyDocs;
+                ctx.allPossibleComments = new Hashtable<>();
+                ctx.lazyDocs = false;
+                try {
+                    API api = super.readAPI(ctx, fileName, true, apiName);
+                    cached = new CachedAPI(api, ctx.allPossibleComments, file.length());
+                } finally {
+                    ctx.allPossibleComments = comments;
+                    ctx.lazyDocs = lazyDocs;
+                }
+                add(key, cached);
+            } else {
+                JDiffMonitor.apiCacheHit();
+                System.out.println(" finished (cached)");
+            }
+            if (createGlobalComments)
+                ctx.allPossibleComments.putAll(cached.comments_);
+            return cached.api_;
+        }
+    }
+
+    /**
+     * Sends everything written to it as output frames.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out_;
+
+        FrameOutputStream(DataOutputStream out) {
+            out_ = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return;
+            out_.writeByte(OUTPUT);
+            out_.writeInt(len);
+            out_.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out_.flush();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares one baseline API with a number of candidate APIs in one run, as
+ * <code>baseline.xml candidate1.xml ... candidateN.xml [-d directory]
+ * [-threads n] [options]</code>.
+ * <p>
+ * The baseline is read in only once and is the old API of every
+ * comparison. The report for each candidate goes into its own
+ * subdirectory of the report directory, named
+ * <code>baseline_to_candidate</code>, and each candidate is released as
+ * soon as its report has been generated. Every comparison has its own
+ * {@link JDiffContext}, starting from the default options, so nothing
+ * from one candidate's comparison is seen by another.
+ * <p>
+ * The candidates are compared on up to <code>-threads</code> threads at
+ * once, by default one for each processor. Each comparison reads its
+ * candidate using a copy of the baseline's table of names, since the
+ * baseline itself is shared and is never changed once it has been read.
+ * The output of each comparison is held back until it has finished, so
+ * that the output of different comparisons is not mixed up.
+ */
+public final class CompareFanOut {
+
+    /**
+     * The table of names and types in the baseline. Each candidate is read
+     * using a copy of it.
+     */
+    private final SymbolTable symbols_ = new SymbolTable();
+
+    private API baseline_;
+
+    private CompareFanOut() {
+    }
+
+    /**
+     * Compare a baseline with candidates from the command line. The JVM
+     * exits with a non-zero code if any comparison fails.
+     *
+     * @param args the command line arguments
+     */
+    @CalledExternally
+    public static void main(String[] args) {
+        if (!run(args)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compare a baseline with candidates given as <code>baseline.xml
+     * candidate1.xml ... [-d directory] [-threads n] [options]</code>.
+     *
+     * @param args the command line arguments
+     * @return true if every report was generated
+     */
+    static boolean run(String[] args) {
+        List<File> apis = new ArrayList<>();
+        int i = 0;
+        for (; i < args.length && !args[i].startsWith("-"); i++) {
+            apis.add(new File(args[i]));
+        }
+        if (apis.size() < 2) {
+            System.out.println("Error: a baseline XML file and at least one candidate XML file are needed");
+            return false;
+        }
+        File outputDir = new File(".");
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> options = new ArrayList<>();
+        for (; i < args.length; i++) {
+            if (args[i].compareTo("-d") == 0 && i + 1 < args.length) {
+                outputDir = new File(args[++i]);
+            } else if (args[i].compareTo("-threads") == 0 && i + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    System.out.println("Error: the -threads option must be followed by a positive number");
+                    return false;
+                }
+            } else if (args[i].compareTo("-serve") == 0) {
+                System.out.println("Error: the -serve option cannot be used when comparing with several candidates");
+                return false;
+            } else {
+                options.add(args[i]);
+            }
+        }
+        File baseline = apis.get(0);
+        List<File> candidates = apis.subList(1, apis.size());
+        Set<String> names = new HashSet<>();
+        for (File candidate : candidates) {
+            if (!names.add(CompareAPIs.apiName(candidate))) {
+                System.out.println("Error: more than one candidate is named '" + CompareAPIs.apiName(candidate) + "'");
+                return false;
+            }
+        }
+        CompareFanOut fanOut = new CompareFanOut();
+        String[] otherOptions = options.toArray(new String[0]);
+        if (threads == 1 || candidates.size() == 1)
+            return fanOut.compare(baseline, candidates, outputDir, otherOptions);
+        return fanOut.compare(baseline, candidates, outputDir, otherOptions, Math.min(threads, candidates.size()));
+    }
+
+    /**
+     * Compare the baseline with each candidate, one after the other.
+     *
+     * @param baseline the XML file for the baseline
+     * @param candidates the XML files for the candidates
+     * @param outputDir the directory for the reports
+     * @param options any other options, as for the JDiff doclet
+     * @return true if every report was generated
+     */
+    private boolean compare(File baseline, List<File> candidates, File outputDir, String[] options) {
+        boolean ok = true;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (!compare(baseline, candidates.get(i), i, candidates.size(), outputDir, options))
+                ok = false;
+        }
+        return ok;
+    }
+
+    /**
+     * Compare the baseline with each candidate, on a number of threads at
+     * once.
+     *
+     * @param baseline the XML file for the baseline
+     * @param candidates the XML files for the candidates
+     * @param outputDir the directory for the reports
+     * @param options any other options, as for the JDiff doclet
+     * @param threads the number of comparisons to run at once
+     * @return true if every report was generated
+     */
+    private boolean compare(File baseline, List<File> candidates, File outputDir, String[] options, int threads) {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        ThreadOutput output = new ThreadOutput(out);
+        PrintStream heldBack = new PrintStream(output, true);
+        System.setOut(heldBack);
+        System.setErr(heldBack);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> runs = new ArrayList<>();
+            for (int i = 0; i < candidates.size(); i++) {
+                File candidate = candidates.get(i);
+                int index = i;
+                runs.add(executor.submit(() -> {
+                    output.hold();
+                    try {
+                        return compare(baseline, candidate, index, candidates.size(), outputDir, options);
+                    } finally {
+                        output.release();
+                    }
+                }));
+            }
+            boolean ok = true;
+            for (Future<Boolean> run : runs) {
+                try {
+                    if (!run.get())
+                        ok = false;
+                } catch (ExecutionException e) {
+                    ok = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return ok;
+        } finally {
+            executor.shutdownNow();
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+
+    /**
+     * Compare the baseline with one candidate, in a new context. A
+     * comparison which fails, for example because the candidate is not a
+     * valid XML file, is reported and does not stop the other comparisons.
+     *
+     * @param index the index of the candidate, from zero
+     * @param count the number of candidates
+     * @return true if the report was generated
+     */
+    private boolean compare(File baseline, File candidate, int index, int count, File outputDir, String[] options) {
+        String pairName = CompareAPIs.apiName(baseline) + "_to_" + CompareAPIs.apiName(candidate);
+        System.out.println("JDiff: comparing '" + baseline + "' with '" + candidate + "' (" + (index + 1) + " of " + count + ")");
+        JDiffContext previous = JDiffContext.enter(new JDiffContext());
+        boolean ok;
+        try {
+            ok = CompareAPIs.compare(baseline, candidate, new File(outputDir, pairName), options, new FanOutJDiff());
+        } catch (RuntimeException | OutOfMemoryError e) {
+            e.printStackTrace();
+            ok = false;
+        } finally {
+            JDiffContext.exit(previous);
+        }
+        if (!ok)
+            System.out.println("Error: the comparison with '" + candidate + "' failed");
+        return ok;
+    }
+
+    /**
+     * Reads the baseline from memory after the first comparison.
+     */
+    private final class FanOutJDiff extends JDiff {
+
+        @Override
+        protected SymbolTable symbolTable() {
+            return symbols_;
+        }
+
+        @Override
+        protected API readAPI(JDiffContext ctx, String fileName, boolean createGlobalComments, String apiName) {
+            if (createGlobalComments)
+                return super.readAPI(ctx, fileName, true, apiName);
+            synchronized (CompareFanOut.this) {
+                if (baseline_ == null) {
+                    baseline_ = super.readAPI(ctx, fileName, false, apiName);
+                } else {
+                    System.out.println(" finished (already read)");
+                }
+                // The candidate may add names which the baseline does not
+                // have, so it is read using its own copy of the table
+                ctx.symbols = new SymbolTable(symbols_);
+            }
+            return baseline_;
+        }
+    }
+
+    /**
+     * Holds back what each comparison writes until the comparison has
+     * finished, and then writes it all at once.
+     */
+    private static final class ThreadOutput extends OutputStream {
+
+        private final PrintStream out_;
+
+        private final ThreadLocal<ByteArrayOutputStream> held_ = new ThreadLocal<>();
+
+        ThreadOutput(PrintStream out) {
+            out_ = out;
+        }
+
+        /**
+         * Start holding back what the current thread writes.
+         */
+        void hold() {
+            held_.set(new ByteArrayOutputStream());
+        }
+
+        /**
+         * Write what the current thread has held back.
+         */
+        void release() {
+            ByteArrayOutputStream held = held_.get();
+            held_.remove();
+            if (held != null) {
+                synchronized (out_) {
+                    out_.write(held.toByteArray(), 0, held.size());
+                    out_.flush();
+                }
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ByteArrayOutputStream held = held_.get();
+            if (held != null) {
+                held.write(b, off, len);
+            } else {
+                synchronized (out_) {
+                    out_.write(b, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (held_.get() == null)
+                out_.flush();
+        }
+    }
+}
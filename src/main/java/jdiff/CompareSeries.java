@@ -0,0 +1,155 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares a series of versions of an API, each with the next one, in
+ * one run, as <code>v1.xml v2.xml ... vN.xml [-d directory] [options]</code>.
+ * <p>
+ * The report for each pair of versions goes into its own subdirectory of
+ * the report directory, named <code>v1_to_v2</code> and so on. Each
+ * version is read in only once: the new API of one comparison is the old
+ * API of the next, and it is released as soon as that comparison is done,
+ * so no more than two APIs are in memory at any time.
+ * <p>
+ * The comparisons run one after the other, since each one needs the API
+ * which the one before read.
+ */
+public final class CompareSeries {
+
+    /**
+     * The table of names and types which all the versions share.
+     */
+    private final SymbolTable symbols_ = new SymbolTable();
+
+    /**
+     * The file name of the last API which was read, and so the old API of
+     * the next comparison.
+     */
+    private String lastFileName_;
+
+    private API lastAPI_;
+
+    private CompareSeries() {
+    }
+
+    /**
+     * Compare a series of XML files from the command line. The JVM exits
+     * with a non-zero code if any comparison fails.
+     *
+     * @param args the command line arguments
+     */
+    @CalledExternally
+    public static void main(String[] args) {
+        if (!run(args)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compare a series of XML files given as <code>v1.xml v2.xml ...
+     * [-d directory] [options]</code>.
+     *
+     * @param args the command line arguments
+     * @return true if every report was generated
+     */
+    static boolean run(String[] args) {
+        List<File> versions = new ArrayList<>();
+        int i = 0;
+        for (; i < args.length && !args[i].startsWith("-"); i++) {
+            versions.add(new File(args[i]));
+        }
+        if (versions.size() < 2) {
+            System.out.println("Error: at least two XML files are needed, one for each version of the API");
+            return false;
+        }
+        File outputDir = new File(".");
+        List<String> options = new ArrayList<>();
+        for (; i < args.length; i++) {
+            if (args[i].compareTo("-d") == 0 && i + 1 < args.length) {
+                outputDir = new File(args[++i]);
+            } else if (args[i].compareTo("-serve") == 0) {
+                System.out.println("Error: the -serve option cannot be used when comparing a series of versions");
+                return false;
+            } else {
+                options.add(args[i]);
+            }
+        }
+        return new CompareSeries().compare(versions, outputDir, options.toArray(new String[0]));
+    }
+
+    /**
+     * Compare each version in the series with the next one.
+     *
+     * @param versions the XML files for the versions, oldest first
+     * @param outputDir the directory for the reports
+     * @param options any other options, as for the JDiff doclet
+     * @return true if every report was generated
+     */
+    private boolean compare(List<File> versions, File outputDir, String[] options) {
+        SeriesJDiff jdiff = new SeriesJDiff();
+        int pairs = versions.size() - 1;
+        for (int i = 0; i < pairs; i++) {
+            File oldXML = versions.get(i);
+            File newXML = versions.get(i + 1);
+            String pairName = CompareAPIs.apiName(oldXML) + "_to_" + CompareAPIs.apiName(newXML);
+            System.out.println("JDiff: comparing '" + oldXML + "' with '" + newXML + "' (" + (i + 1) + " of " + pairs + ")");
+            JDiffContext previous = JDiffContext.enter(new JDiffContext());
+            try {
+                if (!CompareAPIs.compare(oldXML, newXML, new File(outputDir, pairName), options, jdiff))
+                    return false;
+            } finally {
+                JDiffContext.exit(previous);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the old API of each comparison from memory, since it was the
+     * new API of the one before.
+     */
+    private final class SeriesJDiff extends JDiff {
+
+        @Override
+        protected SymbolTable symbolTable() {
+            return symbols_;
+        }
+
+        @Override
+        protected API readAPI(JDiffContext ctx, String fileName, boolean createGlobalComments, String apiName) {
+            if (!createGlobalComments && fileName.equals(lastFileName_)) {
+                System.out.println(" finished (already read)");
+                return lastAPI_;
+            }
+            // Release the API which is no longer needed before reading
+            // the next one
+            lastFileName_ = null;
+            lastAPI_ = null;
+            API api = super.readAPI(ctx, fileName, createGlobalComments, apiName);
+            lastFileName_ = fileName;
+            lastAPI_ = api;
+            return api;
+        }
+    }
+}
@@ -23,7 +23,9 @@ package jdiff;
  * Javadoc doclet API.
  * <p>
  * The method used for Collection comparison (compareTo) must make its
- * comparison based upon everything that is known about this constructor.
+ * comparison based upon everything that is known about this constructor,
+ * except for what depends on the options of the run, such as its
+ * documentation, which {@link APIComparator} compares itself.
  *
  * @author Matthew Doar, mdoar@pobox.com
  */
@@ -34,22 +36,55 @@ class ConstructorAPI implements Comparable<ConstructorAPI> {
      */
     public String type_;
 
+    /**
+     * The id of the type in the {@link SymbolTable} for this run.
+     */
+    public int typeId_ = SymbolTable.NO_ID;
+
     /**
      * The exceptions thrown by this constructor, being all the exception types
      * separated by commas. "no exceptions" if no exceptions are thrown.
      */
     public String exceptions_ = "no exceptions";
 
+    /**
+     * The id of the exceptions in the {@link SymbolTable} for this run.
+     */
+    public int exceptionsId_ = SymbolTable.NO_ID;
+
     /**
      * Modifiers for this class.
      */
     public Modifiers modifiers_;
 
     /**
-     * The doc block, default is null.
+     * The doc block, default is null. This is also null if the doc block
+     * is to be read on demand, so use {@link #getDoc()} to read it.
      */
     public String doc_;
 
+    /**
+     * The XML file to read the doc block from on demand, null if the doc
+     * block is kept in memory or there is none.
+     */
+    public DocSource docSource_;
+
+    /**
+     * The location of the doc block in {@link #docSource_}.
+     */
+    public long docLocation_;
+
+    /**
+     * The exact fingerprint of the doc block, see {@link DocFingerprint}.
+     */
+    public long docFingerprint_;
+
+    /**
+     * The fingerprint of the doc block ignoring reformatting, see
+     * {@link DocFingerprint}.
+     */
+    public long docNormFingerprint_;
+
     /**
      * Constructor.
      */
@@ -59,27 +94,35 @@ class ConstructorAPI implements Comparable<ConstructorAPI> {
     }
 
     /**
-     * Compare two ConstructorAPI objects by type and modifiers.
+     * Return the doc block, reading it from the XML file if it was not
+     * kept in memory. Null if there is no doc block.
+     */
+    public String getDoc() {
+        return DocSource.text(doc_, docSource_, docLocation_);
+    }
+
+    /**
+     * Compare two ConstructorAPI objects by type, exceptions and modifiers.
      */
     public int compareTo(ConstructorAPI o) {
-        int comp = type_.compareTo(o.type_);
-        if (comp != 0)
-            return comp;
-        comp = exceptions_.compareTo(o.exceptions_);
+        int comp = SymbolTable.compare(typeId_, type_, o.typeId_, o.type_);
         if (comp != 0)
             return comp;
-        comp = modifiers_.compareTo(o.modifiers_);
+        comp = SymbolTable.compare(exceptionsId_, exceptions_, o.exceptionsId_, o.exceptions_);
         if (comp != 0)
             return comp;
-        if (APIComparator.docChanged(doc_, o.doc_))
-            return -1;
-        return 0;
+        return modifiers_.compareTo(o.modifiers_);
     }
 
     /**
      * Tests two constructors, using just the type, used by indexOf().
      */
     public boolean equals(Object o) {
-        return this == o || o instanceof ConstructorAPI && type_.compareTo(((ConstructorAPI) o).type_) == 0;
+        if (this == o)
+            return true;
+        if (!(o instanceof ConstructorAPI))
+            return false;
+        ConstructorAPI c = (ConstructorAPI) o;
+        return SymbolTable.same(typeId_, type_, c.typeId_, c.type_);
     }
 }  
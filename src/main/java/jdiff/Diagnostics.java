@@ -0,0 +1,120 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the warnings about single elements of the APIs, of which a
+ * large API can have thousands, so that they do not flood the console.
+ * <p>
+ * The warnings are counted by kind, and only the first few of each kind
+ * are printed as they happen. At the end of the run, the number of those
+ * which were not printed is shown for each kind, and every warning is
+ * written to a file, in the order they happened.
+ */
+final class Diagnostics {
+
+    /**
+     * The name of the file every warning is written to.
+     */
+    static final String diagnosticsFileName = "jdiff_diagnostics.txt";
+
+    /**
+     * The default number of warnings of each kind which are printed.
+     */
+    static final int defaultMaxPrinted = 10;
+
+    /**
+     * The number of warnings of each kind which are printed, or -1 to
+     * print all of them. Set by the -maxwarnings option.
+     */
+    int maxPrinted = defaultMaxPrinted;
+
+    /**
+     * The number of warnings of each kind, in the order the kinds were
+     * first seen.
+     */
+    private final Map<String, int[]> counts_ = new LinkedHashMap<>();
+
+    /**
+     * Every warning, as its kind and message.
+     */
+    private final List<String[]> messages_ = new ArrayList<>();
+
+    /**
+     * Record a warning, printing it if fewer than the most which are
+     * printed have been of the same kind.
+     *
+     * @param kind    a short name for the kind of warning, used in the
+     *                summary, such as "unused comment"
+     * @param message the line to print, starting with "Warning: "
+     */
+    void warn(String kind, String message) {
+        int[] count = counts_.get(kind);
+        if (count == null) {
+            count = new int[1];
+            counts_.put(kind, count);
+        }
+        if (maxPrinted == -1 || count[0] < maxPrinted)
+            System.out.println(message);
+        count[0]++;
+        messages_.add(new String[]{kind, message});
+    }
+
+    /**
+     * Show how many warnings of each kind were not printed, and write all
+     * of them to a file in the given directory, if there were any.
+     *
+     * @param dir the directory for the file, or null for the current one
+     */
+    void finish(String dir) {
+        if (messages_.isEmpty())
+            return;
+        String fileName = diagnosticsFileName;
+        if (dir != null)
+            fileName = dir + JDiff.DIR_SEP + fileName;
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(fileName), StandardCharsets.UTF_8))) {
+            for (String[] message : messages_) {
+                out.println("[" + message[0] + "] " + message[1]);
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: could not write the warnings to file '" + fileName + "': " + e);
+            return;
+        }
+        for (Map.Entry<String, int[]> count : counts_.entrySet()) {
+            int notPrinted = count.getValue()[0] - maxPrinted;
+            if (maxPrinted != -1 && notPrinted > 0)
+                System.out.println("JDiff: " + notPrinted + " more '" + count.getKey() + "' warnings were not shown");
+        }
+        System.out.println("JDiff: " + messages_.size() + (messages_.size() == 1 ? " warning was" : " warnings were")
+                + " written to file '" + fileName + "'");
+        counts_.clear();
+        messages_.clear();
+    }
+}
@@ -18,9 +18,11 @@
 
 package jdiff;
 
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -47,7 +49,45 @@ class Diff {
     /**
      * The list of documentation differences.
      */
-    private static final List<DiffOutput> docDiffs = new ArrayList<>(); //FIXME Why is this static?
+    private final List<DiffOutput> docDiffs = new ArrayList<>();
+
+    /**
+     * The number of documentation differences which have not been written
+     * out yet.
+     */
+    private int queued_;
+
+    /**
+     * The estimated bytes of heap used by the documentation differences
+     * whose text is in memory.
+     */
+    private long inMemory_;
+
+    /**
+     * The estimated bytes of heap used by the text of the documentation
+     * differences which are in memory.
+     */
+    private long textInMemory_;
+
+    /**
+     * The temporary file which the text of documentation differences is
+     * moved to when a heap budget is set and they use too much of it, or
+     * null if none has been moved yet.
+     */
+    private RandomAccessFile spill_;
+
+    /**
+     * The name of the temporary file in {@link #spill_}, kept to report
+     * errors about it and to delete it once the report has been written.
+     */
+    private File spillFile_;
+
+    /**
+     * The index in the list of documentation differences of the first one
+     * whose text has not been moved to the temporary file. The text of all
+     * those before it is on disk.
+     */
+    private int firstInMemory_;
 
     /**
      * Set to enable increased logging verbosity for debugging.
@@ -58,46 +98,42 @@ class Diff {
      * Current file where documentation differences are written as colored
      * differences.
      */
-    public static PrintWriter diffFile;
+    public PrintWriter diffFile;
 
     /**
      * Base name of the current file where documentation differences are
      * written as colored differences.
      */
-    public static String diffFileName = "docdiffs_";
+    public static final String diffFileName = "docdiffs_";
 
     /**
      * If set, then do not generate colored diffs for documentation.
      * Default is true.
      */
-    public static boolean noDocDiffs = true;
+    public boolean noDocDiffs = true;
 
     /**
      * For each package and class, the first DiffOutput is added to
      * this hash table. Used when generating navigation bars.
      */
-    public static Hashtable<String, String> firstDiffOutput = new Hashtable<>();
-
-    /**
-     * If set, then show changes in implementation-related modifiers such as
-     * native and synchronized. For more information, see
-     * http://java.sun.com/j2se/1.4.1/docs/tooldocs/solaris/javadoc.html#generatedapideclarations
-     */
-    public static boolean showAllChanges = false;
+    public Hashtable<String, String> firstDiffOutput = new Hashtable<>();
 
     /**
      * The name of the current package, used to create diffFileName.
      */
-    private static String currPkgName = null;
+    private String currPkgName = null;
 
     /**
-     * Save the differences between the two strings in a DiffOutput object
-     * for later use.
+     * Generate the differences between the two strings in a DiffOutput
+     * object. The time this takes is added to the "doc diffs" phase of
+     * the run, and the object waits in memory, or in the temporary file
+     * under a heap budget, until {@link #emitDocDiffs} writes it out.
      *
-     * @param id A per-package unique identifier for each documentation
-     *           change.
+     * @param ctx The context of the run.
+     * @param id  A per-package unique identifier for each documentation
+     *            change.
      */
-    static String saveDocDiffs(String pkgName, String className,
+    String saveDocDiffs(JDiffContext ctx, String pkgName, String className,
                                String oldDoc, String newDoc,
                                String id, String title) {
         // Generate the string which will link to this set of diffs
@@ -107,8 +143,12 @@ class Diff {
             return "Documentation changed from ";
         }
 
-        // Generate the differences.
-        generateDiffs(pkgName, className, oldDoc, newDoc, id, title);
+        long start = System.nanoTime();
+        generateDiffs(ctx, pkgName, className, oldDoc, newDoc, id, title);
+        ctx.metrics.add("doc diffs", System.nanoTime() - start, 1);
+        ctx.progress.docDiff();
+        queued_++;
+        JDiffMonitor.docDiffsQueued(1);
 
         return "Documentation <a href=\"" + diffFileName + pkgName +
                 HTMLReportGenerator.reportFileExt + "#" + id +
@@ -118,9 +158,10 @@ class Diff {
     /**
      * Generate the differences.
      */
-    static void generateDiffs(String pkgName, String className,
-                              String oldDoc, String newDoc,
-                              String id, String title) {
+    private void generateDiffs(JDiffContext ctx, String pkgName, String className,
+                               String oldDoc, String newDoc,
+                               String id, String title) {
+        Object event = JDiffEvents.beginDocDiff();
         String[] oldDocWords = parseDoc(oldDoc);
         String[] newDocWords = parseDoc(newDoc);
 
@@ -133,7 +174,14 @@ class Diff {
         text += "<blockquote>";
         text = addDiffs(oldDocWords, newDocWords, script, text);
         text += "</blockquote>";
-        docDiffs.add(new DiffOutput(pkgName, className, id, title, text));
+        DiffOutput diffOutput = new DiffOutput(pkgName, className, id, title, text);
+        docDiffs.add(diffOutput);
+        inMemory_ += Footprint.docDiff(diffOutput);
+        textInMemory_ += Footprint.string(text);
+        // Keep at most an eighth of the heap budget for the text
+        if (ctx.heapBudget != -1 && textInMemory_ > ctx.heapBudget / 8)
+            spill(ctx);
+        JDiffEvents.endDocDiff(event, id, oldDoc, newDoc, oldDocWords.length, newDocWords.length);
     }
 
     /**
@@ -347,8 +395,14 @@ class Diff {
     /**
      * Emit all the documentation differences into one file per package.
      */
-    static void emitDocDiffs(String fullReportFileName) {
+    void emitDocDiffs(HTMLReportGenerator h) {
+        String fullReportFileName = h.fullReportFileName();
+        // Sorting moves the differences which are still in memory among
+        // those which are on disk, so move them all to disk first
+        if (spill_ != null)
+            spill(h.ctx_);
         Collections.sort(docDiffs);
+        currPkgName = null;
 
         DiffOutput[] docDiffsArr = new DiffOutput[docDiffs.size()];
         docDiffsArr = docDiffs.toArray(docDiffsArr);
@@ -384,14 +438,13 @@ class Diff {
                         HTMLReportGenerator.reportFileExt;
                 // Create the output file
                 try {
-                    FileOutputStream fos = new FileOutputStream(fullDiffFileName);
-                    diffFile = new PrintWriter(fos);
+                    diffFile = h.openPage(fullDiffFileName);
 
                     // Write the HTML header
-                    diffFile.println("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.0 Frameset//EN\"\"" + RootDocToXML.baseURI + "/TR/REC-html40/frameset.dtd\">");
+                    diffFile.println("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.0 Frameset//EN\"\"" + h.ctx_.baseURI + "/TR/REC-html40/frameset.dtd\">");
                     diffFile.println("<HTML>");
                     diffFile.println("<HEAD>");
-                    JDiff.addCharset(diffFile);
+                    JDiff.addCharset(h.ctx_, diffFile);
                     diffFile.println("<meta name=\"generator\" content=\"JDiff v" + JDiff.version + "\">");
                     diffFile.println("<!-- Generated by the JDiff Javadoc doclet -->");
                     diffFile.println("<!-- (" + JDiff.jDiffLocation + ") -->");
@@ -415,15 +468,15 @@ class Diff {
                     // Always have a link to the Javadoc files
                     String pkgRef = currPkgName;
                     pkgRef = pkgRef.replace('.', '/');
-                    pkgRef = HTMLReportGenerator.newDocPrefix + pkgRef + "/package-summary";
-                    diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + pkgRef + ".html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + APIDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
+                    pkgRef = h.ctx_.newDocPrefix + pkgRef + "/package-summary";
+                    diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + pkgRef + ".html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + h.apiDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
                     diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + HTMLReportGenerator.reportFileName + "-summary" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Overview</B></FONT></A>&nbsp;</TD>");
                     diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> &nbsp;<FONT CLASS=\"NavBarFont1\">Package</FONT>&nbsp;</TD>");
                     diffFile.println("      <TD BGCOLOR=\"#FFFFFF\" CLASS=\"NavBarCell1\"> &nbsp;<FONT CLASS=\"NavBarFont1\">Class</FONT>&nbsp;</TD>");
-                    if (!Diff.noDocDiffs) {
+                    if (!noDocDiffs) {
                         diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + Diff.diffFileName + "index" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Text Changes</B></FONT></A>&nbsp;</TD>");
                     }
-                    if (HTMLReportGenerator.doStats) {
+                    if (h.ctx_.doStats) {
                         diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"jdiff_statistics" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Statistics</B></FONT></A>&nbsp;</TD>");
                     }
                     diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"jdiff_help" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Help</B></FONT></A>&nbsp;</TD>");
@@ -485,13 +538,11 @@ class Diff {
                     diffFile.println();
 
                 } catch (IOException e) {
-                    System.out.println("IO Error while attempting to create " + fullDiffFileName);
-                    System.out.println("Error: " + e.getMessage());
-                    System.exit(1);
+                    throw new JDiffException("could not create " + fullDiffFileName + ": " + e.getMessage(), e);
                 }
             } // if (currPkgName == null || currPkgName.compareTo(diffOutput.pkgName_) != 0)
             // Now add the documentation difference text
-            diffFile.println(diffOutput.text_);
+            diffFile.println(text(diffOutput));
             // Separate with a horizontal line
             if (i != docDiffsArr.length - 1 &&
                     diffOutput.className_ != null &&
@@ -505,14 +556,16 @@ class Diff {
             closeDiffFile(); // Close the existing file
 
         // Emit the single file which is the index to all documentation changes
-        emitDocDiffIndex(fullReportFileName, docDiffsArr);
+        emitDocDiffIndex(h, fullReportFileName, docDiffsArr);
+        JDiffMonitor.docDiffsQueued(-queued_);
+        queued_ = 0;
     }
 
     /**
      * Emit the single file which is the index to all documentation changes.
      */
-    public static void emitDocDiffIndex(String fullReportFileName,
-                                        DiffOutput[] docDiffsArr) {
+    public void emitDocDiffIndex(HTMLReportGenerator h, String fullReportFileName,
+                                 DiffOutput[] docDiffsArr) {
 
         String fullDiffFileName = fullReportFileName +
                 JDiff.DIR_SEP + diffFileName + "index" +
@@ -520,14 +573,13 @@ class Diff {
 
         // Create the output file
         try {
-            FileOutputStream fos = new FileOutputStream(fullDiffFileName);
-            diffFile = new PrintWriter(fos);
+            diffFile = h.openPage(fullDiffFileName);
 
             // Write the HTML header
-            diffFile.println("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.0 Frameset//EN\"\"" + RootDocToXML.baseURI + "/TR/REC-html40/frameset.dtd\">");
+            diffFile.println("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.0 Frameset//EN\"\"" + h.ctx_.baseURI + "/TR/REC-html40/frameset.dtd\">");
             diffFile.println("<HTML>");
             diffFile.println("<HEAD>");
-            JDiff.addCharset(diffFile);
+            JDiff.addCharset(h.ctx_, diffFile);
             diffFile.println("<meta name=\"generator\" content=\"JDiff v" + JDiff.version + "\">");
             diffFile.println("<!-- Generated by the JDiff Javadoc doclet -->");
             diffFile.println("<!-- (" + JDiff.jDiffLocation + ") -->");
@@ -549,14 +601,14 @@ class Diff {
             diffFile.println("  <TABLE summary=\"Navigation bar\" BORDER=\"0\" CELLPADDING=\"0\" CELLSPACING=\"3\">");
             diffFile.println("    <TR ALIGN=\"center\" VALIGN=\"top\">");
             // Always have a link to the Javadoc files
-            diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + HTMLReportGenerator.newDocPrefix + "index.html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + APIDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
+            diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + h.ctx_.newDocPrefix + "index.html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + h.apiDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
             diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + HTMLReportGenerator.reportFileName + "-summary" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Overview</B></FONT></A>&nbsp;</TD>");
             diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> &nbsp;<FONT CLASS=\"NavBarFont1\">Package</FONT>&nbsp;</TD>");
             diffFile.println("      <TD BGCOLOR=\"#FFFFFF\" CLASS=\"NavBarCell1\"> &nbsp;<FONT CLASS=\"NavBarFont1\">Class</FONT>&nbsp;</TD>");
-            if (!Diff.noDocDiffs) {
+            if (!noDocDiffs) {
                 diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1Rev\"> <FONT CLASS=\"NavBarFont1Rev\"><B>Text Changes</B></FONT>&nbsp;</TD>");
             }
-            if (HTMLReportGenerator.doStats) {
+            if (h.ctx_.doStats) {
                 diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"jdiff_statistics" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Statistics</B></FONT></A>&nbsp;</TD>");
             }
             diffFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"jdiff_help" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Help</B></FONT></A>&nbsp;</TD>");
@@ -656,9 +708,7 @@ class Diff {
                 } //diffOutput.className_ != null
             }
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + fullDiffFileName);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + fullDiffFileName + ": " + e.getMessage(), e);
         }
         closeDiffFile();
     }
@@ -666,7 +716,7 @@ class Diff {
     /**
      * Emit the HTML footer and close the diff file.
      */
-    public static void closeDiffFile() {
+    public void closeDiffFile() {
         if (diffFile != null) {
             // Write the HTML footer
             diffFile.println();
@@ -676,4 +726,89 @@ class Diff {
         }
     }
 
+    /**
+     * Return the estimated bytes of heap used by the documentation
+     * differences.
+     */
+    long footprint() {
+        return inMemory_;
+    }
+
+    /**
+     * Return the bytes of the text of documentation differences which were
+     * moved to disk.
+     */
+    long spilledBytes() {
+        try {
+            return spill_ == null ? 0 : spill_.length();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Move the text of the documentation differences which are in memory
+     * to the end of the temporary file, keeping where each one is so it
+     * can be read back when it is written to the report.
+     */
+    private void spill(JDiffContext ctx) {
+        try {
+            if (spill_ == null) {
+                spillFile_ = File.createTempFile("jdiff_docdiffs_", ".tmp");
+                spillFile_.deleteOnExit();
+                spill_ = new RandomAccessFile(spillFile_, "rw");
+                ctx.diagnostics.warn("heap budget", "Warning: moving documentation differences to file '"
+                        + spillFile_ + "' to stay within the heap budget");
+            }
+            spill_.seek(spill_.length());
+            for (; firstInMemory_ < docDiffs.size(); firstInMemory_++) {
+                DiffOutput diffOutput = docDiffs.get(firstInMemory_);
+                byte[] bytes = diffOutput.text_.getBytes(StandardCharsets.UTF_8);
+                diffOutput.spillOffset_ = spill_.getFilePointer();
+                diffOutput.spillLength_ = bytes.length;
+                spill_.write(bytes);
+                inMemory_ -= Footprint.string(diffOutput.text_);
+                diffOutput.text_ = null;
+            }
+            textInMemory_ = 0;
+        } catch (IOException e) {
+            throw new JDiffException("could not move documentation differences to a temporary file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Return the text of a documentation difference, reading it back from
+     * the temporary file if it was moved there.
+     */
+    private String text(DiffOutput diffOutput) {
+        if (diffOutput.text_ != null)
+            return diffOutput.text_;
+        try {
+            byte[] bytes = new byte[diffOutput.spillLength_];
+            spill_.seek(diffOutput.spillOffset_);
+            spill_.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new JDiffException("could not read documentation differences back from file '" + spillFile_ + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete the temporary file of documentation differences, once the
+     * report has been written.
+     */
+    void deleteSpillFile() {
+        if (spill_ == null)
+            return;
+        try {
+            spill_.close();
+        } catch (IOException e) {
+            // Deleting the file is all that matters
+        }
+        if (!spillFile_.delete())
+            System.out.println("Warning: could not delete the temporary file '" + spillFile_ + "'");
+        spill_ = null;
+        spillFile_ = null;
+    }
+
 }  
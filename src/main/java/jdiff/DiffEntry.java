@@ -0,0 +1,108 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+/**
+ * A package, class, constructor, method or field which was removed or
+ * added, with only what the report shows of it.
+ * <p>
+ * The differences hold these rather than the elements of the APIs, so
+ * that nothing in an {@link APIDiff} refers back to the APIs it was made
+ * from, and both APIs can be collected before the report is written.
+ */
+final class DiffEntry {
+
+    /**
+     * The name of the package, class, method or field. Null for a
+     * constructor.
+     */
+    public final String name_;
+
+    /**
+     * The type of the constructor or field. For methods, this is the
+     * return type. Null for packages and classes.
+     */
+    public final String type_;
+
+    /**
+     * The signature of the method. Null for other elements.
+     */
+    public final String signature_;
+
+    /**
+     * Set if the class is an interface.
+     */
+    public final boolean isInterface_;
+
+    /**
+     * The doc block, or null if there is none or it is read from the XML
+     * file on demand.
+     */
+    public final String doc_;
+
+    /**
+     * The XML file to read the doc block from on demand, or null.
+     */
+    public final DocSource docSource_;
+
+    /**
+     * Where the doc block starts in the XML file.
+     */
+    public final long docLocation_;
+
+    private DiffEntry(String name, String type, String signature, boolean isInterface,
+                      String doc, DocSource docSource, long docLocation) {
+        name_ = name;
+        type_ = type;
+        signature_ = signature;
+        isInterface_ = isInterface;
+        doc_ = doc;
+        docSource_ = docSource;
+        docLocation_ = docLocation;
+    }
+
+    DiffEntry(PackageAPI pkg) {
+        this(pkg.name_, null, null, false, pkg.doc_, pkg.docSource_, pkg.docLocation_);
+    }
+
+    DiffEntry(ClassAPI cls) {
+        this(cls.name_, null, null, cls.isInterface_, cls.doc_, cls.docSource_, cls.docLocation_);
+    }
+
+    DiffEntry(ConstructorAPI ctor) {
+        this(null, ctor.type_, null, false, ctor.doc_, ctor.docSource_, ctor.docLocation_);
+    }
+
+    DiffEntry(MethodAPI method) {
+        this(method.name_, method.returnType_, method.getSignature(), false,
+                method.doc_, method.docSource_, method.docLocation_);
+    }
+
+    DiffEntry(FieldAPI field) {
+        this(field.name_, field.type_, null, false, field.doc_, field.docSource_, field.docLocation_);
+    }
+
+    /**
+     * Return the doc block, reading it from the XML file if it was not
+     * kept in memory. Null if there is no doc block.
+     */
+    public String getDoc() {
+        return DocSource.text(doc_, docSource_, docLocation_);
+    }
+}
@@ -46,10 +46,21 @@ class DiffOutput implements Comparable<DiffOutput> {
     public String title_;
 
     /**
-     * The text for this difference, with deleted and added words marked.
+     * The text for this difference, with deleted and added words marked,
+     * or null if it has been moved to the temporary file of {@link Diff}.
      */
     public String text_;
 
+    /**
+     * Where the text starts in the temporary file, if it was moved there.
+     */
+    public long spillOffset_ = -1;
+
+    /**
+     * The number of bytes of the text in the temporary file.
+     */
+    public int spillLength_;
+
     /**
      * Constructor.
      */
@@ -0,0 +1,118 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+/**
+ * Computes 64-bit fingerprints of documentation blocks, so that the
+ * comparison of two blocks does not have to look at their text.
+ * <p>
+ * Two fingerprints are available for each block. The exact fingerprint
+ * changes whenever any character of the text changes. The normalised
+ * fingerprint ignores the amount of whitespace, whitespace next to HTML
+ * tags and the case of HTML tags, so it stays the same when a comment was
+ * only reformatted.
+ * <p>
+ * A fingerprint of {@link #NONE} means that there is no documentation
+ * block at all, which is different from an empty one.
+ */
+final class DocFingerprint {
+
+    /**
+     * The fingerprint of a missing (null) documentation block.
+     */
+    static final long NONE = 0L;
+
+    /**
+     * The FNV-1a 64-bit offset basis.
+     */
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * The FNV-1a 64-bit prime.
+     */
+    private static final long PRIME = 0x100000001b3L;
+
+    private DocFingerprint() {
+    }
+
+    /**
+     * Return the exact fingerprint of a documentation block.
+     *
+     * @param doc the documentation block, may be null
+     * @return {@link #NONE} if doc is null, a non-zero value otherwise
+     */
+    static long of(String doc) {
+        if (doc == null)
+            return NONE;
+        long hash = OFFSET_BASIS;
+        int len = doc.length();
+        for (int i = 0; i < len; i++) {
+            hash = mix(hash, doc.charAt(i));
+        }
+        return hash == NONE ? 1L : hash;
+    }
+
+    /**
+     * Return the fingerprint of a documentation block after runs of
+     * whitespace have been collapsed, whitespace next to HTML tags has been
+     * removed and HTML tags have been lowercased.
+     *
+     * @param doc the documentation block, may be null
+     * @return {@link #NONE} if doc is null, a non-zero value otherwise
+     */
+    static long normalised(String doc) {
+        if (doc == null)
+            return NONE;
+        long hash = OFFSET_BASIS;
+        boolean inTag = false;
+        boolean pendingSpace = false;
+        char last = ' ';
+        int len = doc.length();
+        for (int i = 0; i < len; i++) {
+            char c = doc.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (c == '<')
+                inTag = true;
+            // Whitespace at the start, or around a tag, is only formatting
+            if (pendingSpace && last != ' ' && last != '>' && c != '<' && (!inTag || c != '>'))
+                hash = mix(hash, last = ' ');
+            pendingSpace = false;
+            if (inTag)
+                c = Character.toLowerCase(c);
+            if (c == '>')
+                inTag = false;
+            hash = mix(hash, last = c);
+        }
+        return hash == NONE ? 1L : hash;
+    }
+
+    /**
+     * Add one character to an FNV-1a hash.
+     */
+    private static long mix(long hash, char c) {
+        hash ^= c & 0xff;
+        hash *= PRIME;
+        hash ^= c >>> 8;
+        hash *= PRIME;
+        return hash;
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The XML file for an API, memory-mapped so that the text of its doc
+ * blocks can be read on demand rather than being kept in memory.
+ * <p>
+ * While the file is being parsed, {@link #nextDoc()} finds the doc
+ * blocks in the same order as the XML parser does, and returns where each
+ * one is in the file. A doc block is only read on demand if its text,
+ * once the CDATA sections are removed, line endings are normalised and
+ * the result is trimmed, is exactly the text the parser produced for it;
+ * {@link #matches} checks this.
+ * <p>
+ * A location is the byte offset of the text in the high 32 bits and its
+ * length in bytes in the low 32 bits of a long.
+ */
+final class DocSource {
+
+    /**
+     * Returned by {@link #nextDoc()} if no more doc blocks can be found.
+     */
+    static final long NO_DOC = -1L;
+
+    private static final String CDATA_START = "<![CDATA[";
+    private static final String CDATA_END = "]]>";
+
+    /**
+     * The name of the file, for messages.
+     */
+    private final String fileName_;
+
+    /**
+     * The contents of the file.
+     */
+    private final ByteBuffer buffer_;
+
+    /**
+     * The encoding of the file.
+     */
+    private final Charset charset_;
+
+    /**
+     * Where to start looking for the next doc block.
+     */
+    private int cursor_;
+
+    private DocSource(String fileName, ByteBuffer buffer, Charset charset) {
+        fileName_ = fileName;
+        buffer_ = buffer;
+        charset_ = charset;
+    }
+
+    /**
+     * Map the given XML file into memory.
+     *
+     * @return the DocSource, or null if the doc blocks in this file cannot
+     * be read on demand, in which case a warning has been printed
+     */
+    static DocSource open(String fileName) {
+        ByteBuffer buffer;
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            FileChannel channel = file.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                System.out.println("Warning: file '" + fileName + "' is too large to map, so its doc blocks will be kept in memory");
+                return null;
+            }
+            // The mapping remains valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            System.out.println("Warning: could not map file '" + fileName + "', so its doc blocks will be kept in memory: " + e);
+            return null;
+        }
+        Charset charset = encodingOf(buffer);
+        if (charset == null) {
+            System.out.println("Warning: the encoding of file '" + fileName + "' is not supported for lazy doc blocks, so its doc blocks will be kept in memory");
+            return null;
+        }
+        return new DocSource(fileName, buffer, charset);
+    }
+
+    /**
+     * Return the encoding given in the XML declaration, or UTF-8 if there
+     * is none. Return null if the encoding is not one in which the XML
+     * markup is plain ASCII, since the file is scanned byte by byte.
+     */
+    private static Charset encodingOf(ByteBuffer buffer) {
+        int len = Math.min(buffer.limit(), 200);
+        StringBuilder prolog = new StringBuilder(len);
+        for (int i = 0; i < len; i++) {
+            prolog.append((char) (buffer.get(i) & 0xff));
+        }
+        Charset charset = StandardCharsets.UTF_8;
+        if (prolog.indexOf("<?xml") == 0) {
+            int end = prolog.indexOf("?>");
+            int idx = prolog.indexOf("encoding=");
+            if (end != -1 && idx != -1 && idx < end) {
+                char quote = prolog.charAt(idx + 9);
+                int close = prolog.indexOf(String.valueOf(quote), idx + 10);
+                if (close == -1)
+                    return null;
+                try {
+                    charset = Charset.forName(prolog.substring(idx + 10, close));
+                } catch (RuntimeException e) {
+                    return null;
+                }
+            }
+        } else if (len > 0 && prolog.charAt(0) != '<') {
+            return null; // A byte order mark, or not XML at all
+        }
+        String markup = "<doc></doc>" + CDATA_START + CDATA_END + "<!--?>&\r\n";
+        if (!new String(markup.getBytes(charset), StandardCharsets.ISO_8859_1).equals(markup))
+            return null;
+        return charset;
+    }
+
+    /**
+     * Find the next doc block in the file.
+     *
+     * @return the location of the contents of the doc block, or
+     * {@link #NO_DOC} if there are no more
+     */
+    long nextDoc() {
+        int start = -1;
+        int pos = cursor_;
+        int limit = buffer_.limit();
+        while (pos < limit) {
+            if (buffer_.get(pos) != '<') {
+                pos++;
+                continue;
+            }
+            int skip = skipMarkup(pos);
+            if (skip != pos) {
+                pos = skip;
+                continue;
+            }
+            int tagEnd = indexOf(">", pos);
+            if (tagEnd == -1)
+                break;
+            if (start == -1 && isTag(pos + 1, "doc")) {
+                if (buffer_.get(tagEnd - 1) == '/') {
+                    cursor_ = tagEnd + 1;
+                    return location(tagEnd + 1, 0); // An empty doc block
+                }
+                start = tagEnd + 1;
+            } else if (start != -1 && buffer_.get(pos + 1) == '/' && isTag(pos + 2, "doc")) {
+                cursor_ = tagEnd + 1;
+                return location(start, pos - start);
+            }
+            pos = tagEnd + 1;
+        }
+        cursor_ = limit;
+        return NO_DOC;
+    }
+
+    /**
+     * Return true if the text of the doc block at the given location is
+     * the same as the given text, so that it can be read on demand.
+     */
+    boolean matches(long location, String text) {
+        return text.equals(read(location));
+    }
+
+    /**
+     * Read the text of the doc block at the given location.
+     *
+     * @return the text, or null if the doc block contains elements or
+     * entity references, and so cannot be read without an XML parser
+     */
+    String read(long location) {
+        int start = (int) (location >>> 32);
+        int length = (int) location;
+        ByteBuffer bytes = buffer_.duplicate();
+        bytes.position(start);
+        bytes.limit(start + length);
+        CharBuffer chars;
+        try {
+            chars = charset_.newDecoder().decode(bytes);
+        } catch (CharacterCodingException e) {
+            throw new JDiffException("could not decode a doc block in file '" + fileName_ + "': " + e, e);
+        }
+        String raw = chars.toString();
+        StringBuilder text = new StringBuilder(raw.length());
+        int i = 0;
+        while (i < raw.length()) {
+            if (raw.startsWith(CDATA_START, i)) {
+                int end = raw.indexOf(CDATA_END, i);
+                if (end == -1)
+                    return null;
+                appendNormalised(text, raw, i + CDATA_START.length(), end);
+                i = end + CDATA_END.length();
+                continue;
+            }
+            char c = raw.charAt(i);
+            if (c == '<' || c == '&')
+                return null;
+            int next = raw.indexOf('<', i);
+            if (next == -1)
+                next = raw.length();
+            if (raw.lastIndexOf('&', next - 1) >= i)
+                return null;
+            appendNormalised(text, raw, i, next);
+            i = next;
+        }
+        return text.toString().trim();
+    }
+
+    /**
+     * Return a placeholder for the text of the doc block at the given
+     * location, which only reads the text when it is used.
+     */
+    CharSequence lazyText(long location) {
+        return new LazyText(this, location);
+    }
+
+    /**
+     * Return the text of a doc block, reading it from the file if it is
+     * not in memory.
+     *
+     * @param doc      The text of the doc block, if it is in memory.
+     * @param source   The file to read it from otherwise, null if there
+     *                 is no doc block.
+     * @param location The location of the doc block in the file.
+     */
+    static String text(String doc, DocSource source, long location) {
+        if (doc != null || source == null)
+            return doc;
+        return source.read(location);
+    }
+
+    /**
+     * Append text to the buffer, converting line endings to "\n", as an
+     * XML parser does.
+     */
+    private static void appendNormalised(StringBuilder text, String raw, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (c == '\r') {
+                text.append('\n');
+                if (i + 1 < end && raw.charAt(i + 1) == '\n')
+                    i++;
+            } else {
+                text.append(c);
+            }
+        }
+    }
+
+    /**
+     * If the given position starts a comment, CDATA section or processing
+     * instruction, return the position after it, otherwise return the
+     * position unchanged.
+     */
+    private int skipMarkup(int pos) {
+        String end;
+        if (startsWith(pos, "<!--"))
+            end = "-->";
+        else if (startsWith(pos, CDATA_START))
+            end = CDATA_END;
+        else if (startsWith(pos, "<?") || startsWith(pos, "<!"))
+            end = ">";
+        else
+            return pos;
+        int idx = indexOf(end, pos + 2);
+        if (idx == -1)
+            return buffer_.limit();
+        return idx + end.length();
+    }
+
+    /**
+     * Return true if the given tag name starts at the given position and is
+     * followed by the end of the tag or by whitespace.
+     */
+    private boolean isTag(int pos, String name) {
+        if (!startsWith(pos, name))
+            return false;
+        int after = pos + name.length();
+        if (after >= buffer_.limit())
+            return false;
+        byte b = buffer_.get(after);
+        return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private boolean startsWith(int pos, String s) {
+        if (pos + s.length() > buffer_.limit())
+            return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (buffer_.get(pos + i) != s.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private int indexOf(String s, int from) {
+        int last = buffer_.limit() - s.length();
+        for (int pos = from; pos <= last; pos++) {
+            if (startsWith(pos, s))
+                return pos;
+        }
+        return -1;
+    }
+
+    private static long location(int start, int length) {
+        return ((long) start << 32) | length;
+    }
+
+    /**
+     * The text of a doc block which is only read when it is used. The
+     * text is read once, the first time any method is called, and kept
+     * from then on, so that reading it a character at a time does not
+     * decode the block again for each character.
+     */
+    private static final class LazyText implements CharSequence {
+        private final DocSource source_;
+        private final long location_;
+        private String text_;
+
+        LazyText(DocSource source, long location) {
+            source_ = source;
+            location_ = location;
+        }
+
+        public int length() {
+            return toString().length();
+        }
+
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            if (text_ == null)
+                text_ = source_.read(location_);
+            return text_;
+        }
+    }
+}
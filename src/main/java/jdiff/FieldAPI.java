@@ -22,8 +22,9 @@ package jdiff;
  * Class to represent a field, analogous to FieldDoc in the
  * Javadoc doclet API.
  * <p>
- * The method used for Collection comparison (compareTo) must make its
- * comparison based upon everything that is known about this field.
+ * The method used for Collection comparison (compareTo) orders fields by
+ * name and type, since a class never has two fields with the same name.
+ * Whether a field changed is decided by {@link APIComparator}.
  *
  * @author Matthew Doar, mdoar@pobox.com
  */
@@ -33,11 +34,21 @@ class FieldAPI implements Comparable<FieldAPI> {
      */
     public String name_;
 
+    /**
+     * The id of the name in the {@link SymbolTable} for this run.
+     */
+    public int nameId_ = SymbolTable.NO_ID;
+
     /**
      * Type of the field.
      */
     public String type_;
 
+    /**
+     * The id of the type in the {@link SymbolTable} for this run.
+     */
+    public int typeId_ = SymbolTable.NO_ID;
+
     /**
      * The fully qualified name of the class or interface this field is
      * inherited from. If this is null, then the field is defined locally
@@ -46,40 +57,51 @@ class FieldAPI implements Comparable<FieldAPI> {
     public String inheritedFrom_;
 
     /**
-     * Set if this field is transient.
+     * If non-null, this is the value of this field.
      */
-    public boolean isTransient_;
+    public String value_;
 
     /**
-     * Set if this field is volatile.
+     * Modifiers for this field, including whether it is transient or
+     * volatile.
      */
-    public boolean isVolatile_;
+    public Modifiers modifiers_;
 
     /**
-     * If non-null, this is the value of this field.
+     * The doc block, default is null. This is also null if the doc block
+     * is to be read on demand, so use {@link #getDoc()} to read it.
      */
-    public String value_;
+    public String doc_;
 
     /**
-     * Modifiers for this class.
+     * The XML file to read the doc block from on demand, null if the doc
+     * block is kept in memory or there is none.
      */
-    public Modifiers modifiers_;
+    public DocSource docSource_;
 
     /**
-     * The doc block, default is null.
+     * The location of the doc block in {@link #docSource_}.
      */
-    public String doc_;
+    public long docLocation_;
+
+    /**
+     * The exact fingerprint of the doc block, see {@link DocFingerprint}.
+     */
+    public long docFingerprint_;
+
+    /**
+     * The fingerprint of the doc block ignoring reformatting, see
+     * {@link DocFingerprint}.
+     */
+    public long docNormFingerprint_;
 
     /**
      * Constructor.
      */
     public FieldAPI(String name, String type,
-                    boolean isTransient, boolean isVolatile,
                     String value, Modifiers modifiers) {
         name_ = name;
         type_ = type;
-        isTransient_ = isTransient;
-        isVolatile_ = isVolatile;
         value_ = value;
         modifiers_ = modifiers;
     }
@@ -89,50 +111,46 @@ class FieldAPI implements Comparable<FieldAPI> {
      */
     public FieldAPI(FieldAPI f) {
         name_ = f.name_;
+        nameId_ = f.nameId_;
         type_ = f.type_;
+        typeId_ = f.typeId_;
         inheritedFrom_ = f.inheritedFrom_;
-        isTransient_ = f.isTransient_;
-        isVolatile_ = f.isVolatile_;
         value_ = f.value_;
-        modifiers_ = f.modifiers_; // Note: shallow copy
+        modifiers_ = f.modifiers_; // Note: shared
         doc_ = f.doc_;
+        docSource_ = f.docSource_;
+        docLocation_ = f.docLocation_;
+        docFingerprint_ = f.docFingerprint_;
+        docNormFingerprint_ = f.docNormFingerprint_;
+    }
+
+    /**
+     * Return the doc block, reading it from the XML file if it was not
+     * kept in memory. Null if there is no doc block.
+     */
+    public String getDoc() {
+        return DocSource.text(doc_, docSource_, docLocation_);
     }
 
     /**
-     * Compare two FieldAPI objects, including name, type and modifiers.
+     * Compare two FieldAPI objects by name and type.
      */
     public int compareTo(FieldAPI o) {
-        int comp = name_.compareTo(o.name_);
-        if (comp != 0)
-            return comp;
-        comp = type_.compareTo(o.type_);
-        if (comp != 0)
-            return comp;
-        if (JDiff.compareFieldInheritance && APIComparator.changedInheritance(inheritedFrom_, o.inheritedFrom_) != 0)
-            return -1;
-        if (isTransient_ != o.isTransient_) {
-            return -1;
-        }
-        if (isVolatile_ != o.isVolatile_) {
-            return -1;
-        }
-        if (value_ != null && o.value_ != null) {
-            comp = value_.compareTo(o.value_);
-            if (comp != 0)
-                return comp;
-        }
-        comp = modifiers_.compareTo(o.modifiers_);
+        int comp = SymbolTable.compare(nameId_, name_, o.nameId_, o.name_);
         if (comp != 0)
             return comp;
-        if (APIComparator.docChanged(doc_, o.doc_))
-            return -1;
-        return 0;
+        return SymbolTable.compare(typeId_, type_, o.typeId_, o.type_);
     }
 
     /**
      * Tests two fields, using just the field name, used by indexOf().
      */
     public boolean equals(Object o) {
-        return this == o || o instanceof FieldAPI && name_.compareTo(((FieldAPI) o).name_) == 0;
+        if (this == o)
+            return true;
+        if (!(o instanceof FieldAPI))
+            return false;
+        FieldAPI f = (FieldAPI) o;
+        return SymbolTable.same(nameId_, name_, f.nameId_, f.name_);
     }
 }  
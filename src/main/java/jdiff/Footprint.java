@@ -0,0 +1,194 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the bytes of heap used by the main structures of a run, from
+ * the number of objects in them and the lengths of their strings, as laid
+ * out by a 64-bit JVM with compressed references.
+ * <p>
+ * The names and types of the APIs are shared through the
+ * {@link SymbolTable}, so they are counted there rather than in each
+ * element which refers to them. Doc blocks which are read from the XML
+ * files on demand are not counted at all.
+ */
+final class Footprint {
+
+    private static final long PACKAGE_API = 56;
+
+    private static final long CLASS_API = 80;
+
+    private static final long CONSTRUCTOR_API = 64;
+
+    private static final long METHOD_API = 88;
+
+    private static final long PARAM_API = 24;
+
+    private static final long FIELD_API = 72;
+
+    private static final long PACKAGE_DIFF = 40;
+
+    private static final long CLASS_DIFF = 80;
+
+    private static final long MEMBER_DIFF = 56;
+
+    private static final long DIFF_ENTRY = 48;
+
+    private static final long DIFF_OUTPUT = 48;
+
+    private static final long SINGLE_COMMENT = 24;
+
+    /**
+     * An entry of a hash map, with its share of the table.
+     */
+    static final long MAP_ENTRY = 40;
+
+    private Footprint() {
+    }
+
+    /**
+     * Return the estimated heap used by an API.
+     */
+    static long api(API api) {
+        long bytes = 0;
+        for (PackageAPI pkg : api.packages_) {
+            bytes += PACKAGE_API + list(pkg.classes_) + string(pkg.doc_);
+            for (ClassAPI cls : pkg.classes_) {
+                bytes += CLASS_API + list(cls.implements_) + string(cls.doc_);
+                bytes += list(cls.ctors_) + list(cls.methods_) + list(cls.fields_);
+                // The entry in the API's map of classes, by their full name
+                bytes += MAP_ENTRY + chars(pkg.name_.length() + 1 + cls.name_.length());
+                for (ConstructorAPI ctor : cls.ctors_) {
+                    bytes += CONSTRUCTOR_API + string(ctor.doc_);
+                }
+                for (MethodAPI method : cls.methods_) {
+                    bytes += METHOD_API + list(method.params_) + method.params_.size() * PARAM_API + string(method.doc_);
+                }
+                for (FieldAPI field : cls.fields_) {
+                    bytes += FIELD_API + string(field.value_) + string(field.doc_);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the estimated heap used by the differences between two APIs.
+     */
+    static long apiDiff(APIDiff apiDiff) {
+        long bytes = entries(apiDiff.packagesAdded) + entries(apiDiff.packagesRemoved) + list(apiDiff.packagesChanged);
+        for (PackageDiff pkgDiff : apiDiff.packagesChanged) {
+            bytes += PACKAGE_DIFF + string(pkgDiff.documentationChange_);
+            bytes += entries(pkgDiff.classesAdded) + entries(pkgDiff.classesRemoved) + list(pkgDiff.classesChanged);
+            for (ClassDiff classDiff : pkgDiff.classesChanged) {
+                bytes += CLASS_DIFF + string(classDiff.inheritanceChange_)
+                        + string(classDiff.documentationChange_) + string(classDiff.modifiersChange_);
+                bytes += entries(classDiff.ctorsAdded) + entries(classDiff.ctorsRemoved) + memberDiffs(classDiff.ctorsChanged);
+                bytes += entries(classDiff.methodsAdded) + entries(classDiff.methodsRemoved) + memberDiffs(classDiff.methodsChanged);
+                bytes += entries(classDiff.fieldsAdded) + entries(classDiff.fieldsRemoved) + memberDiffs(classDiff.fieldsChanged);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the estimated heap used by a documentation difference.
+     */
+    static long docDiff(DiffOutput diffOutput) {
+        return DIFF_OUTPUT + string(diffOutput.id_) + string(diffOutput.title_) + string(diffOutput.text_);
+    }
+
+    /**
+     * Return the estimated heap used by the text of the comments which may
+     * be suggested in the report.
+     */
+    static long comments(Hashtable<String, CharSequence> comments) {
+        long bytes = 0;
+        for (Map.Entry<String, CharSequence> comment : comments.entrySet()) {
+            bytes += MAP_ENTRY + string(comment.getKey());
+            CharSequence text = comment.getValue();
+            // Doc blocks which are read on demand only keep where they are
+            bytes += text instanceof String ? string((String) text) : 32;
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the estimated heap used by the comments written to the
+     * comments file.
+     */
+    static long comments(Comments comments) {
+        if (comments == null)
+            return 0;
+        long bytes = list(comments.commentsList_);
+        for (SingleComment comment : comments.commentsList_) {
+            bytes += SINGLE_COMMENT + string(comment.id_) + string(comment.text_);
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the heap used by a string, or 0 if it is null.
+     */
+    static long string(String s) {
+        if (s == null)
+            return 0;
+        return chars(s.length());
+    }
+
+    /**
+     * Return the heap used by a string of the given length.
+     */
+    static long chars(int length) {
+        return 24 + align(16 + 2L * length);
+    }
+
+    private static long entries(List<DiffEntry> entries) {
+        long bytes = list(entries);
+        for (DiffEntry entry : entries) {
+            bytes += DIFF_ENTRY + string(entry.doc_);
+        }
+        return bytes;
+    }
+
+    private static long memberDiffs(List<MemberDiff> memberDiffs) {
+        long bytes = list(memberDiffs);
+        for (MemberDiff memberDiff : memberDiffs) {
+            bytes += MEMBER_DIFF + string(memberDiff.documentationChange_) + string(memberDiff.modifiersChange_);
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the heap used by a list, not counting its elements.
+     */
+    private static long list(List<?> list) {
+        if (list == null)
+            return 0;
+        return 24 + align(16 + 4L * list.size());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
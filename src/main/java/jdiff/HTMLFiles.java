@@ -18,7 +18,6 @@
 
 package jdiff;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 
@@ -47,23 +46,21 @@ public class HTMLFiles {
      */
     public void emitTopLevelFile(String tln,
                                  APIDiff apiDiff) {
-        try (FileOutputStream fos = new FileOutputStream(tln);
-             PrintWriter writer = new PrintWriter(fos)
-        ) {
-            HTMLReportGenerator.reportFile = writer;
+        try (PrintWriter writer = h_.openPage(tln)) {
+            h_.reportFile = writer;
             // Write out the HTML header
             h_.writeStartHTMLHeaderWithDate();
             // Write out the title
             String oldAPIName = "Old API";
-            if (APIDiff.oldAPIName_ != null)
-                oldAPIName = APIDiff.oldAPIName_;
+            if (h_.apiDiff.oldAPIName_ != null)
+                oldAPIName = h_.apiDiff.oldAPIName_;
             String newAPIName = "New API";
-            if (APIDiff.newAPIName_ != null)
-                newAPIName = APIDiff.newAPIName_;
-            if (HTMLReportGenerator.windowTitle == null)
+            if (h_.apiDiff.newAPIName_ != null)
+                newAPIName = h_.apiDiff.newAPIName_;
+            if (h_.ctx_.windowTitle == null)
                 h_.writeHTMLTitle("API Differences between " + oldAPIName + " and " + newAPIName);
             else
-                h_.writeHTMLTitle(HTMLReportGenerator.windowTitle);
+                h_.writeHTMLTitle(h_.ctx_.windowTitle);
             // Note that the stylesheet is in the same directory
             h_.writeStyleSheetRef(true);
             h_.writeText("</HEAD>");
@@ -92,9 +89,7 @@ public class HTMLFiles {
             h_.writeText("</NOFRAMES>");
             h_.writeText("</HTML>");
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + tln);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + tln + ": " + e.getMessage(), e);
         }
     }
 
@@ -102,10 +97,8 @@ public class HTMLFiles {
      * Emit a top left frame with all the links to the index files.
      */
     public void emitTopLeftFile(String tlf) {
-        try (FileOutputStream fos = new FileOutputStream(tlf);
-             PrintWriter writer = new PrintWriter(fos)
-        ) {
-            HTMLReportGenerator.reportFile = writer;
+        try (PrintWriter writer = h_.openPage(tlf)) {
+            h_.reportFile = writer;
             h_.writeStartHTMLHeader();
             h_.writeHTMLTitle("JDiff");
             h_.writeStyleSheetRef();
@@ -139,9 +132,7 @@ public class HTMLFiles {
 
             h_.writeHTMLFooter();
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + tlf);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + tlf + ": " + e.getMessage(), e);
         }
     }
 
@@ -150,10 +141,8 @@ public class HTMLFiles {
      */
     public void emitHelp(String fullReportFileName, APIDiff apiDiff) {
         String helpFileName = fullReportFileName + JDiff.DIR_SEP + "jdiff_help" + HTMLReportGenerator.reportFileExt;
-        try (FileOutputStream fos = new FileOutputStream(helpFileName);
-             PrintWriter writer = new PrintWriter(fos)
-        ) {
-            HTMLReportGenerator.reportFile = writer;
+        try (PrintWriter writer = h_.openPage(helpFileName)) {
+            h_.reportFile = writer;
             h_.writeStartHTMLHeader();
             h_.writeHTMLTitle("JDiff Help");
             h_.writeStyleSheetRef();
@@ -167,14 +156,14 @@ public class HTMLFiles {
             h_.writeText("  <TABLE summary=\"Navigation bar\" BORDER=\"0\" CELLPADDING=\"0\" CELLSPACING=\"3\">");
             h_.writeText("    <TR ALIGN=\"center\" VALIGN=\"top\">");
             // Always have a link to the Javadoc files
-            h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + HTMLReportGenerator.newDocPrefix + "index.html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + APIDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
+            h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + h_.ctx_.newDocPrefix + "index.html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + h_.apiDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
             h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + HTMLReportGenerator.reportFileName + "-summary" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Overview</B></FONT></A>&nbsp;</TD>");
             h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> &nbsp;<FONT CLASS=\"NavBarFont1\">Package</FONT>&nbsp;</TD>");
             h_.writeText("      <TD BGCOLOR=\"#FFFFFF\" CLASS=\"NavBarCell1\"> &nbsp;<FONT CLASS=\"NavBarFont1\">Class</FONT>&nbsp;</TD>");
-            if (!Diff.noDocDiffs) {
+            if (!h_.ctx_.diff.noDocDiffs) {
                 h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + Diff.diffFileName + "index" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Text Changes</B></FONT></A>&nbsp;</TD>");
             }
-            if (HTMLReportGenerator.doStats) {
+            if (h_.ctx_.doStats) {
                 h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"jdiff_statistics" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Statistics</B></FONT></A>&nbsp;</TD>");
             }
             h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1Rev\"> &nbsp;<FONT CLASS=\"NavBarFont1Rev\"><B>Help</B></FONT>&nbsp;</TD>");
@@ -230,7 +219,7 @@ public class HTMLFiles {
 
             h_.writeText("<BLOCKQUOTE>");
             h_.writeText("<H3><b><tt>Javadoc</tt></b></H3>");
-            h_.writeText("This is a link to the <a href=\"" + HTMLReportGenerator.newDocPrefix + "index.html\" target=\"_top\">top-level</a> Javadoc page for the new version of the product.");
+            h_.writeText("This is a link to the <a href=\"" + h_.ctx_.newDocPrefix + "index.html\" target=\"_top\">top-level</a> Javadoc page for the new version of the product.");
             h_.writeText("</BLOCKQUOTE>");
 
             h_.writeText("<BLOCKQUOTE>");
@@ -285,9 +274,7 @@ public class HTMLFiles {
 
             h_.writeHTMLFooter();
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + helpFileName);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + helpFileName + ": " + e.getMessage(), e);
         }
     }
 
@@ -296,12 +283,10 @@ public class HTMLFiles {
      */
     public void emitStylesheet() {
         String stylesheetFileName = "stylesheet-jdiff.css";
-        if (HTMLReportGenerator.outputDir != null)
-            stylesheetFileName = HTMLReportGenerator.outputDir + JDiff.DIR_SEP + stylesheetFileName;
-        try (FileOutputStream fos = new FileOutputStream(stylesheetFileName);
-             PrintWriter writer = new PrintWriter(fos)
-        ) {
-            HTMLReportGenerator.reportFile = writer;
+        if (h_.ctx_.outputDir != null)
+            stylesheetFileName = h_.ctx_.outputDir + JDiff.DIR_SEP + stylesheetFileName;
+        try (PrintWriter writer = h_.openPage(stylesheetFileName)) {
+            h_.reportFile = writer;
             h_.writeText();
             h_.writeText("/* The JDiff style sheet, derived from the Javadoc style sheet. */");
             h_.writeText("/* Generated by the JDiff Javadoc doclet */");
@@ -355,9 +340,7 @@ public class HTMLFiles {
             h_.writeText("a.staysblack:visited  {color: black; text-decoration: none}");
             h_.writeText("a.staysblack:hover    {color: blue; text-decoration: underline;}");
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + stylesheetFileName);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + stylesheetFileName + ": " + e.getMessage(), e);
         }
     }
 
@@ -18,7 +18,6 @@
 
 package jdiff;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
@@ -34,16 +33,10 @@ import java.util.List;
  */
 public class HTMLIndexes {
 
-    /**
-     * Whether to log all missing @since tags to a file or not.
-     * If false, just warn the user.
-     */
-    public static boolean logMissingSinces = true;
-
     /**
      * The file used to output details of missing @since tags.
      */
-    public static PrintWriter missingSincesFile;
+    private PrintWriter missingSincesFile;
 
     /**
      * The number of non-breaking spaces to indent a duplicate indexes'
@@ -145,8 +138,10 @@ public class HTMLIndexes {
             emitBottomLeftFile(fieldsIndexName, apiDiff, indexType, "Field");
             emitBottomLeftFile(allDiffsIndexName, apiDiff, indexType, "All");
         }
-        if (missingSincesFile != null)
+        if (missingSincesFile != null) {
             missingSincesFile.close();
+            missingSincesFile = null;
+        }
     }
 
     /**
@@ -179,10 +174,8 @@ public class HTMLIndexes {
             title = programElementType + " Differences Index";
         }
 
-        try (FileOutputStream fos = new FileOutputStream(filename);
-             PrintWriter writer = new PrintWriter(fos)
-        ) {
-            HTMLReportGenerator.reportFile = writer;
+        try (PrintWriter writer = h_.openPage(filename)) {
+            h_.reportFile = writer;
 
             h_.writeStartHTMLHeader();
             h_.writeHTMLTitle(title);
@@ -203,15 +196,12 @@ public class HTMLIndexes {
             } else if (programElementType.compareTo("All") == 0) {
                 emitAllDiffsIndex(apiDiff, indexType);
             } else {
-                System.out.println("Error: unknown program element type.");
-                System.exit(3);
+                throw new JDiffException("unknown program element type.");
             }
 
             h_.writeHTMLFooter();
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + filename);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + filename + ": " + e.getMessage(), e);
         }
     }
 
@@ -339,12 +329,12 @@ public class HTMLIndexes {
         boolean hasChanges = apiDiff.packagesChanged.size() != 0;
         recordDiffs(hasRemovals, hasAdditions, hasChanges);
         if (indexType == 3 || indexType == 0) {
-            for (PackageAPI pkg : apiDiff.packagesRemoved) {
+            for (DiffEntry pkg : apiDiff.packagesRemoved) {
                 packageNames.add(new Index(pkg.name_, 0));
             }
         }
         if (indexType == 3 || indexType == 1) {
-            for (PackageAPI pkg : apiDiff.packagesAdded) {
+            for (DiffEntry pkg : apiDiff.packagesAdded) {
                 packageNames.add(new Index(pkg.name_, 1));
             }
         }
@@ -441,14 +431,11 @@ public class HTMLIndexes {
 //        if (!logMissingSinces)
 //            return;
         if (missingSincesFile == null) {
-            String sinceFileName = HTMLReportGenerator.outputDir + JDiff.DIR_SEP + "missingSinces.txt";
+            String sinceFileName = h_.ctx_.outputDir + JDiff.DIR_SEP + "missingSinces.txt";
             try {
-                FileOutputStream fos = new FileOutputStream(sinceFileName);
-                missingSincesFile = new PrintWriter(fos);
+                missingSincesFile = h_.openPage(sinceFileName);
             } catch (IOException e) {
-                System.out.println("IO Error while attempting to create " + sinceFileName);
-                System.out.println("Error: " + e.getMessage());
-                System.exit(1);
+                throw new JDiffException("could not create " + sinceFileName + ": " + e.getMessage(), e);
             }
         }
         while (iter.hasNext()) {
@@ -471,22 +458,21 @@ public class HTMLIndexes {
             } else if (programElementType.compareTo("field") == 0) {
                 details = currIndex.pkgName_ + "." + currIndex.className_ + " " + "Field " + currIndex.name_;
             } else {
-                System.out.println("Error: unknown program element type");
-                System.exit(3);
+                throw new JDiffException("unknown program element type");
             }
             if (currIndex.doc_ == null) {
-                if (logMissingSinces)
+                if (h_.ctx_.logMissingSinces)
                     missingSincesFile.println("NO DOC BLOCK: " + details);
                 else
-                    System.out.println("Warning: the doc block for the new element: " + details + " is missing, so there is no @since tag");
+                    h_.ctx_.diagnostics.warn("missing @since", "Warning: the doc block for the new element: " + details + " is missing, so there is no @since tag");
             } else if (currIndex.doc_.contains("@since")) {
-                if (logMissingSinces)
+                if (h_.ctx_.logMissingSinces)
                     missingSincesFile.println("OK: " + details);
             } else {
-                if (logMissingSinces)
+                if (h_.ctx_.logMissingSinces)
                     missingSincesFile.println("MISSING @SINCE TAG: " + details);
                 else
-                    System.out.println("Warning: the doc block for the new element: " + details + " is missing an @since tag");
+                    h_.ctx_.diagnostics.warn("missing @since", "Warning: the doc block for the new element: " + details + " is missing an @since tag");
             }
         }
     }
@@ -508,10 +494,8 @@ public class HTMLIndexes {
         } else if (programElementType.compareTo("field") == 0) {
             return emitFieldIndexEntry(currIndex, oldsw, multipleMarker);
         } else {
-            System.out.println("Error: unknown program element type");
-            System.exit(3);
+            throw new JDiffException("unknown program element type");
         }
-        return '\0';
     }
 
     /**
@@ -533,14 +517,14 @@ public class HTMLIndexes {
             recordDiffs(hasRemovals, hasAdditions, hasChanges);
             String pkgName = pkgDiff.name_;
             if (indexType == 3 || indexType == 0) {
-                for (ClassAPI cls : pkgDiff.classesRemoved) {
+                for (DiffEntry cls : pkgDiff.classesRemoved) {
                     classNames.add(new Index(cls.name_, 0, pkgName, cls.isInterface_));
                 }
             }
             if (indexType == 3 || indexType == 1) {
-                for (ClassAPI cls : pkgDiff.classesAdded) {
+                for (DiffEntry cls : pkgDiff.classesAdded) {
                     Index idx = new Index(cls.name_, 1, pkgName, cls.isInterface_);
-                    idx.doc_ = cls.doc_; // Used for checking @since
+                    idx.doc_ = cls.getDoc(); // Used for checking @since
                     classNames.add(idx);
                 }
             }
@@ -631,14 +615,14 @@ public class HTMLIndexes {
                 recordDiffs(hasRemovals, hasAdditions, hasChanges);
                 String className = classDiff.name_;
                 if (indexType == 3 || indexType == 0) {
-                    for (ConstructorAPI ctor : classDiff.ctorsRemoved) {
+                    for (DiffEntry ctor : classDiff.ctorsRemoved) {
                         ctorNames.add(new Index(className, 0, pkgName, ctor.type_));
                     }
                 }
                 if (indexType == 3 || indexType == 1) {
-                    for (ConstructorAPI ctor : classDiff.ctorsAdded) {
+                    for (DiffEntry ctor : classDiff.ctorsAdded) {
                         Index idx = new Index(className, 1, pkgName, ctor.type_);
-                        idx.doc_ = ctor.doc_; // Used for checking @since
+                        idx.doc_ = ctor.getDoc(); // Used for checking @since
                         ctorNames.add(idx);
                     }
                 }
@@ -691,17 +675,17 @@ public class HTMLIndexes {
         if (ctor.changeType_ == 0) {
             String commentID = className + ".ctor_removed(" + type + ")";
             h_.writeText("<nobr><A HREF=\"" + memberRef + HTMLReportGenerator.reportFileExt + "#" + commentID + "\" class=\"hiddenlink\" target=\"rightframe\"><strike>" + ctor.name_ + "</strike>");
-            HTMLReportGenerator.emitTypeWithParens(shownType, false);
+            h_.emitTypeWithParens(shownType, false);
             h_.writeText("</A></nobr>&nbsp;constructor<br>");
         } else if (ctor.changeType_ == 1) {
             String commentID = className + ".ctor_added(" + type + ")";
             h_.writeText("<nobr><A HREF=\"" + memberRef + HTMLReportGenerator.reportFileExt + "#" + commentID + "\" class=\"hiddenlink\" target=\"rightframe\"><b>" + ctor.name_ + "</b>");
-            HTMLReportGenerator.emitTypeWithParens(shownType, false);
+            h_.emitTypeWithParens(shownType, false);
             h_.writeText("</A></nobr>&nbsp;constructor<br>");
         } else if (ctor.changeType_ == 2) {
             String commentID = className + ".ctor_changed(" + type + ")";
             h_.writeText("<nobr><A HREF=\"" + memberRef + HTMLReportGenerator.reportFileExt + "#" + commentID + "\" class=\"hiddenlink\" target=\"rightframe\">" + ctor.name_);
-            HTMLReportGenerator.emitTypeWithParens(shownType, false);
+            h_.emitTypeWithParens(shownType, false);
             h_.writeText("</A></nobr>&nbsp;constructor<br>");
         }
         return res;
@@ -728,14 +712,14 @@ public class HTMLIndexes {
                 recordDiffs(hasRemovals, hasAdditions, hasChanges);
                 String className = classDiff.name_;
                 if (indexType == 3 || indexType == 0) {
-                    for (MethodAPI meth : classDiff.methodsRemoved) {
-                        methNames.add(new Index(meth.name_, 0, pkgName, className, meth.getSignature()));
+                    for (DiffEntry meth : classDiff.methodsRemoved) {
+                        methNames.add(new Index(meth.name_, 0, pkgName, className, meth.signature_));
                     }
                 }
                 if (indexType == 3 || indexType == 1) {
-                    for (MethodAPI meth : classDiff.methodsAdded) {
-                        Index idx = new Index(meth.name_, 1, pkgName, className, meth.getSignature());
-                        idx.doc_ = meth.doc_; // Used for checking @since
+                    for (DiffEntry meth : classDiff.methodsAdded) {
+                        Index idx = new Index(meth.name_, 1, pkgName, className, meth.signature_);
+                        idx.doc_ = meth.getDoc(); // Used for checking @since
                         methNames.add(idx);
                     }
                 }
@@ -788,10 +772,10 @@ public class HTMLIndexes {
             String commentID = className + "." + meth.name_ + "_removed(" + type + ")";
             if (multipleMarker == 0) {
                 h_.writeText("<nobr><A HREF=\"" + memberRef + HTMLReportGenerator.reportFileExt + "#" + commentID + "\" class=\"hiddenlink\" target=\"rightframe\"><strike>" + meth.name_ + "</strike>");
-                HTMLReportGenerator.emitTypeWithParens(shownType, false);
+                h_.emitTypeWithParens(shownType, false);
             } else {
                 h_.writeText("<nobr><A HREF=\"" + memberRef + HTMLReportGenerator.reportFileExt + "#" + commentID + "\" class=\"hiddenlink\" target=\"rightframe\">type&nbsp;<strike>");
-                HTMLReportGenerator.emitTypeWithParens(shownType, false);
+                h_.emitTypeWithParens(shownType, false);
                 h_.writeText("</strike>&nbsp;in&nbsp;" + className);
             }
             h_.writeText("</A></nobr><br>");
@@ -799,10 +783,10 @@ public class HTMLIndexes {
             String commentID = className + "." + meth.name_ + "_added(" + type + ")";
             if (multipleMarker == 0) {
                 h_.writeText("<nobr><A HREF=\"" + memberRef + HTMLReportGenerator.reportFileExt + "#" + commentID + "\" class=\"hiddenlink\" target=\"rightframe\"><b>" + meth.name_ + "</b>");
-                HTMLReportGenerator.emitTypeWithParens(shownType, false);
+                h_.emitTypeWithParens(shownType, false);
             } else {
                 h_.writeText("<nobr><A HREF=\"" + memberRef + HTMLReportGenerator.reportFileExt + "#" + commentID + "\" class=\"hiddenlink\" target=\"rightframe\">type&nbsp;<b>");
-                HTMLReportGenerator.emitTypeWithParens(shownType, false);
+                h_.emitTypeWithParens(shownType, false);
                 h_.writeText("</b>&nbsp;in&nbsp;" + className);
             }
             h_.writeText("</A></nobr><br>");
@@ -810,10 +794,10 @@ public class HTMLIndexes {
             String commentID = className + "." + meth.name_ + "_changed(" + type + ")";
             if (multipleMarker == 0) {
                 h_.writeText("<nobr><A HREF=\"" + memberRef + HTMLReportGenerator.reportFileExt + "#" + commentID + "\" class=\"hiddenlink\" target=\"rightframe\">" + meth.name_);
-                HTMLReportGenerator.emitTypeWithParens(shownType, false);
+                h_.emitTypeWithParens(shownType, false);
             } else {
                 h_.writeText("<nobr><A HREF=\"" + memberRef + HTMLReportGenerator.reportFileExt + "#" + commentID + "\" class=\"hiddenlink\" target=\"rightframe\">type&nbsp;");
-                HTMLReportGenerator.emitTypeWithParens(shownType, false);
+                h_.emitTypeWithParens(shownType, false);
                 h_.writeText("&nbsp;in&nbsp;" + className);
             }
             h_.writeText("</A></nobr><br>");
@@ -842,14 +826,14 @@ public class HTMLIndexes {
                 recordDiffs(hasRemovals, hasAdditions, hasChanges);
                 String className = classDiff.name_;
                 if (indexType == 3 || indexType == 0) {
-                    for (FieldAPI fld : classDiff.fieldsRemoved) {
+                    for (DiffEntry fld : classDiff.fieldsRemoved) {
                         fieldNames.add(new Index(fld.name_, 0, pkgName, className, fld.type_, true));
                     }
                 }
                 if (indexType == 3 || indexType == 1) {
-                    for (FieldAPI fld : classDiff.fieldsAdded) {
+                    for (DiffEntry fld : classDiff.fieldsAdded) {
                         Index idx = new Index(fld.name_, 1, pkgName, className, fld.type_, true);
-                        idx.doc_ = fld.doc_; // Used for checking @since
+                        idx.doc_ = fld.getDoc(); // Used for checking @since
                         fieldNames.add(idx);
                     }
                 }
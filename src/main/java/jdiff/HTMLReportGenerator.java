@@ -23,6 +23,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * Emit HTML based on the changes between two sets of APIs.
@@ -41,100 +42,42 @@ public class HTMLReportGenerator {
      */
     private static final boolean trace = false;
 
-    /**
-     * If set, then do not suggest comments for removals from the first
-     * sentence of the doc block of the old API.
-     */
-    public static boolean noCommentsOnRemovals;
-
-    /**
-     * If set, then do not suggest comments for additions from the first
-     * sentence of the doc block of the new API.
-     */
-    public static boolean noCommentsOnAdditions;
-
-    /**
-     * If set, then do not suggest comments for changes from the first
-     * sentence of the doc block of the new API.
-     */
-    public static boolean noCommentsOnChanges;
-
-    /**
-     * If set, then report changes in documentation (Javadoc comments)
-     * between the old and the new API. The default is that this is not set.
-     */
-    public static boolean reportDocChanges;
-
-    /**
-     * If set, then only report incompatible changes
-     * between the old and the new API. The default is that this is not set.
-     */
-    public static boolean incompatibleChangesOnly;
-
-    /**
-     * Define the prefix for HTML links to the existing set of Javadoc-
-     * generated documentation for the new API. E.g. For J2SE1.3.x, use
-     * "http://java.sun.com/j2se/1.3/docs/api/"
-     */
-    public static String newDocPrefix = "../";
-
-    /**
-     * Define the prefix for HTML links to the existing set of Javadoc-
-     * generated documentation for the old API.
-     */
-    public static String oldDocPrefix;
-
-    /**
-     * To generate statistical output, set this to true.
-     */
-    public static boolean doStats;
-
-    /**
-     * The destination directory for output files.
-     */
-    public static String outputDir;
-
-    /**
-     * The title used on the first page of the report. By default, this is
-     * &quot;API Differences Between &lt;name of old API&gt; and
-     * &lt;name of new API&gt;&quot;. It can be
-     * set by using the -doctitle option.
-     */
-    public static String docTitle;
-
-    /**
-     * The browser window title for the report. By default, this is
-     * &quot;API Differences Between &lt;name of old API&gt; and
-     * &lt;name of new API&gt;&quot;. It can be
-     * set by using the -windowtitle option.
-     */
-    public static String windowTitle;
-
     /**
      * The name of the file to which the top-level HTML file is written,
      * and also the name of the subdirectory where most of the HTML appears,
      * and also a prefix for the names of some of the files in that
      * subdirectory.
      */
-    static String reportFileName = "changes";
+    static final String reportFileName = "changes";
 
     /**
      * The suffix of the file to which the HTML output is currently being
      * written.
      */
-    static String reportFileExt = ".html";
+    static final String reportFileExt = ".html";
 
     /**
      * The file to which the HTML output is currently being written.
      */
-    static PrintWriter reportFile;
+    PrintWriter reportFile;
+
+    /**
+     * Opens the pages of the report instead of files, if set. The name of
+     * each page is the name of the file which it would be written to.
+     */
+    Function<String, PrintWriter> pageSink;
 
     /**
      * The object which represents the top of the tree of differences
      * between two APIs. It is only used indirectly when emitting a
      * navigation bar.
      */
-    static APIDiff apiDiff;
+    APIDiff apiDiff;
+
+    /**
+     * The context of the run which the report is generated for.
+     */
+    final JDiffContext ctx_;
 
     /**
      * The Comments object for existing comments.
@@ -151,9 +94,12 @@ public class HTMLReportGenerator {
     private Comments newComments_;
 
     /**
-     * Default constructor.
+     * Constructor.
+     *
+     * @param ctx the context of the run which the report is generated for
      */
-    public HTMLReportGenerator() {
+    public HTMLReportGenerator(JDiffContext ctx) {
+        ctx_ = ctx;
     }
 
     /**
@@ -163,7 +109,7 @@ public class HTMLReportGenerator {
      * Suggestions for where a browser should break the
      * text are provided with &lt;br> and &ltnobr> tags.
      */
-    public static void emitTypeWithParens(String type) {
+    public void emitTypeWithParens(String type) {
         emitTypeWithParens(type, true);
     }
 
@@ -172,7 +118,7 @@ public class HTMLReportGenerator {
      * Also surround it with parentheses too. Used to display methods'
      * parameters.
      */
-    public static void emitTypeWithParens(String type, boolean addBreaks) {
+    public void emitTypeWithParens(String type, boolean addBreaks) {
         if (type.compareTo("") == 0)
             reportFile.print("()");
         else {
@@ -200,7 +146,7 @@ public class HTMLReportGenerator {
      * Do not surround it with parentheses. Used to display methods' return
      * types and field types.
      */
-    public static void emitTypeWithNoParens(String type) {
+    public void emitTypeWithNoParens(String type) {
         if (type.compareTo("") != 0)
             reportFile.print("<code>" + type + "</code>");
     }
@@ -274,52 +220,128 @@ public class HTMLReportGenerator {
         return newComments_;
     }
 
+    /**
+     * Open a page of the report for writing, as a file unless
+     * {@link #pageSink} is set.
+     *
+     * @param fileName the name of the file for the page
+     */
+    PrintWriter openPage(String fileName) throws IOException {
+        ctx_.metrics.count(1);
+        if (pageSink != null)
+            return pageSink.apply(fileName);
+        return new PrintWriter(new FileOutputStream(fileName));
+    }
+
+    /**
+     * Return the name of the top-level HTML file without its suffix, which
+     * is also the name of the subdirectory where most of the HTML appears.
+     */
+    String fullReportFileName() {
+        if (ctx_.outputDir != null)
+            return ctx_.outputDir + JDiff.DIR_SEP + reportFileName;
+        return reportFileName;
+    }
+
     /**
      * Generate the report.
      */
     public void generate(APIComparator comp, Comments existingComments) {
-        String fullReportFileName = reportFileName;
-        if (outputDir != null)
-            fullReportFileName = outputDir + JDiff.DIR_SEP + reportFileName;
+        String fullReportFileName = fullReportFileName();
         System.out.println("JDiff: generating HTML report into the file '" + fullReportFileName + reportFileExt + "' and the subdirectory '" + fullReportFileName + "'");
-        // May be null if no comments file exists yet
-        existingComments_ = existingComments;
-        // Where the new comments will be placed
-        newComments_ = new Comments();
+        prepare(comp, existingComments);
         // Writing to multiple files, so make sure the subdirectory exists
         File opdir = new File(fullReportFileName);
         if (!opdir.mkdir() && !opdir.exists()) {
-            System.out.println("Error: could not create the subdirectory '" + fullReportFileName + "'");
-            System.exit(3);
+            throw new JDiffException("could not create the subdirectory '" + fullReportFileName + "'");
         }
 
         // Emit the documentation difference files
-        if (!Diff.noDocDiffs) {
+        if (!ctx_.diff.noDocDiffs) {
             // Documentation differences, one file per package
-            Diff.emitDocDiffs(fullReportFileName);
+            ctx_.metrics.start("doc diff pages");
+            ctx_.diff.emitDocDiffs(this);
+            ctx_.metrics.end();
+        }
+
+        ctx_.metrics.start("pages");
+        writeSummary(fullReportFileName);
+        writeChangedPackages();
+
+        // Now generate all the other files for multiple frames.
+        //
+        // The top-level changes.html frames file where everything starts.
+        String tln = fullReportFileName + reportFileExt;
+        // The file for the top-left frame.
+        String tlf = fullReportFileName + JDiff.DIR_SEP +
+                "jdiff_topleftframe" + reportFileExt;
+
+        HTMLFiles hf = new HTMLFiles(this);
+        hf.emitTopLevelFile(tln, apiDiff);
+        hf.emitTopLeftFile(tlf);
+        hf.emitHelp(fullReportFileName, apiDiff);
+        hf.emitStylesheet();
+        ctx_.metrics.end();
+
+        ctx_.metrics.start("indexes");
+        writeIndexes(fullReportFileName);
+        ctx_.metrics.end();
+
+        if (ctx_.doStats) {
+            // The file for the statistical report.
+            String sf = fullReportFileName + JDiff.DIR_SEP +
+                    "jdiff_statistics" + reportFileExt;
+            ctx_.metrics.start("statistics");
+            HTMLStatistics stats = new HTMLStatistics(this);
+            stats.emitStatistics(sf, apiDiff);
+            ctx_.metrics.end();
         }
+    }
 
-        // This is the top-level summary file, first in the right hand frame
-        // or linked at the start to if no frames are used.
+    /**
+     * Get ready to write the pages of the report for the differences found
+     * by a comparison.
+     */
+    void prepare(APIComparator comp, Comments existingComments) {
+        // May be null if no comments file exists yet
+        existingComments_ = existingComments;
+        // Where the new comments will be placed
+        newComments_ = new Comments();
+        apiDiff = comp.apiDiff;
+        if (ctx_.incompatibleChangesOnly) {
+            removeIncompatibleChanges(apiDiff);
+        }
+    }
+
+    /**
+     * Forget the comments which have been generated so far. The report
+     * server uses this, since it can write the same page many times.
+     */
+    void forgetNewComments() {
+        newComments_ = new Comments();
+    }
+
+    /**
+     * Write the top-level summary file, first in the right hand frame
+     * or linked at the start to if no frames are used.
+     */
+    void writeSummary(String fullReportFileName) {
         String changesSummaryName = fullReportFileName + JDiff.DIR_SEP +
                 reportFileName + "-summary" + reportFileExt;
-        apiDiff = comp.apiDiff;
-        try (FileOutputStream fos = new FileOutputStream(changesSummaryName);
-             PrintWriter writer = new PrintWriter(fos)
-        ) {
+        try (PrintWriter writer = openPage(changesSummaryName)) {
             reportFile = writer;
             writeStartHTMLHeader();
             // Write out the title in he HTML header
             String oldAPIName = "Old API";
-            if (APIDiff.oldAPIName_ != null)
-                oldAPIName = APIDiff.oldAPIName_;
+            if (apiDiff.oldAPIName_ != null)
+                oldAPIName = apiDiff.oldAPIName_;
             String newAPIName = "New API";
-            if (APIDiff.newAPIName_ != null)
-                newAPIName = APIDiff.newAPIName_;
-            if (windowTitle == null)
+            if (apiDiff.newAPIName_ != null)
+                newAPIName = apiDiff.newAPIName_;
+            if (ctx_.windowTitle == null)
                 writeHTMLTitle("API Differences between " + oldAPIName + " and " + newAPIName);
             else
-                writeHTMLTitle(windowTitle);
+                writeHTMLTitle(ctx_.windowTitle);
             writeStyleSheetRef();
             writeText("</HEAD>");
             writeText("<BODY>");
@@ -332,7 +354,7 @@ public class HTMLReportGenerator {
                     apiDiff.packagesChanged.size() != 0);
 
             // Write the title in the body with some formatting
-            if (docTitle == null) {
+            if (ctx_.docTitle == null) {
                 writeText("<center>");
                 writeText("<H1>API Differences</H1>");
                 writeText("</center>");
@@ -340,25 +362,44 @@ public class HTMLReportGenerator {
                 writeText("<H2>Between " + oldAPIName + " and " + newAPIName + "</H2>");
                 writeText("</center>");
             } else {
-                writeText(docTitle);
+                writeText(ctx_.docTitle);
             }
 
-            // Write the contents and the other files as well
+            // Write the contents
             writeReport(apiDiff);
             writeHTMLFooter();
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + changesSummaryName);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + changesSummaryName + ": " + e.getMessage(), e);
         }
+    }
 
-        // Now generate all the other files for multiple frames.
-        //
-        // The top-level changes.html frames file where everything starts.
-        String tln = fullReportFileName + reportFileExt;
-        // The file for the top-left frame.
-        String tlf = fullReportFileName + JDiff.DIR_SEP +
-                "jdiff_topleftframe" + reportFileExt;
+    /**
+     * Write a separate file for each changed package, and for each changed
+     * class and interface in it.
+     */
+    void writeChangedPackages() {
+        PackageDiff[] pkgDiffs = apiDiff.packagesChanged.toArray(new PackageDiff[0]);
+        long pages = pkgDiffs.length;
+        for (PackageDiff pkgDiff : pkgDiffs) {
+            pages += pkgDiff.classesChanged.size();
+        }
+        ctx_.progress.beginPages(pages);
+        for (int i = 0; i < pkgDiffs.length; i++) {
+            reportChangedPackage(pkgDiffs, i);
+            ctx_.progress.pageWritten();
+            ClassDiff[] classDiffs = pkgDiffs[i].classesChanged.toArray(ClassDiff.EMPTY_ARRAY);
+            for (int k = 0; k < classDiffs.length; k++) {
+                reportChangedClass(pkgDiffs[i].name_, classDiffs, k);
+                ctx_.progress.pageWritten();
+            }
+        }
+        ctx_.progress.end();
+    }
+
+    /**
+     * Write the indexes for the bottom-left frame.
+     */
+    void writeIndexes(String fullReportFileName) {
         // The default file for the bottom-left frame is the one with the
         // most information in it.
         String allDiffsIndexName = fullReportFileName + JDiff.DIR_SEP +
@@ -375,24 +416,10 @@ public class HTMLReportGenerator {
         String fieldsIndexName = fullReportFileName + JDiff.DIR_SEP +
                 "fields_index";
 
-        HTMLFiles hf = new HTMLFiles(this);
-        hf.emitTopLevelFile(tln, apiDiff);
-        hf.emitTopLeftFile(tlf);
-        hf.emitHelp(fullReportFileName, apiDiff);
-        hf.emitStylesheet();
-
         HTMLIndexes h = new HTMLIndexes(this);
         h.emitAllBottomLeftFiles(packagesIndexName, classesIndexName,
                 constructorsIndexName, methodsIndexName,
                 fieldsIndexName, allDiffsIndexName, apiDiff);
-
-        if (doStats) {
-            // The file for the statistical report.
-            String sf = fullReportFileName + JDiff.DIR_SEP +
-                    "jdiff_statistics" + reportFileExt;
-            HTMLStatistics stats = new HTMLStatistics(this);
-            stats.emitStatistics(sf, apiDiff);
-        }
     }
 
     /**
@@ -401,32 +428,29 @@ public class HTMLReportGenerator {
      * The top section describes all the packages added (with links) and
      * removed, and the changed packages section has links which takes you
      * to a section for each package. This pattern continues for classes and
-     * constructors, methods and fields.
+     * constructors, methods and fields. The files for the packages are
+     * written by {@link #writeChangedPackages}.
      */
     public void writeReport(APIDiff apiDiff) {
 
-        if (incompatibleChangesOnly) {
-            removeIncompatibleChanges(apiDiff);
-        }
-
         // Report packages which were removed in the new API
         if (apiDiff.packagesRemoved.size() != 0) {
             writeTableStart("Removed Packages", 2);
-            for (PackageAPI pkgAPI : apiDiff.packagesRemoved) {
+            for (DiffEntry pkgAPI : apiDiff.packagesRemoved) {
                 String pkgName = pkgAPI.name_;
                 if (trace) System.out.println("Package " + pkgName + " was removed.");
-                writePackageTableEntry(pkgName, 0, pkgAPI.doc_, false);
+                writePackageTableEntry(pkgName, 0, pkgAPI.getDoc(), false);
             }
             writeTableEnd();
         }
 
         // Report packages which were added in the new API
-        if (!incompatibleChangesOnly && apiDiff.packagesAdded.size() != 0) {
+        if (!ctx_.incompatibleChangesOnly && apiDiff.packagesAdded.size() != 0) {
             writeTableStart("Added Packages", 2);
-            for (PackageAPI pkgAPI : apiDiff.packagesAdded) {
+            for (DiffEntry pkgAPI : apiDiff.packagesAdded) {
                 String pkgName = pkgAPI.name_;
                 if (trace) System.out.println("Package " + pkgName + " was added.");
-                writePackageTableEntry(pkgName, 1, pkgAPI.doc_, false);
+                writePackageTableEntry(pkgName, 1, pkgAPI.getDoc(), false);
             }
             writeTableEnd();
         }
@@ -443,14 +467,7 @@ public class HTMLReportGenerator {
             }
             writeTableEnd();
             writeText("<!-- End of API section -->");
-
-            // Now emit a separate file for each changed package.
             writeText("<!-- Start of packages section -->");
-            PackageDiff[] pkgDiffs = new PackageDiff[apiDiff.packagesChanged.size()];
-            pkgDiffs = apiDiff.packagesChanged.toArray(pkgDiffs);
-            for (int i = 0; i < pkgDiffs.length; i++) {
-                reportChangedPackage(pkgDiffs, i);
-            }
         }
     }
 
@@ -484,6 +501,7 @@ public class HTMLReportGenerator {
     public void reportChangedPackage(PackageDiff[] pkgDiffs, int pkgIndex) {
         PackageDiff pkgDiff = pkgDiffs[pkgIndex];
         String pkgName = pkgDiff.name_;
+        Object event = JDiffEvents.beginPageRender();
 
         PrintWriter oldReportFile = reportFile;
         String localReportFileName = null;
@@ -491,24 +509,21 @@ public class HTMLReportGenerator {
             // Prefix package files with pkg_ because there may be a class
             // with the same name.
             localReportFileName = reportFileName + JDiff.DIR_SEP + "pkg_" + pkgName + reportFileExt;
-            if (outputDir != null)
-                localReportFileName = outputDir + JDiff.DIR_SEP + localReportFileName;
-            FileOutputStream fos = new FileOutputStream(localReportFileName);
-            reportFile = new PrintWriter(fos);
+            if (ctx_.outputDir != null)
+                localReportFileName = ctx_.outputDir + JDiff.DIR_SEP + localReportFileName;
+            reportFile = openPage(localReportFileName);
             writeStartHTMLHeader();
             writeHTMLTitle(pkgName);
             writeStyleSheetRef();
             writeText("</HEAD>");
             writeText("<BODY>");
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + localReportFileName);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + localReportFileName + ": " + e.getMessage(), e);
         }
 
         String pkgRef = pkgName;
         pkgRef = pkgRef.replace('.', '/');
-        pkgRef = newDocPrefix + pkgRef + "/package-summary";
+        pkgRef = ctx_.newDocPrefix + pkgRef + "/package-summary";
         // A link to the package in the new API
         String linkedPkgName = "<A HREF=\"" + pkgRef + ".html\" target=\"_top\"><tt>" + pkgName + "</tt></A>";
         String prevPkgRef = null;
@@ -529,24 +544,25 @@ public class HTMLReportGenerator {
                 pkgDiff.classesChanged.size() != 0);
 
         // Report changes in documentation
-        if (reportDocChanges && pkgDiff.documentationChange_ != null) {
+        if (ctx_.reportDocChanges && pkgDiff.documentationChange_ != null) {
             String pkgDocRef = pkgName + "/package-summary";
             pkgDocRef = pkgDocRef.replace('.', '/');
             String oldPkgRef = pkgDocRef;
             String newPkgRef = pkgDocRef;
-            if (oldDocPrefix != null)
-                oldPkgRef = oldDocPrefix + oldPkgRef;
+            if (ctx_.oldDocPrefix != null)
+                oldPkgRef = ctx_.oldDocPrefix + oldPkgRef;
             else
                 oldPkgRef = null;
-            newPkgRef = newDocPrefix + newPkgRef;
+            newPkgRef = ctx_.newDocPrefix + newPkgRef;
+            String documentationChange = pkgDiff.documentationChange_;
             if (oldPkgRef != null)
-                pkgDiff.documentationChange_ += "<A HREF=\"" + oldPkgRef +
+                documentationChange += "<A HREF=\"" + oldPkgRef +
                         ".html#package_description\" target=\"_self\"><tt>old</tt></A> to ";
             else
-                pkgDiff.documentationChange_ += "<tt>old</tt> to ";
-            pkgDiff.documentationChange_ += "<A HREF=\"" + newPkgRef +
+                documentationChange += "<tt>old</tt> to ";
+            documentationChange += "<A HREF=\"" + newPkgRef +
                     ".html#package_description\" target=\"_self\"><tt>new</tt></A>. ";
-            writeText(pkgDiff.documentationChange_);
+            writeText(documentationChange);
         }
 
         // Report classes which were removed in the new API
@@ -554,9 +570,9 @@ public class HTMLReportGenerator {
             // Determine the title for this section
             boolean hasClasses = false;
             boolean hasInterfaces = false;
-            Iterator<ClassAPI> iter = pkgDiff.classesRemoved.iterator();
+            Iterator<DiffEntry> iter = pkgDiff.classesRemoved.iterator();
             while (iter.hasNext()) {
-                ClassAPI classAPI = (iter.next());
+                DiffEntry classAPI = (iter.next());
                 if (classAPI.isInterface_)
                     hasInterfaces = true;
                 else
@@ -571,22 +587,22 @@ public class HTMLReportGenerator {
             // Emit the table entries
             iter = pkgDiff.classesRemoved.iterator();
             while (iter.hasNext()) {
-                ClassAPI classAPI = (iter.next());
+                DiffEntry classAPI = (iter.next());
                 String className = classAPI.name_;
                 if (trace) System.out.println("Class/Interface " + className + " was removed.");
-                writeClassTableEntry(pkgName, className, 0, classAPI.isInterface_, classAPI.doc_, false);
+                writeClassTableEntry(pkgName, className, 0, classAPI.isInterface_, classAPI.getDoc(), false);
             }
             writeTableEnd();
         }
 
         // Report classes which were added in the new API
-        if (!incompatibleChangesOnly && pkgDiff.classesAdded.size() != 0) {
+        if (!ctx_.incompatibleChangesOnly && pkgDiff.classesAdded.size() != 0) {
             // Determine the title for this section
             boolean hasClasses = false;
             boolean hasInterfaces = false;
-            Iterator<ClassAPI> iter = pkgDiff.classesAdded.iterator();
+            Iterator<DiffEntry> iter = pkgDiff.classesAdded.iterator();
             while (iter.hasNext()) {
-                ClassAPI classAPI = (iter.next());
+                DiffEntry classAPI = (iter.next());
                 if (classAPI.isInterface_)
                     hasInterfaces = true;
                 else
@@ -601,10 +617,10 @@ public class HTMLReportGenerator {
             // Emit the table entries
             iter = pkgDiff.classesAdded.iterator();
             while (iter.hasNext()) {
-                ClassAPI classAPI = (iter.next());
+                DiffEntry classAPI = (iter.next());
                 String className = classAPI.name_;
                 if (trace) System.out.println("Class/Interface " + className + " was added.");
-                writeClassTableEntry(pkgName, className, 1, classAPI.isInterface_, classAPI.doc_, false);
+                writeClassTableEntry(pkgName, className, 1, classAPI.isInterface_, classAPI.getDoc(), false);
             }
             writeTableEnd();
         }
@@ -635,17 +651,13 @@ public class HTMLReportGenerator {
                 writeClassTableEntry(pkgName, className, 2, classDiff.isInterface_, null, false);
             }
             writeTableEnd();
-            // Now emit a separate file for each changed class and interface.
-            ClassDiff[] classDiffs = pkgDiff.classesChanged.toArray(ClassDiff.EMPTY_ARRAY);
-            for (int k = 0; k < classDiffs.length; k++) {
-                reportChangedClass(pkgName, classDiffs, k);
-            }
         }
 
         writeSectionFooter(pkgName, prevPkgRef, nextPkgRef, null, 1);
         writeHTMLFooter();
         reportFile.close();
         reportFile = oldReportFile;
+        JDiffEvents.endPackagePage(event, pkgDiff);
     }
 
     /**
@@ -654,24 +666,22 @@ public class HTMLReportGenerator {
     public void reportChangedClass(String pkgName, ClassDiff[] classDiffs, int classIndex) {
         ClassDiff classDiff = classDiffs[classIndex];
         String className = classDiff.name_;
+        Object event = JDiffEvents.beginPageRender();
 
         PrintWriter oldReportFile = reportFile;
         String localReportFileName = null;
         try {
             localReportFileName = reportFileName + JDiff.DIR_SEP + pkgName + "." + className + reportFileExt;
-            if (outputDir != null)
-                localReportFileName = outputDir + JDiff.DIR_SEP + localReportFileName;
-            FileOutputStream fos = new FileOutputStream(localReportFileName);
-            reportFile = new PrintWriter(fos);
+            if (ctx_.outputDir != null)
+                localReportFileName = ctx_.outputDir + JDiff.DIR_SEP + localReportFileName;
+            reportFile = openPage(localReportFileName);
             writeStartHTMLHeader();
             writeHTMLTitle(pkgName + "." + className);
             writeStyleSheetRef();
             writeText("</HEAD>");
             writeText("<BODY>");
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + localReportFileName);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + localReportFileName + ": " + e.getMessage(), e);
         }
 
         String classRef = pkgName + "." + className;
@@ -679,9 +689,9 @@ public class HTMLReportGenerator {
         if (className.indexOf('.') != -1) {
             classRef = pkgName + ".";
             classRef = classRef.replace('.', '/');
-            classRef = newDocPrefix + classRef + className;
+            classRef = ctx_.newDocPrefix + classRef + className;
         } else {
-            classRef = newDocPrefix + classRef;
+            classRef = ctx_.newDocPrefix + classRef;
         }
         // A link to the class in the new API
         String linkedClassName = "<A HREF=\"" + classRef + ".html\" target=\"_top\"><tt>" + className + "</tt></A>";
@@ -718,27 +728,28 @@ public class HTMLReportGenerator {
             writeText("<p><font size=\"+1\">" + classDiff.inheritanceChange_ + "</font>");
 
         // Report changes in documentation
-        if (reportDocChanges && classDiff.documentationChange_ != null) {
+        if (ctx_.reportDocChanges && classDiff.documentationChange_ != null) {
             String oldClassRef = null;
-            if (oldDocPrefix != null) {
+            if (ctx_.oldDocPrefix != null) {
                 oldClassRef = pkgName + "." + className;
                 oldClassRef = oldClassRef.replace('.', '/');
                 if (className.indexOf('.') != -1) {
                     oldClassRef = pkgName + ".";
                     oldClassRef = oldClassRef.replace('.', '/');
-                    oldClassRef = oldDocPrefix + oldClassRef + className;
+                    oldClassRef = ctx_.oldDocPrefix + oldClassRef + className;
                 } else {
-                    oldClassRef = oldDocPrefix + oldClassRef;
+                    oldClassRef = ctx_.oldDocPrefix + oldClassRef;
                 }
             }
-            if (oldDocPrefix != null)
-                classDiff.documentationChange_ += "<A HREF=\"" + oldClassRef +
+            String documentationChange = classDiff.documentationChange_;
+            if (ctx_.oldDocPrefix != null)
+                documentationChange += "<A HREF=\"" + oldClassRef +
                         ".html\" target=\"_self\"><tt>old</tt></A> to ";
             else
-                classDiff.documentationChange_ += "<tt>old</tt> to ";
-            classDiff.documentationChange_ += "<A HREF=\"" + classRef +
+                documentationChange += "<tt>old</tt> to ";
+            documentationChange += "<A HREF=\"" + classRef +
                     ".html\" target=\"_self\"><tt>new</tt></A>. ";
-            writeText(classDiff.documentationChange_);
+            writeText(documentationChange);
         }
 
         if (classDiff.modifiersChange_ != null)
@@ -752,6 +763,7 @@ public class HTMLReportGenerator {
         writeHTMLFooter();
         reportFile.close();
         reportFile = oldReportFile;
+        JDiffEvents.endClassPage(event, pkgName, classDiff);
     }
 
     /**
@@ -763,27 +775,27 @@ public class HTMLReportGenerator {
         // Report ctors which were removed in the new API
         if (classDiff.ctorsRemoved.size() != 0) {
             writeTableStart("Removed Constructors", 2);
-            for (ConstructorAPI ctorAPI : classDiff.ctorsRemoved) {
+            for (DiffEntry ctorAPI : classDiff.ctorsRemoved) {
                 String ctorType = ctorAPI.type_;
                 if (ctorType.compareTo("void") == 0)
                     ctorType = "";
                 String id = className + "(" + ctorType + ")";
                 if (trace) System.out.println("Constructor " + id + " was removed.");
-                writeCtorTableEntry(pkgName, className, ctorType, 0, ctorAPI.doc_, false);
+                writeCtorTableEntry(pkgName, className, ctorType, 0, ctorAPI.getDoc(), false);
             }
             writeTableEnd();
         }
 
         // Report ctors which were added in the new API
-        if (!incompatibleChangesOnly && classDiff.ctorsAdded.size() != 0) {
+        if (!ctx_.incompatibleChangesOnly && classDiff.ctorsAdded.size() != 0) {
             writeTableStart("Added Constructors", 2);
-            for (ConstructorAPI ctorAPI : classDiff.ctorsAdded) {
+            for (DiffEntry ctorAPI : classDiff.ctorsAdded) {
                 String ctorType = ctorAPI.type_;
                 if (ctorType.compareTo("void") == 0)
                     ctorType = "";
                 String id = className + "(" + ctorType + ")";
                 if (trace) System.out.println("Constructor " + id + " was added.");
-                writeCtorTableEntry(pkgName, className, ctorType, 1, ctorAPI.doc_, false);
+                writeCtorTableEntry(pkgName, className, ctorType, 1, ctorAPI.getDoc(), false);
             }
             writeTableEnd();
         }
@@ -812,21 +824,21 @@ public class HTMLReportGenerator {
         // Report methods which were removed in the new API
         if (classDiff.methodsRemoved.size() != 0) {
             writeTableStart("Removed Methods", 2);
-            for (MethodAPI methodAPI : classDiff.methodsRemoved) {
-                String methodName = methodAPI.name_ + "(" + methodAPI.getSignature() + ")";
+            for (DiffEntry methodAPI : classDiff.methodsRemoved) {
+                String methodName = methodAPI.name_ + "(" + methodAPI.signature_ + ")";
                 if (trace) System.out.println("Method " + methodName + " was removed.");
-                writeMethodTableEntry(pkgName, className, methodAPI, 0, methodAPI.doc_, false);
+                writeMethodTableEntry(pkgName, className, methodAPI, 0, methodAPI.getDoc(), false);
             }
             writeTableEnd();
         }
 
         // Report methods which were added in the new API
-        if (!incompatibleChangesOnly && classDiff.methodsAdded.size() != 0) {
+        if (!ctx_.incompatibleChangesOnly && classDiff.methodsAdded.size() != 0) {
             writeTableStart("Added Methods", 2);
-            for (MethodAPI methodAPI : classDiff.methodsAdded) {
-                String methodName = methodAPI.name_ + "(" + methodAPI.getSignature() + ")";
+            for (DiffEntry methodAPI : classDiff.methodsAdded) {
+                String methodName = methodAPI.name_ + "(" + methodAPI.signature_ + ")";
                 if (trace) System.out.println("Method " + methodName + " was added.");
-                writeMethodTableEntry(pkgName, className, methodAPI, 1, methodAPI.doc_, false);
+                writeMethodTableEntry(pkgName, className, methodAPI, 1, methodAPI.getDoc(), false);
             }
             writeTableEnd();
         }
@@ -853,21 +865,21 @@ public class HTMLReportGenerator {
         // Report fields which were removed in the new API
         if (classDiff.fieldsRemoved.size() != 0) {
             writeTableStart("Removed Fields", 2);
-            for (FieldAPI fieldAPI : classDiff.fieldsRemoved) {
+            for (DiffEntry fieldAPI : classDiff.fieldsRemoved) {
                 String fieldName = fieldAPI.name_;
                 if (trace) System.out.println("Field " + fieldName + " was removed.");
-                writeFieldTableEntry(pkgName, className, fieldAPI, 0, fieldAPI.doc_, false);
+                writeFieldTableEntry(pkgName, className, fieldAPI, 0, fieldAPI.getDoc(), false);
             }
             writeTableEnd();
         }
 
         // Report fields which were added in the new API
-        if (!incompatibleChangesOnly && classDiff.fieldsAdded.size() != 0) {
+        if (!ctx_.incompatibleChangesOnly && classDiff.fieldsAdded.size() != 0) {
             writeTableStart("Added Fields", 2);
-            for (FieldAPI fieldAPI : classDiff.fieldsAdded) {
+            for (DiffEntry fieldAPI : classDiff.fieldsAdded) {
                 String fieldName = fieldAPI.name_;
                 if (trace) System.out.println("Field " + fieldName + " was added.");
-                writeFieldTableEntry(pkgName, className, fieldAPI, 1, fieldAPI.doc_, false);
+                writeFieldTableEntry(pkgName, className, fieldAPI, 1, fieldAPI.getDoc(), false);
             }
             writeTableEnd();
         }
@@ -906,10 +918,10 @@ public class HTMLReportGenerator {
      * Write the start of the HTML header.
      */
     public void writeStartHTMLHeader(boolean addDate) {
-        writeText("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.0 Frameset//EN\"\"" + RootDocToXML.baseURI + "/TR/REC-html40/frameset.dtd\">");
+        writeText("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.0 Frameset//EN\"\"" + ctx_.baseURI + "/TR/REC-html40/frameset.dtd\">");
         writeText("<HTML>");
         writeText("<HEAD>");
-        JDiff.addCharset(reportFile);
+        JDiff.addCharset(ctx_, reportFile);
         writeText("<meta name=\"generator\" content=\"JDiff v" + JDiff.version + "\">");
         writeText("<!-- Generated by the JDiff Javadoc doclet -->");
         writeText("<!-- (" + JDiff.jDiffLocation + ") -->");
@@ -1043,23 +1055,23 @@ public class HTMLReportGenerator {
 
         // Always have a link to the Javadoc files
         if (atOverview) {
-            reportFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + newDocPrefix + "index.html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + APIDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
+            reportFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + ctx_.newDocPrefix + "index.html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + apiDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
         } else if (atPackage) {
             String pkgRef = pkgName;
             pkgRef = pkgRef.replace('.', '/');
-            pkgRef = newDocPrefix + pkgRef + "/package-summary";
-            reportFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + pkgRef + ".html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + APIDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
+            pkgRef = ctx_.newDocPrefix + pkgRef + "/package-summary";
+            reportFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + pkgRef + ".html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + apiDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
         } else if (atClass) {
             String classRef = pkgName + "." + className;
             classRef = classRef.replace('.', '/');
             if (className.indexOf('.') != -1) {
                 classRef = pkgName + ".";
                 classRef = classRef.replace('.', '/');
-                classRef = newDocPrefix + classRef + className;
+                classRef = ctx_.newDocPrefix + classRef + className;
             } else {
-                classRef = newDocPrefix + classRef;
+                classRef = ctx_.newDocPrefix + classRef;
             }
-            reportFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + classRef + ".html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + APIDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
+            reportFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + classRef + ".html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + apiDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
         }
 
         if (atOverview) {
@@ -1080,15 +1092,15 @@ public class HTMLReportGenerator {
             reportFile.println("      <TD BGCOLOR=\"#FFFFFF\" CLASS=\"NavBarCell1Rev\"> &nbsp;<FONT CLASS=\"NavBarFont1Rev\"><B>Class</B></FONT>&nbsp;</TD>");
         }
 
-        if (!Diff.noDocDiffs) {
+        if (!ctx_.diff.noDocDiffs) {
             if (atPackage) {
-                String id = Diff.firstDiffOutput.get(pkgName + "!package");
+                String id = ctx_.diff.firstDiffOutput.get(pkgName + "!package");
                 if (id != null)
                     reportFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + Diff.diffFileName + "index" + reportFileExt + "#" + id + "\"><FONT CLASS=\"NavBarFont1\"><B>Text Changes</B></FONT></A>&nbsp;</TD>");
                 else
                     reportFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <FONT CLASS=\"NavBarFont1\">Text Changes</FONT>&nbsp;</TD>");
             } else if (atClass) {
-                String id = Diff.firstDiffOutput.get(pkgName + "." + className + "!class");
+                String id = ctx_.diff.firstDiffOutput.get(pkgName + "." + className + "!class");
                 if (id != null)
                     reportFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + Diff.diffFileName + "index" + reportFileExt + "#" + id + "\"><FONT CLASS=\"NavBarFont1\"><B>Text Changes</B></FONT></A>&nbsp;</TD>");
                 else
@@ -1098,7 +1110,7 @@ public class HTMLReportGenerator {
             }
         }
 
-        if (doStats) {
+        if (ctx_.doStats) {
             reportFile.println("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"jdiff_statistics" + reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Statistics</B></FONT></A>&nbsp;</TD>");
         }
 
@@ -1261,7 +1273,7 @@ public class HTMLReportGenerator {
         }
         String shownPkgName = makeTwoRows(pkgName);
         if (linkType == 0) {
-            if (oldDocPrefix == null) {
+            if (ctx_.oldDocPrefix == null) {
                 // No link
                 reportFile.print("  " + shownPkgName);
             } else {
@@ -1274,9 +1286,9 @@ public class HTMLReportGenerator {
             String pkgRef = pkgName;
             pkgRef = pkgRef.replace('.', '/');
             if (useOld)
-                pkgRef = oldDocPrefix + pkgRef + "/package-summary";
+                pkgRef = ctx_.oldDocPrefix + pkgRef + "/package-summary";
             else
-                pkgRef = newDocPrefix + pkgRef + "/package-summary";
+                pkgRef = ctx_.newDocPrefix + pkgRef + "/package-summary";
             reportFile.println("  <nobr><A HREF=\"" + pkgRef + ".html\" target=\"_top\"><tt>" + shownPkgName + "</tt></A></nobr>");
         } else if (linkType == 2) {
             reportFile.println("  <nobr><A HREF=\"pkg_" + pkgName + reportFileExt + "\">" + shownPkgName + "</A></nobr>");
@@ -1304,7 +1316,7 @@ public class HTMLReportGenerator {
         String fqName = pkgName + "." + className;
         String shownClassName = makeTwoRows(className);
         if (linkType == 0) {
-            if (oldDocPrefix == null) {
+            if (ctx_.oldDocPrefix == null) {
                 // No link
                 if (isInterface)
                     reportFile.println("  <I>" + shownClassName + "</I>");
@@ -1323,15 +1335,15 @@ public class HTMLReportGenerator {
                 classRef = pkgName + ".";
                 classRef = classRef.replace('.', '/');
                 if (useOld)
-                    classRef = oldDocPrefix + classRef + className;
+                    classRef = ctx_.oldDocPrefix + classRef + className;
                 else
-                    classRef = newDocPrefix + classRef + className;
+                    classRef = ctx_.newDocPrefix + classRef + className;
             } else {
                 classRef = classRef.replace('.', '/');
                 if (useOld)
-                    classRef = oldDocPrefix + classRef;
+                    classRef = ctx_.oldDocPrefix + classRef;
                 else
-                    classRef = newDocPrefix + classRef;
+                    classRef = ctx_.newDocPrefix + classRef;
             }
             reportFile.print("  <nobr><A HREF=\"" + classRef + ".html\" target=\"_top\"><tt>");
             if (isInterface)
@@ -1375,7 +1387,7 @@ public class HTMLReportGenerator {
         }
         String shortType = simpleName(type);
         if (linkType == 0) {
-            if (oldDocPrefix == null) {
+            if (ctx_.oldDocPrefix == null) {
                 // No link
                 reportFile.print("  <nobr>" + shownClassName);
                 emitTypeWithParens(shortType);
@@ -1394,16 +1406,16 @@ public class HTMLReportGenerator {
                 memberRef = memberRef.replace('.', '/');
                 if (useOld) {
                     // oldDocPrefix is non-null at this point
-                    memberRef = oldDocPrefix + memberRef + className;
+                    memberRef = ctx_.oldDocPrefix + memberRef + className;
                 } else {
-                    memberRef = newDocPrefix + memberRef + className;
+                    memberRef = ctx_.newDocPrefix + memberRef + className;
                 }
             } else {
                 if (useOld) {
                     // oldDocPrefix is non-null at this point
-                    memberRef = oldDocPrefix + memberRef;
+                    memberRef = ctx_.oldDocPrefix + memberRef;
                 } else {
-                    memberRef = newDocPrefix + memberRef;
+                    memberRef = ctx_.newDocPrefix + memberRef;
                 }
             }
             reportFile.print("  <nobr><A HREF=\"" + memberRef + ".html#" + className +
@@ -1437,9 +1449,9 @@ public class HTMLReportGenerator {
         if (className.indexOf('.') != -1) {
             memberRef = pkgName + ".";
             memberRef = memberRef.replace('.', '/');
-            memberRef = newDocPrefix + memberRef + className;
+            memberRef = ctx_.newDocPrefix + memberRef + className;
         } else {
-            memberRef = newDocPrefix + memberRef;
+            memberRef = ctx_.newDocPrefix + memberRef;
         }
         String newType = memberDiff.newType_;
         if (newType.compareTo("void") == 0)
@@ -1454,35 +1466,36 @@ public class HTMLReportGenerator {
         reportFile.println("  </TD>");
 
         // Report changes in documentation
-        if (reportDocChanges && memberDiff.documentationChange_ != null) {
+        String documentationChange = memberDiff.documentationChange_;
+        if (ctx_.reportDocChanges && documentationChange != null) {
             String oldMemberRef = null;
             String oldType = null;
-            if (oldDocPrefix != null) {
+            if (ctx_.oldDocPrefix != null) {
                 oldMemberRef = pkgName + "." + className;
                 oldMemberRef = oldMemberRef.replace('.', '/');
                 if (className.indexOf('.') != -1) {
                     oldMemberRef = pkgName + ".";
                     oldMemberRef = oldMemberRef.replace('.', '/');
-                    oldMemberRef = oldDocPrefix + oldMemberRef + className;
+                    oldMemberRef = ctx_.oldDocPrefix + oldMemberRef + className;
                 } else {
-                    oldMemberRef = oldDocPrefix + oldMemberRef;
+                    oldMemberRef = ctx_.oldDocPrefix + oldMemberRef;
                 }
                 oldType = memberDiff.oldType_;
                 if (oldType.compareTo("void") == 0)
                     oldType = "";
             }
-            if (oldDocPrefix != null)
-                memberDiff.documentationChange_ += "<A HREF=\"" +
+            if (ctx_.oldDocPrefix != null)
+                documentationChange += "<A HREF=\"" +
                         oldMemberRef + ".html#" + className + "(" + oldType +
                         ")\" target=\"_self\"><tt>old</tt></A> to ";
             else
-                memberDiff.documentationChange_ += "<tt>old</tt> to ";
-            memberDiff.documentationChange_ += "<A HREF=\"" + memberRef +
+                documentationChange += "<tt>old</tt> to ";
+            documentationChange += "<A HREF=\"" + memberRef +
                     ".html#" + className + "(" + newType +
                     ")\" target=\"_self\"><tt>new</tt></A>.<br>";
         }
 
-        emitChanges(memberDiff, 0);
+        emitChanges(memberDiff, 0, documentationChange);
         emitComment(commentID, null, 2);
 
         reportFile.println("</TR>");
@@ -1494,10 +1507,10 @@ public class HTMLReportGenerator {
      * linkType: 0 - no link by default, 1 = link to Javadoc HTML file
      */
     public void writeMethodTableEntry(String pkgName, String className,
-                                      MethodAPI methodAPI, int linkType,
+                                      DiffEntry methodAPI, int linkType,
                                       String possibleComment, boolean useOld) {
         String fqName = pkgName + "." + className;
-        String signature = methodAPI.getSignature();
+        String signature = methodAPI.signature_;
         String methodName = methodAPI.name_;
         String lt = "removed";
         if (linkType == 1)
@@ -1511,10 +1524,10 @@ public class HTMLReportGenerator {
         if (signature.compareTo("void") == 0)
             signature = "";
         String shortSignature = simpleName(signature);
-        String returnType = methodAPI.returnType_;
+        String returnType = methodAPI.type_;
         String shortReturnType = simpleName(returnType);
         if (linkType == 0) {
-            if (oldDocPrefix == null) {
+            if (ctx_.oldDocPrefix == null) {
                 // No link
                 reportFile.print("  <nobr>");
                 emitType(shortReturnType);
@@ -1535,16 +1548,16 @@ public class HTMLReportGenerator {
                 memberRef = memberRef.replace('.', '/');
                 if (useOld) {
                     // oldDocPrefix is non-null at this point
-                    memberRef = oldDocPrefix + memberRef + className;
+                    memberRef = ctx_.oldDocPrefix + memberRef + className;
                 } else {
-                    memberRef = newDocPrefix + memberRef + className;
+                    memberRef = ctx_.newDocPrefix + memberRef + className;
                 }
             } else {
                 if (useOld) {
                     // oldDocPrefix is non-null at this point
-                    memberRef = oldDocPrefix + memberRef;
+                    memberRef = ctx_.oldDocPrefix + memberRef;
                 } else {
-                    memberRef = newDocPrefix + memberRef;
+                    memberRef = ctx_.newDocPrefix + memberRef;
                 }
             }
             reportFile.print("  <nobr>");
@@ -1581,9 +1594,9 @@ public class HTMLReportGenerator {
         if (className.indexOf('.') != -1) {
             memberRef = pkgName + ".";
             memberRef = memberRef.replace('.', '/');
-            memberRef = newDocPrefix + memberRef + className;
+            memberRef = ctx_.newDocPrefix + memberRef + className;
         } else {
-            memberRef = newDocPrefix + memberRef;
+            memberRef = ctx_.newDocPrefix + memberRef;
         }
         // Javadoc generated HTML has no named anchors for methods
         // inherited from other classes, so link to the defining class' method.
@@ -1593,7 +1606,7 @@ public class HTMLReportGenerator {
                 memberDiff.modifiersChange_.contains("but is now inherited from")) {
             memberRef = memberDiff.inheritedFrom_;
             memberRef = memberRef.replace('.', '/');
-            memberRef = newDocPrefix + memberRef;
+            memberRef = ctx_.newDocPrefix + memberRef;
         }
 
         String newReturnType = memberDiff.newType_;
@@ -1610,33 +1623,34 @@ public class HTMLReportGenerator {
         reportFile.println("  </TD>");
 
         // Report changes in documentation
-        if (reportDocChanges && memberDiff.documentationChange_ != null) {
+        String documentationChange = memberDiff.documentationChange_;
+        if (ctx_.reportDocChanges && documentationChange != null) {
             String oldMemberRef = null;
             String oldSignature = null;
-            if (oldDocPrefix != null) {
+            if (ctx_.oldDocPrefix != null) {
                 oldMemberRef = pkgName + "." + className;
                 oldMemberRef = oldMemberRef.replace('.', '/');
                 if (className.indexOf('.') != -1) {
                     oldMemberRef = pkgName + ".";
                     oldMemberRef = oldMemberRef.replace('.', '/');
-                    oldMemberRef = oldDocPrefix + oldMemberRef + className;
+                    oldMemberRef = ctx_.oldDocPrefix + oldMemberRef + className;
                 } else {
-                    oldMemberRef = oldDocPrefix + oldMemberRef;
+                    oldMemberRef = ctx_.oldDocPrefix + oldMemberRef;
                 }
                 oldSignature = memberDiff.oldSignature_;
             }
-            if (oldDocPrefix != null)
-                memberDiff.documentationChange_ += "<A HREF=\"" +
+            if (ctx_.oldDocPrefix != null)
+                documentationChange += "<A HREF=\"" +
                         oldMemberRef + ".html#" + memberName + "(" +
                         oldSignature + ")\" target=\"_self\"><tt>old</tt></A> to ";
             else
-                memberDiff.documentationChange_ += "<tt>old</tt> to ";
-            memberDiff.documentationChange_ += "<A HREF=\"" + memberRef +
+                documentationChange += "<tt>old</tt> to ";
+            documentationChange += "<A HREF=\"" + memberRef +
                     ".html#" + memberName + "(" + newSignature +
                     ")\" target=\"_self\"><tt>new</tt></A>.<br>";
         }
 
-        emitChanges(memberDiff, 1);
+        emitChanges(memberDiff, 1, documentationChange);
         // Get the comment from the parent class if more appropriate
         if (memberDiff.modifiersChange_ != null) {
             int parentIdx = memberDiff.modifiersChange_.indexOf("now inherited from");
@@ -1657,7 +1671,7 @@ public class HTMLReportGenerator {
      * linkType: 0 - no link by default, 1 = link to Javadoc HTML file
      */
     public void writeFieldTableEntry(String pkgName, String className,
-                                     FieldAPI fieldAPI, int linkType,
+                                     DiffEntry fieldAPI, int linkType,
                                      String possibleComment, boolean useOld) {
         String fqName = pkgName + "." + className;
         // Fields can only appear in one table, so no need to specify _added etc
@@ -1675,7 +1689,7 @@ public class HTMLReportGenerator {
             fieldType = "";
         String shortFieldType = simpleName(fieldType);
         if (linkType == 0) {
-            if (oldDocPrefix == null) {
+            if (ctx_.oldDocPrefix == null) {
                 // No link.
                 reportFile.print("  ");
                 emitType(shortFieldType);
@@ -1693,14 +1707,14 @@ public class HTMLReportGenerator {
                 memberRef = pkgName + ".";
                 memberRef = memberRef.replace('.', '/');
                 if (useOld)
-                    memberRef = oldDocPrefix + memberRef + className;
+                    memberRef = ctx_.oldDocPrefix + memberRef + className;
                 else
-                    memberRef = newDocPrefix + memberRef + className;
+                    memberRef = ctx_.newDocPrefix + memberRef + className;
             } else {
                 if (useOld)
-                    memberRef = oldDocPrefix + memberRef;
+                    memberRef = ctx_.oldDocPrefix + memberRef;
                 else
-                    memberRef = newDocPrefix + memberRef;
+                    memberRef = ctx_.newDocPrefix + memberRef;
             }
             reportFile.print("  <nobr>");
             emitType(shortFieldType);
@@ -1734,9 +1748,9 @@ public class HTMLReportGenerator {
         if (className.indexOf('.') != -1) {
             memberRef = pkgName + ".";
             memberRef = memberRef.replace('.', '/');
-            memberRef = newDocPrefix + memberRef + className;
+            memberRef = ctx_.newDocPrefix + memberRef + className;
         } else {
-            memberRef = newDocPrefix + memberRef;
+            memberRef = ctx_.newDocPrefix + memberRef;
         }
         // Javadoc generated HTML has no named anchors for fields
         // inherited from other classes, so link to the defining class' field.
@@ -1746,7 +1760,7 @@ public class HTMLReportGenerator {
                 memberDiff.modifiersChange_.contains("but is now inherited from")) {
             memberRef = memberDiff.inheritedFrom_;
             memberRef = memberRef.replace('.', '/');
-            memberRef = newDocPrefix + memberRef;
+            memberRef = ctx_.newDocPrefix + memberRef;
         }
 
         String newType = memberDiff.newType_;
@@ -1760,29 +1774,30 @@ public class HTMLReportGenerator {
         reportFile.println("  </TD>");
 
         // Report changes in documentation
-        if (reportDocChanges && memberDiff.documentationChange_ != null) {
+        String documentationChange = memberDiff.documentationChange_;
+        if (ctx_.reportDocChanges && documentationChange != null) {
             String oldMemberRef = null;
-            if (oldDocPrefix != null) {
+            if (ctx_.oldDocPrefix != null) {
                 oldMemberRef = pkgName + "." + className;
                 oldMemberRef = oldMemberRef.replace('.', '/');
                 if (className.indexOf('.') != -1) {
                     oldMemberRef = pkgName + ".";
                     oldMemberRef = oldMemberRef.replace('.', '/');
-                    oldMemberRef = oldDocPrefix + oldMemberRef + className;
+                    oldMemberRef = ctx_.oldDocPrefix + oldMemberRef + className;
                 } else {
-                    oldMemberRef = oldDocPrefix + oldMemberRef;
+                    oldMemberRef = ctx_.oldDocPrefix + oldMemberRef;
                 }
             }
-            if (oldDocPrefix != null)
-                memberDiff.documentationChange_ += "<A HREF=\"" +
+            if (ctx_.oldDocPrefix != null)
+                documentationChange += "<A HREF=\"" +
                         oldMemberRef + ".html#" + memberName + "\" target=\"_self\"><tt>old</tt></A> to ";
             else
-                memberDiff.documentationChange_ += "<tt>old</tt> to ";
-            memberDiff.documentationChange_ += "<A HREF=\"" + memberRef +
+                documentationChange += "<tt>old</tt> to ";
+            documentationChange += "<A HREF=\"" + memberRef +
                     ".html#" + memberName + "\" target=\"_self\"><tt>new</tt></A>.<br>";
         }
 
-        emitChanges(memberDiff, 2);
+        emitChanges(memberDiff, 2, documentationChange);
         // Get the comment from the parent class if more appropriate
         if (memberDiff.modifiersChange_ != null) {
             int parentIdx = memberDiff.modifiersChange_.indexOf("now inherited from");
@@ -1802,6 +1817,18 @@ public class HTMLReportGenerator {
      * @param memberType 0 = ctor, 1 = method, 2 = field
      */
     public void emitChanges(MemberDiff memberDiff, int memberType) {
+        emitChanges(memberDiff, memberType, memberDiff.documentationChange_);
+    }
+
+    /**
+     * Emit all changes associated with a MemberDiff as an entry in a table,
+     * with the given description of the change in documentation.
+     *
+     * @param memberType          0 = ctor, 1 = method, 2 = field
+     * @param documentationChange the change in documentation, with links
+     *                            to the old and new documentation added
+     */
+    void emitChanges(MemberDiff memberDiff, int memberType, String documentationChange) {
         reportFile.println("  <TD VALIGN=\"TOP\" WIDTH=\"30%\">");
         boolean hasContent = false;
         // The type or return type changed
@@ -1927,10 +1954,10 @@ public class HTMLReportGenerator {
             hasContent = true;
         }
 
-        if (memberDiff.documentationChange_ != null) {
+        if (documentationChange != null) {
             if (hasContent)
                 reportFile.print(" ");
-            reportFile.print(memberDiff.documentationChange_);
+            reportFile.print(documentationChange);
             hasContent = true;
         }
 
@@ -1991,27 +2018,29 @@ public class HTMLReportGenerator {
      */
     public void emitComment(String commentID, String possibleComment,
                             int linkType) {
-        if (noCommentsOnRemovals && linkType == 0) {
+        if (ctx_.noCommentsOnRemovals && linkType == 0) {
             reportFile.println("  <TD>&nbsp;</TD>");
             return;
         }
-        if (noCommentsOnAdditions && linkType == 1) {
+        if (ctx_.noCommentsOnAdditions && linkType == 1) {
             reportFile.println("  <TD>&nbsp;</TD>");
             return;
         }
-        if (noCommentsOnChanges && linkType == 2) {
+        if (ctx_.noCommentsOnChanges && linkType == 2) {
             reportFile.println("  <TD>&nbsp;</TD>");
             return;
         }
 
         // We have to use this global hash table because the *Diff classes
         // do not store the possible comment from the new *API object.
-        if (!noCommentsOnChanges && possibleComment == null) {
-            possibleComment = Comments.allPossibleComments.get(commentID);
+        if (!ctx_.noCommentsOnChanges && possibleComment == null) {
+            CharSequence comment = ctx_.allPossibleComments.get(commentID);
+            if (comment != null)
+                possibleComment = comment.toString();
         }
         // Just use the first sentence of the possible comment.
         if (possibleComment != null) {
-            int fsidx = RootDocToXML.endOfFirstSentence(possibleComment, false);
+            int fsidx = XMLOptions.endOfFirstSentence(ctx_, possibleComment, false);
             if (fsidx != -1 && fsidx != 0)
                 possibleComment = possibleComment.substring(0, fsidx + 1);
         }
@@ -2026,7 +2055,7 @@ public class HTMLReportGenerator {
         } else {
             int idx = comment.indexOf("@first");
             if (idx == -1) {
-                reportFile.println("  <TD VALIGN=\"TOP\">" + Comments.convertAtLinks(comment, "", null, null) + "</TD>");
+                reportFile.println("  <TD VALIGN=\"TOP\">" + Comments.convertAtLinks(ctx_, comment, "", null, null) + "</TD>");
             } else {
                 reportFile.print("  <TD VALIGN=\"TOP\">" + comment.substring(0, idx));
                 if (possibleComment != null &&
@@ -18,11 +18,12 @@
 
 package jdiff;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Emit an HTML file containing statistics about the differences.
@@ -48,10 +49,8 @@ public class HTMLStatistics {
      * Emit the statistics HTML file.
      */
     public void emitStatistics(String filename, APIDiff apiDiff) {
-        try (FileOutputStream fos = new FileOutputStream(filename);
-             PrintWriter writer = new PrintWriter(fos)
-        ) {
-            HTMLReportGenerator.reportFile = writer;
+        try (PrintWriter writer = h_.openPage(filename)) {
+            h_.reportFile = writer;
             // Write out the HTML header
             h_.writeStartHTMLHeader();
             // Write out the title
@@ -68,11 +67,11 @@ public class HTMLStatistics {
             h_.writeText("  <TABLE summary=\"Navigation bar\" BORDER=\"0\" CELLPADDING=\"0\" CELLSPACING=\"3\">");
             h_.writeText("    <TR ALIGN=\"center\" VALIGN=\"top\">");
             // Always have a link to the Javadoc files
-            h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + HTMLReportGenerator.newDocPrefix + "index.html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + APIDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
+            h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + h_.ctx_.newDocPrefix + "index.html\" target=\"_top\"><FONT CLASS=\"NavBarFont1\"><B><tt>" + h_.apiDiff.newAPIName_ + "</tt></B></FONT></A>&nbsp;</TD>");
             h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + HTMLReportGenerator.reportFileName + "-summary" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Overview</B></FONT></A>&nbsp;</TD>");
             h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> &nbsp;<FONT CLASS=\"NavBarFont1\">Package</FONT>&nbsp;</TD>");
             h_.writeText("      <TD BGCOLOR=\"#FFFFFF\" CLASS=\"NavBarCell1\"> &nbsp;<FONT CLASS=\"NavBarFont1\">Class</FONT>&nbsp;</TD>");
-            if (!Diff.noDocDiffs) {
+            if (!h_.ctx_.diff.noDocDiffs) {
                 h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1\"> <A HREF=\"" + Diff.diffFileName + "index" + HTMLReportGenerator.reportFileExt + "\"><FONT CLASS=\"NavBarFont1\"><B>Text Changes</B></FONT></A>&nbsp;</TD>");
             }
             h_.writeText("      <TD BGCOLOR=\"#EEEEFF\" CLASS=\"NavBarCell1Rev\"> &nbsp;<FONT CLASS=\"NavBarFont1Rev\"><B>Statistics</B></FONT>&nbsp;</TD>");
@@ -143,9 +142,7 @@ public class HTMLStatistics {
 
             h_.writeText("</HTML>");
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + filename);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + filename + ": " + e.getMessage(), e);
         }
     }
 
@@ -155,7 +152,10 @@ public class HTMLStatistics {
      */
     public void emitPackagesByDiff(APIDiff apiDiff) {
 
-        apiDiff.packagesChanged.sort(new ComparePkgPdiffs());
+        // Sort a copy, so that the other pages still see the packages in
+        // their usual order
+        List<PackageDiff> packagesChanged = new ArrayList<>(apiDiff.packagesChanged);
+        packagesChanged.sort(new ComparePkgPdiffs());
 
         // Write out the table start
         h_.writeText("<TABLE summary=\"Packages sorted by percentage difference\" BORDER=\"1\" WIDTH=\"100%\" cellspacing=\"0\" cellpadding=\"0\">");
@@ -169,7 +169,7 @@ public class HTMLStatistics {
             hist[i] = 0;
         }
 
-        for (PackageDiff pkg : apiDiff.packagesChanged) {
+        for (PackageDiff pkg : packagesChanged) {
             int bucket = (int) (pkg.pdiff);
             hist[bucket]++;
             h_.writeText("<TR>");
@@ -223,19 +223,19 @@ public class HTMLStatistics {
      * of the values..
      */
     public void emitClassesByDiff(APIDiff apiDiff) {
-        // Add all the changed classes to a list
+        // Add all the changed classes to a list, with the package name
+        // added to the class name
         List<ClassDiff> allChangedClasses = new ArrayList<>();
+        Map<ClassDiff, String> qualifiedNames = new IdentityHashMap<>();
         for (PackageDiff pkg : apiDiff.packagesChanged) {
             if (pkg.classesChanged != null) {
-                // Add the package name to the class name
-                List<ClassDiff> cc = new ArrayList<>(pkg.classesChanged);
-                for (ClassDiff classDiff : cc) {
-                    classDiff.name_ = pkg.name_ + "." + classDiff.name_;
+                for (ClassDiff classDiff : pkg.classesChanged) {
+                    qualifiedNames.put(classDiff, pkg.name_ + "." + classDiff.name_);
                 }
-                allChangedClasses.addAll(cc);
+                allChangedClasses.addAll(pkg.classesChanged);
             }
         }
-        allChangedClasses.sort(new CompareClassPdiffs());
+        allChangedClasses.sort(new CompareClassPdiffs(qualifiedNames));
 
         // Write out the table start
         h_.writeText("<TABLE summary=\"Classes sorted by percentage difference\" BORDER=\"1\" WIDTH=\"100%\" cellspacing=\"0\" cellpadding=\"0\">");
@@ -257,11 +257,12 @@ public class HTMLStatistics {
                 h_.writeText("  <TD ALIGN=\"center\">" + bucket + "</TD>");
             else
                 h_.writeText("  <TD ALIGN=\"center\">&lt;1</TD>");
-            h_.writeText("  <TD><A HREF=\"" + classDiff.name_ + HTMLReportGenerator.reportFileExt + "\">");
+            String className = qualifiedNames.get(classDiff);
+            h_.writeText("  <TD><A HREF=\"" + className + HTMLReportGenerator.reportFileExt + "\">");
             if (classDiff.isInterface_)
-                h_.writeText("<i>" + classDiff.name_ + "</i></A></TD>");
+                h_.writeText("<i>" + className + "</i></A></TD>");
             else
-                h_.writeText(classDiff.name_ + "</A></TD>");
+                h_.writeText(className + "</A></TD>");
             h_.writeText("</TR>");
         }
 
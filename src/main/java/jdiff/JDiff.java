@@ -19,21 +19,25 @@
 package jdiff;
 
 import com.sun.javadoc.DocErrorReporter;
-import com.sun.javadoc.Doclet;
 import com.sun.javadoc.LanguageVersion;
 import com.sun.javadoc.RootDoc;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 /**
  * Generates HTML describing the changes between two sets of Java source code.
+ * <p>
+ * Javadoc finds the doclet methods by name, so this class does not extend
+ * Doclet. That way the comparison of two XML files by {@link CompareAPIs}
+ * can use this class without the Javadoc classes being available.
  *
  * @author Matthew Doar, mdoar@pobox.com.
  */
-public class JDiff extends Doclet {
+public class JDiff {
 
     /**
      * Details for where to find JDiff.
@@ -65,45 +69,6 @@ public class JDiff extends Doclet {
      */
     private static final boolean trace = false;
 
-    /**
-     * The name of the file where the XML representing the old API is
-     * stored.
-     */
-    static String oldFileName = "old_java.xml";
-
-    /**
-     * The name of the directory where the XML representing the old API is
-     * stored.
-     */
-    static String oldDirectory;
-
-    /**
-     * The name of the file where the XML representing the new API is
-     * stored.
-     */
-    static String newFileName = "new_java.xml";
-
-    /**
-     * The name of the directory where the XML representing the new API is
-     * stored.
-     */
-    static String newDirectory;
-
-    /**
-     * If set, then generate the XML for an API and exit.
-     */
-    static boolean writeXML;
-
-    /**
-     * If set, then read in two XML files and compare their APIs.
-     */
-    static boolean compareAPIs;
-
-    /**
-     * If set, a http-equiv meta will be added setting this charset to the html files.
-     */
-    static String charset;
-
     /**
      * The file separator for the local filesystem, forward or backward slash.
      */
@@ -115,14 +80,10 @@ public class JDiff extends Doclet {
     static String javaVersion = System.getProperty("java.version");
 
     /**
-     * When set, emit changes like "Method was inherited from Example, but is now defined locally."
-     */
-    static boolean compareMethodInheritance = true;
-
-    /**
-     * When set, emit changes like ", but is now inherited from Example."
+     * The RootDoc object passed by Javadoc, or null if JDiff is not
+     * running as a doclet.
      */
-    static boolean compareFieldInheritance = true;
+    private RootDoc root_;
 
     @CalledExternally
     public static LanguageVersion languageVersion() {
@@ -137,10 +98,10 @@ public class JDiff extends Doclet {
      */
     @CalledExternally
     public static boolean start(RootDoc root) {
-        if (root != null)
-            System.out.println("JDiff: doclet started ...");
+        System.out.println("JDiff: doclet started ...");
         JDiff jd = new JDiff();
-        return jd.startGeneration(root);
+        jd.root_ = root;
+        return jd.startGeneration();
     }
 
     /**
@@ -200,6 +161,8 @@ public class JDiff extends Doclet {
     public static void showUsage() {
         System.out.println("usage: java jdiff.JDiff [-version] [-buildfile <XML configuration file>]");
         System.out.println("If no build file is specified, the local build.xml file is used.");
+        System.out.println("XML files which JDiff has already generated are compared without Ant or Javadoc by");
+        System.out.println("jdiff.CompareAPIs, jdiff.CompareSeries and jdiff.CompareFanOut.");
     }
 
     /**
@@ -243,7 +206,8 @@ public class JDiff extends Doclet {
         return -1;
     }
 
-    static void addXmlTag(PrintWriter writer) {
+    static void addXmlTag(JDiffContext ctx, PrintWriter writer) {
+        String charset = ctx.charset;
         if (charset != null && !charset.isEmpty()) {
             writer.println("<?xml version=\"1.0\" encoding=\""+charset+"\" standalone=\"no\"?>");
         } else {
@@ -252,28 +216,47 @@ public class JDiff extends Doclet {
     }
 
     /**
-     * Generate the summary of the APIs.
+     * Generate the summary of the APIs, with the options of the current
+     * context of this thread.
      *
-     * @param newRoot the RootDoc object passed by Javadoc
      * @return true if no problems encountered within JDiff
      */
-    protected boolean startGeneration(RootDoc newRoot) {
+    protected boolean startGeneration() {
+        JDiffContext ctx = JDiffContext.current();
+        if (ctx.jmx)
+            JDiffMonitor.register();
+        try {
+            return generate(ctx);
+        } catch (JDiffException e) {
+            System.out.println("Error: " + e.getMessage());
+            return false;
+        } finally {
+            // A run which fails may leave documentation differences on disk
+            ctx.diff.deleteSpillFile();
+            if (ctx.jmx)
+                JDiffMonitor.unregister();
+        }
+    }
+
+    private boolean generate(JDiffContext ctx) {
         long startTime = System.currentTimeMillis();
 
         // Open the file where the XML representing the API will be stored.
         // and generate the XML for the API into it.
-        if (writeXML) {
-            RootDocToXML.writeXML(newRoot);
+        if (ctx.writeXML) {
+            if (root_ == null)
+                throw new JDiffException("an API can only be written out when JDiff runs as a Javadoc doclet");
+            RootDocToXML.writeXML(ctx, root_);
         }
 
-        if (compareAPIs) {
-            String tempOldFileName = oldFileName;
-            if (oldDirectory != null) {
-                tempOldFileName = oldDirectory;
+        if (ctx.compareAPIs) {
+            String tempOldFileName = ctx.oldFileName;
+            if (ctx.oldDirectory != null) {
+                tempOldFileName = ctx.oldDirectory;
                 if (!tempOldFileName.endsWith(JDiff.DIR_SEP)) {
                     tempOldFileName += JDiff.DIR_SEP;
                 }
-                tempOldFileName += oldFileName;
+                tempOldFileName += ctx.oldFileName;
             }
 
             // Check the file for the old API exists
@@ -284,13 +267,13 @@ public class JDiff extends Doclet {
             }
             // Check the file for the new API exists
 
-            String tempNewFileName = newFileName;
-            if (newDirectory != null) {
-                tempNewFileName = newDirectory;
+            String tempNewFileName = ctx.newFileName;
+            if (ctx.newDirectory != null) {
+                tempNewFileName = ctx.newDirectory;
                 if (!tempNewFileName.endsWith(JDiff.DIR_SEP)) {
                     tempNewFileName += JDiff.DIR_SEP;
                 }
-                tempNewFileName += newFileName;
+                tempNewFileName += ctx.newFileName;
             }
             f = new File(tempNewFileName);
             if (!f.exists()) {
@@ -298,62 +281,153 @@ public class JDiff extends Doclet {
                 return false;
             }
 
-            // Read the file where the XML representing the old API is stored
-            // and create an API object for it.
-            System.out.print("JDiff: reading the old API in from file '" + tempOldFileName + "'...");
-            // Read the file in, but do not add any text to the global comments
-            API oldAPI = XMLToAPI.readFile(tempOldFileName, false, oldFileName);
-
-            // Read the file where the XML representing the new API is stored
-            // and create an API object for it.
-            System.out.print("JDiff: reading the new API in from file '" + tempNewFileName + "'...");
-            // Read the file in, and do add any text to the global comments
-            API newAPI = XMLToAPI.readFile(tempNewFileName, true, newFileName);
-
-            // Compare the old and new APIs.
-            APIComparator comp = new APIComparator();
+            // Both APIs share one table of names and types
+            ctx.symbols = symbolTable();
 
-            comp.compareAPIs(oldAPI, newAPI);
+            // Only the differences are kept once the APIs are compared
+            APIComparator comp = compareAPIs(ctx, tempOldFileName, tempNewFileName);
 
             // Read the file where the XML for comments about the changes between
             // the old API and new API is stored and create a Comments object for
             // it. The Comments object may be null if no file exists.
-            int suffix = oldFileName.lastIndexOf('.');
-            String commentsFileName = "user_comments_for_" + oldFileName.substring(0, suffix);
-            suffix = newFileName.lastIndexOf('.');
-            commentsFileName += "_to_" + newFileName.substring(0, suffix) + ".xml";
+            int suffix = ctx.oldFileName.lastIndexOf('.');
+            String commentsFileName = "user_comments_for_" + ctx.oldFileName.substring(0, suffix);
+            suffix = ctx.newFileName.lastIndexOf('.');
+            commentsFileName += "_to_" + ctx.newFileName.substring(0, suffix) + ".xml";
             commentsFileName = commentsFileName.replace(' ', '_');
-            if (HTMLReportGenerator.outputDir != null)
-                commentsFileName = HTMLReportGenerator.outputDir + DIR_SEP + commentsFileName;
+            if (ctx.outputDir != null)
+                commentsFileName = ctx.outputDir + DIR_SEP + commentsFileName;
             System.out.println("JDiff: reading the comments in from file '" + commentsFileName + "'...");
-            Comments existingComments = Comments.readFile(commentsFileName);
-            if (existingComments == null)
+            ctx.metrics.start("read comments");
+            Comments existingComments = Comments.readFile(ctx, commentsFileName);
+            if (existingComments != null)
+                ctx.metrics.count(existingComments.commentsList_.size());
+            ctx.metrics.end();
+            if (existingComments == null && ctx.servePort == -1)
                 System.out.println(" (the comments file will be created)");
 
             // Generate an HTML report which summarises all the API differences.
-            HTMLReportGenerator reporter = new HTMLReportGenerator();
+            HTMLReportGenerator reporter = new HTMLReportGenerator(ctx);
+            if (ctx.servePort != -1) {
+                // Write each page of the report only when it is requested
+                try {
+                    new ReportServer(reporter, comp, existingComments).serve();
+                } catch (IOException e) {
+                    throw new JDiffException("could not serve the report on port " + ctx.servePort + ": " + e.getMessage(), e);
+                }
+                return true;
+            }
+            ctx.metrics.start("report");
             reporter.generate(comp, existingComments);
+            ctx.metrics.end();
 
             // Emit messages about which comments are now unused and
             // which are new.
             Comments newComments = reporter.getNewComments();
-            Comments.noteDifferences(existingComments, newComments);
+
+            // Everything but the APIs is still in memory at this point
+            ctx.metrics.footprint("names", ctx.symbols.footprint());
+            ctx.metrics.footprint("differences", Footprint.apiDiff(comp.apiDiff));
+            ctx.metrics.footprint("doc diffs", ctx.diff.footprint());
+            ctx.metrics.footprint("comments", Footprint.comments(ctx.allPossibleComments) + Footprint.comments(newComments));
+            long spilled = ctx.diff.spilledBytes();
+            ctx.diff.deleteSpillFile();
+            Comments.noteDifferences(ctx, existingComments, newComments);
 
             // Write the new comments out to the same file, with unused comments
             // now commented out.
             System.out.println("JDiff: writing the comments out to file '" + commentsFileName + "'...");
-            Comments.writeFile(commentsFileName, newComments);
+            ctx.metrics.start("write comments");
+            Comments.writeFile(ctx, commentsFileName, newComments);
+            ctx.metrics.count(newComments.commentsList_.size());
+            ctx.metrics.end();
+
+            ctx.diagnostics.finish(ctx.outputDir);
+
+            String metricsFileName = RunMetrics.metricsFileName;
+            if (ctx.outputDir != null)
+                metricsFileName = ctx.outputDir + DIR_SEP + metricsFileName;
+            ctx.metrics.writeFile(metricsFileName, comp.apiDiff.oldAPIName_, comp.apiDiff.newAPIName_);
+            System.out.println("JDiff: " + ctx.metrics.summary() + " (details in '" + metricsFileName + "')");
+            System.out.print("JDiff: estimated heap used: " + ctx.metrics.footprintSummary());
+            if (spilled != 0)
+                System.out.print(", and " + String.format("%.1f MB", spilled / (1024.0 * 1024.0)) + " of doc diffs were moved to disk");
+            System.out.println();
         }
 
         System.out.print("JDiff: finished (took " + (System.currentTimeMillis() - startTime) / 1000 + "s");
-        if (writeXML)
+        if (ctx.writeXML)
             System.out.println(", not including scanning the source files).");
-        else if (compareAPIs)
+        else if (ctx.compareAPIs)
             System.out.println(").");
         return true;
     }
 
-    static void addCharset(PrintWriter writer) {
+    /**
+     * Read the old and new APIs in from their XML files and compare them.
+     * Nothing in the differences refers back to the APIs, so the APIs can
+     * be collected once this returns, before the report is written.
+     *
+     * @param ctx         the context of the run
+     * @param oldFileName the full name of the XML file of the old API
+     * @param newFileName the full name of the XML file of the new API
+     * @return the comparator holding the differences
+     */
+    private APIComparator compareAPIs(JDiffContext ctx, String oldFileName, String newFileName) {
+        // Read the file where the XML representing the old API is stored
+        // and create an API object for it.
+        System.out.print("JDiff: reading the old API in from file '" + oldFileName + "'...");
+        // Read the file in, but do not add any text to the global comments
+        ctx.metrics.start("read old");
+        API oldAPI = readAPI(ctx, oldFileName, false, ctx.oldFileName);
+        ctx.metrics.count(oldAPI.classes_.size());
+        ctx.metrics.end();
+
+        // Read the file where the XML representing the new API is stored
+        // and create an API object for it.
+        System.out.print("JDiff: reading the new API in from file '" + newFileName + "'...");
+        // Read the file in, and do add any text to the global comments
+        ctx.metrics.start("read new");
+        API newAPI = readAPI(ctx, newFileName, true, ctx.newFileName);
+        ctx.metrics.count(newAPI.classes_.size());
+        ctx.metrics.end();
+
+        // Compare the old and new APIs.
+        APIComparator comp = new APIComparator(ctx);
+
+        ctx.metrics.start("compare");
+        comp.compareAPIs(oldAPI, newAPI);
+        ctx.metrics.count(oldAPI.classes_.size() + newAPI.classes_.size());
+        ctx.metrics.end();
+        ctx.metrics.footprint("old API", Footprint.api(oldAPI));
+        ctx.metrics.footprint("new API", Footprint.api(newAPI));
+        return comp;
+    }
+
+    /**
+     * Return the table of names and types which the old and new APIs
+     * are read with.
+     */
+    protected SymbolTable symbolTable() {
+        return new SymbolTable();
+    }
+
+    /**
+     * Read an API in from an XML file.
+     *
+     * @param ctx                  the context of the run
+     * @param fileName             the full name of the XML file
+     * @param createGlobalComments set to add the documentation of the API to
+     *                             the possible comments for the report
+     * @param apiName              the name of the API
+     * @return the API
+     */
+    protected API readAPI(JDiffContext ctx, String fileName, boolean createGlobalComments, String apiName) {
+        return XMLToAPI.readFile(ctx, fileName, createGlobalComments, apiName);
+    }
+
+    static void addCharset(JDiffContext ctx, PrintWriter writer) {
+        String charset = ctx.charset;
         if (charset != null && !charset.isEmpty()) {
             writer.println("<META HTTP-EQUIV=\"Content-Type\" CONTENT=\"text/html;charset=utf-8\">");
         }
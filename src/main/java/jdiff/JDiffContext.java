@@ -0,0 +1,371 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.util.Hashtable;
+
+/**
+ * The options and the shared state of one run of JDiff, from reading the
+ * APIs in, through comparing them, to generating the report.
+ * <p>
+ * Each part of JDiff is given the context it works in, so comparisons in
+ * different threads do not affect each other. The context of a run is
+ * only looked up where the run starts, when Javadoc calls the doclet or
+ * a command line tool parses its options: each thread has its own current
+ * context, which starts with the default options. A different one can be
+ * made current with {@link #enter}, and the one before restored with
+ * {@link #exit}.
+ */
+final class JDiffContext {
+
+    /**
+     * The current context of each thread.
+     */
+    private static final ThreadLocal<JDiffContext> current_ = ThreadLocal.withInitial(JDiffContext::new);
+
+    /**
+     * All the options passed on the command line. Logged to XML.
+     */
+    String cmdOptions = "";
+
+    /**
+     * The name of the file where the XML representing the old API is
+     * stored.
+     */
+    String oldFileName = "old_java.xml";
+
+    /**
+     * The name of the directory where the XML representing the old API is
+     * stored.
+     */
+    String oldDirectory;
+
+    /**
+     * The name of the file where the XML representing the new API is
+     * stored.
+     */
+    String newFileName = "new_java.xml";
+
+    /**
+     * The name of the directory where the XML representing the new API is
+     * stored.
+     */
+    String newDirectory;
+
+    /**
+     * If set, then generate the XML for an API and exit.
+     */
+    boolean writeXML;
+
+    /**
+     * If set, then read in two XML files and compare their APIs.
+     */
+    boolean compareAPIs;
+
+    /**
+     * If set, a http-equiv meta will be added setting this charset to the html files.
+     */
+    String charset;
+
+    /**
+     * When set, emit changes like "Method was inherited from Example, but is now defined locally."
+     */
+    boolean compareMethodInheritance = true;
+
+    /**
+     * When set, emit changes like ", but is now inherited from Example."
+     */
+    boolean compareFieldInheritance = true;
+
+    /**
+     * If set, then once an API has been read in, the lists in its classes
+     * and methods are replaced by fixed-size lists of exactly the right
+     * length, and empty lists by a shared empty list, which uses much less
+     * memory for large APIs. Nothing may be added to these lists afterwards.
+     */
+    boolean trimLists = true;
+
+    /**
+     * If set, then the text of doc blocks is not kept in memory, but is
+     * read from the memory-mapped XML file when it is needed. Only the
+     * location and fingerprints of each doc block are kept.
+     */
+    boolean lazyDocs;
+
+    /**
+     * If set, then the JDiff MXBean is registered for the length of the
+     * run, see {@link JDiffMonitor}.
+     */
+    boolean jmx;
+
+    /**
+     * If set, then check that each comment is a sentence.
+     */
+    boolean checkIsSentence;
+
+    /**
+     * The table of names and types, shared by both APIs which are read in
+     * for a comparison, so that their ids can be compared.
+     */
+    SymbolTable symbols = new SymbolTable();
+
+    /**
+     * All the possible comments known about, accessible by the commentID.
+     */
+    Hashtable<String, CharSequence> allPossibleComments = new Hashtable<>();
+
+    /**
+     * If set, then show changes in implementation-related modifiers such as
+     * native and synchronized. For more information, see
+     * http://java.sun.com/j2se/1.4.1/docs/tooldocs/solaris/javadoc.html#generatedapideclarations
+     */
+    boolean showAllChanges;
+
+    /**
+     * The documentation differences found by the comparison.
+     */
+    final Diff diff = new Diff();
+
+    /**
+     * The time and memory which each phase of the run took.
+     */
+    final RunMetrics metrics = new RunMetrics();
+
+    /**
+     * How far the comparison and the report have got. The interval
+     * between progress lines is set by the -progress option.
+     */
+    final Progress progress = new Progress();
+
+    /**
+     * The warnings about single elements of the APIs. The number of each
+     * kind which are printed is set by the -maxwarnings option.
+     */
+    final Diagnostics diagnostics = new Diagnostics();
+
+    /**
+     * The most heap, in bytes, which the run should need, or -1 if there
+     * is no budget. Set by the -heapbudget option, which also sets
+     * lazyDocs. Documentation differences are moved to a temporary file
+     * once their text uses more than an eighth of the budget.
+     */
+    long heapBudget = -1;
+
+    /**
+     * If set, then do not suggest comments for removals from the first
+     * sentence of the doc block of the old API.
+     */
+    boolean noCommentsOnRemovals;
+
+    /**
+     * If set, then do not suggest comments for additions from the first
+     * sentence of the doc block of the new API.
+     */
+    boolean noCommentsOnAdditions;
+
+    /**
+     * If set, then do not suggest comments for changes from the first
+     * sentence of the doc block of the new API.
+     */
+    boolean noCommentsOnChanges;
+
+    /**
+     * If set, then report changes in documentation (Javadoc comments)
+     * between the old and the new API. The default is that this is not set.
+     */
+    boolean reportDocChanges;
+
+    /**
+     * If set, then changes in documentation which only differ in whitespace
+     * or in the case of HTML tags are not reported. The default is that
+     * this is not set.
+     */
+    boolean ignoreDocReformat;
+
+    /**
+     * If set, then only report incompatible changes
+     * between the old and the new API. The default is that this is not set.
+     */
+    boolean incompatibleChangesOnly;
+
+    /**
+     * Define the prefix for HTML links to the existing set of Javadoc-
+     * generated documentation for the new API. E.g. For J2SE1.3.x, use
+     * "http://java.sun.com/j2se/1.3/docs/api/"
+     */
+    String newDocPrefix = "../";
+
+    /**
+     * Define the prefix for HTML links to the existing set of Javadoc-
+     * generated documentation for the old API.
+     */
+    String oldDocPrefix;
+
+    /**
+     * To generate statistical output, set this to true.
+     */
+    boolean doStats;
+
+    /**
+     * The destination directory for output files.
+     */
+    String outputDir;
+
+    /**
+     * The title used on the first page of the report. By default, this is
+     * &quot;API Differences Between &lt;name of old API&gt; and
+     * &lt;name of new API&gt;&quot;. It can be
+     * set by using the -doctitle option.
+     */
+    String docTitle;
+
+    /**
+     * The browser window title for the report. By default, this is
+     * &quot;API Differences Between &lt;name of old API&gt; and
+     * &lt;name of new API&gt;&quot;. It can be
+     * set by using the -windowtitle option.
+     */
+    String windowTitle;
+
+    /**
+     * The port to serve the report on, or -1 to write the report to files.
+     * Set by the -serve option.
+     */
+    int servePort = -1;
+
+    /**
+     * The name of the file where the XML representing the API will be
+     * stored, when one is written out with the -apiname option.
+     */
+    String apiFileName;
+
+    /**
+     * The identifier of the API being written out in XML, e.g.
+     * &quot;SuperProduct 1.3&quot;.
+     */
+    String apiIdentifier;
+
+    /**
+     * The name of the directory where the XML representing the API will be
+     * stored. Set by the -apidir option.
+     */
+    String apiDirectory;
+
+    /**
+     * Do not write out a class with a lower level of visibility than this.
+     * Default is to write out all public and protected classes.
+     */
+    String classVisibilityLevel = "protected";
+
+    /**
+     * Do not write out a member with a lower level of visibility than this.
+     * Default is to write out all public and protected members
+     * (constructors, methods, fields).
+     */
+    String memberVisibilityLevel = "protected";
+
+    /**
+     * If set, then save the entire contents of a doc block comment in the
+     * API file. If not set, then just save the first sentence. Default is
+     * that this is set.
+     */
+    boolean saveAllDocs = true;
+
+    /**
+     * If set, exclude program elements marked with whatever the exclude tag
+     * is specified as, e.g. "@exclude".
+     */
+    boolean doExclude;
+
+    /**
+     * Exclude program elements marked with this String, e.g. "@exclude".
+     */
+    String excludeTag;
+
+    /**
+     * The base URI for locating necessary DTDs and Schemas. By default, this
+     * is "http://www.w3.org". A typical value to use local copies of DTD files
+     * might be "file:///C:/jdiff/lib"
+     */
+    String baseURI = "http://www.w3.org";
+
+    /**
+     * If set, then strip out non-printing characters from documentation.
+     * Default is that this is set.
+     */
+    boolean stripNonPrintables = true;
+
+    /**
+     * If set, then add the information about the source file and line number
+     * which is available in J2SE1.4. Default is that this is not set.
+     */
+    boolean addSrcInfo;
+
+    /**
+     * If set, scan classes with no packages.
+     * If the source is  a jar file this may duplicates classes, so
+     * disable it using the -packagesonly option. Default is that this is
+     * not set.
+     */
+    boolean packagesOnly;
+
+    /**
+     * If set, validate the XML which represents an API, and write out the
+     * XML Schema files next to the API and comments files. By default, this
+     * is not set for reasons of efficiency, and also because if JDiff
+     * generated the XML, it should not need validating.
+     */
+    boolean validateXML;
+
+    /**
+     * Whether to log all missing @since tags to a file or not.
+     * If false, just warn the user.
+     */
+    boolean logMissingSinces = true;
+
+    /**
+     * Return the current context of this thread.
+     */
+    static JDiffContext current() {
+        return current_.get();
+    }
+
+    /**
+     * Make a context the current one of this thread.
+     *
+     * @param context the context to make current
+     * @return the context which was current before, to pass to
+     * {@link #exit}
+     */
+    static JDiffContext enter(JDiffContext context) {
+        JDiffContext previous = current_.get();
+        current_.set(context);
+        return previous;
+    }
+
+    /**
+     * Make the context which was current before {@link #enter} current
+     * again.
+     *
+     * @param previous the context which {@link #enter} returned
+     */
+    static void exit(JDiffContext previous) {
+        current_.set(previous);
+    }
+}
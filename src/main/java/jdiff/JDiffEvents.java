@@ -0,0 +1,183 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+/**
+ * Emits JDK Flight Recorder events for the phases of a run and for the
+ * single classes, doc blocks and pages which took long to process, so a
+ * run recorded with <code>-XX:StartFlightRecording</code> shows in JMC
+ * which element was responsible for a slow run.
+ * <p>
+ * The phases are those measured by {@link RunMetrics}. An event is only
+ * committed if it took at least the threshold of its type, which can be
+ * changed in the <code>.jfc</code> settings file of the recording.
+ * <p>
+ * Each begin method returns the started event, or null if the event type
+ * is not being recorded, and the matching end method does nothing with a
+ * null event, so no event is created and no element id is built unless a
+ * recording has enabled the type. The events themselves are in
+ * <code>FlightRecorderEvents</code>, which is built from the
+ * <code>jfr</code> source set, since the <code>jdk.jfr</code> API is
+ * missing from Java 8 before update 262 and from <code>--release 8</code>.
+ * It is only loaded when the JVM has the API, so JDiff still runs on a
+ * JVM without it.
+ */
+final class JDiffEvents {
+
+    /**
+     * The recorder of the events, or null if the JVM has no Flight
+     * Recorder API.
+     */
+    private static final Recorder recorder_ = loadRecorder();
+
+    private JDiffEvents() {
+    }
+
+    /**
+     * Creates and commits the Flight Recorder events.
+     */
+    interface Recorder {
+
+        /**
+         * Begin the event of a phase, or return null if the type is not
+         * being recorded. The other begin methods are the same for their
+         * types.
+         */
+        Object beginStage();
+
+        Object beginClassComparison();
+
+        Object beginDocDiff();
+
+        Object beginPageRender();
+
+        /**
+         * End an event, and return true if it took long enough to be
+         * committed by the commit method of its type.
+         */
+        boolean end(Object event);
+
+        void commitStage(Object event, String stage, long elements);
+
+        void commitClassComparison(Object event, String className, int oldMembers, int newMembers,
+                                   double difference);
+
+        void commitDocDiff(Object event, String element, int oldLength, int newLength,
+                           int oldWords, int newWords);
+
+        void commitPageRender(Object event, String page, int changes);
+    }
+
+    /**
+     * Begin the event of a phase.
+     */
+    static Object beginStage() {
+        return recorder_ == null ? null : recorder_.beginStage();
+    }
+
+    /**
+     * End the event of a phase, and commit it if it took long enough.
+     */
+    static void endStage(Object event, String stage, long elements) {
+        if (event != null && recorder_.end(event))
+            recorder_.commitStage(event, stage, elements);
+    }
+
+    /**
+     * Begin the event of a class comparison.
+     */
+    static Object beginClassComparison() {
+        return recorder_ == null ? null : recorder_.beginClassComparison();
+    }
+
+    /**
+     * End the event of a class comparison, and commit it if it took long
+     * enough.
+     */
+    static void endClassComparison(Object event, String pkgName, ClassAPI oldClass,
+                                   ClassAPI newClass, double difference) {
+        if (event != null && recorder_.end(event))
+            recorder_.commitClassComparison(event, pkgName + "." + oldClass.name_,
+                    members(oldClass), members(newClass), difference);
+    }
+
+    /**
+     * Begin the event of a documentation diff.
+     */
+    static Object beginDocDiff() {
+        return recorder_ == null ? null : recorder_.beginDocDiff();
+    }
+
+    /**
+     * End the event of a documentation diff, and commit it if it took long
+     * enough.
+     */
+    static void endDocDiff(Object event, String id, String oldDoc, String newDoc,
+                           int oldWords, int newWords) {
+        if (event != null && recorder_.end(event))
+            recorder_.commitDocDiff(event, id, oldDoc.length(), newDoc.length(), oldWords, newWords);
+    }
+
+    /**
+     * Begin the event of writing a report page.
+     */
+    static Object beginPageRender() {
+        return recorder_ == null ? null : recorder_.beginPageRender();
+    }
+
+    /**
+     * End the event of writing the page of a changed package, and commit it
+     * if it took long enough.
+     */
+    static void endPackagePage(Object event, PackageDiff pkgDiff) {
+        if (event != null && recorder_.end(event))
+            recorder_.commitPageRender(event, pkgDiff.name_, pkgDiff.classesAdded.size()
+                    + pkgDiff.classesRemoved.size() + pkgDiff.classesChanged.size());
+    }
+
+    /**
+     * End the event of writing the page of a changed class, and commit it
+     * if it took long enough.
+     */
+    static void endClassPage(Object event, String pkgName, ClassDiff classDiff) {
+        if (event != null && recorder_.end(event))
+            recorder_.commitPageRender(event, pkgName + "." + classDiff.name_,
+                    classDiff.ctorsAdded.size() + classDiff.ctorsRemoved.size()
+                    + classDiff.ctorsChanged.size() + classDiff.methodsAdded.size()
+                    + classDiff.methodsRemoved.size() + classDiff.methodsChanged.size()
+                    + classDiff.fieldsAdded.size() + classDiff.fieldsRemoved.size()
+                    + classDiff.fieldsChanged.size());
+    }
+
+    /**
+     * Return the number of constructors, methods and fields of a class.
+     */
+    private static int members(ClassAPI classAPI) {
+        return classAPI.ctors_.size() + classAPI.methods_.size() + classAPI.fields_.size();
+    }
+
+    private static Recorder loadRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JDiffEvents.class.getClassLoader());
+            return (Recorder) Class.forName("jdiff.FlightRecorderEvents").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+/**
+ * An error which stops the comparison of two APIs.
+ * <p>
+ * This is thrown rather than exiting, so that a comparison which runs
+ * inside another program, such as the daemon or one candidate of a
+ * fan-out, fails on its own. {@link JDiff#startGeneration} reports the
+ * message as an error and returns false.
+ */
+class JDiffException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message the description of the error, without the leading
+     *                "Error: "
+     */
+    JDiffException(String message) {
+        super(message);
+    }
+
+    /**
+     * @param message the description of the error, without the leading
+     *                "Error: "
+     * @param cause   the exception which caused the error
+     */
+    JDiffException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
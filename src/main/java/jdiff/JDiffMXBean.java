@@ -0,0 +1,94 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.util.Map;
+
+/**
+ * The management interface through which JMX clients, such as JConsole
+ * or a monitoring system, can watch what JDiff is doing in a JVM. It is
+ * registered as <code>jdiff:type=JDiff</code> while the compare daemon
+ * runs, while a report is served, and for a run with the -jmx option.
+ * The figures cover every run in the JVM since the JDiff classes were
+ * loaded, and the phases are named as in <code>jdiff_metrics.json</code>.
+ */
+public interface JDiffMXBean {
+
+    /**
+     * The phase which each running comparison is in, as the name of its
+     * thread and the phase, such as <code>main: report/pages</code>.
+     */
+    String[] getCurrentPhases();
+
+    /**
+     * The number of elements, such as classes read, doc blocks compared or
+     * pages written, which all the phases have processed.
+     */
+    long getElementsProcessed();
+
+    /**
+     * The number of documentation diffs which have been computed but not
+     * yet written to the report.
+     */
+    long getDocDiffQueueDepth();
+
+    /**
+     * The wall time in nanoseconds which each phase has taken, by name.
+     */
+    Map<String, Long> getPhaseNanos();
+
+    /**
+     * The number of elements which each phase has processed, by name.
+     */
+    Map<String, Long> getPhaseElements();
+
+    /**
+     * The number of APIs which the comparison daemon read from its cache.
+     */
+    long getAPICacheHits();
+
+    /**
+     * The number of APIs which the comparison daemon read from their XML
+     * files, because they were not in its cache.
+     */
+    long getAPICacheMisses();
+
+    /**
+     * The number of APIs which the comparison daemon removed from its cache
+     * to stay within its size.
+     */
+    long getAPICacheEvictions();
+
+    /**
+     * The number of pages which a served report found in its cache.
+     */
+    long getPageCacheHits();
+
+    /**
+     * The number of pages which a served report wrote, because they were
+     * not in its cache.
+     */
+    long getPageCacheMisses();
+
+    /**
+     * The number of pages which a served report removed from its cache to
+     * stay within its size.
+     */
+    long getPageCacheEvictions();
+}
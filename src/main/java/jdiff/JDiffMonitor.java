@@ -0,0 +1,266 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Keeps the figures which {@link JDiffMXBean} shows, and registers it.
+ * <p>
+ * Starting the platform MBean server takes a noticeable part of a short
+ * run, so the monitor is only registered while the compare daemon runs,
+ * while a report is served, or for a run with the -jmx option. The
+ * figures are kept all the same.
+ * <p>
+ * Every figure is a {@link LongAdder} or an entry of a concurrent map,
+ * so the comparisons which update them never wait for each other or for
+ * a JMX client reading them.
+ */
+final class JDiffMonitor implements JDiffMXBean {
+
+    /**
+     * The name the monitor is registered under.
+     */
+    static final String objectName = "jdiff:type=JDiff";
+
+    private static final JDiffMonitor instance_ = new JDiffMonitor();
+
+    /**
+     * The number of calls to {@link #register()} which have not been
+     * matched by a call to {@link #unregister()} yet.
+     */
+    private static int registrations_;
+
+    /**
+     * The innermost running phase of each thread which is running one.
+     */
+    private final Map<Thread, String> phases_ = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> phaseNanos_ = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> phaseElements_ = new ConcurrentHashMap<>();
+
+    private final LongAdder elements_ = new LongAdder();
+
+    private final LongAdder docDiffsQueued_ = new LongAdder();
+
+    private final LongAdder apiCacheHits_ = new LongAdder();
+
+    private final LongAdder apiCacheMisses_ = new LongAdder();
+
+    private final LongAdder apiCacheEvictions_ = new LongAdder();
+
+    private final LongAdder pageCacheHits_ = new LongAdder();
+
+    private final LongAdder pageCacheMisses_ = new LongAdder();
+
+    private final LongAdder pageCacheEvictions_ = new LongAdder();
+
+    private JDiffMonitor() {
+    }
+
+    /**
+     * Note that the current thread has started a phase.
+     */
+    static void phaseStarted(String name) {
+        instance_.phases_.put(Thread.currentThread(), name);
+    }
+
+    /**
+     * Note that the current thread has ended a phase, and is back in the
+     * enclosing phase, or in none if parent is null.
+     */
+    static void phaseEnded(String name, String parent, long wallNanos, long elements) {
+        JDiffMonitor monitor = instance_;
+        if (parent == null)
+            monitor.phases_.remove(Thread.currentThread());
+        else
+            monitor.phases_.put(Thread.currentThread(), parent);
+        monitor.phaseNanos_.computeIfAbsent(name, k -> new LongAdder()).add(wallNanos);
+        monitor.phaseElements_.computeIfAbsent(name, k -> new LongAdder()).add(elements);
+    }
+
+    /**
+     * Add the wall time and elements of one piece of a phase which is
+     * measured a little at a time, without it becoming the current phase.
+     */
+    static void phaseTime(String name, long wallNanos, long elements) {
+        JDiffMonitor monitor = instance_;
+        monitor.phaseNanos_.computeIfAbsent(name, k -> new LongAdder()).add(wallNanos);
+        monitor.phaseElements_.computeIfAbsent(name, k -> new LongAdder()).add(elements);
+    }
+
+    /**
+     * Add to the number of elements processed.
+     */
+    static void elementsProcessed(long count) {
+        instance_.elements_.add(count);
+    }
+
+    /**
+     * Add to, or with a negative count take from, the number of
+     * documentation diffs waiting to be written.
+     */
+    static void docDiffsQueued(long count) {
+        instance_.docDiffsQueued_.add(count);
+    }
+
+    static void apiCacheHit() {
+        instance_.apiCacheHits_.increment();
+    }
+
+    static void apiCacheMiss() {
+        instance_.apiCacheMisses_.increment();
+    }
+
+    static void apiCacheEviction() {
+        instance_.apiCacheEvictions_.increment();
+    }
+
+    static void pageCacheHit() {
+        instance_.pageCacheHits_.increment();
+    }
+
+    static void pageCacheMiss() {
+        instance_.pageCacheMisses_.increment();
+    }
+
+    static void pageCacheEviction() {
+        instance_.pageCacheEvictions_.increment();
+    }
+
+    @Override
+    public String[] getCurrentPhases() {
+        List<String> phases = new ArrayList<>();
+        for (Map.Entry<Thread, String> phase : phases_.entrySet()) {
+            phases.add(phase.getKey().getName() + ": " + phase.getValue());
+        }
+        return phases.toArray(new String[0]);
+    }
+
+    @Override
+    public long getElementsProcessed() {
+        return elements_.sum();
+    }
+
+    @Override
+    public long getDocDiffQueueDepth() {
+        return docDiffsQueued_.sum();
+    }
+
+    @Override
+    public Map<String, Long> getPhaseNanos() {
+        return sums(phaseNanos_);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseElements() {
+        return sums(phaseElements_);
+    }
+
+    @Override
+    public long getAPICacheHits() {
+        return apiCacheHits_.sum();
+    }
+
+    @Override
+    public long getAPICacheMisses() {
+        return apiCacheMisses_.sum();
+    }
+
+    @Override
+    public long getAPICacheEvictions() {
+        return apiCacheEvictions_.sum();
+    }
+
+    @Override
+    public long getPageCacheHits() {
+        return pageCacheHits_.sum();
+    }
+
+    @Override
+    public long getPageCacheMisses() {
+        return pageCacheMisses_.sum();
+    }
+
+    @Override
+    public long getPageCacheEvictions() {
+        return pageCacheEvictions_.sum();
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> adders) {
+        Map<String, Long> sums = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> adder : adders.entrySet()) {
+            sums.put(adder.getKey(), adder.getValue().sum());
+        }
+        return sums;
+    }
+
+    /**
+     * Register the monitor with the platform MBean server, unless it is
+     * registered already. A monitor left by JDiff classes loaded earlier
+     * is replaced. Each call must be matched by a call to
+     * {@link #unregister()}.
+     */
+    static synchronized void register() {
+        if (registrations_++ > 0)
+            return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            try {
+                server.registerMBean(instance_, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(instance_, name);
+            }
+        } catch (JMException | SecurityException e) {
+            System.out.println("Warning: could not register the JDiff MBean: " + e);
+        }
+    }
+
+    /**
+     * Unregister the monitor once every call to {@link #register()} has
+     * been matched, so that the MBean server does not keep the JDiff
+     * classes, and the class loader which loaded them, such as the one
+     * of the Ant task, alive.
+     */
+    static synchronized void unregister() {
+        if (--registrations_ > 0)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(objectName));
+        } catch (InstanceNotFoundException e) {
+            // It could not be registered, which was reported then
+        } catch (JMException | SecurityException e) {
+            System.out.println("Warning: could not unregister the JDiff MBean: " + e);
+        }
+    }
+}
@@ -52,34 +52,37 @@ class MergeChanges {
      * Note that if a single thread modifies a collection directly while it is
      * iterating over the collection with a fail-fast iterator, the iterator
      * will throw java.util.ConcurrentModificationException
+     *
+     * @param apiDiff the differences to merge changes in
+     * @param ctx the context of the run
      */
-    public static void mergeRemoveAdd(APIDiff apiDiff) {
+    public static void mergeRemoveAdd(APIDiff apiDiff, JDiffContext ctx) {
         // Go through all the ClassDiff objects searching for the above cases.
         for (PackageDiff pkgDiff : apiDiff.packagesChanged) {
             for (ClassDiff classDiff : pkgDiff.classesChanged) {
                 // Note: using iterators to step through the members gives a
                 // ConcurrentModificationException exception with large files.
                 // Constructors
-                ConstructorAPI[] ctorArr = new ConstructorAPI[classDiff.ctorsRemoved.size()];
-                ctorArr = classDiff.ctorsRemoved.toArray(ctorArr);
+                ConstructorAPI[] ctorArr = new ConstructorAPI[classDiff.removedCtors_.size()];
+                ctorArr = classDiff.removedCtors_.toArray(ctorArr);
                 for (ConstructorAPI removedCtor : ctorArr) {
-                    mergeRemoveAddCtor(removedCtor, classDiff, pkgDiff);
+                    mergeRemoveAddCtor(ctx, removedCtor, classDiff, pkgDiff);
                 }
                 // Methods
-                MethodAPI[] methodArr = new MethodAPI[classDiff.methodsRemoved.size()];
-                methodArr = classDiff.methodsRemoved.toArray(methodArr);
+                MethodAPI[] methodArr = new MethodAPI[classDiff.removedMethods_.size()];
+                methodArr = classDiff.removedMethods_.toArray(methodArr);
                 for (MethodAPI removedMethod : methodArr) {
                     // Only merge locally defined methods
                     if (removedMethod.inheritedFrom_ == null)
-                        mergeRemoveAddMethod(removedMethod, classDiff, pkgDiff);
+                        mergeRemoveAddMethod(ctx, removedMethod, classDiff, pkgDiff);
                 }
                 // Fields
-                FieldAPI[] fieldArr = new FieldAPI[classDiff.fieldsRemoved.size()];
-                fieldArr = classDiff.fieldsRemoved.toArray(fieldArr);
+                FieldAPI[] fieldArr = new FieldAPI[classDiff.removedFields_.size()];
+                fieldArr = classDiff.removedFields_.toArray(fieldArr);
                 for (FieldAPI removedField : fieldArr) {
                     // Only merge locally defined fields
                     if (removedField.inheritedFrom_ == null)
-                        mergeRemoveAddField(removedField, classDiff, pkgDiff);
+                        mergeRemoveAddField(ctx, removedField, classDiff, pkgDiff);
                 }
             }
         }
@@ -88,26 +91,27 @@ class MergeChanges {
     /**
      * Convert some removed and added constructors into changed constructors.
      */
-    public static void mergeRemoveAddCtor(ConstructorAPI removedCtor, ClassDiff classDiff, PackageDiff pkgDiff) {
+    public static void mergeRemoveAddCtor(JDiffContext ctx, ConstructorAPI removedCtor, ClassDiff classDiff, PackageDiff pkgDiff) {
         // Search on the type of the constructor
-        int startRemoved = classDiff.ctorsRemoved.indexOf(removedCtor);
-        int endRemoved = classDiff.ctorsRemoved.lastIndexOf(removedCtor);
-        int startAdded = classDiff.ctorsAdded.indexOf(removedCtor);
-        int endAdded = classDiff.ctorsAdded.lastIndexOf(removedCtor);
+        int startRemoved = classDiff.removedCtors_.indexOf(removedCtor);
+        int endRemoved = classDiff.removedCtors_.lastIndexOf(removedCtor);
+        int startAdded = classDiff.addedCtors_.indexOf(removedCtor);
+        int endAdded = classDiff.addedCtors_.lastIndexOf(removedCtor);
         if (startRemoved != -1 && startRemoved == endRemoved &&
                 startAdded != -1 && startAdded == endAdded) {
             // There is only one constructor with the type of the
             // removedCtor in both the removed and added constructors.
-            ConstructorAPI addedCtor = (classDiff.ctorsAdded.get(startAdded));
+            ConstructorAPI addedCtor = (classDiff.addedCtors_.get(startAdded));
             // Create a MemberDiff for this change
             MemberDiff ctorDiff = new MemberDiff(classDiff.name_);
             ctorDiff.oldType_ = removedCtor.type_;
             ctorDiff.newType_ = addedCtor.type_; // Should be the same as removedCtor.type
             ctorDiff.oldExceptions_ = removedCtor.exceptions_;
             ctorDiff.newExceptions_ = addedCtor.exceptions_;
-            ctorDiff.addModifiersChange(removedCtor.modifiers_.diff(addedCtor.modifiers_));
+            ctorDiff.addModifiersChange(removedCtor.modifiers_.diff(addedCtor.modifiers_, ctx.incompatibleChangesOnly));
             // Track changes in documentation
-            if (APIComparator.docChanged(removedCtor.doc_, addedCtor.doc_)) {
+            if (APIComparator.docChanged(ctx, removedCtor.docFingerprint_, removedCtor.docNormFingerprint_,
+                    addedCtor.docFingerprint_, addedCtor.docNormFingerprint_)) {
                 String type = ctorDiff.newType_;
                 if (type.compareTo("void") == 0)
                     type = "";
@@ -117,12 +121,12 @@ class MergeChanges {
                 String id = pkgDiff.name_ + "." + classDiff.name_ + ".ctor(" + HTMLReportGenerator.simpleName(type) + ")";
                 String title = link1 + "Class <b>" + classDiff.name_ +
                         "</b></a>, " + link2 + "constructor <b>" + classDiff.name_ + "(" + HTMLReportGenerator.simpleName(type) + ")</b></a>";
-                ctorDiff.documentationChange_ = Diff.saveDocDiffs(pkgDiff.name_, classDiff.name_, removedCtor.doc_, addedCtor.doc_, id, title);
+                ctorDiff.documentationChange_ = ctx.diff.saveDocDiffs(ctx, pkgDiff.name_, classDiff.name_, removedCtor.getDoc(), addedCtor.getDoc(), id, title);
             }
             classDiff.ctorsChanged.add(ctorDiff);
             // Now remove the entries from the remove and add lists
-            classDiff.ctorsRemoved.remove(startRemoved);
-            classDiff.ctorsAdded.remove(startAdded);
+            classDiff.removedCtors_.remove(startRemoved);
+            classDiff.addedCtors_.remove(startAdded);
             if (trace && ctorDiff.modifiersChange_ != null)
                 System.out.println("Merged the removal and addition of constructor into one change: " + ctorDiff.modifiersChange_);
         }
@@ -131,27 +135,28 @@ class MergeChanges {
     /**
      * Convert some removed and added methods into changed methods.
      */
-    public static void mergeRemoveAddMethod(MethodAPI removedMethod,
+    public static void mergeRemoveAddMethod(JDiffContext ctx,
+                                            MethodAPI removedMethod,
                                             ClassDiff classDiff,
                                             PackageDiff pkgDiff) {
-        mergeSingleMethods(removedMethod, classDiff, pkgDiff);
-        mergeMultipleMethods(removedMethod, classDiff, pkgDiff);
+        mergeSingleMethods(ctx, removedMethod, classDiff, pkgDiff);
+        mergeMultipleMethods(ctx, removedMethod, classDiff, pkgDiff);
     }
 
     /**
      * Convert single removed and added methods into a changed method.
      */
-    public static void mergeSingleMethods(MethodAPI removedMethod, ClassDiff classDiff, PackageDiff pkgDiff) {
+    public static void mergeSingleMethods(JDiffContext ctx, MethodAPI removedMethod, ClassDiff classDiff, PackageDiff pkgDiff) {
         // Search on the name of the method
-        int startRemoved = classDiff.methodsRemoved.indexOf(removedMethod);
-        int endRemoved = classDiff.methodsRemoved.lastIndexOf(removedMethod);
-        int startAdded = classDiff.methodsAdded.indexOf(removedMethod);
-        int endAdded = classDiff.methodsAdded.lastIndexOf(removedMethod);
+        int startRemoved = classDiff.removedMethods_.indexOf(removedMethod);
+        int endRemoved = classDiff.removedMethods_.lastIndexOf(removedMethod);
+        int startAdded = classDiff.addedMethods_.indexOf(removedMethod);
+        int endAdded = classDiff.addedMethods_.lastIndexOf(removedMethod);
         if (startRemoved != -1 && startRemoved == endRemoved &&
                 startAdded != -1 && startAdded == endAdded) {
             // There is only one method with the name of the
             // removedMethod in both the removed and added methods.
-            MethodAPI addedMethod = (classDiff.methodsAdded.get(startAdded));
+            MethodAPI addedMethod = (classDiff.addedMethods_.get(startAdded));
             if (addedMethod.inheritedFrom_ == null) {
                 // Create a MemberDiff for this change
                 MemberDiff methodDiff = new MemberDiff(removedMethod.name_);
@@ -164,10 +169,11 @@ class MergeChanges {
                 // The addModifiersChange field may not have been
                 // initialized yet if there were multiple methods of the same
                 // name.
-                diffMethods(methodDiff, removedMethod, addedMethod);
-                methodDiff.addModifiersChange(removedMethod.modifiers_.diff(addedMethod.modifiers_));
+                diffMethods(ctx, methodDiff, removedMethod, addedMethod);
+                methodDiff.addModifiersChange(removedMethod.modifiers_.diff(addedMethod.modifiers_, ctx.incompatibleChangesOnly));
                 // Track changes in documentation
-                if (APIComparator.docChanged(removedMethod.doc_, addedMethod.doc_)) {
+                if (APIComparator.docChanged(ctx, removedMethod.docFingerprint_, removedMethod.docNormFingerprint_,
+                        addedMethod.docFingerprint_, addedMethod.docNormFingerprint_)) {
                     String sig = methodDiff.newSignature_;
                     if (sig.compareTo("void") == 0)
                         sig = "";
@@ -177,12 +183,12 @@ class MergeChanges {
                     String id = pkgDiff.name_ + "." + classDiff.name_ + ".dmethod." + addedMethod.name_ + "(" + HTMLReportGenerator.simpleName(sig) + ")";
                     String title = link1 + "Class <b>" + classDiff.name_ + "</b></a>, " +
                             link2 + HTMLReportGenerator.simpleName(methodDiff.newType_) + " <b>" + addedMethod.name_ + "(" + HTMLReportGenerator.simpleName(sig) + ")</b></a>";
-                    methodDiff.documentationChange_ = Diff.saveDocDiffs(pkgDiff.name_, classDiff.name_, removedMethod.doc_, addedMethod.doc_, id, title);
+                    methodDiff.documentationChange_ = ctx.diff.saveDocDiffs(ctx, pkgDiff.name_, classDiff.name_, removedMethod.getDoc(), addedMethod.getDoc(), id, title);
                 }
                 classDiff.methodsChanged.add(methodDiff);
                 // Now remove the entries from the remove and add lists
-                classDiff.methodsRemoved.remove(startRemoved);
-                classDiff.methodsAdded.remove(startAdded);
+                classDiff.removedMethods_.remove(startRemoved);
+                classDiff.addedMethods_.remove(startAdded);
                 if (trace) {
                     System.out.println("Merged the removal and addition of method " +
                             removedMethod.name_ +
@@ -197,31 +203,30 @@ class MergeChanges {
      * This handles the case where the methods' signatures are unchanged, but
      * something else changed.
      */
-    public static void mergeMultipleMethods(MethodAPI removedMethod, ClassDiff classDiff, PackageDiff pkgDiff) {
+    public static void mergeMultipleMethods(JDiffContext ctx, MethodAPI removedMethod, ClassDiff classDiff, PackageDiff pkgDiff) {
         // Search on the name and signature of the method
-        int startRemoved = classDiff.methodsRemoved.indexOf(removedMethod);
-        int endRemoved = classDiff.methodsRemoved.lastIndexOf(removedMethod);
-        int startAdded = classDiff.methodsAdded.indexOf(removedMethod);
-        int endAdded = classDiff.methodsAdded.lastIndexOf(removedMethod);
+        int startRemoved = classDiff.removedMethods_.indexOf(removedMethod);
+        int endRemoved = classDiff.removedMethods_.lastIndexOf(removedMethod);
+        int startAdded = classDiff.addedMethods_.indexOf(removedMethod);
+        int endAdded = classDiff.addedMethods_.lastIndexOf(removedMethod);
         if (startRemoved != -1 && endRemoved != -1 &&
                 startAdded != -1 && endAdded != -1) {
             // Find the index of the current removed method
             int removedIdx = -1;
             for (int i = startRemoved; i <= endRemoved; i++) {
-                if (removedMethod.equalSignatures(classDiff.methodsRemoved.get(i))) {
+                if (removedMethod.equalSignatures(classDiff.removedMethods_.get(i))) {
                     removedIdx = i;
                     break;
                 }
             }
             if (removedIdx == -1) {
-                System.out.println("Error: removed method index not found");
-                System.exit(5);
+                throw new JDiffException("removed method index not found");
             }
             // Find the index of the added method with the same signature, if
             // it exists, and make sure it is defined locally.
             int addedIdx = -1;
             for (int i = startAdded; i <= endAdded; i++) {
-                MethodAPI addedMethod2 = (classDiff.methodsAdded.get(i));
+                MethodAPI addedMethod2 = (classDiff.addedMethods_.get(i));
                 if (addedMethod2.inheritedFrom_ == null &&
                         removedMethod.equalSignatures(addedMethod2))
                     addedIdx = i;
@@ -229,7 +234,7 @@ class MergeChanges {
             }
             if (addedIdx == -1)
                 return;
-            MethodAPI addedMethod = (classDiff.methodsAdded.get(addedIdx));
+            MethodAPI addedMethod = (classDiff.addedMethods_.get(addedIdx));
             // Create a MemberDiff for this change
             MemberDiff methodDiff = new MemberDiff(removedMethod.name_);
             methodDiff.oldType_ = removedMethod.returnType_;
@@ -241,10 +246,11 @@ class MergeChanges {
             // The addModifiersChange field may not have been
             // initialized yet if there were multiple methods of the same
             // name.
-            diffMethods(methodDiff, removedMethod, addedMethod);
-            methodDiff.addModifiersChange(removedMethod.modifiers_.diff(addedMethod.modifiers_));
+            diffMethods(ctx, methodDiff, removedMethod, addedMethod);
+            methodDiff.addModifiersChange(removedMethod.modifiers_.diff(addedMethod.modifiers_, ctx.incompatibleChangesOnly));
             // Track changes in documentation
-            if (APIComparator.docChanged(removedMethod.doc_, addedMethod.doc_)) {
+            if (APIComparator.docChanged(ctx, removedMethod.docFingerprint_, removedMethod.docNormFingerprint_,
+                    addedMethod.docFingerprint_, addedMethod.docNormFingerprint_)) {
                 String sig = methodDiff.newSignature_;
                 if (sig.compareTo("void") == 0)
                     sig = "";
@@ -254,12 +260,12 @@ class MergeChanges {
                 String id = pkgDiff.name_ + "." + classDiff.name_ + ".dmethod." + addedMethod.name_ + "(" + HTMLReportGenerator.simpleName(sig) + ")";
                 String title = link1 + "Class <b>" + classDiff.name_ + "</b></a>, " +
                         link2 + HTMLReportGenerator.simpleName(methodDiff.newType_) + " <b>" + addedMethod.name_ + "(" + HTMLReportGenerator.simpleName(sig) + ")</b></a>";
-                methodDiff.documentationChange_ = Diff.saveDocDiffs(pkgDiff.name_, classDiff.name_, removedMethod.doc_, addedMethod.doc_, id, title);
+                methodDiff.documentationChange_ = ctx.diff.saveDocDiffs(ctx, pkgDiff.name_, classDiff.name_, removedMethod.getDoc(), addedMethod.getDoc(), id, title);
             }
             classDiff.methodsChanged.add(methodDiff);
             // Now remove the entries from the remove and add lists
-            classDiff.methodsRemoved.remove(removedIdx);
-            classDiff.methodsAdded.remove(addedIdx);
+            classDiff.removedMethods_.remove(removedIdx);
+            classDiff.addedMethods_.remove(addedIdx);
             if (trace) {
                 System.out.println("Merged the removal and addition of method " +
                         removedMethod.name_ +
@@ -272,33 +278,34 @@ class MergeChanges {
      * Track changes in methods related to abstract, native, and
      * synchronized modifiers here.
      */
-    public static void diffMethods(MemberDiff methodDiff,
+    public static void diffMethods(JDiffContext ctx,
+                                   MemberDiff methodDiff,
                                    MethodAPI oldMethod,
                                    MethodAPI newMethod) {
         // Abstract or not
-        if (oldMethod.isAbstract_ != newMethod.isAbstract_) {
+        if (oldMethod.modifiers_.isAbstract() != newMethod.modifiers_.isAbstract()) {
             String changeText = "";
-            if (oldMethod.isAbstract_)
+            if (oldMethod.modifiers_.isAbstract())
                 changeText += "Changed from abstract to non-abstract.";
             else
                 changeText += "Changed from non-abstract to abstract.";
             methodDiff.addModifiersChange(changeText);
         }
         // Native or not
-        if (Diff.showAllChanges &&
-                oldMethod.isNative_ != newMethod.isNative_) {
+        if (ctx.showAllChanges &&
+                oldMethod.modifiers_.isNative() != newMethod.modifiers_.isNative()) {
             String changeText = "";
-            if (oldMethod.isNative_)
+            if (oldMethod.modifiers_.isNative())
                 changeText += "Changed from native to non-native.";
             else
                 changeText += "Changed from non-native to native.";
             methodDiff.addModifiersChange(changeText);
         }
         // Synchronized or not
-        if (Diff.showAllChanges &&
-                oldMethod.isSynchronized_ != newMethod.isSynchronized_) {
+        if (ctx.showAllChanges &&
+                oldMethod.modifiers_.isSynchronized() != newMethod.modifiers_.isSynchronized()) {
             String changeText = "";
-            if (oldMethod.isSynchronized_)
+            if (oldMethod.modifiers_.isSynchronized())
                 changeText += "Changed from synchronized to non-synchronized.";
             else
                 changeText += "Changed from non-synchronized to synchronized.";
@@ -309,37 +316,38 @@ class MergeChanges {
     /**
      * Convert some removed and added fields into changed fields.
      */
-    public static void mergeRemoveAddField(FieldAPI removedField, ClassDiff classDiff, PackageDiff pkgDiff) {
+    public static void mergeRemoveAddField(JDiffContext ctx, FieldAPI removedField, ClassDiff classDiff, PackageDiff pkgDiff) {
         // Search on the name of the field
-        int startRemoved = classDiff.fieldsRemoved.indexOf(removedField);
-        int endRemoved = classDiff.fieldsRemoved.lastIndexOf(removedField);
-        int startAdded = classDiff.fieldsAdded.indexOf(removedField);
-        int endAdded = classDiff.fieldsAdded.lastIndexOf(removedField);
+        int startRemoved = classDiff.removedFields_.indexOf(removedField);
+        int endRemoved = classDiff.removedFields_.lastIndexOf(removedField);
+        int startAdded = classDiff.addedFields_.indexOf(removedField);
+        int endAdded = classDiff.addedFields_.lastIndexOf(removedField);
         if (startRemoved != -1 && startRemoved == endRemoved &&
                 startAdded != -1 && startAdded == endAdded) {
             // There is only one field with the name of the
             // removedField in both the removed and added fields.
-            FieldAPI addedField = (classDiff.fieldsAdded.get(startAdded));
+            FieldAPI addedField = (classDiff.addedFields_.get(startAdded));
             if (addedField.inheritedFrom_ == null) {
                 // Create a MemberDiff for this change
                 MemberDiff fieldDiff = new MemberDiff(removedField.name_);
                 fieldDiff.oldType_ = removedField.type_;
                 fieldDiff.newType_ = addedField.type_;
-                fieldDiff.addModifiersChange(removedField.modifiers_.diff(addedField.modifiers_));
+                fieldDiff.addModifiersChange(removedField.modifiers_.diff(addedField.modifiers_, ctx.incompatibleChangesOnly));
                 // Track changes in documentation
-                if (APIComparator.docChanged(removedField.doc_, addedField.doc_)) {
+                if (APIComparator.docChanged(ctx, removedField.docFingerprint_, removedField.docNormFingerprint_,
+                        addedField.docFingerprint_, addedField.docNormFingerprint_)) {
                     String fqName = pkgDiff.name_ + "." + classDiff.name_;
                     String link1 = "<a href=\"" + fqName + HTMLReportGenerator.reportFileExt + "\" class=\"hiddenlink\">";
                     String link2 = "<a href=\"" + fqName + HTMLReportGenerator.reportFileExt + "#" + fqName + "." + addedField.name_ + "\" class=\"hiddenlink\">";
                     String id = pkgDiff.name_ + "." + classDiff.name_ + ".field." + addedField.name_;
                     String title = link1 + "Class <b>" + classDiff.name_ + "</b></a>, " +
                             link2 + HTMLReportGenerator.simpleName(fieldDiff.newType_) + " <b>" + addedField.name_ + "</b></a>";
-                    fieldDiff.documentationChange_ = Diff.saveDocDiffs(pkgDiff.name_, classDiff.name_, removedField.doc_, addedField.doc_, id, title);
+                    fieldDiff.documentationChange_ = ctx.diff.saveDocDiffs(ctx, pkgDiff.name_, classDiff.name_, removedField.getDoc(), addedField.getDoc(), id, title);
                 }
                 classDiff.fieldsChanged.add(fieldDiff);
                 // Now remove the entries from the remove and add lists
-                classDiff.fieldsRemoved.remove(startRemoved);
-                classDiff.fieldsAdded.remove(startAdded);
+                classDiff.removedFields_.remove(startRemoved);
+                classDiff.addedFields_.remove(startAdded);
                 if (trace) {
                     System.out.println("Merged the removal and addition of field " +
                             removedField.name_ +
@@ -26,7 +26,10 @@ import java.util.List;
  * Javadoc doclet API.
  * <p>
  * The method used for Collection comparison (compareTo) must make its
- * comparison based upon everything that is known about this method.
+ * comparison based upon everything that is known about this method,
+ * except for what depends on the options of the run, such as where it is
+ * inherited from and its documentation, which {@link APIComparator}
+ * compares itself.
  *
  * @author Matthew Doar, mdoar@pobox.com
  */
@@ -37,11 +40,21 @@ class MethodAPI implements Comparable<MethodAPI> {
      */
     public String name_;
 
+    /**
+     * The id of the name in the {@link SymbolTable} for this run.
+     */
+    public int nameId_ = SymbolTable.NO_ID;
+
     /**
      * Return type of the method.
      */
     public String returnType_;
 
+    /**
+     * The id of the return type in the {@link SymbolTable} for this run.
+     */
+    public int returnTypeId_ = SymbolTable.NO_ID;
+
     /**
      * The fully qualified name of the class or interface this method is
      * inherited from. If this is null, then the method is defined locally
@@ -56,48 +69,62 @@ class MethodAPI implements Comparable<MethodAPI> {
     public String exceptions_ = "no exceptions";
 
     /**
-     * Set if this method is abstract.
+     * The id of the exceptions in the {@link SymbolTable} for this run.
      */
-    public boolean isAbstract_;
+    public int exceptionsId_ = SymbolTable.NO_ID;
 
     /**
-     * Set if this method is native.
+     * Modifiers for this method, including whether it is abstract, native
+     * or synchronized.
      */
-    public boolean isNative_;
+    public Modifiers modifiers_;
+
+    public List<ParamAPI> params_; // ParamAPI[]
 
     /**
-     * Set if this method is synchronized.
+     * The doc block, default is null. This is also null if the doc block
+     * is to be read on demand, so use {@link #getDoc()} to read it.
      */
-    public boolean isSynchronized_;
+    public String doc_;
 
     /**
-     * Modifiers for this class.
+     * The XML file to read the doc block from on demand, null if the doc
+     * block is kept in memory or there is none.
      */
-    public Modifiers modifiers_;
+    public DocSource docSource_;
 
-    public List<ParamAPI> params_; // ParamAPI[]
+    /**
+     * The location of the doc block in {@link #docSource_}.
+     */
+    public long docLocation_;
 
     /**
-     * The doc block, default is null.
+     * The exact fingerprint of the doc block, see {@link DocFingerprint}.
      */
-    public String doc_;
+    public long docFingerprint_;
+
+    /**
+     * The fingerprint of the doc block ignoring reformatting, see
+     * {@link DocFingerprint}.
+     */
+    public long docNormFingerprint_;
 
     /**
      * Cached result of getSignature().
      */
     public String signature_ = null;
 
+    /**
+     * The id of the signature in the {@link SymbolTable} for this run.
+     */
+    public int signatureId_ = SymbolTable.NO_ID;
+
     /**
      * Constructor.
      */
-    public MethodAPI(String name, String returnType, boolean isAbstract,
-                     boolean isNative, boolean isSynchronized,
-                     Modifiers modifiers) {
+    public MethodAPI(String name, String returnType, Modifiers modifiers) {
         name_ = name;
         returnType_ = returnType;
-        isAbstract_ = isAbstract;
-        isNative_ = isNative;
-        isSynchronized_ = isSynchronized;
         modifiers_ = modifiers;
         params_ = new ArrayList<>(); // ParamAPI[]
     }
@@ -107,68 +134,68 @@ class MethodAPI implements Comparable<MethodAPI> {
      */
     public MethodAPI(MethodAPI m) {
         name_ = m.name_;
+        nameId_ = m.nameId_;
         returnType_ = m.returnType_;
+        returnTypeId_ = m.returnTypeId_;
         inheritedFrom_ = m.inheritedFrom_;
         exceptions_ = m.exceptions_;
-        isAbstract_ = m.isAbstract_;
-        isNative_ = m.isNative_;
-        isSynchronized_ = m.isSynchronized_;
-        modifiers_ = m.modifiers_; // Note: shallow copy
+        exceptionsId_ = m.exceptionsId_;
+        modifiers_ = m.modifiers_; // Note: shared
         params_ = m.params_; // Note: shallow copy
         doc_ = m.doc_;
+        docSource_ = m.docSource_;
+        docLocation_ = m.docLocation_;
+        docFingerprint_ = m.docFingerprint_;
+        docNormFingerprint_ = m.docNormFingerprint_;
         signature_ = m.signature_; // Cached
+        signatureId_ = m.signatureId_;
     }
 
     /**
-     * Compare two methods, including the return type, and parameter
-     * names and types, and modifiers.
+     * Return the doc block, reading it from the XML file if it was not
+     * kept in memory. Null if there is no doc block.
+     */
+    public String getDoc() {
+        return DocSource.text(doc_, docSource_, docLocation_);
+    }
+
+    /**
+     * Compare two methods, including the return type, exceptions,
+     * modifiers and parameter types.
      */
     public int compareTo(MethodAPI o) {
-        int comp = name_.compareTo(o.name_);
+        int comp = SymbolTable.compare(nameId_, name_, o.nameId_, o.name_);
         if (comp != 0)
             return comp;
-        comp = returnType_.compareTo(o.returnType_);
+        comp = SymbolTable.compare(returnTypeId_, returnType_, o.returnTypeId_, o.returnType_);
         if (comp != 0)
             return comp;
-        if (JDiff.compareMethodInheritance && APIComparator.changedInheritance(inheritedFrom_, o.inheritedFrom_) != 0)
-            return -1;
-        if (isAbstract_ != o.isAbstract_) {
-            return -1;
-        }
-        if (Diff.showAllChanges &&
-                isNative_ != o.isNative_) {
-            return -1;
-        }
-        if (Diff.showAllChanges &&
-                isSynchronized_ != o.isSynchronized_) {
-            return -1;
-        }
-        comp = exceptions_.compareTo(o.exceptions_);
+        comp = SymbolTable.compare(exceptionsId_, exceptions_, o.exceptionsId_, o.exceptions_);
         if (comp != 0)
             return comp;
         comp = modifiers_.compareTo(o.modifiers_);
         if (comp != 0)
             return comp;
-        comp = getSignature().compareTo(o.getSignature());
-        if (comp != 0)
-            return comp;
-        if (APIComparator.docChanged(doc_, o.doc_))
-            return -1;
-        return 0;
+        return SymbolTable.compare(signatureId_, getSignature(), o.signatureId_, o.getSignature());
     }
 
     /**
      * Tests two methods, using just the method name, used by indexOf().
      */
     public boolean equals(Object o) {
-        return this == o || o instanceof MethodAPI && name_.compareTo(((MethodAPI) o).name_) == 0;
+        if (this == o)
+            return true;
+        if (!(o instanceof MethodAPI))
+            return false;
+        MethodAPI m = (MethodAPI) o;
+        return SymbolTable.same(nameId_, name_, m.nameId_, m.name_);
     }
 
     /**
      * Tests two methods for equality, using just the signature.
      */
     public boolean equalSignatures(MethodAPI o) {
-        return this == o || getSignature().compareTo((o).getSignature()) == 0;
+        return this == o || SymbolTable.same(signatureId_, getSignature(), o.signatureId_, o.getSignature());
     }
 
     /**
@@ -21,54 +21,218 @@ package jdiff;
 /**
  * Track the various modifiers for a program element.
  * <p>
+ * All the modifiers are packed into a single int, and there is only ever
+ * one Modifiers object for each combination of modifiers, so the objects
+ * can be shared by any number of program elements. Use {@link #of(int)}
+ * to obtain one.
+ * <p>
  * The method used for Collection comparison (compareTo) must make its
  * comparison based upon everything that is known about this set of modifiers.
+ * The modifiers which only apply to some kinds of program element (abstract,
+ * native, synchronized, transient and volatile) are compared by those
+ * elements themselves, using {@link #changes(Modifiers)}.
  *
  * @author Matthew Doar, mdoar@pobox.com
  */
-class Modifiers implements Comparable<Modifiers> {
+final class Modifiers implements Comparable<Modifiers> {
+
+    /**
+     * The visibility levels, in the same order as their names.
+     */
+    enum Visibility {
+        PACKAGE, PRIVATE, PROTECTED, PUBLIC;
+
+        /**
+         * The name used in the XML and in the report.
+         */
+        private final String name_ = name().toLowerCase();
+
+        /**
+         * Return the visibility with the given name, or null if the name
+         * is not a known visibility level.
+         */
+        static Visibility parse(String name) {
+            if (name == null)
+                return null;
+            switch (name) {
+                case "package": return PACKAGE;
+                case "private": return PRIVATE;
+                case "protected": return PROTECTED;
+                case "public": return PUBLIC;
+                default: return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name_;
+        }
+    }
 
     /**
      * Set if the program element is static.
      */
-    public boolean isStatic;
+    static final int STATIC = 1;
 
     /**
      * Set if the program element is final.
      */
-    public boolean isFinal;
+    static final int FINAL = 1 << 1;
 
     /**
      * Set if the program element is deprecated.
      */
-    public boolean isDeprecated;
+    static final int DEPRECATED = 1 << 2;
 
     /**
-     * The visibility level; "public", "protected", "package" or
-     * "private"
+     * Set if the class or method is abstract.
      */
-    public String visibility;
+    static final int ABSTRACT = 1 << 3;
 
     /**
-     * Default constructor.
+     * Set if the method is native.
      */
-    public Modifiers() {
+    static final int NATIVE = 1 << 4;
+
+    /**
+     * Set if the method is synchronized.
+     */
+    static final int SYNCHRONIZED = 1 << 5;
+
+    /**
+     * Set if the field is transient.
+     */
+    static final int TRANSIENT = 1 << 6;
+
+    /**
+     * Set if the field is volatile.
+     */
+    static final int VOLATILE = 1 << 7;
+
+    /**
+     * The position of the visibility level, stored as its ordinal plus one,
+     * so that zero means that the visibility is not known.
+     */
+    private static final int VISIBILITY_SHIFT = 8;
+
+    /**
+     * The bits which hold the visibility level.
+     */
+    static final int VISIBILITY = 7 << VISIBILITY_SHIFT;
+
+    /**
+     * The bits which are compared by compareTo and described by diff.
+     */
+    private static final int COMMON = STATIC | FINAL | DEPRECATED | VISIBILITY;
+
+    /**
+     * The shared instances, indexed by their bits.
+     */
+    private static final Modifiers[] instances_ = new Modifiers[1 << (VISIBILITY_SHIFT + 3)];
+
+    /**
+     * All the modifiers of the program element.
+     */
+    private final int bits_;
+
+    /**
+     * Use {@link #of(int)}.
+     */
+    private Modifiers(int bits) {
+        bits_ = bits;
     }
 
     /**
-     * Compare two Modifiers objects by their contents.
+     * Return the shared Modifiers object for the given modifiers.
+     *
+     * @param bits the modifier flags, such as {@link #STATIC}, combined
+     *             with the result of {@link #visibilityBits(Visibility)}
      */
-    public int compareTo(Modifiers o) {
-        if (isStatic != o.isStatic)
-            return -1;
-        if (isFinal != o.isFinal)
-            return -1;
-        if (isDeprecated != o.isDeprecated)
-            return -1;
-        if (visibility != null) {
-            return visibility.compareTo(o.visibility);
+    static Modifiers of(int bits) {
+        Modifiers modifiers = instances_[bits];
+        if (modifiers == null) {
+            // Racing threads may create equal objects, which is harmless
+            modifiers = new Modifiers(bits);
+            instances_[bits] = modifiers;
         }
-        return 0;
+        return modifiers;
+    }
+
+    /**
+     * Return the bits which represent a visibility level.
+     *
+     * @param visibility the visibility level, null if it is not known
+     */
+    static int visibilityBits(Visibility visibility) {
+        if (visibility == null)
+            return 0;
+        return (visibility.ordinal() + 1) << VISIBILITY_SHIFT;
+    }
+
+    /**
+     * Return all the modifiers packed into an int.
+     */
+    int bits() {
+        return bits_;
+    }
+
+    public boolean isStatic() {
+        return (bits_ & STATIC) != 0;
+    }
+
+    public boolean isFinal() {
+        return (bits_ & FINAL) != 0;
+    }
+
+    public boolean isDeprecated() {
+        return (bits_ & DEPRECATED) != 0;
+    }
+
+    public boolean isAbstract() {
+        return (bits_ & ABSTRACT) != 0;
+    }
+
+    public boolean isNative() {
+        return (bits_ & NATIVE) != 0;
+    }
+
+    public boolean isSynchronized() {
+        return (bits_ & SYNCHRONIZED) != 0;
+    }
+
+    public boolean isTransient() {
+        return (bits_ & TRANSIENT) != 0;
+    }
+
+    public boolean isVolatile() {
+        return (bits_ & VOLATILE) != 0;
+    }
+
+    /**
+     * Return the visibility level, or null if it is not known.
+     */
+    public Visibility getVisibility() {
+        int ordinal = (bits_ & VISIBILITY) >>> VISIBILITY_SHIFT;
+        if (ordinal == 0)
+            return null;
+        return Visibility.values()[ordinal - 1];
+    }
+
+    /**
+     * Return the modifiers which differ between this object and another
+     * one, as a mask of the flags such as {@link #STATIC}. If the
+     * visibility differs, some of the {@link #VISIBILITY} bits are set.
+     */
+    public int changes(Modifiers o) {
+        return bits_ ^ o.bits_;
+    }
+
+    /**
+     * Compare two Modifiers objects by their contents, first by visibility
+     * and then by the other modifiers.
+     */
+    public int compareTo(Modifiers o) {
+        return Integer.compare(bits_ & COMMON, o.bits_ & COMMON);
     }
 
     /**
@@ -77,51 +241,49 @@ class Modifiers implements Comparable<Modifiers> {
      * no leading space, but does end in a period.
      *
      * @param newModifiers The new Modifiers object.
+     * @param incompatibleChangesOnly set if changes in deprecation are
+     *                                not reported.
      * @return The description of the differences, null if there is no change.
      */
-    public String diff(Modifiers newModifiers) {
-        String res = "";
-        boolean hasContent = false;
-        if (isStatic != newModifiers.isStatic) {
-            res += "Change from ";
-            if (isStatic)
-                res += "static to non-static.<br>";
+    public String diff(Modifiers newModifiers, boolean incompatibleChangesOnly) {
+        int changes = changes(newModifiers) & COMMON;
+        if (incompatibleChangesOnly)
+            changes &= ~DEPRECATED;
+        if ((bits_ & VISIBILITY) == 0)
+            changes &= ~VISIBILITY;
+        if (changes == 0)
+            return null;
+        StringBuilder res = new StringBuilder();
+        if ((changes & STATIC) != 0) {
+            res.append("Change from ");
+            if (isStatic())
+                res.append("static to non-static.<br>");
             else
-                res += "non-static to static.<br>";
-            hasContent = true;
+                res.append("non-static to static.<br>");
         }
-        if (isFinal != newModifiers.isFinal) {
-            if (hasContent)
-                res += " ";
-            res += "Change from ";
-            if (isFinal)
-                res += "final to non-final.<br>";
+        if ((changes & FINAL) != 0) {
+            if (res.length() != 0)
+                res.append(' ');
+            res.append("Change from ");
+            if (isFinal())
+                res.append("final to non-final.<br>");
             else
-                res += "non-final to final.<br>";
-            hasContent = true;
+                res.append("non-final to final.<br>");
         }
-        if (!HTMLReportGenerator.incompatibleChangesOnly &&
-                isDeprecated != newModifiers.isDeprecated) {
-            if (hasContent)
-                res += " ";
-            if (isDeprecated)
-                res += "Change from deprecated to undeprecated.<br>";
+        if ((changes & DEPRECATED) != 0) {
+            if (res.length() != 0)
+                res.append(' ');
+            if (isDeprecated())
+                res.append("Change from deprecated to undeprecated.<br>");
             else
-                res += "<b>Now deprecated</b>.<br>";
-            hasContent = true;
+                res.append("<b>Now deprecated</b>.<br>");
         }
-        if (visibility != null) {
-            int comp = visibility.compareTo(newModifiers.visibility);
-            if (comp != 0) {
-                if (hasContent)
-                    res += " ";
-                res += "Change of visibility from " + visibility + " to " +
-                        newModifiers.visibility + ".<br>";
-                hasContent = true;
-            }
+        if ((changes & VISIBILITY) != 0) {
+            if (res.length() != 0)
+                res.append(' ');
+            res.append("Change of visibility from ").append(getVisibility())
+                    .append(" to ").append(newModifiers.getVisibility()).append(".<br>");
         }
-        if (res.compareTo("") == 0)
-            return null;
-        return res;
+        return res.toString();
     }
 }
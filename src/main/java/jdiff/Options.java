@@ -21,6 +21,7 @@ package jdiff;
 import com.sun.javadoc.DocErrorReporter;
 
 import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  * Class to handle options for JDiff.
@@ -34,11 +35,6 @@ public class Options {
      */
     private static final boolean trace = false;
 
-    /**
-     * All the options passed on the command line. Logged to XML.
-     */
-    public static String cmdOptions = "";
-
     /**
      * Default constructor.
      */
@@ -105,6 +101,8 @@ public class Options {
             case "-excludemember": return 2;
             case "-firstsentence": return 1;
             case "-docchanges": return 1;
+            case "-ignoredocreformat": return 1;
+            case "-lazydocs": return 1;
             case "-incompatible": return 1;
             case "-packagesonly": return 1;
             case "-showallchanges": return 1;
@@ -129,6 +127,16 @@ public class Options {
             case "-excludetag": return 2;
             // Generate statistical output
             case "-stats": return 1;
+            // Register the JDiff MXBean for the length of the run
+            case "-jmx": return 1;
+            // Serve the report over HTTP instead of writing it
+            case "-serve": return 2;
+            // Seconds between progress lines
+            case "-progress": return 2;
+            // Number of warnings of each kind to print
+            case "-maxwarnings": return 2;
+            // Heap budget in MB
+            case "-heapbudget": return 2;
 
             // Set the browser window title
             case "-windowtitle": return 2;
@@ -170,8 +178,30 @@ public class Options {
      */
     public static boolean validOptions(String[][] options,
                                        DocErrorReporter reporter) {
-        final DocErrorReporter errOut = reporter;
+        boolean valid = parseOptions(options, reporter::printError);
+        // Javadoc has nothing more to do once the version or the usage
+        // has been shown
+        for (String[] option : options) {
+            String mainOption = option[0].toLowerCase(Locale.ENGLISH);
+            if (mainOption.equals("-version") || mainOption.equals("-help"))
+                System.exit(0);
+        }
+        return valid;
+    }
 
+    /**
+     * Check and apply the options, in the same form as for
+     * {@link #validOptions}, but without needing any Javadoc classes.
+     * The -version and -help options show the version or the usage, and
+     * then this returns false without an error, since there is nothing
+     * to compare.
+     *
+     * @param options  an array of String arrays, one per option
+     * @param errOut   where to send the error messages
+     * @return true if no errors were found, and all options are
+     * valid
+     */
+    static boolean parseOptions(String[][] options, Consumer<String> errOut) {
         // A nice object-oriented way of handling errors. An instance of this
         // class puts out an error message and keeps track of whether or not
         // an error was found.
@@ -180,16 +210,17 @@ public class Options {
 
             void msg(String msg) {
                 noErrorsFound = false;
-                errOut.printError(msg);
+                errOut.accept(msg);
             }
         }
 
         ErrorHandler err = new ErrorHandler();
+        JDiffContext ctx = JDiffContext.current();
         if (trace)
             System.out.println("Command line arguments: ");
         for (String[] strings : options) {
             for (String string : strings) {
-                Options.cmdOptions += " " + string;
+                ctx.cmdOptions += " " + string;
                 if (trace)
                     System.out.print(" " + string);
             }
@@ -203,90 +234,90 @@ public class Options {
                 case "-apiname":
                     if (option.length < 2) {
                         err.msg("No version identifier specified after -apiname option.");
-                    } else if (JDiff.compareAPIs) {
+                    } else if (ctx.compareAPIs) {
                         err.msg("Use the -apiname option, or the -oldapi and -newapi options, but not both.");
                     } else {
                         String filename = option[1];
-                        RootDocToXML.apiIdentifier = filename;
+                        ctx.apiIdentifier = filename;
                         filename = filename.replace(' ', '_');
-                        RootDocToXML.outputFileName = filename + ".xml";
-                        JDiff.writeXML = true;
-                        JDiff.compareAPIs = false;
+                        ctx.apiFileName = filename + ".xml";
+                        ctx.writeXML = true;
+                        ctx.compareAPIs = false;
                     }
                     break;
                 case "-apidir":
                     if (option.length < 2) {
                         err.msg("No directory specified after -apidir option.");
                     } else {
-                        RootDocToXML.outputDirectory = option[1];
+                        ctx.apiDirectory = option[1];
                     }
                     break;
                 case "-oldapi":
                     if (option.length < 2) {
                         err.msg("No version identifier specified after -oldapi option.");
-                    } else if (JDiff.writeXML) {
+                    } else if (ctx.writeXML) {
                         err.msg("Use the -apiname or -oldapi option, but not both.");
                     } else {
                         String filename = option[1];
                         filename = filename.replace(' ', '_');
-                        JDiff.oldFileName = filename + ".xml";
-                        JDiff.writeXML = false;
-                        JDiff.compareAPIs = true;
+                        ctx.oldFileName = filename + ".xml";
+                        ctx.writeXML = false;
+                        ctx.compareAPIs = true;
                     }
                     break;
                 case "-oldapidir":
                     if (option.length < 2) {
                         err.msg("No directory specified after -oldapidir option.");
                     } else {
-                        JDiff.oldDirectory = option[1];
+                        ctx.oldDirectory = option[1];
                     }
                     break;
                 case "-newapi":
                     if (option.length < 2) {
                         err.msg("No version identifier specified after -newapi option.");
-                    } else if (JDiff.writeXML) {
+                    } else if (ctx.writeXML) {
                         err.msg("Use the -apiname or -newapi option, but not both.");
                     } else {
                         String filename = option[1];
                         filename = filename.replace(' ', '_');
-                        JDiff.newFileName = filename + ".xml";
-                        JDiff.writeXML = false;
-                        JDiff.compareAPIs = true;
+                        ctx.newFileName = filename + ".xml";
+                        ctx.writeXML = false;
+                        ctx.compareAPIs = true;
                     }
                     break;
                 case "-newapidir":
                     if (option.length < 2) {
                         err.msg("No directory specified after -newapidir option.");
                     } else {
-                        JDiff.newDirectory = option[1];
+                        ctx.newDirectory = option[1];
                     }
                     break;
                 case "-d":
                     if (option.length < 2) {
                         err.msg("No directory specified after -d option.");
                     } else {
-                        HTMLReportGenerator.outputDir = option[1];
+                        ctx.outputDir = option[1];
                     }
                     break;
                 case "-javadocnew":
                     if (option.length < 2) {
                         err.msg("No location specified after -javadocnew option.");
                     } else {
-                        HTMLReportGenerator.newDocPrefix = option[1];
+                        ctx.newDocPrefix = option[1];
                     }
                     break;
                 case "-javadocold":
                     if (option.length < 2) {
                         err.msg("No location specified after -javadocold option.");
                     } else {
-                        HTMLReportGenerator.oldDocPrefix = option[1];
+                        ctx.oldDocPrefix = option[1];
                     }
                     break;
                 case "-baseuri":
                     if (option.length < 2) {
                         err.msg("No base location specified after -baseURI option.");
                     } else {
-                        RootDocToXML.baseURI = option[1];
+                        ctx.baseURI = option[1];
                     }
                     break;
                 case "-excludeclass":
@@ -300,7 +331,7 @@ public class Options {
                                 level.compareTo("private") != 0) {
                             err.msg("Level specified after -excludeclass option must be one of (public|protected|package|private).");
                         } else {
-                            RootDocToXML.classVisibilityLevel = level;
+                            ctx.classVisibilityLevel = level;
                         }
                     }
                     break;
@@ -315,31 +346,37 @@ public class Options {
                                 level.compareTo("private") != 0) {
                             err.msg("Level specified after -excludemember option must be one of (public|protected|package|private).");
                         } else {
-                            RootDocToXML.memberVisibilityLevel = level;
+                            ctx.memberVisibilityLevel = level;
                         }
                     }
                     break;
                 case "-firstsentence":
-                    RootDocToXML.saveAllDocs = false;
+                    ctx.saveAllDocs = false;
                     break;
                 case "-docchanges":
-                    HTMLReportGenerator.reportDocChanges = true;
-                    Diff.noDocDiffs = false;
+                    ctx.reportDocChanges = true;
+                    ctx.diff.noDocDiffs = false;
+                    break;
+                case "-ignoredocreformat":
+                    ctx.ignoreDocReformat = true;
+                    break;
+                case "-lazydocs":
+                    ctx.lazyDocs = true;
                     break;
                 case "-incompatible":
-                    HTMLReportGenerator.incompatibleChangesOnly = true;
+                    ctx.incompatibleChangesOnly = true;
                     break;
                 case "-packagesonly":
-                    RootDocToXML.packagesOnly = true;
+                    ctx.packagesOnly = true;
                     break;
                 case "-showallchanges":
-                    Diff.showAllChanges = true;
+                    ctx.showAllChanges = true;
                     break;
                 case "-dontcomparemethodinheritance":
-                    JDiff.compareMethodInheritance = false;
+                    ctx.compareMethodInheritance = false;
                     break;
                 case "-dontcomparefieldinheritance":
-                    JDiff.compareFieldInheritance = false;
+                    ctx.compareFieldInheritance = false;
                     break;
                 case "-nosuggest":
                     if (option.length < 2) {
@@ -353,69 +390,131 @@ public class Options {
                             err.msg("Level specified after -nosuggest option must be one of (all|remove|add|change).");
                         } else {
                             if (level.compareTo("removal") == 0)
-                                HTMLReportGenerator.noCommentsOnRemovals = true;
+                                ctx.noCommentsOnRemovals = true;
                             else if (level.compareTo("add") == 0)
-                                HTMLReportGenerator.noCommentsOnAdditions = true;
+                                ctx.noCommentsOnAdditions = true;
                             else if (level.compareTo("change") == 0)
-                                HTMLReportGenerator.noCommentsOnChanges = true;
+                                ctx.noCommentsOnChanges = true;
                             else if (level.compareTo("all") == 0) {
-                                HTMLReportGenerator.noCommentsOnRemovals = true;
-                                HTMLReportGenerator.noCommentsOnAdditions = true;
-                                HTMLReportGenerator.noCommentsOnChanges = true;
+                                ctx.noCommentsOnRemovals = true;
+                                ctx.noCommentsOnAdditions = true;
+                                ctx.noCommentsOnChanges = true;
                             }
                         }
                     }
                     break;
                 case "-checkcomments":
-                    APIHandler.checkIsSentence = true;
+                    ctx.checkIsSentence = true;
                     break;
                 case "-retainnonprinting":
-                    RootDocToXML.stripNonPrintables = false;
+                    ctx.stripNonPrintables = false;
                     break;
                 case "-excludetag":
                     if (option.length < 2) {
                         err.msg("No exclude tag specified after -excludetag option.");
                     } else {
-                        RootDocToXML.excludeTag = option[1];
-                        RootDocToXML.excludeTag = RootDocToXML.excludeTag.trim();
-                        RootDocToXML.doExclude = true;
+                        ctx.excludeTag = option[1];
+                        ctx.excludeTag = ctx.excludeTag.trim();
+                        ctx.doExclude = true;
                     }
                     break;
                 case "-stats":
-                    HTMLReportGenerator.doStats = true;
+                    ctx.doStats = true;
+                    break;
+                case "-jmx":
+                    ctx.jmx = true;
+                    break;
+                case "-serve":
+                    if (option.length < 2) {
+                        err.msg("No port specified after -serve option.");
+                    } else {
+                        try {
+                            ctx.servePort = Integer.parseInt(option[1]);
+                        } catch (NumberFormatException e) {
+                            err.msg("Invalid port '" + option[1] + "' specified after -serve option.");
+                        }
+                    }
+                    break;
+                case "-progress":
+                    if (option.length < 2) {
+                        err.msg("No number of seconds specified after -progress option.");
+                    } else {
+                        int seconds;
+                        try {
+                            seconds = Integer.parseInt(option[1]);
+                        } catch (NumberFormatException e) {
+                            seconds = -1;
+                        }
+                        if (seconds < 0)
+                            err.msg("Invalid number of seconds '" + option[1] + "' specified after -progress option.");
+                        else
+                            ctx.progress.setInterval(seconds);
+                    }
+                    break;
+                case "-heapbudget":
+                    if (option.length < 2) {
+                        err.msg("No number of MB specified after -heapbudget option.");
+                    } else {
+                        long mb;
+                        try {
+                            mb = Long.parseLong(option[1]);
+                        } catch (NumberFormatException e) {
+                            mb = -1;
+                        }
+                        if (mb < 0) {
+                            err.msg("Invalid number of MB '" + option[1] + "' specified after -heapbudget option.");
+                        } else {
+                            ctx.heapBudget = mb * 1024 * 1024;
+                            ctx.lazyDocs = true;
+                        }
+                    }
+                    break;
+                case "-maxwarnings":
+                    if (option.length < 2) {
+                        err.msg("No number of warnings specified after -maxwarnings option.");
+                    } else {
+                        int warnings;
+                        try {
+                            warnings = Integer.parseInt(option[1]);
+                        } catch (NumberFormatException e) {
+                            warnings = -2;
+                        }
+                        if (warnings < -1)
+                            err.msg("Invalid number of warnings '" + option[1] + "' specified after -maxwarnings option.");
+                        else
+                            ctx.diagnostics.maxPrinted = warnings;
+                    }
                     break;
                 case "-doctitle":
                     if (option.length < 2) {
                         err.msg("No HTML text specified after -doctitle option.");
                     } else {
-                        HTMLReportGenerator.docTitle = option[1];
+                        ctx.docTitle = option[1];
                     }
                     break;
                 case "-windowtitle":
                     if (option.length < 2) {
                         err.msg("No text specified after -windowtitle option.");
                     } else {
-                        HTMLReportGenerator.windowTitle = option[1];
+                        ctx.windowTitle = option[1];
                     }
                     break;
                 case "-charset":
                     if (option.length < 2) {
                         err.msg("No charset specified after -charset option.");
                     } else {
-                        JDiff.charset = option[1];
+                        ctx.charset = option[1];
                     }
                     break;
                 case "-version":
                     System.out.println("JDiff version: " + JDiff.version);
-                    System.exit(0);
-                    break;
+                    return false;
                 case "-help":
                     usage();
-                    System.exit(0);
-                    break;
+                    return false;
             }
         }
-        if (!JDiff.writeXML && !JDiff.compareAPIs) {
+        if (!ctx.writeXML && !ctx.compareAPIs) {
             err.msg("First use the -apiname option to generate an XML file for one API.");
             err.msg("Then use the -apiname option again to generate another XML file for a different version of the API.");
             err.msg("Finally use the -oldapi option and -newapi option to generate a report about how the APIs differ.");
@@ -451,12 +550,19 @@ public class Options {
 
         System.err.println("  -firstsentence Save only the first sentence of each comment block with the API.");
         System.err.println("  -docchanges Report changes in Javadoc comments between the APIs");
+        System.err.println("  -ignoredocreformat Do not report Javadoc comments which were only reformatted");
+        System.err.println("  -lazydocs Read Javadoc comments from the XML files only when they are needed, to save memory");
         System.err.println("  -incompatible Only report incompatible changes");
         System.err.println("  -nosuggest [all|remove|add|change] Do not add suggested comments to all, or the removed, added or chabged sections");
         System.err.println("  -checkcomments Check that comments are sentences");
         System.err.println("  -stripnonprinting Remove non-printable characters from comments.");
         System.err.println("  -excludetag <tag> Define the Javadoc tag which implies exclusion");
         System.err.println("  -stats Generate statistical output");
+        System.err.println("  -jmx Register the JDiff MXBean with the platform MBean server for the length of the run");
+        System.err.println("  -serve <port> Serve the report over HTTP, writing each page only when it is requested");
+        System.err.println("  -heapbudget <MB> Keep the heap JDiff needs within this size, reading doc blocks on demand and moving documentation differences to disk");
+        System.err.println("  -maxwarnings <n> Print only the first n warnings of each kind, or all of them with -1 (default " + Diagnostics.defaultMaxPrinted + ")");
+        System.err.println("  -progress <seconds> Seconds between progress lines on long runs, or 0 for none (default " + Progress.defaultInterval + ")");
         System.err.println("  -help       (generates this output)");
         System.err.println();
         System.err.println("For more help, see jdiff.html");
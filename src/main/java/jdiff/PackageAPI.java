@@ -25,8 +25,9 @@ import java.util.List;
  * Class to represent a package, analogous to PackageDoc in the
  * Javadoc doclet API.
  * <p>
- * The method used for Collection comparison (compareTo) must make its
- * comparison based upon everything that is known about this package.
+ * The method used for Collection comparison (compareTo) orders packages by
+ * name, since an API never has two packages with the same name. Whether
+ * a package changed is decided by {@link APIComparator}.
  *
  * @author Matthew Doar, mdoar@pobox.com
  */
@@ -43,10 +44,33 @@ class PackageAPI implements Comparable<PackageAPI> {
     public List<ClassAPI> classes_ = new ArrayList<>();
 
     /**
-     * The doc block, default is null.
+     * The doc block, default is null. This is also null if the doc block
+     * is to be read on demand, so use {@link #getDoc()} to read it.
      */
     public String doc_;
 
+    /**
+     * The XML file to read the doc block from on demand, null if the doc
+     * block is kept in memory or there is none.
+     */
+    public DocSource docSource_;
+
+    /**
+     * The location of the doc block in {@link #docSource_}.
+     */
+    public long docLocation_;
+
+    /**
+     * The exact fingerprint of the doc block, see {@link DocFingerprint}.
+     */
+    public long docFingerprint_;
+
+    /**
+     * The fingerprint of the doc block ignoring reformatting, see
+     * {@link DocFingerprint}.
+     */
+    public long docNormFingerprint_;
+
     /**
      * Constructor.
      */
@@ -54,12 +78,18 @@ class PackageAPI implements Comparable<PackageAPI> {
         name_ = name;
     }
 
+    /**
+     * Return the doc block, reading it from the XML file if it was not
+     * kept in memory. Null if there is no doc block.
+     */
+    public String getDoc() {
+        return DocSource.text(doc_, docSource_, docLocation_);
+    }
+
     /**
      * Compare two PackageAPI objects by name.
      */
     public int compareTo(PackageAPI o) {
-        if (APIComparator.docChanged(doc_, o.doc_))
-            return -1;
         return name_.compareTo(o.name_);
     }
 
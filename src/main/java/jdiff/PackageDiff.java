@@ -33,12 +33,12 @@ class PackageDiff {
     /**
      * Classes added in the new API.
      */
-    public List<ClassAPI> classesAdded = new ArrayList<>();
+    public List<DiffEntry> classesAdded = new ArrayList<>();
 
     /**
      * Classes removed in the new API.
      */
-    public List<ClassAPI> classesRemoved = new ArrayList<>();
+    public List<DiffEntry> classesRemoved = new ArrayList<>();
 
     /**
      * Classes changed in the new API.
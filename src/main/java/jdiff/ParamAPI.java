@@ -38,6 +38,11 @@ class ParamAPI implements Comparable<ParamAPI> {
      */
     public String type_;
 
+    /**
+     * The id of the type in the {@link SymbolTable} for this run.
+     */
+    public int typeId_ = SymbolTable.NO_ID;
+
     public ParamAPI(String name, String type) {
         name_ = name;
         type_ = type;
@@ -50,7 +55,7 @@ class ParamAPI implements Comparable<ParamAPI> {
         int comp = name_.compareTo(o.name_);
         if (comp != 0)
             return comp;
-        comp = type_.compareTo(o.type_);
+        comp = SymbolTable.compare(typeId_, type_, o.typeId_, o.type_);
         return comp;
     }
 
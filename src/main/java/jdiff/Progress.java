@@ -0,0 +1,196 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+/**
+ * Reports how far the comparison and the writing of the report have got,
+ * so that a long run which is still making progress can be told from one
+ * which has hung.
+ * <p>
+ * Each stage counts its elements against a total known when it begins.
+ * A line such as <code>JDiff: comparing: 3200 of 8000 classes (40%) in
+ * 32 of 80 packages, 120 doc diffs, 1600 classes/s, about 3s left</code>
+ * is printed at most once per interval, and only once the stage has run
+ * for an interval, so short runs print nothing more. Counting an element
+ * only increments a field and compares it with the count at which the
+ * clock is next read.
+ */
+final class Progress {
+
+    /**
+     * The default number of seconds between progress lines.
+     */
+    static final int defaultInterval = 10;
+
+    /**
+     * The nanoseconds between progress lines, or 0 to print none.
+     */
+    private long intervalNanos_ = defaultInterval * 1000000000L;
+
+    /**
+     * What the current stage is doing, or null if no stage is running.
+     */
+    private String action_;
+
+    /**
+     * What the elements counted by the current stage are.
+     */
+    private String unit_;
+
+    private long total_;
+
+    private long done_;
+
+    private long packagesTotal_;
+
+    private long packagesDone_;
+
+    private long docDiffs_;
+
+    /**
+     * The count of elements at which the clock is next read.
+     */
+    private long nextCheck_ = Long.MAX_VALUE;
+
+    private long startNanos_;
+
+    private long lastLineNanos_;
+
+    /**
+     * Set if a progress line has been printed in the current stage.
+     */
+    private boolean printed_;
+
+    /**
+     * Set the number of seconds between progress lines, or 0 to print none.
+     */
+    void setInterval(int seconds) {
+        intervalNanos_ = seconds * 1000000000L;
+    }
+
+    /**
+     * Begin the comparison of the packages and classes of the old API.
+     */
+    void beginComparison(long packages, long classes) {
+        begin("comparing", "classes", classes);
+        packagesTotal_ = packages;
+    }
+
+    /**
+     * Count a package of the old API and its classes as compared.
+     */
+    void packageCompared(long classes) {
+        packagesDone_++;
+        done_ += classes;
+        if (done_ >= nextCheck_)
+            check();
+    }
+
+    /**
+     * Count a documentation diff, of which there is no total.
+     */
+    void docDiff() {
+        docDiffs_++;
+    }
+
+    /**
+     * Begin writing the pages of the changed packages and classes.
+     */
+    void beginPages(long pages) {
+        begin("writing pages", "pages", pages);
+    }
+
+    /**
+     * Count a page as written.
+     */
+    void pageWritten() {
+        if (++done_ >= nextCheck_)
+            check();
+    }
+
+    /**
+     * End the current stage, with a last line if any progress line was
+     * printed for it.
+     */
+    void end() {
+        if (printed_) {
+            long elapsed = System.nanoTime() - startNanos_;
+            System.out.println("JDiff: " + action_ + ": finished " + done_ + " " + unit_
+                    + " in " + String.format("%.1fs", elapsed / 1e9)
+                    + ", " + rate(done_, elapsed) + " " + unit_ + "/s");
+        }
+        action_ = null;
+        nextCheck_ = Long.MAX_VALUE;
+    }
+
+    private void begin(String action, String unit, long total) {
+        action_ = action;
+        unit_ = unit;
+        total_ = total;
+        done_ = 0;
+        packagesTotal_ = 0;
+        packagesDone_ = 0;
+        docDiffs_ = 0;
+        printed_ = false;
+        startNanos_ = System.nanoTime();
+        lastLineNanos_ = startNanos_;
+        nextCheck_ = intervalNanos_ == 0 ? Long.MAX_VALUE : 1;
+    }
+
+    /**
+     * Print a progress line if an interval has passed since the last one,
+     * and work out when to read the clock next, aiming at ten times an
+     * interval at the current rate.
+     */
+    private void check() {
+        long now = System.nanoTime();
+        long elapsed = now - startNanos_;
+        if (now - lastLineNanos_ >= intervalNanos_) {
+            lastLineNanos_ = now;
+            printed_ = true;
+            System.out.println(line(elapsed));
+        }
+        long perCheck = (long) (done_ * (intervalNanos_ / 10.0) / Math.max(elapsed, 1));
+        nextCheck_ = done_ + Math.max(1, perCheck);
+    }
+
+    /**
+     * Return the progress line of the current stage.
+     */
+    private String line(long elapsed) {
+        StringBuilder sb = new StringBuilder("JDiff: ");
+        sb.append(action_).append(": ").append(done_).append(" of ").append(total_).append(' ').append(unit_);
+        if (total_ > 0)
+            sb.append(" (").append(done_ * 100 / total_).append("%)");
+        if (packagesTotal_ > 0)
+            sb.append(" in ").append(packagesDone_).append(" of ").append(packagesTotal_).append(" packages");
+        if (docDiffs_ > 0)
+            sb.append(", ").append(docDiffs_).append(" doc diffs");
+        sb.append(", ").append(rate(done_, elapsed)).append(' ').append(unit_).append("/s");
+        if (done_ > 0 && done_ < total_) {
+            long left = (long) ((total_ - done_) * (elapsed / 1e9) / done_);
+            sb.append(", about ").append(left).append("s left");
+        }
+        return sb.toString();
+    }
+
+    private static long rate(long done, long elapsed) {
+        return (long) (done / Math.max(elapsed / 1e9, 1e-9));
+    }
+}
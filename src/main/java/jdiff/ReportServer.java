@@ -0,0 +1,273 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Serves the report over HTTP, writing each page only when it is first
+ * requested, instead of writing every page to a file.
+ * <p>
+ * The pages are written by the same code as the files of the report,
+ * through {@link HTMLReportGenerator#pageSink}, and kept in a least
+ * recently used cache. Most pages are written one at a time, but the
+ * indexes are written together, since each depends on the ones before,
+ * and so are the documentation differences, which are written before
+ * anything else, since the navigation bars link to them. The comments
+ * file is neither read from nor written to, apart from the existing
+ * comments which are shown in the report.
+ * <p>
+ * Requests are handled one at a time, since the pages share the state of
+ * the report generator. Each page is written in the context of the run
+ * which found the differences, whichever thread handles the request. The
+ * server only listens on the loopback interface, and runs until the JVM
+ * is stopped.
+ */
+final class ReportServer {
+
+    private final HTMLReportGenerator reporter_;
+
+    /**
+     * Writes each page which is written on its own, by the name of the page.
+     */
+    private final Map<String, Runnable> pages_ = new HashMap<>();
+
+    /**
+     * Writes the pages whose names start with each prefix.
+     */
+    private final Map<String, Runnable> groups_ = new LinkedHashMap<>();
+
+    /**
+     * The pages which have been written, with the least recently used first.
+     */
+    private final Map<String, byte[]> cache_ = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The most bytes which the cached pages may use.
+     */
+    private final long cacheSize_ = Runtime.getRuntime().maxMemory() / 8;
+
+    /**
+     * The bytes which the cached pages use.
+     */
+    private long cacheUsed_;
+
+    /**
+     * Get ready to write the pages of the report for the differences found
+     * by a comparison.
+     */
+    ReportServer(HTMLReportGenerator reporter, APIComparator comp, Comments existingComments) {
+        reporter_ = reporter;
+        reporter.prepare(comp, existingComments);
+        APIDiff apiDiff = comp.apiDiff;
+        String fullReportFileName = reporter.fullReportFileName();
+        String dir = HTMLReportGenerator.reportFileName + "/";
+        String ext = HTMLReportGenerator.reportFileExt;
+
+        HTMLFiles hf = new HTMLFiles(reporter);
+        pages_.put(HTMLReportGenerator.reportFileName + ext,
+                () -> hf.emitTopLevelFile(fullReportFileName + ext, apiDiff));
+        pages_.put(dir + "jdiff_topleftframe" + ext,
+                () -> hf.emitTopLeftFile(fullReportFileName + JDiff.DIR_SEP + "jdiff_topleftframe" + ext));
+        pages_.put(dir + "jdiff_help" + ext, () -> hf.emitHelp(fullReportFileName, apiDiff));
+        pages_.put("stylesheet-jdiff.css", hf::emitStylesheet);
+        pages_.put(dir + HTMLReportGenerator.reportFileName + "-summary" + ext,
+                () -> reporter.writeSummary(fullReportFileName));
+        if (reporter.ctx_.doStats) {
+            pages_.put(dir + "jdiff_statistics" + ext,
+                    () -> new HTMLStatistics(reporter).emitStatistics(
+                            fullReportFileName + JDiff.DIR_SEP + "jdiff_statistics" + ext, apiDiff));
+        }
+        PackageDiff[] pkgDiffs = apiDiff.packagesChanged.toArray(new PackageDiff[0]);
+        for (int i = 0; i < pkgDiffs.length; i++) {
+            int pkgIndex = i;
+            String pkgName = pkgDiffs[i].name_;
+            pages_.put(dir + "pkg_" + pkgName + ext, () -> reporter.reportChangedPackage(pkgDiffs, pkgIndex));
+            ClassDiff[] classDiffs = pkgDiffs[i].classesChanged.toArray(ClassDiff.EMPTY_ARRAY);
+            for (int k = 0; k < classDiffs.length; k++) {
+                int classIndex = k;
+                pages_.put(dir + pkgName + "." + classDiffs[k].name_ + ext,
+                        () -> reporter.reportChangedClass(pkgName, classDiffs, classIndex));
+            }
+        }
+
+        Runnable indexes = () -> reporter.writeIndexes(fullReportFileName);
+        for (String index : new String[]{"alldiffs", "packages", "classes", "constructors", "methods", "fields"}) {
+            groups_.put(dir + index + "_index_", indexes);
+        }
+        groups_.put("missingSinces.txt", indexes);
+        Diff diff = reporter.ctx_.diff;
+        if (!diff.noDocDiffs) {
+            Runnable docDiffs = () -> diff.emitDocDiffs(reporter);
+            groups_.put(dir + Diff.diffFileName, docDiffs);
+            write(docDiffs);
+        }
+    }
+
+    /**
+     * Serve the report until the JVM is stopped.
+     */
+    void serve() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), reporter_.ctx_.servePort), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        System.out.println("JDiff: serving the report at http://localhost:" + server.getAddress().getPort() + "/"
+                + HTMLReportGenerator.reportFileName + HTMLReportGenerator.reportFileExt);
+        JDiffMonitor.register();
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.stop(0);
+            JDiffMonitor.unregister();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String name = exchange.getRequestURI().getPath().substring(1);
+            if (name.isEmpty())
+                name = HTMLReportGenerator.reportFileName + HTMLReportGenerator.reportFileExt;
+            byte[] page;
+            try {
+                page = page(name);
+            } catch (JDiffException e) {
+                System.out.println("Error: " + e.getMessage());
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            if (page == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String type = "text/html";
+            if (name.endsWith(".css"))
+                type = "text/css";
+            else if (name.endsWith(".txt"))
+                type = "text/plain";
+            exchange.getResponseHeaders().set("Content-Type", type + "; charset=" + Charset.defaultCharset().name());
+            exchange.sendResponseHeaders(200, page.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(page);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Return a page of the report, writing it if it is not in the cache.
+     *
+     * @param name the name of the page, relative to the output directory
+     * @return the page, or null if there is no such page
+     */
+    private byte[] page(String name) {
+        byte[] page = cache_.get(name);
+        if (page != null) {
+            JDiffMonitor.pageCacheHit();
+            return page;
+        }
+        Runnable writer = pages_.get(name);
+        if (writer == null) {
+            for (Map.Entry<String, Runnable> group : groups_.entrySet()) {
+                if (name.startsWith(group.getKey())) {
+                    writer = group.getValue();
+                    break;
+                }
+            }
+        }
+        if (writer == null)
+            return null;
+        JDiffMonitor.pageCacheMiss();
+        return write(writer).get(name);
+    }
+
+    /**
+     * Write some pages into the cache.
+     *
+     * @return the pages, by name
+     */
+    private Map<String, byte[]> write(Runnable writer) {
+        Map<String, ByteArrayOutputStream> streams = new LinkedHashMap<>();
+        List<PrintWriter> writers = new ArrayList<>();
+        reporter_.pageSink = fileName -> {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            streams.put(pageName(fileName), stream);
+            PrintWriter pageWriter = new PrintWriter(stream);
+            writers.add(pageWriter);
+            return pageWriter;
+        };
+        JDiffContext previous = JDiffContext.enter(reporter_.ctx_);
+        try {
+            reporter_.forgetNewComments();
+            writer.run();
+        } finally {
+            reporter_.pageSink = null;
+            JDiffContext.exit(previous);
+        }
+
+        Map<String, byte[]> pages = new HashMap<>();
+        for (PrintWriter pageWriter : writers) {
+            pageWriter.flush();
+        }
+        for (Map.Entry<String, ByteArrayOutputStream> stream : streams.entrySet()) {
+            byte[] page = stream.getValue().toByteArray();
+            pages.put(stream.getKey(), page);
+            byte[] old = cache_.put(stream.getKey(), page);
+            if (old != null)
+                cacheUsed_ -= old.length;
+            cacheUsed_ += page.length;
+        }
+        Iterator<byte[]> eldest = cache_.values().iterator();
+        while (cacheUsed_ > cacheSize_ && eldest.hasNext()) {
+            cacheUsed_ -= eldest.next().length;
+            eldest.remove();
+            JDiffMonitor.pageCacheEviction();
+        }
+        return pages;
+    }
+
+    /**
+     * Return the name of a page relative to the output directory, with
+     * forward slashes, given the name of the file it would be written to.
+     */
+    private String pageName(String fileName) {
+        String outputDir = reporter_.ctx_.outputDir;
+        if (outputDir != null && fileName.startsWith(outputDir + JDiff.DIR_SEP))
+            fileName = fileName.substring(outputDir.length() + JDiff.DIR_SEP.length());
+        return fileName.replace(JDiff.DIR_SEP, "/");
+    }
+}
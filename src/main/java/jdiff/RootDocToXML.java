@@ -31,7 +31,7 @@ import java.util.*;
  *
  * @author Matthew Doar, mdoar@pobox.com
  */
-public class RootDocToXML {
+public class RootDocToXML extends XMLOptions {
 
     /**
      * Set to enable increased logging verbosity for debugging.
@@ -39,105 +39,36 @@ public class RootDocToXML {
     private static final boolean trace = false;
 
     /**
-     * The name of the file where the XML representing the API will be
-     * stored.
-     */
-    public static String outputFileName;
-
-    /**
-     * The identifier of the API being written out in XML, e.g.
-     * &quotSuperProduct 1.3&quot;.
-     */
-    public static String apiIdentifier;
-
-    /**
-     * The name of the directory where the XML representing the API will be
-     * stored.
-     */
-    public static String outputDirectory;
-
-    /**
-     * Do not display a class  with a lower level of visibility than this.
-     * Default is to display all public and protected classes.
-     */
-    public static String classVisibilityLevel = "protected";
-
-    /**
-     * Do not display a member with a lower level of visibility than this.
-     * Default is to display all public and protected members
-     * (constructors, methods, fields).
-     */
-    public static String memberVisibilityLevel = "protected";
-
-    /**
-     * If set, then save the entire contents of a doc block comment in the
-     * API file. If not set, then just save the first sentence. Default is
-     * that this is set.
-     */
-    public static boolean saveAllDocs = true;
-
-    /**
-     * If set, exclude program elements marked with whatever the exclude tag
-     * is specified as, e.g. "@exclude".
-     */
-    public static boolean doExclude;
-
-    /**
-     * Exclude program elements marked with this String, e.g. "@exclude".
-     */
-    public static String excludeTag;
-
-    /**
-     * The base URI for locating necessary DTDs and Schemas. By default, this
-     * is "http://www.w3.org". A typical value to use local copies of DTD files
-     * might be "file:///C:/jdiff/lib"
-     */
-    public static String baseURI = "http://www.w3.org";
-
-    /**
-     * If set, then strip out non-printing characters from documentation.
-     * Default is that this is set.
-     */
-    static boolean stripNonPrintables = true;
-
-    /**
-     * If set, then add the information about the source file and line number
-     * which is available in J2SE1.4. Default is that this is not set.
-     */
-    static boolean addSrcInfo;
-
-    /**
-     * If set, scan classes with no packages.
-     * If the source is  a jar file this may duplicates classes, so
-     * disable it using the -packagesonly option. Default is that this is
-     * not set.
+     * The file where the XML representing the API will be stored.
      */
-    static boolean packagesOnly;
+    private static PrintWriter outputFile;
 
     /**
-     * The file where the XML representing the API will be stored.
+     * The context of the run, which holds the options for writing the XML.
      */
-    private static PrintWriter outputFile;
+    private final JDiffContext ctx_;
 
     /**
-     * Default constructor.
+     * Create a writer which uses the options of the given context.
      */
-    public RootDocToXML() {
+    public RootDocToXML(JDiffContext ctx) {
+        ctx_ = ctx;
     }
 
     /**
      * Write the XML representation of the API to a file.
      *
+     * @param ctx  the context of the run
      * @param root the RootDoc object passed by Javadoc
      * @return true if no problems encountered
      */
-    public static boolean writeXML(RootDoc root) {
-        String tempFileName = outputFileName;
-        if (outputDirectory != null) {
-            tempFileName = outputDirectory;
+    public static boolean writeXML(JDiffContext ctx, RootDoc root) {
+        String tempFileName = ctx.apiFileName;
+        if (ctx.apiDirectory != null) {
+            tempFileName = ctx.apiDirectory;
             if (!tempFileName.endsWith(JDiff.DIR_SEP))
                 tempFileName += JDiff.DIR_SEP;
-            tempFileName += outputFileName;
+            tempFileName += ctx.apiFileName;
         }
 
         try (FileOutputStream fos = new FileOutputStream(tempFileName);
@@ -146,21 +77,19 @@ public class RootDocToXML {
             outputFile = writer;
             System.out.println("JDiff: writing the API to file '" + tempFileName + "'...");
             if (root.specifiedPackages().length != 0 || root.specifiedClasses().length != 0) {
-                RootDocToXML apiWriter = new RootDocToXML();
+                RootDocToXML apiWriter = new RootDocToXML(ctx);
                 apiWriter.emitXMLHeader();
                 apiWriter.logOptions();
                 apiWriter.processPackages(root);
                 apiWriter.emitXMLFooter();
             }
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + tempFileName);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
+            throw new JDiffException("could not create " + tempFileName + ": " + e.getMessage(), e);
         }
         // If validation is desired, write out the appropriate api.xsd file
         // in the same directory as the XML file.
-        if (XMLToAPI.validateXML) {
-            writeXSD();
+        if (ctx.validateXML) {
+            writeXSD(ctx);
         }
         return true;
     }
@@ -168,9 +97,9 @@ public class RootDocToXML {
     /**
      * Write the XML Schema file used for validation.
      */
-    public static void writeXSD() {
-        String xsdFileName = outputFileName;
-        if (outputDirectory == null) {
+    public static void writeXSD(JDiffContext ctx) {
+        String xsdFileName = ctx.apiFileName;
+        if (ctx.apiDirectory == null) {
             int idx = xsdFileName.lastIndexOf('\\');
             int idx2 = xsdFileName.lastIndexOf('/');
             if (idx == -1 && idx2 == -1) {
@@ -184,7 +113,7 @@ public class RootDocToXML {
                 xsdFileName = xsdFileName.substring(0, max);
             }
         } else {
-            xsdFileName = outputDirectory;
+            xsdFileName = ctx.apiDirectory;
             if (!xsdFileName.endsWith(JDiff.DIR_SEP))
                 xsdFileName += JDiff.DIR_SEP;
         }
@@ -193,7 +122,7 @@ public class RootDocToXML {
              PrintWriter xsdFile = new PrintWriter(fos)
         ) {
             // The contents of the api.xsd file
-            JDiff.addXmlTag(xsdFile);
+            JDiff.addXmlTag(ctx, xsdFile);
             xsdFile.println("<xsd:schema xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\">");
             xsdFile.println("");
             xsdFile.println("<xsd:annotation>");
@@ -305,126 +234,8 @@ public class RootDocToXML {
             xsdFile.println();
             xsdFile.println("</xsd:schema>");
         } catch (IOException e) {
-            System.out.println("IO Error while attempting to create " + xsdFileName);
-            System.out.println("Error: " + e.getMessage());
-            System.exit(1);
-        }
-    }
-
-    /**
-     * Find the index of the end of the first sentence in the given text,
-     * when writing out to an XML file.
-     * This is an extended version of the algorithm used by the DocCheck
-     * Javadoc doclet. It checks for @tags too.
-     *
-     * @param text The text to be searched.
-     * @return The index of the end of the first sentence. If there is no
-     * end, return -1. If there is no useful text, return 0.
-     * If the whole doc block comment is wanted (default), return -1.
-     */
-    public static int endOfFirstSentence(String text) {
-        return endOfFirstSentence(text, true);
-    }
-
-    /**
-     * Find the index of the end of the first sentence in the given text.
-     * This is an extended version of the algorithm used by the DocCheck
-     * Javadoc doclet. It checks for &#064;tags too.
-     *
-     * @param text         The text to be searched.
-     * @param writingToXML Set to true when writing out XML.
-     * @return The index of the end of the first sentence. If there is no
-     * end, return -1. If there is no useful text, return 0.
-     * If the whole doc block comment is wanted (default), return -1.
-     */
-    public static int endOfFirstSentence(String text, boolean writingToXML) {
-        if (saveAllDocs && writingToXML)
-            return -1;
-        int textLen = text.length();
-        if (textLen == 0)
-            return 0;
-        int index = -1;
-        // Handle some special cases
-        int fromindex = 0;
-        int ellipsis = text.indexOf(". . ."); // Handles one instance of this
-        if (ellipsis != -1)
-            fromindex = ellipsis + 5;
-        // If the first non-whitespace character is an @, go beyond it
-        int i = 0;
-        while (i < textLen && text.charAt(i) == ' ') {
-            i++;
-        }
-        if (text.charAt(i) == '@' && fromindex < textLen - 1)
-            fromindex = i + 1;
-        // Use the brute force approach.
-        index = minIndex(index, text.indexOf("? ", fromindex));
-        index = minIndex(index, text.indexOf("?\t", fromindex));
-        index = minIndex(index, text.indexOf("?\n", fromindex));
-        index = minIndex(index, text.indexOf("?\r", fromindex));
-        index = minIndex(index, text.indexOf("?\f", fromindex));
-        index = minIndex(index, text.indexOf("! ", fromindex));
-        index = minIndex(index, text.indexOf("!\t", fromindex));
-        index = minIndex(index, text.indexOf("!\n", fromindex));
-        index = minIndex(index, text.indexOf("!\r", fromindex));
-        index = minIndex(index, text.indexOf("!\f", fromindex));
-        index = minIndex(index, text.indexOf(". ", fromindex));
-        index = minIndex(index, text.indexOf(".\t", fromindex));
-        index = minIndex(index, text.indexOf(".\n", fromindex));
-        index = minIndex(index, text.indexOf(".\r", fromindex));
-        index = minIndex(index, text.indexOf(".\f", fromindex));
-        index = minIndex(index, text.indexOf("@param", fromindex));
-        index = minIndex(index, text.indexOf("@return", fromindex));
-        index = minIndex(index, text.indexOf("@throw", fromindex));
-        index = minIndex(index, text.indexOf("@serial", fromindex));
-        index = minIndex(index, text.indexOf("@exception", fromindex));
-        index = minIndex(index, text.indexOf("@deprecate", fromindex));
-        index = minIndex(index, text.indexOf("@author", fromindex));
-        index = minIndex(index, text.indexOf("@since", fromindex));
-        index = minIndex(index, text.indexOf("@see", fromindex));
-        index = minIndex(index, text.indexOf("@version", fromindex));
-        if (doExclude && excludeTag != null)
-            index = minIndex(index, text.indexOf(excludeTag));
-        index = minIndex(index, text.indexOf("@vtexclude", fromindex));
-        index = minIndex(index, text.indexOf("@vtinclude", fromindex));
-        index = minIndex(index, text.indexOf("<p>", 2)); // Not at start
-        index = minIndex(index, text.indexOf("<P>", 2)); // Not at start
-        index = minIndex(index, text.indexOf("<blockquote", 2));  // Not at start
-        index = minIndex(index, text.indexOf("<pre", fromindex)); // May contain anything!
-        // Avoid the char at the start of a tag in some cases
-        if (index != -1 &&
-                (text.charAt(index) == '@' || text.charAt(index) == '<')) {
-            if (index != 0)
-                index--;
-        }
-
-/* Not used for jdiff, since tags are explicitly checked for above.
-        // Look for a sentence terminated by an HTML tag.
-        index = minIndex(index, text.indexOf(".<", fromindex));
-        if (index == -1) {
-            // If period-whitespace etc was not found, check to see if
-            // last character is a period,
-            int endIndex = text.length()-1;
-            if (text.charAt(endIndex) == '.' ||
-                text.charAt(endIndex) == '?' ||
-                text.charAt(endIndex) == '!')
-                index = endIndex;
+            throw new JDiffException("could not create " + xsdFileName + ": " + e.getMessage(), e);
         }
-*/
-        return index;
-    }
-
-    /**
-     * Return the minimum of two indexes if > -1, and return -1
-     * only if both indexes = -1.
-     *
-     * @param i an int index
-     * @param j an int index
-     * @return an int equal to the minimum index > -1, or -1
-     */
-    public static int minIndex(int i, int j) {
-        if (i == -1) return j;
-        if (j == -1) return i;
-        return Math.min(i, j);
     }
 
     /**
@@ -433,7 +244,7 @@ public class RootDocToXML {
      */
     public void logOptions() {
         outputFile.print("<!-- ");
-        outputFile.print(" Command line arguments = " + Options.cmdOptions);
+        outputFile.print(" Command line arguments = " + ctx_.cmdOptions);
         outputFile.println(" -->");
     }
 
@@ -456,7 +267,7 @@ public class RootDocToXML {
         Map<String, List<ClassDoc>> classesToUse = new HashMap<>();
         for (int i = 0; cd != null && i < cd.length; i++) {
             PackageDoc cpd = cd[i].containingPackage();
-            if (cpd == null && !packagesOnly) {
+            if (cpd == null && !ctx_.packagesOnly) {
                 // If the RootDoc object has been created from a jar file
                 // this duplicates classes, so we have to be able to disable it.
                 // TODO this is still null?
@@ -527,7 +338,7 @@ public class RootDocToXML {
             String className = classDoc.name();
             if (trace) System.out.println("PROCESSING CLASS/IFC: " + className);
             // Only save the shown elements
-            if (!shownElement(classDoc, classVisibilityLevel))
+            if (!shownElement(classDoc, ctx_.classVisibilityLevel))
                 continue;
             boolean isInterface = classDoc.isInterface();
             if (isInterface) {
@@ -606,7 +417,7 @@ public class RootDocToXML {
         if (isDeprecated) {
             String text = ta[0].text(); // Use only one @deprecated tag
             if (text != null && text.compareTo("") != 0) {
-                int idx = endOfFirstSentence(text);
+                int idx = endOfFirstSentence(ctx_, text);
                 if (idx == 0) {
                     // No useful comment
                     outputFile.print("deprecated=\"deprecated, no comment\"");
@@ -630,7 +441,7 @@ public class RootDocToXML {
      * @param ped The given program element.
      */
     public void addSourcePosition(ProgramElementDoc ped, int indent) {
-        if (!addSrcInfo)
+        if (!ctx_.addSrcInfo)
             return;
         if (JDiff.javaVersion.startsWith("1.1") ||
                 JDiff.javaVersion.startsWith("1.2") ||
@@ -686,7 +497,7 @@ public class RootDocToXML {
             String ctorName = constructorDoc.name();
             if (trace) System.out.println("PROCESSING CONSTRUCTOR: " + ctorName);
             // Only save the shown elements
-            if (!shownElement(constructorDoc, memberVisibilityLevel))
+            if (!shownElement(constructorDoc, ctx_.memberVisibilityLevel))
                 continue;
             outputFile.print("    <constructor name=\"" + ctorName + "\"");
 
@@ -745,7 +556,7 @@ public class RootDocToXML {
             if (methodName.startsWith("<"))
                 continue;
             // Only save the shown elements
-            if (!shownElement(methodDoc, memberVisibilityLevel))
+            if (!shownElement(methodDoc, ctx_.memberVisibilityLevel))
                 continue;
             outputFile.print("    <method name=\"" + methodName + "\"");
             Type retType = methodDoc.returnType();
@@ -791,7 +602,7 @@ public class RootDocToXML {
             String fieldName = fieldDoc.name();
             if (trace) System.out.println("PROCESSING FIELD: " + fieldName);
             // Only save the shown elements
-            if (!shownElement(fieldDoc, memberVisibilityLevel))
+            if (!shownElement(fieldDoc, ctx_.memberVisibilityLevel))
                 continue;
             outputFile.print("    <field name=\"" + fieldName + "\"");
             outputFile.print(" type=\"");
@@ -857,7 +668,7 @@ public class RootDocToXML {
      * Emit the XML header.
      */
     public void emitXMLHeader() {
-        JDiff.addXmlTag(outputFile);
+        JDiff.addXmlTag(ctx_, outputFile);
         outputFile.println("<!-- Generated by the JDiff Javadoc doclet -->");
         outputFile.println("<!-- (" + JDiff.jDiffLocation + ") -->");
         outputFile.println("<!-- on " + new Date() + " -->");
@@ -867,12 +678,12 @@ public class RootDocToXML {
         outputFile.println("<!-- entity definitions etc.-->");
         outputFile.println("<!DOCTYPE api");
         outputFile.println("     PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\"");
-        outputFile.println("     \"" + baseURI + "/TR/xhtml1/DTD/xhtml1-transitional.dtd\">");
+        outputFile.println("     \"" + ctx_.baseURI + "/TR/xhtml1/DTD/xhtml1-transitional.dtd\">");
 */
         outputFile.println("<api");
-        outputFile.println("  xmlns:xsi='" + baseURI + "/2001/XMLSchema-instance'");
+        outputFile.println("  xmlns:xsi='" + ctx_.baseURI + "/2001/XMLSchema-instance'");
         outputFile.println("  xsi:noNamespaceSchemaLocation='api.xsd'");
-        outputFile.println("  name=\"" + apiIdentifier + "\"");
+        outputFile.println("  name=\"" + ctx_.apiIdentifier + "\"");
         outputFile.println("  jdversion=\"" + JDiff.version + "\">");
         outputFile.println();
     }
@@ -897,9 +708,9 @@ public class RootDocToXML {
     public boolean shownElement(Doc doc, String visLevel) {
         // If a doc block contains @exclude or a similar such tag,
         // then don't display it.
-        if (doExclude && excludeTag != null && doc != null) {
+        if (ctx_.doExclude && ctx_.excludeTag != null && doc != null) {
             String rct = doc.getRawCommentText();
-            if (rct != null && rct.contains(excludeTag)) {
+            if (rct != null && rct.contains(ctx_.excludeTag)) {
                 return false;
             }
         }
@@ -931,7 +742,7 @@ public class RootDocToXML {
      * This character is the hash mark, '&#035;'.
      */
     public String stripNonPrintingChars(String s, Doc doc) {
-        if (!stripNonPrintables)
+        if (!ctx_.stripNonPrintables)
             return s;
         char[] sa = s.toCharArray();
         for (int i = 0; i < sa.length; i++) {
@@ -1031,7 +842,7 @@ public class RootDocToXML {
             if (rct.compareTo("") != 0 &&
                     !rct.contains(Comments.placeHolderText) &&
                     !rct.contains("InsertOtherCommentsHere")) {
-                int idx = endOfFirstSentence(rct);
+                int idx = endOfFirstSentence(ctx_, rct);
                 if (idx == 0)
                     return;
                 for (int i = 0; i < indent; i++) outputFile.print(" ");
@@ -1134,8 +945,7 @@ public class RootDocToXML {
             if (trace)
                 System.out.println("No package level documentation file at '" + filename + "'");
         } catch (java.io.IOException e) {
-            System.out.println("Error reading file \"" + filename + "\": " + e.getMessage());
-            System.exit(5);
+            throw new JDiffException("could not read file \"" + filename + "\": " + e.getMessage(), e);
         }
         if (rct != null) {
             rct = stripNonPrintingChars(rct, pd);
@@ -1143,7 +953,7 @@ public class RootDocToXML {
             if (rct.compareTo("") != 0 &&
                     !rct.contains(Comments.placeHolderText) &&
                     !rct.contains("InsertOtherCommentsHere")) {
-                int idx = endOfFirstSentence(rct);
+                int idx = endOfFirstSentence(ctx_, rct);
                 if (idx == 0)
                     return;
                 for (int i = 0; i < indent; i++) outputFile.print(" ");
@@ -0,0 +1,301 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures the wall time, CPU time and allocated bytes of each phase of a
+ * run, with the number of elements each phase processed, and writes them
+ * out as JSON.
+ * <p>
+ * Phases are started and ended in a nested way on the thread of the run.
+ * A phase started while another is running is named after both, as in
+ * <code>read old/inheritance</code>, and its figures are included in
+ * those of the enclosing phase. A phase which is started more than once
+ * adds up the figures of each time. Work which is done a little at a time
+ * in the course of other phases, such as each documentation difference,
+ * is measured with {@link #add} instead. Each phase is also recorded as a
+ * Flight Recorder event by {@link JDiffEvents}, and shown to JMX clients
+ * by {@link JDiffMonitor}.
+ */
+final class RunMetrics {
+
+    /**
+     * The name of the file the figures are written to, next to the report.
+     */
+    static final String metricsFileName = "jdiff_metrics.json";
+
+    private static final ThreadMXBean threads_ = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The phases, by name, in the order they were first started.
+     */
+    private final Map<String, Phase> phases_ = new LinkedHashMap<>();
+
+    /**
+     * The estimated bytes of heap used by each of the main structures of
+     * the run, by name.
+     */
+    private final Map<String, Long> footprint_ = new LinkedHashMap<>();
+
+    /**
+     * The phases which are running, innermost first.
+     */
+    private final Deque<Phase> running_ = new ArrayDeque<>();
+
+    /**
+     * The figures of one phase.
+     */
+    private static final class Phase {
+
+        private final String name_;
+
+        private final boolean topLevel_;
+
+        private int calls_;
+
+        private long count_;
+
+        private long wallNanos_;
+
+        private long cpuNanos_;
+
+        private long allocatedBytes_;
+
+        private long startWall_;
+
+        private long startCpu_;
+
+        private long startAllocated_;
+
+        private long startCount_;
+
+        /**
+         * Set if only the wall time of the phase is measured, see
+         * {@link #add}.
+         */
+        private boolean wallOnly_;
+
+        /**
+         * The Flight Recorder event of the running phase, or null.
+         */
+        private Object event_;
+
+        Phase(String name, boolean topLevel) {
+            name_ = name;
+            topLevel_ = topLevel;
+        }
+    }
+
+    /**
+     * Start a phase, inside the innermost phase which is running.
+     */
+    void start(String name) {
+        Phase parent = running_.peek();
+        String fullName = parent == null ? name : parent.name_ + "/" + name;
+        Phase phase = phases_.get(fullName);
+        if (phase == null) {
+            phase = new Phase(fullName, parent == null);
+            phases_.put(fullName, phase);
+        }
+        phase.calls_++;
+        running_.push(phase);
+        phase.startCount_ = phase.count_;
+        phase.event_ = JDiffEvents.beginStage();
+        JDiffMonitor.phaseStarted(fullName);
+        phase.startCpu_ = cpuTime();
+        phase.startAllocated_ = allocatedBytes();
+        phase.startWall_ = System.nanoTime();
+    }
+
+    /**
+     * Add the wall time of one piece of work to a phase which is named on
+     * its own, whichever phase is running. Only the clock is read for each
+     * piece, so this is cheap enough to call once per element; the phase
+     * has no CPU time or allocated bytes of its own, since those are
+     * included in the figures of the phases the pieces ran in.
+     */
+    void add(String name, long wallNanos, long count) {
+        Phase phase = phases_.get(name);
+        if (phase == null) {
+            phase = new Phase(name, true);
+            phase.wallOnly_ = true;
+            phases_.put(name, phase);
+        }
+        phase.calls_++;
+        phase.count_ += count;
+        phase.wallNanos_ += wallNanos;
+        JDiffMonitor.phaseTime(name, wallNanos, count);
+        JDiffMonitor.elementsProcessed(count);
+    }
+
+    /**
+     * Add to the number of elements which the innermost phase processed.
+     */
+    void count(long count) {
+        Phase phase = running_.peek();
+        if (phase != null)
+            phase.count_ += count;
+        JDiffMonitor.elementsProcessed(count);
+    }
+
+    /**
+     * End the innermost phase.
+     */
+    void end() {
+        long wall = System.nanoTime();
+        Phase phase = running_.pop();
+        long elapsed = wall - phase.startWall_;
+        phase.wallNanos_ += elapsed;
+        phase.cpuNanos_ += cpuTime() - phase.startCpu_;
+        phase.allocatedBytes_ += allocatedBytes() - phase.startAllocated_;
+        JDiffEvents.endStage(phase.event_, phase.name_, phase.count_ - phase.startCount_);
+        Phase parent = running_.peek();
+        JDiffMonitor.phaseEnded(phase.name_, parent == null ? null : parent.name_, elapsed, phase.count_ - phase.startCount_);
+        phase.event_ = null;
+    }
+
+    /**
+     * Record the estimated bytes of heap used by one of the main
+     * structures of the run.
+     */
+    void footprint(String name, long bytes) {
+        footprint_.put(name, bytes);
+    }
+
+    /**
+     * Return a summary of the estimated heap used by each structure, such
+     * as <code>old API 52 MB, new API 51 MB</code>.
+     */
+    String footprintSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> entry : footprint_.entrySet()) {
+            if (sb.length() != 0)
+                sb.append(", ");
+            sb.append(entry.getKey()).append(' ').append(String.format("%.1f MB", entry.getValue() / (1024.0 * 1024.0)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return a summary of the time each top-level phase took, such as
+     * <code>read old 1.20s, compare 0.31s</code>.
+     */
+    String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase phase : phases_.values()) {
+            if (!phase.topLevel_)
+                continue;
+            if (sb.length() != 0)
+                sb.append(", ");
+            sb.append(phase.name_).append(' ').append(String.format("%.2fs", phase.wallNanos_ / 1e9));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write the figures of every phase to a file as JSON. CPU time and
+     * allocated bytes are -1 if the JVM cannot measure them, or if only the
+     * wall time of the phase is measured.
+     */
+    void writeFile(String fileName, String oldAPIName, String newAPIName) {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(fileName), StandardCharsets.UTF_8))) {
+            out.println("{");
+            out.println("  \"jdiffVersion\": " + string(JDiff.version) + ",");
+            out.println("  \"oldAPI\": " + string(oldAPIName) + ",");
+            out.println("  \"newAPI\": " + string(newAPIName) + ",");
+            out.println("  \"phases\": [");
+            int i = 0;
+            for (Phase phase : phases_.values()) {
+                out.print("    {\"name\": " + string(phase.name_)
+                        + ", \"calls\": " + phase.calls_
+                        + ", \"count\": " + phase.count_
+                        + ", \"wallNanos\": " + phase.wallNanos_
+                        + ", \"cpuNanos\": " + (cpuTime() == -1 || phase.wallOnly_ ? -1 : phase.cpuNanos_)
+                        + ", \"allocatedBytes\": " + (allocatedBytes() == -1 || phase.wallOnly_ ? -1 : phase.allocatedBytes_) + "}");
+                out.println(++i < phases_.size() ? "," : "");
+            }
+            out.println("  ],");
+            out.println("  \"footprint\": {");
+            i = 0;
+            for (Map.Entry<String, Long> entry : footprint_.entrySet()) {
+                out.print("    " + string(entry.getKey()) + ": " + entry.getValue());
+                out.println(++i < footprint_.size() ? "," : "");
+            }
+            out.println("  }");
+            out.println("}");
+        } catch (IOException e) {
+            System.out.println("Warning: could not write the metrics to file '" + fileName + "': " + e);
+        }
+    }
+
+    /**
+     * Return the CPU time used by the current thread, or -1 if it cannot
+     * be measured.
+     */
+    private static long cpuTime() {
+        if (!threads_.isCurrentThreadCpuTimeSupported())
+            return -1;
+        return threads_.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Return the bytes allocated by the current thread, or -1 if they
+     * cannot be measured.
+     */
+    private static long allocatedBytes() {
+        if (!(threads_ instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) threads_;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+            return -1;
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Return a string as a JSON string literal.
+     */
+    private static String string(String s) {
+        if (s == null)
+            return "null";
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < ' ')
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
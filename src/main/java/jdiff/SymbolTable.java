@@ -0,0 +1,140 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the names and types found in the APIs to small integer ids.
+ * <p>
+ * Both the old and the new API are read using the same table, so
+ * two names are the same exactly when their ids are the same, and every
+ * occurrence of a name shares the same String instance. The ids do not
+ * follow the alphabetical order of the names, so where the order matters,
+ * as in compareTo methods, {@link #compare} falls back to the names when
+ * the ids differ.
+ */
+final class SymbolTable {
+
+    /**
+     * The id of a name which has not been added to any table.
+     */
+    static final int NO_ID = -1;
+
+    /**
+     * Maps each name to its id.
+     */
+    private final Map<String, Integer> ids_ = new HashMap<>();
+
+    /**
+     * The names, indexed by their id.
+     */
+    private final List<String> names_ = new ArrayList<>();
+
+    SymbolTable() {
+    }
+
+    /**
+     * Create a table which starts with the names in another table, with
+     * the same ids, so that an API read using the other table can be
+     * compared with one read using this table.
+     */
+    SymbolTable(SymbolTable other) {
+        ids_.putAll(other.ids_);
+        names_.addAll(other.names_);
+    }
+
+    /**
+     * Return the id of a name, adding it to the table if it is not
+     * already there.
+     *
+     * @param name the name, may be null
+     * @return the id of the name, or {@link #NO_ID} if name is null
+     */
+    int id(String name) {
+        if (name == null)
+            return NO_ID;
+        Integer id = ids_.get(name);
+        if (id == null) {
+            id = names_.size();
+            names_.add(name);
+            ids_.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Return the shared instance of the name with the given id.
+     */
+    String name(int id) {
+        if (id == NO_ID)
+            return null;
+        return names_.get(id);
+    }
+
+    /**
+     * Return the shared instance of a name, adding it to the table if it
+     * is not already there.
+     */
+    String intern(String name) {
+        return name(id(name));
+    }
+
+    /**
+     * Return the number of names in the table.
+     */
+    int size() {
+        return names_.size();
+    }
+
+    /**
+     * Return the estimated bytes of heap used by the table and its names.
+     */
+    long footprint() {
+        // Each name has an entry in the map, a boxed id and a place in the list
+        long bytes = 0;
+        for (String name : names_) {
+            bytes += Footprint.chars(name.length()) + Footprint.MAP_ENTRY + 16 + 4;
+        }
+        return bytes;
+    }
+
+    /**
+     * Compare two names which may have ids in the same table.
+     * The names are only compared when the ids do not already show
+     * that they are the same.
+     */
+    static int compare(int id1, String name1, int id2, String name2) {
+        if (id1 == id2 && id1 != NO_ID)
+            return 0;
+        return name1.compareTo(name2);
+    }
+
+    /**
+     * Tests two names which may have ids in the same table for equality.
+     */
+    static boolean same(int id1, String name1, int id2, String name2) {
+        if (id1 != NO_ID && id2 != NO_ID)
+            return id1 == id2;
+        return name1.compareTo(name2) == 0;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+/**
+ * The parts of the doc block handling which depend on the options that
+ * control how an API is written out as XML. The options themselves are
+ * kept in the {@link JDiffContext} of the run.
+ * <p>
+ * These are kept apart from {@link RootDocToXML}, which needs the Javadoc
+ * classes, because comparing two XML files uses them too, and
+ * {@link CompareAPIs} must work without the Javadoc classes.
+ */
+class XMLOptions {
+
+    /**
+     * Find the index of the end of the first sentence in the given text,
+     * when writing out to an XML file.
+     * This is an extended version of the algorithm used by the DocCheck
+     * Javadoc doclet. It checks for @tags too.
+     *
+     * @param ctx  The context of the run.
+     * @param text The text to be searched.
+     * @return The index of the end of the first sentence. If there is no
+     * end, return -1. If there is no useful text, return 0.
+     * If the whole doc block comment is wanted (default), return -1.
+     */
+    public static int endOfFirstSentence(JDiffContext ctx, String text) {
+        return endOfFirstSentence(ctx, text, true);
+    }
+
+    /**
+     * Find the index of the end of the first sentence in the given text.
+     * This is an extended version of the algorithm used by the DocCheck
+     * Javadoc doclet. It checks for &#064;tags too.
+     *
+     * @param ctx          The context of the run.
+     * @param text         The text to be searched.
+     * @param writingToXML Set to true when writing out XML.
+     * @return The index of the end of the first sentence. If there is no
+     * end, return -1. If there is no useful text, return 0.
+     * If the whole doc block comment is wanted (default), return -1.
+     */
+    public static int endOfFirstSentence(JDiffContext ctx, String text, boolean writingToXML) {
+        if (ctx.saveAllDocs && writingToXML)
+            return -1;
+        int textLen = text.length();
+        if (textLen == 0)
+            return 0;
+        int index = -1;
+        // Handle some special cases
+        int fromindex = 0;
+        int ellipsis = text.indexOf(". . ."); // Handles one instance of this
+        if (ellipsis != -1)
+            fromindex = ellipsis + 5;
+        // If the first non-whitespace character is an @, go beyond it
+        int i = 0;
+        while (i < textLen && text.charAt(i) == ' ') {
+            i++;
+        }
+        if (text.charAt(i) == '@' && fromindex < textLen - 1)
+            fromindex = i + 1;
+        // Use the brute force approach.
+        index = minIndex(index, text.indexOf("? ", fromindex));
+        index = minIndex(index, text.indexOf("?\t", fromindex));
+        index = minIndex(index, text.indexOf("?\n", fromindex));
+        index = minIndex(index, text.indexOf("?\r", fromindex));
+        index = minIndex(index, text.indexOf("?\f", fromindex));
+        index = minIndex(index, text.indexOf("! ", fromindex));
+        index = minIndex(index, text.indexOf("!\t", fromindex));
+        index = minIndex(index, text.indexOf("!\n", fromindex));
+        index = minIndex(index, text.indexOf("!\r", fromindex));
+        index = minIndex(index, text.indexOf("!\f", fromindex));
+        index = minIndex(index, text.indexOf(". ", fromindex));
+        index = minIndex(index, text.indexOf(".\t", fromindex));
+        index = minIndex(index, text.indexOf(".\n", fromindex));
+        index = minIndex(index, text.indexOf(".\r", fromindex));
+        index = minIndex(index, text.indexOf(".\f", fromindex));
+        index = minIndex(index, text.indexOf("@param", fromindex));
+        index = minIndex(index, text.indexOf("@return", fromindex));
+        index = minIndex(index, text.indexOf("@throw", fromindex));
+        index = minIndex(index, text.indexOf("@serial", fromindex));
+        index = minIndex(index, text.indexOf("@exception", fromindex));
+        index = minIndex(index, text.indexOf("@deprecate", fromindex));
+        index = minIndex(index, text.indexOf("@author", fromindex));
+        index = minIndex(index, text.indexOf("@since", fromindex));
+        index = minIndex(index, text.indexOf("@see", fromindex));
+        index = minIndex(index, text.indexOf("@version", fromindex));
+        if (ctx.doExclude && ctx.excludeTag != null)
+            index = minIndex(index, text.indexOf(ctx.excludeTag));
+        index = minIndex(index, text.indexOf("@vtexclude", fromindex));
+        index = minIndex(index, text.indexOf("@vtinclude", fromindex));
+        index = minIndex(index, text.indexOf("<p>", 2)); // Not at start
+        index = minIndex(index, text.indexOf("<P>", 2)); // Not at start
+        index = minIndex(index, text.indexOf("<blockquote", 2));  // Not at start
+        index = minIndex(index, text.indexOf("<pre", fromindex)); // May contain anything!
+        // Avoid the char at the start of a tag in some cases
+        if (index != -1 &&
+                (text.charAt(index) == '@' || text.charAt(index) == '<')) {
+            if (index != 0)
+                index--;
+        }
+
+/* Not used for jdiff, since tags are explicitly checked for above.
+        // Look for a sentence terminated by an HTML tag.
+        index = minIndex(index, text.indexOf(".<", fromindex));
+        if (index == -1) {
+            // If period-whitespace etc was not found, check to see if
+            // last character is a period,
+            int endIndex = text.length()-1;
+            if (text.charAt(endIndex) == '.' ||
+                text.charAt(endIndex) == '?' ||
+                text.charAt(endIndex) == '!')
+                index = endIndex;
+        }
+*/
+        return index;
+    }
+
+    /**
+     * Return the minimum of two indexes if > -1, and return -1
+     * only if both indexes = -1.
+     *
+     * @param i an int index
+     * @param j an int index
+     * @return an int equal to the minimum index > -1, or -1
+     */
+    public static int minIndex(int i, int j) {
+        if (i == -1) return j;
+        if (j == -1) return i;
+        return Math.min(i, j);
+    }
+}
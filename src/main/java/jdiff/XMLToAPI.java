@@ -25,11 +25,14 @@ import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Creates an API object from an XML file. The API object is the internal
  * representation of an API.
- * All methods in this class for populating an API object are static.
+ * Each API object is populated by its own instance of this class.
  *
  * @author Matthew Doar, mdoar@pobox.com
  */
@@ -44,26 +47,41 @@ public class XMLToAPI {
     private static final boolean showExceptionTypes = true;
 
     /**
-     * If set, validate the XML which represents an API. By default, this is
-     * not set for reasons of efficiency, and also because if JDiff generated
-     * the XML, it should not need validating.
+     * The instance of the API object which is populated from the file.
      */
-    public static boolean validateXML;
+    private final API api_;
 
     /**
-     * The instance of the API object which is populated from the file.
+     * The table of names and types, shared by both APIs which are read in
+     * for a comparison, so that their ids can be compared.
+     */
+    private final SymbolTable symbols_;
+
+    /**
+     * The context of the run which the API is read for.
+     */
+    private final JDiffContext ctx_;
+
+    /**
+     * The number of inherited methods and fields which have been added.
      */
-    private static API api_;
+    private long inherited_;
 
     /**
-     * Default constructor.
+     * Create a reader which populates the given API, using the table of
+     * names and the options of the given context. Normally only
+     * {@link #readFile} does this.
      */
-    private XMLToAPI() {
+    XMLToAPI(JDiffContext ctx, API api) {
+        ctx_ = ctx;
+        api_ = api;
+        symbols_ = ctx.symbols;
     }
 
     /**
      * Read the file where the XML representing the API is stored.
      *
+     * @param ctx                  The context of the run
      * @param filename             The full name of the file containing the XML
      *                             representing the API
      * @param createGlobalComments If set, then store possible comments
@@ -71,14 +89,16 @@ public class XMLToAPI {
      *                             -newapidir are not used, then this is the same as
      *                             the filename parameter
      */
-    public static API readFile(String filename, boolean createGlobalComments,
+    public static API readFile(JDiffContext ctx, String filename, boolean createGlobalComments,
                                String apiName) {
         // The instance of the API object which is populated from the file.
-        api_ = new API();
-        api_.name_ = apiName; // Checked later
+        API api = new API();
+        api.name_ = apiName; // Checked later
+        XMLToAPI xml = new XMLToAPI(ctx, api);
         try {
             XMLReader parser = null;
-            DefaultHandler handler = new APIHandler(api_, createGlobalComments);
+            DocSource docSource = ctx.lazyDocs ? DocSource.open(filename) : null;
+            DefaultHandler handler = new APIHandler(ctx, xml, api, createGlobalComments, docSource);
             try {
                 String parserName = System.getProperty("org.xml.sax.driver");
                 if (parserName == null) {
@@ -89,11 +109,9 @@ public class XMLToAPI {
                     parser = org.xml.sax.helpers.XMLReaderFactory.createXMLReader();
                 }
             } catch (SAXException saxe) {
-                System.out.println("SAXException: " + saxe);
-                saxe.printStackTrace();
-                System.exit(1);
+                throw new JDiffException("could not create an XML parser: " + saxe, saxe);
             }
-            if (validateXML) {
+            if (ctx.validateXML) {
                 parser.setFeature("http://xml.org/sax/features/namespaces", true);
                 parser.setFeature("http://xml.org/sax/features/validation", true);
                 parser.setFeature("http://apache.org/xml/features/validation/schema", true);
@@ -105,32 +123,29 @@ public class XMLToAPI {
                 parser.parse(new InputSource(new BufferedInputStream(fis)));
             }
         } catch (org.xml.sax.SAXNotRecognizedException snre) {
-            System.out.println("SAX Parser does not recognize feature: " + snre);
-            snre.printStackTrace();
-            System.exit(1);
+            throw new JDiffException("SAX Parser does not recognize feature: " + snre, snre);
         } catch (org.xml.sax.SAXNotSupportedException snse) {
-            System.out.println("SAX Parser feature is not supported: " + snse);
-            snse.printStackTrace();
-            System.exit(1);
+            throw new JDiffException("SAX Parser feature is not supported: " + snse, snse);
         } catch (org.xml.sax.SAXException saxe) {
-            System.out.println("SAX Exception parsing file '" + filename + "' : " + saxe);
-            saxe.printStackTrace();
-            System.exit(1);
+            throw new JDiffException("could not parse file '" + filename + "': " + saxe, saxe);
         } catch (java.io.IOException ioe) {
-            System.out.println("IOException parsing file '" + filename + "' : " + ioe);
-            ioe.printStackTrace();
-            System.exit(1);
+            throw new JDiffException("could not read file '" + filename + "': " + ioe, ioe);
         }
 
         // Add the inherited methods and fields to each class
-        addInheritedElements();
-        return api_;
+        ctx.metrics.start("inheritance");
+        xml.addInheritedElements();
+        ctx.metrics.count(xml.inherited_);
+        ctx.metrics.end();
+        if (ctx.trimLists)
+            xml.trimAllLists();
+        return api;
     } //readFile()
 
     /**
      * Add the inherited methods and fields to each class in turn.
      */
-    public static void addInheritedElements() {
+    public void addInheritedElements() {
         for (PackageAPI pkg : api_.packages_) {
             for (ClassAPI cls : pkg.classes_) {
                 // Look up any inherited classes or interfaces
@@ -150,6 +165,35 @@ public class XMLToAPI {
         } //while (iter.hasNext())
     }
 
+    /**
+     * Replace the lists of packages, classes and class members in the API
+     * with trimmed ones, once nothing more will be added to them.
+     */
+    private void trimAllLists() {
+        api_.packages_ = trimmed(api_.packages_);
+        for (PackageAPI pkg : api_.packages_) {
+            pkg.classes_ = trimmed(pkg.classes_);
+            for (ClassAPI cls : pkg.classes_) {
+                cls.implements_ = trimmed(cls.implements_);
+                cls.ctors_ = trimmed(cls.ctors_);
+                cls.methods_ = trimmed(cls.methods_);
+                cls.fields_ = trimmed(cls.fields_);
+            }
+        }
+    }
+
+    /**
+     * Return a fixed-size list backed by an array of exactly the right
+     * length, or the shared empty list. The returned list can still be
+     * sorted.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> List<T> trimmed(List<T> list) {
+        if (list.isEmpty())
+            return Collections.emptyList();
+        return (List<T>) Arrays.asList(list.toArray());
+    }
+
     /**
      * Add all the inherited methods and fields in the second class to
      * the first class, marking them as inherited from the second class.
@@ -162,23 +206,23 @@ public class XMLToAPI {
      * If the parent class inherits any classes or interfaces, call this
      * method recursively with those parents.
      */
-    public static void addInheritedElements(ClassAPI child, ClassAPI parent,
+    public void addInheritedElements(ClassAPI child, ClassAPI parent,
                                             String fqParentName) {
         if (parent.methods_.size() != 0) {
             for (MethodAPI m : parent.methods_) {
                 // See if it the method is overridden locally
                 boolean overridden = false;
                 for (MethodAPI localM : child.methods_) {
-                    if (localM.name_.compareTo(m.name_) == 0 &&
-                            localM.getSignature().compareTo(m.getSignature()) == 0)
+                    if (SymbolTable.same(localM.nameId_, localM.name_, m.nameId_, m.name_) &&
+                            localM.equalSignatures(m))
                         overridden = true;
                 }
                 if (!overridden && m.inheritedFrom_ == null &&
-                        m.modifiers_.visibility != null &&
-                        m.modifiers_.visibility.compareTo("private") != 0) {
+                        m.modifiers_.getVisibility() != Modifiers.Visibility.PRIVATE) {
                     MethodAPI m2 = new MethodAPI(m);
                     m2.inheritedFrom_ = fqParentName;
                     child.methods_.add(m2);
+                    inherited_++;
                 }
             }
         }
@@ -186,11 +230,11 @@ public class XMLToAPI {
             for (FieldAPI f : parent.fields_) {
                 if (!child.fields_.contains(f) &&
                         f.inheritedFrom_ == null &&
-                        f.modifiers_.visibility != null &&
-                        f.modifiers_.visibility.compareTo("private") != 0) {
+                        f.modifiers_.getVisibility() != Modifiers.Visibility.PRIVATE) {
                     FieldAPI f2 = new FieldAPI(f);
                     f2.inheritedFrom_ = fqParentName;
                     child.fields_.add(f2);
+                    inherited_++;
                 }
             }
         }
@@ -215,10 +259,9 @@ public class XMLToAPI {
      *
      * @param name The name of the package.
      */
-    public static void nameAPI(String name) {
+    public void nameAPI(String name) {
         if (name == null) {
-            System.out.println("Error: no API identifier found in the XML file '" + api_.name_ + "'");
-            System.exit(3);
+            throw new JDiffException("no API identifier found in the XML file '" + api_.name_ + "'");
         }
         // Check the given name against the filename currently stored in
         // the name_ field
@@ -237,8 +280,8 @@ public class XMLToAPI {
      *
      * @param name The name of the package.
      */
-    public static void addPackage(String name) {
-        api_.currPkg_ = new PackageAPI(name);
+    public void addPackage(String name) {
+        api_.currPkg_ = new PackageAPI(symbols_.intern(name));
         api_.packages_.add(api_.currPkg_);
     }
 
@@ -249,15 +292,15 @@ public class XMLToAPI {
      * @param parent    The name of the parent class, null if no class is extended.
      * @param modifiers Modifiers for this class.
      */
-    public static void addClass(String name, String parent,
-                                boolean isAbstract,
-                                Modifiers modifiers) {
-        api_.currClass_ = new ClassAPI(name, parent, false, isAbstract, modifiers);
+    public void addClass(String name, String parent, Modifiers modifiers) {
+        api_.currClass_ = new ClassAPI(symbols_.intern(name), symbols_.intern(parent),
+                false, modifiers);
+        api_.currClass_.nameId_ = symbols_.id(name);
         api_.currPkg_.classes_.add(api_.currClass_);
         String fqName = api_.currPkg_.name_ + "." + name;
         ClassAPI caOld = api_.classes_.put(fqName, api_.currClass_);
         if (caOld != null) {
-            System.out.println("Warning: duplicate class : " + fqName + " found. Using the first instance only.");
+            ctx_.diagnostics.warn("duplicate class", "Warning: duplicate class : " + fqName + " found. Using the first instance only.");
         }
     }
 
@@ -268,11 +311,12 @@ public class XMLToAPI {
      * @param name   The name of the interface.
      * @param parent The name of the parent interface, null if no
      *               interface is extended.
+     * @param modifiers Modifiers for this interface.
      */
-    public static void addInterface(String name, String parent,
-                                    boolean isAbstract,
-                                    Modifiers modifiers) {
-        api_.currClass_ = new ClassAPI(name, parent, true, isAbstract, modifiers);
+    public void addInterface(String name, String parent, Modifiers modifiers) {
+        api_.currClass_ = new ClassAPI(symbols_.intern(name), symbols_.intern(parent),
+                true, modifiers);
+        api_.currClass_.nameId_ = symbols_.id(name);
         api_.currPkg_.classes_.add(api_.currClass_);
     }
 
@@ -282,8 +326,8 @@ public class XMLToAPI {
      *
      * @param name The name of the inherited interface.
      */
-    public static void addImplements(String name) {
-        api_.currClass_.implements_.add(name);
+    public void addImplements(String name) {
+        api_.currClass_.implements_.add(symbols_.intern(name));
     }
 
     /**
@@ -292,11 +336,12 @@ public class XMLToAPI {
      * @param type      The type of the constructor.
      * @param modifiers Modifiers for this constructor.
      */
-    public static void addCtor(String type, Modifiers modifiers) {
+    public void addCtor(String type, Modifiers modifiers) {
         String t = type;
         if (t == null)
             t = "void";
-        api_.currCtor_ = new ConstructorAPI(t, modifiers);
+        api_.currCtor_ = new ConstructorAPI(symbols_.intern(t), modifiers);
+        api_.currCtor_.typeId_ = symbols_.id(t);
         api_.currClass_.ctors_.add(api_.currCtor_);
     }
 
@@ -307,14 +352,13 @@ public class XMLToAPI {
      * @param returnType The return type of the method, null if it is void.
      * @param modifiers  Modifiers for this method.
      */
-    public static void addMethod(String name, String returnType,
-                                 boolean isAbstract, boolean isNative,
-                                 boolean isSynchronized, Modifiers modifiers) {
+    public void addMethod(String name, String returnType, Modifiers modifiers) {
         String rt = returnType;
         if (rt == null)
             rt = "void";
-        api_.currMethod_ = new MethodAPI(name, rt, isAbstract, isNative,
-                isSynchronized, modifiers);
+        api_.currMethod_ = new MethodAPI(symbols_.intern(name), symbols_.intern(rt), modifiers);
+        api_.currMethod_.nameId_ = symbols_.id(name);
+        api_.currMethod_.returnTypeId_ = symbols_.id(rt);
         api_.currClass_.methods_.add(api_.currMethod_);
     }
 
@@ -325,12 +369,14 @@ public class XMLToAPI {
      * @param type      The type of the field, null if it is void.
      * @param modifiers Modifiers for this field.
      */
-    public static void addField(String name, String type, boolean isTransient,
-                                boolean isVolatile, String value, Modifiers modifiers) {
+    public void addField(String name, String type, String value, Modifiers modifiers) {
         String t = type;
         if (t == null)
             t = "void";
-        api_.currField_ = new FieldAPI(name, t, isTransient, isVolatile, value, modifiers);
+        api_.currField_ = new FieldAPI(symbols_.intern(name), symbols_.intern(t),
+                value, modifiers);
+        api_.currField_.nameId_ = symbols_.id(name);
+        api_.currField_.typeId_ = symbols_.id(t);
         api_.currClass_.fields_.add(api_.currField_);
     }
 
@@ -342,11 +388,12 @@ public class XMLToAPI {
      * @param name The name of the parameter.
      * @param type The type of the parameter, null if it is void.
      */
-    public static void addParam(String name, String type) {
+    public void addParam(String name, String type) {
         String t = type;
         if (t == null)
             t = "void";
-        ParamAPI paramAPI = new ParamAPI(name, t);
+        ParamAPI paramAPI = new ParamAPI(symbols_.intern(name), symbols_.intern(t));
+        paramAPI.typeId_ = symbols_.id(t);
         api_.currMethod_.params_.add(paramAPI);
     }
 
@@ -359,7 +406,7 @@ public class XMLToAPI {
      *                    May be null in JDiff1.0.8 and earlier versions.
      * @param currElement Name of the current element.
      */
-    public static void addException(String name, String type, String currElement) {
+    public void addException(String name, String type, String currElement) {
         String exceptionId = type;
         if (type == null || !showExceptionTypes)
             exceptionId = name;
@@ -375,4 +422,29 @@ public class XMLToAPI {
                 api_.currCtor_.exceptions_ += ", " + exceptionId;
         }
     }
-}  
+
+    /**
+     * Called by the XML parser at the end of a constructor, when all its
+     * exceptions are known.
+     */
+    public void endCtor() {
+        ConstructorAPI ctor = api_.currCtor_;
+        ctor.exceptionsId_ = symbols_.id(ctor.exceptions_);
+        ctor.exceptions_ = symbols_.name(ctor.exceptionsId_);
+    }
+
+    /**
+     * Called by the XML parser at the end of a method, when all its
+     * parameters and exceptions are known.
+     */
+    public void endMethod() {
+        MethodAPI method = api_.currMethod_;
+        method.exceptionsId_ = symbols_.id(method.exceptions_);
+        method.exceptions_ = symbols_.name(method.exceptionsId_);
+        method.signatureId_ = symbols_.id(method.getSignature());
+        method.signature_ = symbols_.name(method.signatureId_);
+        // Trimmed now, so that inherited copies of the method share the list
+        if (ctx_.trimLists)
+            method.params_ = trimmed(method.params_);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests comparing two XML files without running Javadoc.
+ */
+public class CompareAPIsTest {
+
+    private File dir_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = Reports.newDirectory();
+    }
+
+    @After
+    public void tearDown() {
+        Reports.delete(dir_);
+    }
+
+    @Test
+    public void generatesTheReport() {
+        File report = new File(dir_, "report");
+        assertTrue(Reports.compare(report));
+        assertTrue(new File(report, "changes.html").isFile());
+        assertTrue(new File(report, "changes/changes-summary.html").isFile());
+        assertTrue(new File(report, "changes/pkg_ChangedPackage.html").isFile());
+        assertTrue(new File(report, "changes/jdiff_statistics.html").isFile());
+    }
+
+    @Test
+    public void acceptsTheDocletOptions() throws IOException {
+        File files = new File(dir_, "files");
+        File options = new File(dir_, "options");
+        assertTrue(Reports.compare(files));
+        // As with Javadoc, the -d directory must already exist
+        assertTrue(options.mkdir());
+        JDiffContext previous = JDiffContext.enter(new JDiffContext());
+        try {
+            String[] args = Reports.withDocChanges("-oldapi", "old", "-oldapidir", Reports.oldXML().getParent(),
+                "-newapi", "new", "-newapidir", Reports.newXML().getParent(), "-d", options.getPath());
+            assertTrue(CompareAPIs.compare(args));
+        } finally {
+            JDiffContext.exit(previous);
+        }
+        Reports.assertSameReport(files, options);
+    }
+
+    @Test
+    public void rejectsFilesWithoutTheXmlSuffix() {
+        File report = new File(dir_, "report");
+        assertFalse(CompareAPIs.compare(new File(dir_, "old.txt"), Reports.newXML(), report));
+        assertFalse(CompareAPIs.compare(Reports.oldXML(), new File(dir_, "new api.xml"), report));
+        assertFalse(report.exists());
+    }
+
+    @Test
+    public void needsBothAPIs() {
+        JDiffContext previous = JDiffContext.enter(new JDiffContext());
+        try {
+            assertFalse(CompareAPIs.compare(new String[] {"-oldapi", "old"}));
+            assertFalse(CompareAPIs.run(new String[] {Reports.oldXML().getPath()}, new JDiff()));
+        } finally {
+            JDiffContext.exit(previous);
+        }
+    }
+}
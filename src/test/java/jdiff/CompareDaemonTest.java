@@ -0,0 +1,173 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the protocol between {@link CompareClient} and a
+ * {@link CompareDaemon} running in a thread of its own.
+ */
+public class CompareDaemonTest {
+
+    private File dir_;
+
+    private File tokenFile_;
+
+    private int port_;
+
+    private Thread daemon_;
+
+    @Before
+    public void setUp() throws Exception {
+        dir_ = Reports.newDirectory();
+        tokenFile_ = new File(dir_, "daemon.token");
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port_ = socket.getLocalPort();
+        }
+        daemon_ = new Thread(() -> {
+            try {
+                new CompareDaemon(64L * 1024 * 1024).serve(port_, tokenFile_);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "compare daemon");
+        daemon_.start();
+        for (int i = 0; i < 500 && tokenFile_.length() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue("the daemon did not write its token", tokenFile_.length() > 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (daemon_.isAlive()) {
+            request(token(), CompareDaemon.STOP);
+            daemon_.join(10000);
+        }
+        Reports.delete(dir_);
+    }
+
+    private String token() throws IOException {
+        return new String(Files.readAllBytes(tokenFile_.toPath()), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Send a request as the client does, and return its output followed
+     * by a line with its exit status.
+     */
+    private String request(String token, String... args) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port_)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(token);
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            int frame;
+            while ((frame = in.readByte()) == CompareDaemon.OUTPUT) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                output.write(bytes);
+            }
+            assertEquals(CompareDaemon.STATUS, frame);
+            return new String(output.toByteArray(), StandardCharsets.UTF_8) + "status " + in.readInt();
+        }
+    }
+
+    private String compare(File report) throws IOException {
+        String[] options = Reports.withDocChanges();
+        String[] args = new String[options.length + 4];
+        args[0] = Reports.oldXML().getPath();
+        args[1] = Reports.newXML().getPath();
+        args[2] = "-d";
+        args[3] = report.getPath();
+        System.arraycopy(options, 0, args, 4, options.length);
+        return request(token(), args);
+    }
+
+    @Test
+    public void requestWithoutTheTokenIsRejected() throws IOException {
+        String output = request("not the token", CompareDaemon.STOP);
+        assertEquals("Error: the request does not have the token of the compare daemon\nstatus 1", output);
+        assertTrue(daemon_.isAlive());
+    }
+
+    @Test
+    public void comparesLikeCompareAPIs() throws IOException {
+        File expected = new File(dir_, "expected");
+        File first = new File(dir_, "first");
+        File second = new File(dir_, "second");
+        assertTrue(Reports.compare(expected));
+
+        String output = compare(first);
+        assertTrue(output, output.endsWith("status 0"));
+        assertFalse(output, output.contains("(cached)"));
+        Reports.assertSameReport(expected, first);
+
+        // The second request reads both APIs from the cache
+        output = compare(second);
+        assertTrue(output, output.endsWith("status 0"));
+        assertTrue(output, output.contains("(cached)"));
+        Reports.assertSameReport(expected, second);
+    }
+
+    @Test
+    public void failedRequestOnlyEndsThatRequest() throws IOException {
+        String output = request(token(), new File(dir_, "missing.xml").getPath(), Reports.newXML().getPath(),
+            "-d", new File(dir_, "report").getPath());
+        assertTrue(output, output.endsWith("status 1"));
+        output = request(token(), Reports.oldXML().getPath(), Reports.newXML().getPath(), "-serve");
+        assertTrue(output, output.startsWith("Error: the compare daemon cannot serve reports"));
+        assertTrue(output, output.endsWith("status 1"));
+        assertTrue(compare(new File(dir_, "report")).endsWith("status 0"));
+    }
+
+    @Test
+    public void stopDeletesTheToken() throws Exception {
+        assertEquals("status 0", request(token(), CompareDaemon.STOP));
+        daemon_.join(10000);
+        assertFalse(daemon_.isAlive());
+        assertFalse(tokenFile_.exists());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that comparing one baseline with many candidates gives the same
+ * reports as comparing the baseline with each candidate on its own.
+ */
+public class CompareFanOutTest {
+
+    private File dir_;
+
+    private File candidates_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = Reports.newDirectory();
+        candidates_ = new File(dir_, "candidates");
+        assertTrue(candidates_.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        Reports.delete(dir_);
+    }
+
+    private File copy(File xml, String name) throws IOException {
+        File copy = new File(candidates_, name);
+        Files.copy(xml.toPath(), copy.toPath());
+        return copy;
+    }
+
+    private static boolean fanOut(File outputDir, List<File> candidates, String... options) {
+        List<String> args = new ArrayList<>();
+        args.add(Reports.oldXML().getPath());
+        for (File candidate : candidates) {
+            args.add(candidate.getPath());
+        }
+        args.add("-d");
+        args.add(outputDir.getPath());
+        args.addAll(Arrays.asList(Reports.withDocChanges(options)));
+        return CompareFanOut.run(args.toArray(new String[0]));
+    }
+
+    private List<File> candidates() throws IOException {
+        return Arrays.asList(copy(Reports.newXML(), "c1.xml"), copy(Reports.oldXML(), "c2.xml"),
+            copy(Reports.newXML(), "c3.xml"));
+    }
+
+    /**
+     * Compare the baseline with each candidate on its own, into the
+     * subdirectories which a fan-out uses.
+     */
+    private File pairs(List<File> candidates) {
+        File pairs = new File(dir_, "pairs");
+        for (File candidate : candidates) {
+            if (candidate.getName().startsWith("c"))
+                assertTrue(Reports.compare(Reports.oldXML(), candidate,
+                    new File(pairs, "old_to_" + CompareAPIs.apiName(candidate))));
+        }
+        return pairs;
+    }
+
+    @Test
+    public void oneThreadGivesTheSameReportsAsEachPair() throws IOException {
+        List<File> candidates = candidates();
+        File fanOut = new File(dir_, "fanout");
+        assertTrue(fanOut(fanOut, candidates, "-threads", "1"));
+        Reports.assertSameReport(pairs(candidates), fanOut);
+    }
+
+    @Test
+    public void threadsGiveTheSameReportsAsEachPair() throws IOException {
+        List<File> candidates = candidates();
+        File fanOut = new File(dir_, "fanout");
+        assertTrue(fanOut(fanOut, candidates, "-threads", "3"));
+        Reports.assertSameReport(pairs(candidates), fanOut);
+    }
+
+    @Test
+    public void badCandidateOnlyFailsItsOwnComparison() throws IOException {
+        File broken = new File(candidates_, "broken.xml");
+        Files.write(broken.toPath(), "<api name=\"broken\"><package".getBytes(StandardCharsets.UTF_8));
+        List<File> candidates = new ArrayList<>(candidates());
+        candidates.add(1, broken);
+        File fanOut = new File(dir_, "fanout");
+        assertFalse(fanOut(fanOut, candidates, "-threads", "2"));
+        File pairs = pairs(candidates);
+        // The failed comparison may leave a partial report behind
+        Reports.delete(new File(fanOut, "old_to_broken"));
+        Reports.assertSameReport(pairs, fanOut);
+    }
+
+    @Test
+    public void candidatesNeedDifferentNames() throws IOException {
+        File other = new File(dir_, "other");
+        assertTrue(other.mkdir());
+        File c1 = copy(Reports.newXML(), "c1.xml");
+        File again = new File(other, "c1.xml");
+        Files.copy(c1.toPath(), again.toPath());
+        assertFalse(fanOut(new File(dir_, "fanout"), Arrays.asList(c1, again)));
+        assertFalse(new File(dir_, "fanout").exists());
+    }
+
+    @Test
+    public void threadsMustBePositive() throws IOException {
+        List<File> candidates = candidates();
+        assertFalse(fanOut(new File(dir_, "fanout"), candidates, "-threads", "0"));
+        assertFalse(fanOut(new File(dir_, "fanout"), candidates, "-threads", "many"));
+        assertFalse(new File(dir_, "fanout").exists());
+    }
+}
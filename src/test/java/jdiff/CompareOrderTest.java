@@ -0,0 +1,128 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the order in which the elements of an API are sorted, and that
+ * the comparison still finds what the order no longer looks at.
+ */
+public class CompareOrderTest {
+
+    private static final Modifiers PUBLIC = Modifiers.of(Modifiers.visibilityBits(Modifiers.Visibility.PUBLIC));
+
+    private JDiffContext ctx_;
+
+    private JDiffContext previous_;
+
+    @Before
+    public void setUp() {
+        ctx_ = new JDiffContext();
+        ctx_.reportDocChanges = true;
+        ctx_.showAllChanges = true;
+        previous_ = JDiffContext.enter(ctx_);
+    }
+
+    @After
+    public void tearDown() {
+        JDiffContext.exit(previous_);
+    }
+
+    @Test
+    public void packagesAndClassesAreOrderedByName() {
+        PackageAPI a = new PackageAPI("a");
+        a.docFingerprint_ = 1;
+        PackageAPI b = new PackageAPI("b");
+        PackageAPI otherA = new PackageAPI("a");
+        otherA.docFingerprint_ = 2;
+        assertTrue(a.compareTo(b) < 0);
+        assertTrue(b.compareTo(a) > 0);
+        assertEquals(0, a.compareTo(otherA));
+
+        ClassAPI c = new ClassAPI("C", null, false, PUBLIC);
+        c.docFingerprint_ = 1;
+        ClassAPI otherC = new ClassAPI("C", null, true, Modifiers.of(Modifiers.ABSTRACT));
+        otherC.docFingerprint_ = 2;
+        assertEquals(0, c.compareTo(otherC));
+        assertTrue(c.compareTo(new ClassAPI("D", null, false, PUBLIC)) < 0);
+    }
+
+    @Test
+    public void memberOrderDoesNotDependOnTheOptions() {
+        MethodAPI m = new MethodAPI("m", "void", PUBLIC);
+        m.docFingerprint_ = 1;
+        MethodAPI inherited = new MethodAPI("m", "void", PUBLIC);
+        inherited.inheritedFrom_ = "p.Base";
+        inherited.docFingerprint_ = 2;
+        assertEquals(0, m.compareTo(inherited));
+        assertEquals(0, inherited.compareTo(m));
+
+        FieldAPI f = new FieldAPI("F", "int", "1", PUBLIC);
+        FieldAPI changed = new FieldAPI("F", "int", "2", Modifiers.of(Modifiers.FINAL));
+        changed.inheritedFrom_ = "p.Base";
+        assertEquals(0, f.compareTo(changed));
+        assertTrue(f.compareTo(new FieldAPI("F", "long", "1", PUBLIC)) != 0);
+
+        ConstructorAPI ctor = new ConstructorAPI("int", PUBLIC);
+        ConstructorAPI otherCtor = new ConstructorAPI("int", PUBLIC);
+        otherCtor.docFingerprint_ = 1;
+        assertEquals(0, ctor.compareTo(otherCtor));
+    }
+
+    @Test
+    public void changesAreListedByName() {
+        ctx_.symbols = new SymbolTable();
+        JDiff jdiff = new JDiff();
+        API oldAPI = jdiff.readAPI(ctx_, Reports.oldXML().getPath(), false, "old");
+        API newAPI = jdiff.readAPI(ctx_, Reports.newXML().getPath(), true, "new");
+        APIComparator comp = new APIComparator(ctx_);
+        comp.compareAPIs(oldAPI, newAPI);
+
+        List<String> packages = new ArrayList<>();
+        for (PackageDiff pkgDiff : comp.apiDiff.packagesChanged) {
+            packages.add(pkgDiff.name_);
+            List<String> classes = new ArrayList<>();
+            for (ClassDiff classDiff : pkgDiff.classesChanged) {
+                classes.add(classDiff.name_);
+            }
+            assertSorted(classes);
+        }
+        // The packages whose only change is their documentation are
+        // found, and are in their place
+        assertTrue(packages.toString(), packages.contains("ChangedPackageDoc"));
+        assertTrue(packages.toString(), packages.contains("ChangedPackageDoc2"));
+        assertSorted(packages);
+    }
+
+    private static void assertSorted(List<String> names) {
+        for (int i = 1; i < names.size(); i++) {
+            assertFalse(names.toString(), names.get(i - 1).compareTo(names.get(i)) > 0);
+        }
+    }
+}
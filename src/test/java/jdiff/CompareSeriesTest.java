@@ -0,0 +1,91 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that comparing a series of versions gives the same reports as
+ * comparing each pair of versions on its own.
+ */
+public class CompareSeriesTest {
+
+    private File dir_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = Reports.newDirectory();
+    }
+
+    @After
+    public void tearDown() {
+        Reports.delete(dir_);
+    }
+
+    private File copy(File xml, String name) throws IOException {
+        File copy = new File(dir_, name);
+        Files.copy(xml.toPath(), copy.toPath());
+        return copy;
+    }
+
+    @Test
+    public void seriesGivesTheSameReportsAsEachPair() throws IOException {
+        File v1 = copy(Reports.oldXML(), "v1.xml");
+        File v2 = copy(Reports.newXML(), "v2.xml");
+        File v3 = copy(Reports.oldXML(), "v3.xml");
+        File series = new File(dir_, "series");
+        String[] options = Reports.withDocChanges();
+        String[] args = new String[options.length + 5];
+        args[0] = v1.getPath();
+        args[1] = v2.getPath();
+        args[2] = v3.getPath();
+        args[3] = "-d";
+        args[4] = series.getPath();
+        System.arraycopy(options, 0, args, 5, options.length);
+        assertTrue(CompareSeries.run(args));
+
+        File pairs = new File(dir_, "pairs");
+        assertTrue(Reports.compare(v1, v2, new File(pairs, "v1_to_v2")));
+        assertTrue(Reports.compare(v2, v3, new File(pairs, "v2_to_v3")));
+        Reports.assertSameReport(pairs, series);
+    }
+
+    @Test
+    public void needsTwoVersions() {
+        assertFalse(CompareSeries.run(new String[] {Reports.oldXML().getPath()}));
+        assertFalse(CompareSeries.run(new String[] {Reports.oldXML().getPath(), "-d", dir_.getPath()}));
+    }
+
+    @Test
+    public void cannotServeTheReports() {
+        assertFalse(CompareSeries.run(new String[] {Reports.oldXML().getPath(), Reports.newXML().getPath(),
+            "-d", dir_.getPath(), "-serve", "0"}));
+        assertFalse(new File(dir_, "old_to_new").exists());
+    }
+}
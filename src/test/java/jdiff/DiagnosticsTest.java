@@ -0,0 +1,148 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests collecting warnings by kind, printing only the first few of each.
+ */
+public class DiagnosticsTest {
+
+    private PrintStream stdout_;
+
+    private ByteArrayOutputStream output_;
+
+    private File dir_;
+
+    @Before
+    public void setUp() throws IOException {
+        stdout_ = System.out;
+        output_ = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output_, true));
+        dir_ = Reports.newDirectory();
+    }
+
+    @After
+    public void tearDown() {
+        System.setOut(stdout_);
+        Reports.delete(dir_);
+    }
+
+    private List<String> output() {
+        return Arrays.asList(output_.toString().split("\r?\n"));
+    }
+
+    private List<String> file() throws IOException {
+        return Files.readAllLines(new File(dir_, Diagnostics.diagnosticsFileName).toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void printsOnlyTheFirstOfEachKind() throws IOException {
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.maxPrinted = 2;
+        for (int i = 1; i <= 4; i++) {
+            diagnostics.warn("a", "Warning: a" + i);
+            if (i % 2 == 0)
+                diagnostics.warn("b", "Warning: b" + i);
+        }
+        diagnostics.finish(dir_.getPath());
+        String fileName = new File(dir_, Diagnostics.diagnosticsFileName).getPath();
+        assertEquals(Arrays.asList("Warning: a1", "Warning: a2", "Warning: b2", "Warning: b4",
+            "JDiff: 2 more 'a' warnings were not shown",
+            "JDiff: 6 warnings were written to file '" + fileName + "'"), output());
+        assertEquals(Arrays.asList("[a] Warning: a1", "[a] Warning: a2", "[b] Warning: b2", "[a] Warning: a3",
+            "[a] Warning: a4", "[b] Warning: b4"), file());
+    }
+
+    @Test
+    public void minusOnePrintsEveryWarning() throws IOException {
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.maxPrinted = -1;
+        for (int i = 1; i <= Diagnostics.defaultMaxPrinted + 1; i++) {
+            diagnostics.warn("a", "Warning: a" + i);
+        }
+        diagnostics.finish(dir_.getPath());
+        assertEquals(Diagnostics.defaultMaxPrinted + 2, output().size());
+        assertEquals(Diagnostics.defaultMaxPrinted + 1, file().size());
+    }
+
+    @Test
+    public void noWarningsWritesNoFile() {
+        new Diagnostics().finish(dir_.getPath());
+        assertFalse(new File(dir_, Diagnostics.diagnosticsFileName).exists());
+        assertEquals("", output_.toString());
+    }
+
+    @Test
+    public void finishStartsAgain() throws IOException {
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.warn("a", "Warning: first");
+        diagnostics.finish(dir_.getPath());
+        diagnostics.warn("a", "Warning: second");
+        diagnostics.finish(dir_.getPath());
+        assertEquals(Arrays.asList("[a] Warning: second"), file());
+    }
+
+    @Test
+    public void reportWritesEveryWarningToTheFile() throws IOException {
+        File report = new File(dir_, "report");
+        assertTrue(Reports.compare(report, "-maxwarnings", "0"));
+        for (String line : output()) {
+            assertFalse(line, line.contains("undeprecated for class"));
+        }
+        List<String> warnings = Files.readAllLines(new File(report, Diagnostics.diagnosticsFileName).toPath(),
+            StandardCharsets.UTF_8);
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0), warnings.get(0).startsWith("[undeprecated] "));
+        assertTrue(output().contains("JDiff: 1 more 'undeprecated' warnings were not shown"));
+    }
+
+    @Test
+    public void maxWarningsMustBeMinusOneOrMore() {
+        List<String> errors = new ArrayList<>();
+        JDiffContext previous = JDiffContext.enter(new JDiffContext());
+        try {
+            assertFalse(Options.parseOptions(new String[][] {{"-oldapi", "old"}, {"-newapi", "new"},
+                {"-maxwarnings", "-2"}}, errors::add));
+            assertTrue(Options.parseOptions(new String[][] {{"-maxwarnings", "-1"}}, errors::add));
+            assertEquals(-1, JDiffContext.current().diagnostics.maxPrinted);
+        } finally {
+            JDiffContext.exit(previous);
+        }
+        assertEquals(1, errors.size());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the entries which hold what the report shows of removed and added
+ * elements, once the differences are detached from the APIs.
+ */
+public class DiffEntryTest {
+
+    private static final Modifiers PUBLIC = Modifiers.of(Modifiers.visibilityBits(Modifiers.Visibility.PUBLIC));
+
+    private File dir_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = Reports.newDirectory();
+    }
+
+    @After
+    public void tearDown() {
+        Reports.delete(dir_);
+    }
+
+    @Test
+    public void entriesKeepWhatTheReportShows() {
+        PackageAPI pkg = new PackageAPI("p");
+        pkg.doc_ = "Package doc.";
+        DiffEntry entry = new DiffEntry(pkg);
+        assertEquals("p", entry.name_);
+        assertEquals("Package doc.", entry.getDoc());
+
+        ClassAPI cls = new ClassAPI("I", null, true, PUBLIC);
+        entry = new DiffEntry(cls);
+        assertEquals("I", entry.name_);
+        assertTrue(entry.isInterface_);
+        assertNull(entry.getDoc());
+
+        ConstructorAPI ctor = new ConstructorAPI("int, String", PUBLIC);
+        entry = new DiffEntry(ctor);
+        assertNull(entry.name_);
+        assertEquals("int, String", entry.type_);
+
+        MethodAPI method = new MethodAPI("size", "int", PUBLIC);
+        method.params_.add(new ParamAPI("from", "long"));
+        entry = new DiffEntry(method);
+        assertEquals("size", entry.name_);
+        assertEquals("int", entry.type_);
+        assertEquals(method.getSignature(), entry.signature_);
+
+        FieldAPI field = new FieldAPI("MAX", "long", "10", PUBLIC);
+        entry = new DiffEntry(field);
+        assertEquals("MAX", entry.name_);
+        assertEquals("long", entry.type_);
+        assertNull(entry.signature_);
+    }
+
+    @Test
+    public void detachReplacesTheElementsOfTheAPIs() {
+        ClassDiff classDiff = new ClassDiff("C");
+        MethodAPI method = new MethodAPI("added", "void", PUBLIC);
+        method.doc_ = "Added method.";
+        classDiff.addedMethods_.add(method);
+        classDiff.removedFields_.add(new FieldAPI("removed", "int", null, PUBLIC));
+        classDiff.addedCtors_.add(new ConstructorAPI("", PUBLIC));
+
+        classDiff.detach();
+        assertNull(classDiff.addedMethods_);
+        assertNull(classDiff.removedFields_);
+        assertNull(classDiff.addedCtors_);
+        assertEquals(1, classDiff.methodsAdded.size());
+        assertEquals(0, classDiff.methodsRemoved.size());
+        assertEquals(1, classDiff.fieldsRemoved.size());
+        assertEquals(0, classDiff.fieldsAdded.size());
+        assertEquals(1, classDiff.ctorsAdded.size());
+        assertEquals(0, classDiff.ctorsRemoved.size());
+
+        // Nothing in the entries changes with the element they came from
+        method.name_ = "renamed";
+        method.doc_ = null;
+        DiffEntry entry = classDiff.methodsAdded.get(0);
+        assertEquals("added", entry.name_);
+        assertEquals("Added method.", entry.getDoc());
+        assertEquals("removed", classDiff.fieldsRemoved.get(0).name_);
+    }
+
+    @Test
+    public void lazyDocIsReadFromTheFile() throws IOException {
+        File xml = new File(dir_, "api.xml");
+        Files.write(xml.toPath(), "<api><doc>Lazy doc.</doc></api>".getBytes(StandardCharsets.UTF_8));
+        DocSource source = DocSource.open(xml.getPath());
+        FieldAPI field = new FieldAPI("f", "int", null, PUBLIC);
+        field.docSource_ = source;
+        field.docLocation_ = source.nextDoc();
+        DiffEntry entry = new DiffEntry(field);
+        assertNull(entry.doc_);
+        assertEquals("Lazy doc.", entry.getDoc());
+    }
+
+    @Test
+    public void comparisonDetachesEveryClass() {
+        JDiffContext ctx = new JDiffContext();
+        JDiffContext previous = JDiffContext.enter(ctx);
+        try {
+            ctx.symbols = new SymbolTable();
+            JDiff jdiff = new JDiff();
+            API oldAPI = jdiff.readAPI(ctx, Reports.oldXML().getPath(), false, "old");
+            API newAPI = jdiff.readAPI(ctx, Reports.newXML().getPath(), true, "new");
+            APIComparator comp = new APIComparator(ctx);
+            comp.compareAPIs(oldAPI, newAPI);
+            assertFalse(comp.apiDiff.packagesChanged.isEmpty());
+            for (PackageDiff pkgDiff : comp.apiDiff.packagesChanged) {
+                for (ClassDiff classDiff : pkgDiff.classesChanged) {
+                    assertNull(classDiff.addedMethods_);
+                    assertNull(classDiff.removedMethods_);
+                    assertTrue(classDiff.methodsAdded != null && classDiff.methodsRemoved != null);
+                }
+            }
+        } finally {
+            JDiffContext.exit(previous);
+        }
+    }
+}
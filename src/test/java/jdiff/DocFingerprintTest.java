@@ -0,0 +1,75 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests the exact and normalised documentation fingerprints.
+ */
+public class DocFingerprintTest {
+
+    @Test
+    public void missingDocumentationHasNoFingerprint() {
+        assertEquals(DocFingerprint.NONE, DocFingerprint.of(null));
+        assertEquals(DocFingerprint.NONE, DocFingerprint.normalised(null));
+    }
+
+    @Test
+    public void emptyDocumentationIsNotMissing() {
+        assertNotEquals(DocFingerprint.NONE, DocFingerprint.of(""));
+        assertNotEquals(DocFingerprint.NONE, DocFingerprint.normalised(""));
+    }
+
+    @Test
+    public void sameTextHasSameFingerprint() {
+        String doc = "Returns the <b>first</b> element.";
+        assertEquals(DocFingerprint.of(doc), DocFingerprint.of(new String(doc.toCharArray())));
+        assertEquals(DocFingerprint.normalised(doc), DocFingerprint.normalised(new String(doc.toCharArray())));
+    }
+
+    @Test
+    public void exactFingerprintSeesEveryCharacter() {
+        assertNotEquals(DocFingerprint.of("Returns the first element."),
+            DocFingerprint.of("Returns the  first element."));
+        assertNotEquals(DocFingerprint.of("Returns the first element."),
+            DocFingerprint.of("Returns the first element!"));
+        assertNotEquals(DocFingerprint.of("<B>x</B>"), DocFingerprint.of("<b>x</b>"));
+    }
+
+    @Test
+    public void normalisedFingerprintIgnoresReformatting() {
+        long doc = DocFingerprint.normalised("Returns the <b>first</b> element.");
+        assertEquals(doc, DocFingerprint.normalised("  Returns   the\n <B>first</B>  element."));
+        assertEquals(doc, DocFingerprint.normalised("Returns\tthe <b> first </b> element."));
+    }
+
+    @Test
+    public void normalisedFingerprintSeesTextChanges() {
+        assertNotEquals(DocFingerprint.normalised("Returns the first element."),
+            DocFingerprint.normalised("Returns the last element."));
+        assertNotEquals(DocFingerprint.normalised("Returns the first element."),
+            DocFingerprint.normalised("Returns thefirst element."));
+        assertNotEquals(DocFingerprint.normalised("FIRST"), DocFingerprint.normalised("first"));
+    }
+}
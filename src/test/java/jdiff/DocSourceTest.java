@@ -0,0 +1,127 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests reading doc blocks from a mapped XML file on demand, and that
+ * the -lazydocs option does not change the report.
+ */
+public class DocSourceTest {
+
+    private File dir_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = Reports.newDirectory();
+    }
+
+    @After
+    public void tearDown() {
+        Reports.delete(dir_);
+    }
+
+    private DocSource open(String xml, String encoding) throws IOException {
+        File file = new File(dir_, "api.xml");
+        Files.write(file.toPath(), xml.getBytes(encoding));
+        return DocSource.open(file.getPath());
+    }
+
+    @Test
+    public void findsDocBlocksInOrder() throws IOException {
+        DocSource source = open("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<api><!-- <doc>not a doc block</doc> -->\n"
+            + "<class name=\"A\"><doc>First</doc>\n"
+            + "<method name=\"m\"><doc><![CDATA[Second <b>one</b>]]></doc></method>\n"
+            + "<field name=\"f\"><doc/></field>\n"
+            + "<documented><doc>Fourth</doc></documented></class></api>\n", "UTF-8");
+        assertNotNull(source);
+        assertEquals("First", source.read(source.nextDoc()));
+        assertEquals("Second <b>one</b>", source.read(source.nextDoc()));
+        assertEquals("", source.read(source.nextDoc()));
+        assertEquals("Fourth", source.read(source.nextDoc()));
+        assertEquals(DocSource.NO_DOC, source.nextDoc());
+    }
+
+    @Test
+    public void normalisesLineEndingsAndTrims() throws IOException {
+        DocSource source = open("<api><doc>\r\n  One\r\nTwo\rThree  \n</doc></api>", "UTF-8");
+        long location = source.nextDoc();
+        assertEquals("One\nTwo\nThree", source.read(location));
+        assertTrue(source.matches(location, "One\nTwo\nThree"));
+    }
+
+    @Test
+    public void blocksWhichNeedAParserAreNotRead() throws IOException {
+        DocSource source = open("<api><doc>a &amp; b</doc><doc>a <i>b</i></doc></api>", "UTF-8");
+        long entity = source.nextDoc();
+        assertNull(source.read(entity));
+        assertTrue(!source.matches(entity, "a & b"));
+        assertNull(source.read(source.nextDoc()));
+    }
+
+    @Test
+    public void decodesTheDeclaredEncoding() throws IOException {
+        DocSource source = open("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>"
+            + "<api><doc>Jos\u00e9</doc></api>", "ISO-8859-1");
+        assertNotNull(source);
+        assertEquals("Jos\u00e9", source.read(source.nextDoc()));
+    }
+
+    @Test
+    public void lazyTextIsReadWhenUsed() throws IOException {
+        DocSource source = open("<api><doc>Lazy text</doc></api>", "UTF-8");
+        CharSequence text = source.lazyText(source.nextDoc());
+        assertEquals(9, text.length());
+        assertEquals('L', text.charAt(0));
+        assertEquals("text", text.subSequence(5, 9).toString());
+        assertEquals("Lazy text", text.toString());
+        assertEquals("in memory", DocSource.text("in memory", source, 0L));
+        assertNull(DocSource.text(null, null, 0L));
+    }
+
+    @Test
+    public void unsupportedEncodingIsKeptInMemory() throws IOException {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-16\"?><api><doc>x</doc></api>";
+        assertNull(open(xml, "UTF-16"));
+    }
+
+    @Test
+    public void lazyDocsGiveTheSameReport() throws IOException {
+        File plain = new File(dir_, "plain");
+        File lazy = new File(dir_, "lazy");
+        assertTrue(Reports.compare(plain));
+        assertTrue(Reports.compare(lazy, "-lazydocs"));
+        Reports.assertSameReport(plain, lazy);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a heap budget moves documentation differences to disk
+ * without changing the report.
+ */
+public class HeapBudgetTest {
+
+    private File dir_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = Reports.newDirectory();
+    }
+
+    @After
+    public void tearDown() {
+        Reports.delete(dir_);
+    }
+
+    /**
+     * Generate some documentation differences in a context of their own.
+     *
+     * @param heapBudget the heap budget in bytes, or -1 for none
+     */
+    private Diff docDiffs(long heapBudget) {
+        JDiffContext ctx = new JDiffContext();
+        ctx.heapBudget = heapBudget;
+        Diff diff = ctx.diff;
+        diff.noDocDiffs = false;
+        diff.saveDocDiffs(ctx, "p", "C", "Old text of the block.", "New text of the block.", "p.C.m", "Method m");
+        diff.saveDocDiffs(ctx, "p", "C", "Old field text.", "New field text.", "p.C.f", "Field f");
+        ctx.diagnostics.finish(dir_.getPath());
+        return diff;
+    }
+
+    @Test
+    public void smallBudgetMovesDocDiffsToDisk() {
+        Diff inMemory = docDiffs(-1);
+        Diff onDisk = docDiffs(0);
+        assertEquals(0, inMemory.spilledBytes());
+        assertTrue(onDisk.spilledBytes() > 0);
+        assertTrue(onDisk.footprint() < inMemory.footprint());
+        assertTrue(new File(dir_, Diagnostics.diagnosticsFileName).exists());
+        onDisk.deleteSpillFile();
+        assertEquals(0, onDisk.spilledBytes());
+    }
+
+    @Test
+    public void largeBudgetKeepsDocDiffsInMemory() {
+        Diff diff = docDiffs(1024 * 1024);
+        assertEquals(0, diff.spilledBytes());
+        assertFalse(new File(dir_, Diagnostics.diagnosticsFileName).exists());
+    }
+
+    @Test
+    public void budgetGivesTheSameReport() throws IOException {
+        File plain = new File(dir_, "plain");
+        assertTrue(Reports.compare(plain));
+        for (String mb : new String[] {"1", "0"}) {
+            File budget = new File(dir_, "budget" + mb);
+            assertTrue(Reports.compare(budget, "-heapbudget", mb));
+            Reports.assertSameReport(plain, budget);
+        }
+    }
+
+    @Test
+    public void budgetMustNotBeNegative() {
+        List<String> errors = new ArrayList<>();
+        JDiffContext previous = JDiffContext.enter(new JDiffContext());
+        try {
+            assertFalse(Options.parseOptions(new String[][] {{"-oldapi", "old"}, {"-newapi", "new"},
+                {"-heapbudget", "-1"}}, errors::add));
+            assertEquals(-1, JDiffContext.current().heapBudget);
+        } finally {
+            JDiffContext.exit(previous);
+        }
+        assertEquals(1, errors.size());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the figures which the JDiff MXBean shows while a comparison runs.
+ */
+public class JDiffMonitorTest {
+
+    private final MBeanServer server_ = ManagementFactory.getPlatformMBeanServer();
+
+    private ObjectName name_;
+
+    private File dir_;
+
+    @Before
+    public void setUp() throws IOException, MalformedObjectNameException {
+        dir_ = Reports.newDirectory();
+        name_ = new ObjectName(JDiffMonitor.objectName);
+    }
+
+    @After
+    public void tearDown() {
+        Reports.delete(dir_);
+    }
+
+    /**
+     * Reads the figures of the MXBean, as a JMX client would, just before
+     * each API is read in.
+     */
+    private final class SamplingJDiff extends JDiff {
+
+        final boolean[] registered = new boolean[2];
+
+        final String[][] currentPhases = new String[2][];
+
+        final long[] elementsProcessed = new long[2];
+
+        final long[] oldClassesRead = new long[2];
+
+        private int sample_;
+
+        @Override
+        protected API readAPI(JDiffContext ctx, String fileName, boolean createGlobalComments, String apiName) {
+            registered[sample_] = server_.isRegistered(name_);
+            if (registered[sample_]) {
+                JDiffMXBean monitor = JMX.newMXBeanProxy(server_, name_, JDiffMXBean.class);
+                currentPhases[sample_] = monitor.getCurrentPhases();
+                elementsProcessed[sample_] = monitor.getElementsProcessed();
+                oldClassesRead[sample_] = monitor.getPhaseElements().getOrDefault("read old", 0L);
+            }
+            sample_++;
+            return super.readAPI(ctx, fileName, createGlobalComments, apiName);
+        }
+    }
+
+    private boolean compare(SamplingJDiff jdiff, String... options) {
+        JDiffContext previous = JDiffContext.enter(new JDiffContext());
+        try {
+            return CompareAPIs.compare(Reports.oldXML(), Reports.newXML(), dir_, Reports.withDocChanges(options), jdiff);
+        } finally {
+            JDiffContext.exit(previous);
+        }
+    }
+
+    @Test
+    public void figuresMoveDuringARun() {
+        SamplingJDiff jdiff = new SamplingJDiff();
+        assertFalse(server_.isRegistered(name_));
+        assertTrue(compare(jdiff, "-jmx"));
+        assertTrue(jdiff.registered[0]);
+        assertTrue(jdiff.registered[1]);
+        // Once the run is over, the MXBean is gone
+        assertFalse(server_.isRegistered(name_));
+
+        String thread = Thread.currentThread().getName();
+        assertEquals(Arrays.asList(thread + ": read old"), Arrays.asList(jdiff.currentPhases[0]));
+        assertEquals(Arrays.asList(thread + ": read new"), Arrays.asList(jdiff.currentPhases[1]));
+        // Each class of the old API is counted once it has been read, and
+        // so are the members it inherits
+        int oldClasses = XMLToAPI.readFile(new JDiffContext(), Reports.oldXML().getPath(), false,
+            Reports.oldXML().getName()).classes_.size();
+        assertEquals(oldClasses, jdiff.oldClassesRead[1] - jdiff.oldClassesRead[0]);
+        assertTrue(jdiff.elementsProcessed[1] - jdiff.elementsProcessed[0] > oldClasses);
+    }
+
+    @Test
+    public void registeredOnlyWithTheOption() {
+        SamplingJDiff jdiff = new SamplingJDiff();
+        assertTrue(compare(jdiff));
+        assertFalse(jdiff.registered[0]);
+        assertFalse(jdiff.registered[1]);
+        assertFalse(server_.isRegistered(name_));
+    }
+}
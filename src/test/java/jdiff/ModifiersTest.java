@@ -0,0 +1,128 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the packed, shared Modifiers objects.
+ */
+public class ModifiersTest {
+
+    private static final int PUBLIC = Modifiers.visibilityBits(Modifiers.Visibility.PUBLIC);
+
+    private static final int PROTECTED = Modifiers.visibilityBits(Modifiers.Visibility.PROTECTED);
+
+    @Test
+    public void sameBitsShareOneObject() {
+        assertSame(Modifiers.of(PUBLIC | Modifiers.STATIC), Modifiers.of(PUBLIC | Modifiers.STATIC));
+        assertEquals(PUBLIC | Modifiers.STATIC, Modifiers.of(PUBLIC | Modifiers.STATIC).bits());
+    }
+
+    @Test
+    public void flagsRoundTrip() {
+        Modifiers modifiers = Modifiers.of(Modifiers.FINAL | Modifiers.NATIVE | Modifiers.VOLATILE);
+        assertTrue(modifiers.isFinal());
+        assertTrue(modifiers.isNative());
+        assertTrue(modifiers.isVolatile());
+        assertFalse(modifiers.isStatic());
+        assertFalse(modifiers.isAbstract());
+        assertFalse(modifiers.isDeprecated());
+        assertFalse(modifiers.isSynchronized());
+        assertFalse(modifiers.isTransient());
+    }
+
+    @Test
+    public void visibilityRoundTrip() {
+        assertNull(Modifiers.of(0).getVisibility());
+        for (Modifiers.Visibility visibility : Modifiers.Visibility.values()) {
+            Modifiers modifiers = Modifiers.of(Modifiers.visibilityBits(visibility) | Modifiers.STATIC);
+            assertSame(visibility, modifiers.getVisibility());
+            assertSame(visibility, Modifiers.Visibility.parse(visibility.toString()));
+        }
+        assertNull(Modifiers.Visibility.parse("internal"));
+        assertNull(Modifiers.Visibility.parse(null));
+    }
+
+    @Test
+    public void changesMasksTheDifferentFlags() {
+        Modifiers old = Modifiers.of(PUBLIC | Modifiers.STATIC | Modifiers.ABSTRACT);
+        Modifiers now = Modifiers.of(PROTECTED | Modifiers.STATIC | Modifiers.SYNCHRONIZED);
+        int changes = old.changes(now);
+        assertEquals(0, changes & Modifiers.STATIC);
+        assertTrue((changes & Modifiers.ABSTRACT) != 0);
+        assertTrue((changes & Modifiers.SYNCHRONIZED) != 0);
+        assertTrue((changes & Modifiers.VISIBILITY) != 0);
+        assertEquals(0, old.changes(old));
+    }
+
+    @Test
+    public void compareToIsATotalOrderOfTheCommonModifiers() {
+        int[] all = {0, PUBLIC, PROTECTED, Modifiers.STATIC, Modifiers.FINAL | Modifiers.DEPRECATED,
+            PUBLIC | Modifiers.STATIC | Modifiers.FINAL, PROTECTED | Modifiers.DEPRECATED};
+        for (int a : all) {
+            Modifiers x = Modifiers.of(a);
+            assertEquals(0, x.compareTo(x));
+            for (int b : all) {
+                Modifiers y = Modifiers.of(b);
+                assertEquals(Integer.signum(x.compareTo(y)), -Integer.signum(y.compareTo(x)));
+                assertEquals(a == b, x.compareTo(y) == 0);
+                for (int c : all) {
+                    Modifiers z = Modifiers.of(c);
+                    if (x.compareTo(y) < 0 && y.compareTo(z) < 0)
+                        assertTrue(x.compareTo(z) < 0);
+                }
+            }
+        }
+        // Modifiers which only apply to some program elements are left to them
+        assertEquals(0, Modifiers.of(PUBLIC).compareTo(Modifiers.of(PUBLIC | Modifiers.NATIVE)));
+    }
+
+    @Test
+    public void diffDescribesEachChange() {
+        Modifiers old = Modifiers.of(PUBLIC | Modifiers.STATIC);
+        Modifiers now = Modifiers.of(PROTECTED | Modifiers.FINAL | Modifiers.DEPRECATED);
+        assertEquals("Change from static to non-static.<br> Change from non-final to final.<br>"
+                + " <b>Now deprecated</b>.<br> Change of visibility from public to protected.<br>",
+            old.diff(now, false));
+        assertNull(old.diff(old, false));
+        assertNull(old.diff(Modifiers.of(PUBLIC | Modifiers.STATIC | Modifiers.TRANSIENT), false));
+    }
+
+    @Test
+    public void incompatibleChangesOnlySkipsDeprecation() {
+        Modifiers old = Modifiers.of(PUBLIC);
+        Modifiers now = Modifiers.of(PUBLIC | Modifiers.DEPRECATED);
+        assertEquals("<b>Now deprecated</b>.<br>", old.diff(now, false));
+        assertNull(old.diff(now, true));
+        assertEquals("Change from deprecated to undeprecated.<br>", now.diff(old, false));
+    }
+
+    @Test
+    public void unknownOldVisibilityIsNotReported() {
+        assertNull(Modifiers.of(0).diff(Modifiers.of(PUBLIC), false));
+    }
+}
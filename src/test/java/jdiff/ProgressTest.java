@@ -0,0 +1,124 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests when progress lines are printed, and what they say.
+ */
+public class ProgressTest {
+
+    private PrintStream stdout_;
+
+    private ByteArrayOutputStream output_;
+
+    @Before
+    public void setUp() {
+        stdout_ = System.out;
+        output_ = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output_, true));
+    }
+
+    @After
+    public void tearDown() {
+        System.setOut(stdout_);
+    }
+
+    private String output() {
+        return output_.toString();
+    }
+
+    @Test
+    public void shortStagePrintsNothing() {
+        Progress progress = new Progress();
+        progress.beginComparison(2, 10);
+        progress.packageCompared(4);
+        progress.docDiff();
+        progress.packageCompared(6);
+        progress.end();
+        progress.beginPages(3);
+        for (int i = 0; i < 3; i++) {
+            progress.pageWritten();
+        }
+        progress.end();
+        assertEquals("", output());
+    }
+
+    @Test
+    public void slowStagePrintsRateAndTimeLeft() {
+        Progress progress = new Progress();
+        progress.setInterval(1);
+        long total = 1000000000000L;
+        progress.beginPages(total);
+        long deadline = System.nanoTime() + 5000000000L;
+        while (output().isEmpty() && System.nanoTime() < deadline) {
+            progress.pageWritten();
+        }
+        String line = output();
+        assertTrue(line, line.startsWith("JDiff: writing pages: "));
+        assertTrue(line, line.contains(" of " + total + " pages (0%), "));
+        assertTrue(line, line.contains(" pages/s, about "));
+        assertTrue(line, line.trim().endsWith("s left"));
+
+        progress.end();
+        String finished = output().substring(line.length());
+        assertTrue(finished, finished.startsWith("JDiff: writing pages: finished "));
+        assertTrue(finished, finished.trim().endsWith(" pages/s"));
+    }
+
+    @Test
+    public void zeroIntervalPrintsNothing() throws InterruptedException {
+        Progress progress = new Progress();
+        progress.setInterval(0);
+        progress.beginComparison(1, 1);
+        Thread.sleep(20);
+        progress.packageCompared(1);
+        progress.end();
+        assertEquals("", output());
+    }
+
+    @Test
+    public void intervalMustNotBeNegative() {
+        List<String> errors = new ArrayList<>();
+        JDiffContext previous = JDiffContext.enter(new JDiffContext());
+        try {
+            assertFalse(Options.parseOptions(new String[][] {{"-oldapi", "old"}, {"-newapi", "new"},
+                {"-progress", "-1"}}, errors::add));
+            assertFalse(Options.parseOptions(new String[][] {{"-oldapi", "old"}, {"-newapi", "new"},
+                {"-progress", "often"}}, errors::add));
+        } finally {
+            JDiffContext.exit(previous);
+        }
+        assertEquals(2, errors.size());
+        assertTrue(errors.get(0), errors.get(0).startsWith("Invalid number of seconds '-1'"));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the pages served over HTTP are the same as the files of the
+ * report.
+ */
+public class ReportServerTest {
+
+    private File dir_;
+
+    private int port_;
+
+    private Thread server_;
+
+    @Before
+    public void setUp() throws Exception {
+        dir_ = Reports.newDirectory();
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port_ = socket.getLocalPort();
+        }
+        File served = new File(dir_, "served");
+        server_ = new Thread(() -> Reports.compare(served, "-serve", String.valueOf(port_)), "report server");
+        server_.start();
+        for (int i = 0; i < 500 && status("changes.html") == -1; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server_.interrupt();
+        server_.join(10000);
+        assertFalse("the server did not stop", server_.isAlive());
+        Reports.delete(dir_);
+    }
+
+    private URL url(String page) throws IOException {
+        return new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), port_, "/" + page);
+    }
+
+    /**
+     * Return the HTTP status of a page, or -1 if the server is not
+     * listening yet.
+     */
+    private int status(String page) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url(page).openConnection();
+        try {
+            return connection.getResponseCode();
+        } catch (ConnectException e) {
+            return -1;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private List<String> get(String page) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url(page).openConnection();
+        assertEquals(page, 200, connection.getResponseCode());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, len);
+            }
+        }
+        return withoutDate(Arrays.asList(new String(bytes.toByteArray(), StandardCharsets.ISO_8859_1).split("\r?\n")));
+    }
+
+    private static List<String> withoutDate(List<String> lines) {
+        List<String> kept = new ArrayList<>();
+        for (String line : lines) {
+            if (!line.startsWith("<!-- on "))
+                kept.add(line);
+        }
+        return kept;
+    }
+
+    @Test
+    public void servesTheSamePagesAsTheFiles() throws IOException {
+        File files = new File(dir_, "files");
+        assertTrue(Reports.compare(files));
+        List<String> pages = new ArrayList<>();
+        pages.add("changes.html");
+        pages.add("stylesheet-jdiff.css");
+        pages.add("missingSinces.txt");
+        for (String name : new File(files, "changes").list()) {
+            pages.add("changes/" + name);
+        }
+        // Ask for the last page first, so the order of the requests does not matter
+        pages.add(0, pages.remove(pages.size() - 1));
+        for (String page : pages) {
+            List<String> expected = withoutDate(Files.readAllLines(new File(files, page).toPath(), StandardCharsets.ISO_8859_1));
+            assertEquals(page, expected, get(page));
+        }
+        // A page which has already been served comes from the cache
+        assertEquals(withoutDate(Files.readAllLines(new File(files, "changes.html").toPath(), StandardCharsets.ISO_8859_1)),
+            get("changes.html"));
+    }
+
+    @Test
+    public void servesTheTopLevelPageAtTheRoot() throws IOException {
+        assertEquals(get("changes.html"), get(""));
+    }
+
+    @Test
+    public void unknownPageIsNotFound() throws IOException {
+        assertEquals(404, status("changes/no_such_page.html"));
+        assertEquals(404, status("user_comments_for_old_to_new.xml"));
+    }
+}
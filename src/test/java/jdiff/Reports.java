@@ -0,0 +1,174 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs JDiff over the XML files in the test resources and compares the
+ * reports which it generates.
+ * <p>
+ * The XML files were generated by the JDiff doclet from the sources in
+ * the <code>old</code> and <code>new</code> test resources.
+ */
+final class Reports {
+
+    /**
+     * Files which differ from one run to the next, even with the same APIs.
+     */
+    private static final String[] VOLATILE_FILES = {RunMetrics.metricsFileName, Diagnostics.diagnosticsFileName};
+
+    private Reports() {
+    }
+
+    /**
+     * Return the XML file for the old API.
+     */
+    static File oldXML() {
+        return resource("/xml/old.xml");
+    }
+
+    /**
+     * Return the XML file for the new API.
+     */
+    static File newXML() {
+        return resource("/xml/new.xml");
+    }
+
+    private static File resource(String name) {
+        try {
+            return new File(Reports.class.getResource(name).toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compare the old and the new API in a context of its own, as a
+     * separate run of JDiff would, and write the report into the given
+     * directory.
+     *
+     * @return true if the report was generated
+     */
+    static boolean compare(File outputDir, String... options) {
+        return compare(oldXML(), newXML(), outputDir, options);
+    }
+
+    /**
+     * Compare the APIs in two XML files as {@link #compare(File, String...)}
+     * does.
+     */
+    static boolean compare(File oldXML, File newXML, File outputDir, String... options) {
+        JDiffContext previous = JDiffContext.enter(new JDiffContext());
+        try {
+            return CompareAPIs.compare(oldXML, newXML, outputDir, withDocChanges(options));
+        } finally {
+            JDiffContext.exit(previous);
+        }
+    }
+
+    /**
+     * Add the options which every test report uses, so that the report
+     * covers as much of JDiff as it can.
+     */
+    static String[] withDocChanges(String... options) {
+        List<String> all = new ArrayList<>();
+        all.add("-stats");
+        all.add("-docchanges");
+        all.addAll(Arrays.asList(options));
+        return all.toArray(new String[0]);
+    }
+
+    /**
+     * Assert that two reports contain the same files with the same
+     * contents, apart from the time at which they were generated.
+     */
+    static void assertSameReport(File expected, File actual) throws IOException {
+        assertEquals("files in " + actual, list(expected), list(actual));
+        for (String name : list(expected)) {
+            File expectedFile = new File(expected, name);
+            File actualFile = new File(actual, name);
+            if (expectedFile.isDirectory()) {
+                assertSameReport(expectedFile, actualFile);
+            } else {
+                assertEquals("contents of " + actualFile, contents(expectedFile), contents(actualFile));
+            }
+        }
+    }
+
+    private static List<String> list(File dir) {
+        List<String> names = new ArrayList<>();
+        String[] files = dir.list();
+        assertTrue("missing directory " + dir, files != null);
+        Arrays.sort(files);
+        for (String name : files) {
+            if (!isVolatile(name))
+                names.add(name);
+        }
+        return names;
+    }
+
+    private static boolean isVolatile(String name) {
+        for (String file : VOLATILE_FILES) {
+            if (file.equals(name))
+                return true;
+        }
+        return false;
+    }
+
+    private static List<String> contents(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.ISO_8859_1)) {
+            if (!line.startsWith("<!-- on "))
+                lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Create an empty temporary directory.
+     */
+    static File newDirectory() throws IOException {
+        return Files.createTempDirectory("jdiff-test").toFile();
+    }
+
+    /**
+     * Delete a file or a directory and everything in it.
+     */
+    static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
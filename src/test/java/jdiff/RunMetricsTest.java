@@ -0,0 +1,158 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the phases and counts which are written to the metrics file.
+ */
+public class RunMetricsTest {
+
+    private static final Pattern PHASE = Pattern.compile("\\{\"name\": \"([^\"]*)\", \"calls\": (\\d+), \"count\": (\\d+), "
+        + "\"wallNanos\": (-?\\d+), \"cpuNanos\": (-?\\d+), \"allocatedBytes\": (-?\\d+)\\}");
+
+    private static final Pattern DOC_DIFF = Pattern.compile("<A NAME=\"[^\"]*\"></A>");
+
+    private File dir_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = Reports.newDirectory();
+    }
+
+    @After
+    public void tearDown() {
+        Reports.delete(dir_);
+    }
+
+    /**
+     * Read the phases of a metrics file, in their order, as the calls,
+     * count, wall time, CPU time and allocated bytes of each.
+     */
+    private static Map<String, long[]> phases(File file) throws IOException {
+        Map<String, long[]> phases = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            Matcher m = PHASE.matcher(line);
+            if (m.find()) {
+                phases.put(m.group(1), new long[] {Long.parseLong(m.group(2)), Long.parseLong(m.group(3)),
+                    Long.parseLong(m.group(4)), Long.parseLong(m.group(5)), Long.parseLong(m.group(6))});
+            }
+        }
+        return phases;
+    }
+
+    private Map<String, long[]> write(RunMetrics metrics) throws IOException {
+        File file = new File(dir_, RunMetrics.metricsFileName);
+        metrics.writeFile(file.getPath(), "old", "new");
+        return phases(file);
+    }
+
+    @Test
+    public void nestedPhasesAreNamedAfterTheirParent() throws IOException {
+        RunMetrics metrics = new RunMetrics();
+        metrics.start("read old");
+        metrics.count(3);
+        metrics.start("inheritance");
+        metrics.count(2);
+        metrics.end();
+        metrics.end();
+        metrics.start("read old");
+        metrics.count(4);
+        metrics.end();
+        Map<String, long[]> phases = write(metrics);
+        assertEquals(Arrays.asList("read old", "read old/inheritance"), new ArrayList<>(phases.keySet()));
+        assertEquals(2, phases.get("read old")[0]);
+        assertEquals(7, phases.get("read old")[1]);
+        assertEquals(1, phases.get("read old/inheritance")[0]);
+        assertEquals(2, phases.get("read old/inheritance")[1]);
+        assertTrue(phases.get("read old")[2] >= phases.get("read old/inheritance")[2]);
+        assertTrue(metrics.summary().startsWith("read old "));
+        assertTrue(metrics.summary(), !metrics.summary().contains("inheritance"));
+    }
+
+    @Test
+    public void addedPhaseHasOnlyAWallTime() throws IOException {
+        RunMetrics metrics = new RunMetrics();
+        metrics.start("compare");
+        metrics.add("doc diffs", 5, 1);
+        metrics.start("merge");
+        metrics.add("doc diffs", 7, 1);
+        metrics.end();
+        metrics.end();
+        Map<String, long[]> phases = write(metrics);
+        assertEquals(Arrays.asList("compare", "doc diffs", "compare/merge"), new ArrayList<>(phases.keySet()));
+        assertEquals(Arrays.toString(new long[] {2, 2, 12, -1, -1}), Arrays.toString(phases.get("doc diffs")));
+        assertEquals(0, phases.get("compare")[1]);
+        assertTrue(metrics.summary(), metrics.summary().contains("doc diffs 0.00s"));
+    }
+
+    @Test
+    public void reportRecordsEachPhaseOfTheRun() throws IOException {
+        assertTrue(Reports.compare(dir_));
+        Map<String, long[]> phases = phases(new File(dir_, RunMetrics.metricsFileName));
+        assertEquals(Arrays.asList("read old", "read old/inheritance", "read new", "read new/inheritance",
+            "compare", "doc diffs", "compare/merge", "read comments", "report", "report/doc diff pages",
+            "report/pages", "report/indexes", "report/statistics", "write comments"), new ArrayList<>(phases.keySet()));
+        for (long[] phase : phases.values()) {
+            assertTrue(phase[2] > 0);
+        }
+
+        JDiffContext ctx = new JDiffContext();
+        int oldClasses = XMLToAPI.readFile(ctx, Reports.oldXML().getPath(), false, "old").classes_.size();
+        int newClasses = XMLToAPI.readFile(ctx, Reports.newXML().getPath(), false, "new").classes_.size();
+        assertEquals(oldClasses, phases.get("read old")[1]);
+        assertEquals(newClasses, phases.get("read new")[1]);
+        assertEquals(oldClasses + newClasses, phases.get("compare")[1]);
+
+        // Each documentation difference is on the page of its package
+        int docDiffs = 0;
+        File[] pages = new File(dir_, "changes").listFiles((d, name) -> name.startsWith(Diff.diffFileName)
+            && !name.equals(Diff.diffFileName + "index" + HTMLReportGenerator.reportFileExt));
+        for (File page : pages) {
+            Matcher m = DOC_DIFF.matcher(new String(Files.readAllBytes(page.toPath()), StandardCharsets.ISO_8859_1));
+            while (m.find()) {
+                docDiffs++;
+            }
+        }
+        assertTrue(docDiffs > 0);
+        long[] phase = phases.get("doc diffs");
+        assertEquals(docDiffs, phase[0]);
+        assertEquals(docDiffs, phase[1]);
+        assertEquals(-1, phase[3]);
+        assertEquals(-1, phase[4]);
+    }
+}
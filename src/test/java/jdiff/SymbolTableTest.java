@@ -0,0 +1,111 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the mapping of names to ids and the comparisons which use them.
+ */
+public class SymbolTableTest {
+
+    @Test
+    public void sameNameHasSameId() {
+        SymbolTable table = new SymbolTable();
+        int id = table.id("java.lang.String");
+        assertEquals(id, table.id(new String("java.lang.String")));
+        assertNotEquals(id, table.id("java.lang.Object"));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void nullHasNoId() {
+        SymbolTable table = new SymbolTable();
+        assertEquals(SymbolTable.NO_ID, table.id(null));
+        assertNull(table.name(SymbolTable.NO_ID));
+        assertNull(table.intern(null));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void internSharesOneInstance() {
+        SymbolTable table = new SymbolTable();
+        String first = table.intern(new String("int"));
+        assertSame(first, table.intern(new String("int")));
+        assertSame(first, table.name(table.id("int")));
+    }
+
+    @Test
+    public void copyKeepsIds() {
+        SymbolTable old = new SymbolTable();
+        int a = old.id("a");
+        int b = old.id("b");
+        SymbolTable copy = new SymbolTable(old);
+        assertEquals(a, copy.id("a"));
+        assertEquals(b, copy.id("b"));
+        // Names added to the copy do not appear in the original
+        copy.id("c");
+        assertEquals(3, copy.size());
+        assertEquals(2, old.size());
+    }
+
+    @Test
+    public void compareFollowsNamesNotIds() {
+        SymbolTable table = new SymbolTable();
+        // Added out of order, so the ids do not follow the names
+        int z = table.id("z");
+        int a = table.id("a");
+        assertTrue(SymbolTable.compare(a, "a", z, "z") < 0);
+        assertTrue(SymbolTable.compare(z, "z", a, "a") > 0);
+        assertEquals(0, SymbolTable.compare(a, "a", a, "a"));
+        assertEquals(0, SymbolTable.compare(SymbolTable.NO_ID, "a", a, "a"));
+    }
+
+    @Test
+    public void sameUsesIdsWhenBothHaveThem() {
+        SymbolTable table = new SymbolTable();
+        int a = table.id("a");
+        int b = table.id("b");
+        assertTrue(SymbolTable.same(a, "a", a, "a"));
+        assertFalse(SymbolTable.same(a, "a", b, "b"));
+        assertTrue(SymbolTable.same(SymbolTable.NO_ID, "a", a, "a"));
+        assertFalse(SymbolTable.same(SymbolTable.NO_ID, "a", SymbolTable.NO_ID, "b"));
+    }
+
+    @Test
+    public void footprintGrowsWithNames() {
+        SymbolTable table = new SymbolTable();
+        assertEquals(0, table.footprint());
+        table.id("a");
+        long one = table.footprint();
+        assertTrue(one > 0);
+        table.id("a");
+        assertEquals(one, table.footprint());
+        table.id("b");
+        assertTrue(table.footprint() > one);
+    }
+}
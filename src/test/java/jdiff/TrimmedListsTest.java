@@ -0,0 +1,175 @@
+/*
+ * JDiff - HTML report of API differences
+ * Copyright (C) 2021  José Roberto de Araújo Júnior <joserobjr@powernukkit.org>
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+
+package jdiff;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests replacing the lists of an API which has been read in by trimmed
+ * ones.
+ */
+public class TrimmedListsTest {
+
+    private static final String API = "<?xml version=\"1.0\" standalone=\"no\"?>\n"
+        + "<api name=\"trimmed\" jdversion=\"2.0.0-PN\">\n"
+        + "<package name=\"p\">\n"
+        + "  <class name=\"Child\" extends=\"p.Parent\" abstract=\"false\"\n"
+        + "    static=\"false\" final=\"false\" visibility=\"public\" deprecated=\"not deprecated\">\n"
+        + "    <method name=\"own\" return=\"void\" abstract=\"false\" native=\"false\" synchronized=\"false\"\n"
+        + "      static=\"false\" final=\"false\" visibility=\"public\" deprecated=\"not deprecated\">\n"
+        + "    </method>\n"
+        + "  </class>\n"
+        + "  <class name=\"Parent\" extends=\"java.lang.Object\" abstract=\"false\"\n"
+        + "    static=\"false\" final=\"false\" visibility=\"public\" deprecated=\"not deprecated\">\n"
+        + "    <implements name=\"java.io.Serializable\"/>\n"
+        + "    <method name=\"inherited\" return=\"int\" abstract=\"false\" native=\"false\" synchronized=\"false\"\n"
+        + "      static=\"false\" final=\"false\" visibility=\"public\" deprecated=\"not deprecated\">\n"
+        + "      <param name=\"a\" type=\"int\"/>\n"
+        + "      <param name=\"b\" type=\"java.lang.String\"/>\n"
+        + "    </method>\n"
+        + "    <field name=\"VALUE\" type=\"int\" transient=\"false\" volatile=\"false\"\n"
+        + "      static=\"true\" final=\"true\" visibility=\"public\" deprecated=\"not deprecated\">\n"
+        + "    </field>\n"
+        + "  </class>\n"
+        + "</package>\n"
+        + "</api>\n";
+
+    private File dir_;
+
+    private File xml_;
+
+    @Before
+    public void setUp() throws IOException {
+        dir_ = Files.createTempDirectory("jdiff").toFile();
+        xml_ = new File(dir_, "trimmed.xml");
+        Files.write(xml_.toPath(), API.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        xml_.delete();
+        dir_.delete();
+    }
+
+    private API read(boolean trimLists) {
+        JDiffContext ctx = new JDiffContext();
+        ctx.trimLists = trimLists;
+        return XMLToAPI.readFile(ctx, xml_.getPath(), false, xml_.getName());
+    }
+
+    private static ClassAPI find(API api, String name) {
+        for (ClassAPI cls : api.packages_.get(0).classes_) {
+            if (cls.name_.equals(name))
+                return cls;
+        }
+        throw new AssertionError("no class " + name);
+    }
+
+    /**
+     * Return the names of the members of a class, in their order.
+     */
+    private static List<String> members(ClassAPI cls) {
+        List<String> names = new ArrayList<>();
+        cls.implements_.forEach(name -> names.add("implements " + name));
+        cls.ctors_.forEach(ctor -> names.add("ctor " + ctor.type_));
+        cls.methods_.forEach(method -> names.add("method " + method.name_ + method.getSignature()
+            + (method.inheritedFrom_ == null ? "" : " from " + method.inheritedFrom_)));
+        cls.fields_.forEach(field -> names.add("field " + field.name_
+            + (field.inheritedFrom_ == null ? "" : " from " + field.inheritedFrom_)));
+        return names;
+    }
+
+    @Test
+    public void trimmedListsHoldTheSameElements() {
+        API trimmed = read(true);
+        API untrimmed = read(false);
+        assertEquals(2, trimmed.packages_.get(0).classes_.size());
+        for (String name : new String[] {"Child", "Parent"}) {
+            assertEquals(members(find(untrimmed, name)), members(find(trimmed, name)));
+        }
+        assertEquals(3, find(trimmed, "Child").methods_.size() + find(trimmed, "Child").fields_.size());
+    }
+
+    @Test
+    public void emptyListsAreShared() {
+        API api = read(true);
+        ClassAPI child = find(api, "Child");
+        assertSame(Collections.emptyList(), child.ctors_);
+        assertSame(Collections.emptyList(), child.implements_);
+        assertSame(Collections.emptyList(), find(api, "Parent").ctors_);
+        assertSame(Collections.emptyList(), find(child.methods_, "own").params_);
+    }
+
+    @Test
+    public void inheritedMethodsShareTheTrimmedParameters() {
+        API api = read(true);
+        MethodAPI inherited = find(find(api, "Child").methods_, "inherited");
+        assertEquals("p.Parent", inherited.inheritedFrom_);
+        assertSame(find(find(api, "Parent").methods_, "inherited").params_, inherited.params_);
+        assertEquals(2, inherited.params_.size());
+        assertFixedSize(inherited.params_);
+    }
+
+    @Test
+    public void trimmedListsCannotGrow() {
+        API api = read(true);
+        ClassAPI parent = find(api, "Parent");
+        assertFixedSize(api.packages_);
+        assertFixedSize(api.packages_.get(0).classes_);
+        assertFixedSize(parent.implements_);
+        assertFixedSize(parent.methods_);
+        assertFixedSize(parent.fields_);
+        // Sorting a trimmed list still works
+        Collections.sort(parent.methods_);
+    }
+
+    private static MethodAPI find(List<MethodAPI> methods, String name) {
+        for (MethodAPI method : methods) {
+            if (method.name_.equals(name))
+                return method;
+        }
+        throw new AssertionError("no method " + name);
+    }
+
+    private static <T> void assertFixedSize(List<T> list) {
+        assertTrue(list.size() > 0);
+        try {
+            list.add(list.get(0));
+            fail("a trimmed list should not grow");
+        } catch (UnsupportedOperationException e) {
+            // Trimmed lists are fixed in size
+        }
+    }
+}